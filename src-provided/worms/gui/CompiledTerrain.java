@@ -0,0 +1,161 @@
+package worms.gui;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import worms.model.TerrainMap;
+
+/**
+ * The passable map of a level, compiled into a binary file next to the level file,
+ * so that a world can be started by copying that file into the heap instead of
+ * decoding the map image and thresholding every pixel.
+ *
+ * The file consists of a header of 40 bytes followed by the words of the terrain
+ * map, row by row, all in little-endian byte order:
+ *
+ * <pre>
+ * int    magic number
+ * int    format version
+ * int    width in pixels
+ * int    height in pixels
+ * double scale (in worm-meter per map pixel)
+ * long   last modification time of the level file
+ * long   last modification time of the map image
+ * long[] words of the terrain map
+ * </pre>
+ *
+ * A compiled file is stale, and is ignored, if its magic number or version differ
+ * from the current ones, or if the level file or map image changed since it was written.
+ */
+class CompiledTerrain {
+
+	static final String COMPILED_FILE_EXTENSION = ".terrain";
+
+	private static final int MAGIC = 0x57524d54; // "WRMT"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 40;
+
+	private final File file;
+	private final int width;
+	private final int height;
+	private final double scale;
+
+	private CompiledTerrain(File file, int width, int height, double scale) {
+		this.file = file;
+		this.width = width;
+		this.height = height;
+		this.scale = scale;
+	}
+
+	/**
+	 * Opens the given compiled file, or returns null if it does not exist,
+	 * is unreadable or is stale with respect to the given modification times.
+	 */
+	static CompiledTerrain open(File file, long levelModified, long imageModified) {
+		if (!file.isFile())
+			return null;
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				if (raf.length() < HEADER_SIZE)
+					return null;
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(
+						ByteOrder.LITTLE_ENDIAN);
+				raf.readFully(header.array());
+				if (header.getInt() != MAGIC || header.getInt() != VERSION)
+					return null;
+				int width = header.getInt();
+				int height = header.getInt();
+				double scale = header.getDouble();
+				if (header.getLong() != levelModified
+						|| header.getLong() != imageModified)
+					return null;
+				if (width <= 0 || height <= 0
+						|| raf.length() != HEADER_SIZE + 8L * wordsPerRow(width) * height)
+					return null;
+				return new CompiledTerrain(file, width, height, scale);
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the given terrain map and scale to the given compiled file.
+	 */
+	static void write(File file, TerrainMap terrain, double scale,
+			long levelModified, long imageModified) throws IOException {
+		int width = terrain.getWidthInPixels();
+		int height = terrain.getHeightInPixels();
+		long size = HEADER_SIZE + 8L * wordsPerRow(width) * height;
+		File temporary = new File(file.getPath() + ".tmp");
+		RandomAccessFile raf = new RandomAccessFile(temporary, "rw");
+		try {
+			raf.setLength(size);
+			MappedByteBuffer buffer = raf.getChannel().map(MapMode.READ_WRITE,
+					0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height);
+			buffer.putDouble(scale).putLong(levelModified).putLong(imageModified);
+			LongBuffer words = terrain.getWordBuffer();
+			words.rewind();
+			buffer.asLongBuffer().put(words);
+			buffer.force();
+		} finally {
+			raf.close();
+		}
+		// Replace the old file at once, so that a reader never sees half a file.
+		if (!temporary.renameTo(file)) {
+			file.delete();
+			if (!temporary.renameTo(file)) {
+				temporary.delete();
+				throw new IOException("Could not write " + file);
+			}
+		}
+	}
+
+	private static int wordsPerRow(int width) {
+		return (width + 63) / 64;
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	int getHeight() {
+		return height;
+	}
+
+	double getScale() {
+		return scale;
+	}
+
+	/**
+	 * Returns a terrain map with the words of the compiled file, copied from a
+	 * read-only mapping of that file at once. Changes to the terrain (such as
+	 * craters) never reach the file or other worlds.
+	 */
+	TerrainMap createTerrainMap() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0,
+					channel.size());
+			buffer.position(HEADER_SIZE);
+			LongBuffer words = buffer.slice().order(ByteOrder.LITTLE_ENDIAN)
+					.asLongBuffer();
+			return new TerrainMap(width, height, words);
+		} finally {
+			raf.close();
+		}
+	}
+}
@@ -25,4 +25,12 @@ public class GUIOptions {
 	 * Can also be enabled from the command line with the -clickselect argument
 	 */
 	public boolean enableClickToSelect = false;
+
+	/**
+	 * Precompute a distance field of the terrain to speed up terrain queries
+	 * Default: false
+	 * 
+	 * Can also be enabled from the command line with the -distancefield argument
+	 */
+	public boolean enableDistanceField = false;
 }
\ No newline at end of file
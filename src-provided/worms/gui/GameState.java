@@ -27,9 +27,15 @@ public class GameState {
 	}
 
 	public void createWorld() {
+		createWorld(false);
+	}
+
+	public void createWorld(boolean enableDistanceField) {
 		level.load();
-		world = facade.createWorld(level.getWorldWidth(),
-				level.getWorldHeight(), level.getPassableMap(), random);
+		world = facade.createWorldFromTerrain(level.getWorldWidth(),
+				level.getWorldHeight(), level.getTerrainMap(), random);
+		if (enableDistanceField)
+			facade.enableDistanceField(world);
 	}
 
 	public IFacade getFacade() {
@@ -8,9 +8,13 @@ import java.io.FileReader;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javax.imageio.ImageIO;
 
+import worms.model.TerrainMap;
+
 public class Level {
 
 	private static final String LEVEL_FILE_EXTENSION = ".lvl";
@@ -52,8 +56,13 @@ public class Level {
 	}
 
 	private final File file;
+	private File mapFile;
 	private BufferedImage mapImage;
+	private CompiledTerrain compiledTerrain;
+	private TerrainMap decodedTerrain;
 
+	private int mapWidth;
+	private int mapHeight;
 	private double scale;
 
 	public Level(File file) {
@@ -75,16 +84,56 @@ public class Level {
 		}
 	}
 
+	/**
+	 * Reads the level file. If a compiled terrain that is up to date with the
+	 * level file and its map image is found next to the level file, only its
+	 * header is read and the map image is decoded lazily, when it is first
+	 * displayed. Otherwise the map image is decoded and the compiled terrain
+	 * is (re)written for the next start. The decoded terrain map is kept and
+	 * handed out by the first call of getTerrainMap, so that a first start
+	 * decodes the map image only once.
+	 */
 	protected void readFile(BufferedReader reader) throws IOException {
-		this.mapImage = ImageIO.read(new File(file.getParentFile(),
-				readAsKeyVal(reader, "map")));
+		this.mapFile = new File(file.getParentFile(), readAsKeyVal(reader, "map"));
+		this.compiledTerrain = CompiledTerrain.open(getCompiledFile(),
+				file.lastModified(), mapFile.lastModified());
+		if (compiledTerrain != null) {
+			this.mapWidth = compiledTerrain.getWidth();
+			this.mapHeight = compiledTerrain.getHeight();
+			this.scale = compiledTerrain.getScale();
+			return;
+		}
+		readMapImage();
 		try {
 			double height = Double.parseDouble(readAsKeyVal(reader, "height"));
-			this.scale = height / mapImage.getHeight();
+			this.scale = height / mapHeight;
 		} catch (IllegalArgumentException e) {
 			double width = Double.parseDouble(readAsKeyVal(reader, "width"));
-			this.scale = width / mapImage.getWidth();
+			this.scale = width / mapWidth;
 		}
+		this.decodedTerrain = decodeTerrainMap();
+		try {
+			CompiledTerrain.write(getCompiledFile(), decodedTerrain, scale,
+					file.lastModified(), mapFile.lastModified());
+			this.compiledTerrain = CompiledTerrain.open(getCompiledFile(),
+					file.lastModified(), mapFile.lastModified());
+		} catch (IOException e) {
+			// the compiled terrain is only a cache; start from the image next time
+		}
+	}
+
+	private File getCompiledFile() {
+		return new File(file.getParentFile(), getName()
+				+ CompiledTerrain.COMPILED_FILE_EXTENSION);
+	}
+
+	private void readMapImage() throws IOException {
+		this.mapImage = ImageIO.read(mapFile);
+		if (mapImage == null) {
+			throw new IOException("Unsupported image format: " + mapFile);
+		}
+		this.mapWidth = mapImage.getWidth();
+		this.mapHeight = mapImage.getHeight();
 	}
 
 	protected String readAsKeyVal(BufferedReader reader, String expectedKey)
@@ -107,15 +156,23 @@ public class Level {
 	}
 
 	public BufferedImage getMapImage() {
+		if (mapImage == null) {
+			try {
+				readMapImage();
+			} catch (IOException e) {
+				throw new LoadException("Could not load map image "
+						+ mapFile.getAbsolutePath(), e);
+			}
+		}
 		return mapImage;
 	}
 
 	public int getMapHeight() {
-		return mapImage.getHeight();
+		return mapHeight;
 	}
 
 	public int getMapWidth() {
-		return mapImage.getWidth();
+		return mapWidth;
 	}
 
 	/**
@@ -128,33 +185,182 @@ public class Level {
 	}
 
 	public double getWorldWidth() {
-		return scale * mapImage.getWidth();
+		return scale * mapWidth;
 	}
 
 	public double getWorldHeight() {
-		return scale * mapImage.getHeight();
+		return scale * mapHeight;
 	}
 
 	public boolean[][] getPassableMap() {
+		if (decodedTerrain != null) {
+			return decodedTerrain.toPassableMap();
+		}
+		if (compiledTerrain != null) {
+			return getTerrainMap().toPassableMap();
+		}
 		final boolean[][] result = new boolean[getMapHeight()][getMapWidth()];
-		final byte[] bytes = ((DataBufferByte) mapImage.getRaster().getDataBuffer())
-				.getData();
-		final int w = getMapWidth();
-		final int h = getMapHeight();
-		for (int row = 0; row < h; row++) {
-			final int offset = w * row;
-			for (int col = 0; col < w; col++) {
-				final byte alpha = bytes[4 * (offset + col)];
-				// alpha < 128 ((alpha & 0xf) == 0) => passable
-				// alpha >= 128 ((alpha & 0xf) != 0) => impassable
-				if (((int) alpha & 0xf0) == 0) {
-					result[row][col] = true;
-				}
+		final DecodeTask task = new DecodeTask(getMapImage(), 0,
+				getMapHeight(), null, result, isParallelDecodeUseful());
+		if (isParallelDecodeUseful()) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			task.decodeRows();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the passable map as a bit-packed terrain map,
+	 * without building an intermediate boolean matrix.
+	 * If the map image was decoded when the level was loaded, that terrain map is
+	 * returned the first time. Otherwise, if the level has an up to date compiled
+	 * terrain, that file is mapped and its words are copied into the heap, so that
+	 * nothing has to be decoded. Each call returns a new terrain map, since a world
+	 * changes its terrain.
+	 */
+	public TerrainMap getTerrainMap() {
+		if (decodedTerrain != null) {
+			TerrainMap result = decodedTerrain;
+			decodedTerrain = null;
+			return result;
+		}
+		if (compiledTerrain != null) {
+			try {
+				return compiledTerrain.createTerrainMap();
+			} catch (IOException e) {
+				compiledTerrain = null;
 			}
 		}
+		return decodeTerrainMap();
+	}
+
+	private TerrainMap decodeTerrainMap() {
+		return decodeTerrainMap(getMapImage(), true);
+	}
+
+	/**
+	 * Converts the alpha channel of the given map image (of type
+	 * TYPE_4BYTE_ABGR) into a terrain map. In parallel, the rows are split
+	 * into bands that are decoded with fork/join, each band writing straight
+	 * into the terrain map. Every row of a terrain map starts at a new word,
+	 * so different bands never write to the same word. On a single processor
+	 * the image is always decoded by the calling thread.
+	 */
+	public static TerrainMap decodeTerrainMap(BufferedImage image,
+			boolean parallel) {
+		parallel = parallel && isParallelDecodeUseful();
+		final TerrainMap result = new TerrainMap(image.getWidth(),
+				image.getHeight());
+		final DecodeTask task = new DecodeTask(image, 0, image.getHeight(),
+				result, null, parallel);
+		if (parallel) {
+			ForkJoinPool.commonPool().invoke(task);
+		} else {
+			task.decodeRows();
+		}
 		return result;
 	}
 
+	private static boolean isParallelDecodeUseful() {
+		return Runtime.getRuntime().availableProcessors() > 1;
+	}
+
+	/**
+	 * Decodes a band of rows of a map image into a terrain map or a boolean
+	 * matrix, splitting it in halves while it is larger than a threshold.
+	 */
+	private static class DecodeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Bands of at most this many pixels are decoded by a single task.
+		 */
+		private static final int PIXELS_PER_TASK = 1 << 16;
+
+		private final byte[] bytes;
+		private final int width;
+		private final int firstRow;
+		private final int endRow;
+		private final TerrainMap terrain;
+		private final boolean[][] passableMap;
+		private final boolean split;
+
+		DecodeTask(BufferedImage image, int firstRow, int endRow,
+				TerrainMap terrain, boolean[][] passableMap, boolean split) {
+			this(((DataBufferByte) image.getRaster().getDataBuffer()).getData(),
+					image.getWidth(), firstRow, endRow, terrain, passableMap,
+					split);
+		}
+
+		private DecodeTask(byte[] bytes, int width, int firstRow, int endRow,
+				TerrainMap terrain, boolean[][] passableMap, boolean split) {
+			this.bytes = bytes;
+			this.width = width;
+			this.firstRow = firstRow;
+			this.endRow = endRow;
+			this.terrain = terrain;
+			this.passableMap = passableMap;
+			this.split = split;
+		}
+
+		@Override
+		protected void compute() {
+			final int rows = endRow - firstRow;
+			if (!split || rows < 2 || (long) rows * width <= PIXELS_PER_TASK) {
+				decodeRows();
+			} else {
+				final int middle = firstRow + rows / 2;
+				invokeAll(new DecodeTask(bytes, width, firstRow, middle,
+						terrain, passableMap, true), new DecodeTask(bytes,
+						width, middle, endRow, terrain, passableMap, true));
+			}
+		}
+
+		void decodeRows() {
+			for (int row = firstRow; row < endRow; row++) {
+				final int offset = width * row;
+				int col = 0;
+				while (col < width) {
+					if (!isPassable(bytes[4 * (offset + col)])) {
+						col++;
+						continue;
+					}
+					final int runStart = col;
+					while (col < width && isPassable(bytes[4 * (offset + col)])) {
+						col++;
+					}
+					if (terrain != null) {
+						terrain.setPassableRun(row, runStart, col - 1, true);
+					} else {
+						Arrays.fill(passableMap[row], runStart, col, true);
+					}
+				}
+			}
+		}
+
+		private static boolean isPassable(byte alpha) {
+			// alpha < 128 ((alpha & 0xf) == 0) => passable
+			// alpha >= 128 ((alpha & 0xf) != 0) => impassable
+			return ((int) alpha & 0xf0) == 0;
+		}
+	}
+
+	/**
+	 * Makes the given pixel of the map image fully transparent, and thus passable,
+	 * for instance after a crater has been blasted into the terrain.
+	 */
+	public void clearMapPixel(int row, int col) {
+		final byte[] bytes = ((DataBufferByte) getMapImage().getRaster().getDataBuffer())
+				.getData();
+		final int index = 4 * (getMapWidth() * row + col);
+		bytes[index] = 0;
+		bytes[index + 1] = 0;
+		bytes[index + 2] = 0;
+		bytes[index + 3] = 0;
+	}
+
 	/**
 	 * map width / map height
 	 */
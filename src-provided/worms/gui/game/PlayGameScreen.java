@@ -420,12 +420,22 @@ public class PlayGameScreen extends Screen {
 	}
 
 	public void addWorm() {
-		getFacade().addNewWorm(getWorld());
+		try {
+			getFacade().addNewWorm(getWorld());
+		} catch (ModelException e) {
+			addMessage("Could not add worm: " + e.getMessage(),
+					MessageType.ERROR);
+		}
 		updateSprites();
 	}
 
 	public void addFood() {
-		getFacade().addNewFood(getWorld());
+		try {
+			getFacade().addNewFood(getWorld());
+		} catch (ModelException e) {
+			addMessage("Could not add food: " + e.getMessage(),
+					MessageType.ERROR);
+		}
 		updateSprites();
 	}
 
@@ -1,19 +1,21 @@
 package worms.gui.game;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
 
 import worms.gui.AbstractPainter;
-import worms.gui.GUIConstants;
 import worms.gui.GUIUtils;
 import worms.gui.GameState;
 import worms.gui.Level;
@@ -22,6 +24,7 @@ import worms.gui.game.sprites.ProjectileSprite;
 import worms.gui.game.sprites.WormSprite;
 import worms.model.IFacade;
 import worms.model.ModelException;
+import worms.model.Trajectory;
 import worms.model.World;
 import worms.model.Worm;
 
@@ -67,7 +70,8 @@ public class PlayGameScreenPainter extends AbstractPainter<PlayGameScreen> {
 	protected static final double DIRECTION_INDICATOR_SIZE = 10;
 
 	protected Graphics2D currentGraphics;
-	private Image scaledImage;
+	protected final double[] jumpPosition = new double[2];
+	private BufferedImage scaledImage;
 
 	public PlayGameScreenPainter(PlayGameScreen screen) {
 		super(screen);
@@ -75,12 +79,50 @@ public class PlayGameScreenPainter extends AbstractPainter<PlayGameScreen> {
 
 	private void createBackgroundImage() {
 		if (scaledImage == null) {
-			scaledImage = GUIUtils.scaleTo(getState().getLevel().getMapImage(),
+			scaledImage = ImageSprite.toBufferedImage(GUIUtils.scaleTo(getState().getLevel().getMapImage(),
 					getScreen().getScreenWidth(),
-					getScreen().getScreenHeight(), Image.SCALE_SMOOTH);
+					getScreen().getScreenHeight(), Image.SCALE_SMOOTH));
 		}
 	}
 
+	/**
+	 * Patches the level image and the scaled background image where the terrain
+	 * of the world has changed, so a crater only costs time proportional to its size.
+	 */
+	private void updateBackgroundImage() {
+		if (getWorld() == null) {
+			return;
+		}
+		int[][] regions = getFacade().getChangedTerrainRegions(getWorld());
+		if (regions.length == 0) {
+			return;
+		}
+		BufferedImage mapImage = getLevel().getMapImage();
+		double scaleX = (double) scaledImage.getWidth() / mapImage.getWidth();
+		double scaleY = (double) scaledImage.getHeight() / mapImage.getHeight();
+		Graphics2D g = scaledImage.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+				RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		for (int[] region : regions) {
+			for (int row = region[0]; row <= region[2]; row++) {
+				for (int col = region[1]; col <= region[3]; col++) {
+					if (getFacade().isPassablePixel(getWorld(), row, col)) {
+						getLevel().clearMapPixel(row, col);
+					}
+				}
+			}
+			int x = (int) Math.floor(region[1] * scaleX) - 1;
+			int y = (int) Math.floor(region[0] * scaleY) - 1;
+			int width = (int) Math.ceil((region[3] + 1) * scaleX) + 1 - x;
+			int height = (int) Math.ceil((region[2] + 1) * scaleY) + 1 - y;
+			g.setClip(x, y, width, height);
+			g.drawImage(mapImage, 0, 0, scaledImage.getWidth(),
+					scaledImage.getHeight(), null);
+		}
+		g.dispose();
+	}
+
 	protected GameState getState() {
 		return getScreen().getGameState();
 	}
@@ -131,6 +173,7 @@ public class PlayGameScreenPainter extends AbstractPainter<PlayGameScreen> {
 
 	protected void paintLevel() {
 		createBackgroundImage();
+		updateBackgroundImage();
 
 		int x = (int) getScreenX(0);
 		int y = (int) getScreenY(getLevel().getWorldHeight());
@@ -307,18 +350,17 @@ public class PlayGameScreenPainter extends AbstractPainter<PlayGameScreen> {
 
 	protected void drawJumpMarkers(WormSprite sprite) {
 		try {
-			double time = getFacade().getJumpTime(sprite.getWorm(),
-					GUIConstants.JUMP_TIME_STEP);
+			Trajectory trajectory = getFacade().getJumpTrajectory(
+					sprite.getWorm());
+			double time = trajectory.getDuration();
 			int n = 1 + (int) (time / JUMP_MARKER_TIME_DISTANCE);
 			for (int i = 1; i <= n; i++) {
 				double dt = i * time / n;
-				double[] xy = getFacade().getJumpStep(sprite.getWorm(), dt);
-				if (xy != null) {
-					double jumpX = getScreenX(xy[0]);
-					double jumpY = getScreenY(xy[1]);
-					drawCrossMarker(jumpX, jumpY, JUMP_MARKER_SIZE,
-							JUMP_MARKER_COLOR);
-				}
+				trajectory.getPosition(dt, jumpPosition);
+				double jumpX = getScreenX(jumpPosition[0]);
+				double jumpY = getScreenY(jumpPosition[1]);
+				drawCrossMarker(jumpX, jumpY, JUMP_MARKER_SIZE,
+						JUMP_MARKER_COLOR);
 			}
 		} catch (ModelException e) {
 			// cannot jump; draw nothing
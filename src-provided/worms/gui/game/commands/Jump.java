@@ -7,13 +7,16 @@ import worms.gui.game.sprites.WormSprite;
 import worms.gui.messages.MessageType;
 import worms.model.IFacade;
 import worms.model.ModelException;
+import worms.model.Trajectory;
 import worms.model.Worm;
 
 public class Jump extends Command {
 	private boolean finished = false;
 	private boolean hasJumped;
 	private final Worm worm;
+	private Trajectory trajectory;
 	private double jumpDuration;
+	private final double[] position = new double[2];
 
 	public Jump(IFacade facade, Worm worm, PlayGameScreen screen) {
 		super(facade, screen);
@@ -36,8 +39,8 @@ public class Jump extends Command {
 	@Override
 	protected void doStartExecution() {
 		try {
-			this.jumpDuration = getFacade().getJumpTime(worm,
-					GUIConstants.JUMP_TIME_STEP);
+			this.trajectory = getFacade().getJumpTrajectory(worm);
+			this.jumpDuration = trajectory.getDuration();
 		} catch (ModelException e) {
 			cancelExecution();
 		}
@@ -66,10 +69,9 @@ public class Jump extends Command {
 					finished = true;
 				}
 			} else {
-				double[] xy = getFacade().getJumpStep(getWorm(),
-						getElapsedTime());
-				sprite.setCenterLocation(getScreen().getScreenX(xy[0]),
-						getScreen().getScreenY(xy[1]));
+				trajectory.getPosition(getElapsedTime(), position);
+				sprite.setCenterLocation(getScreen().getScreenX(position[0]),
+						getScreen().getScreenY(position[1]));
 			}
 		} catch (ModelException e) {
 			e.printStackTrace();
@@ -7,6 +7,7 @@ import worms.gui.messages.MessageType;
 import worms.model.IFacade;
 import worms.model.ModelException;
 import worms.model.Projectile;
+import worms.model.Trajectory;
 import worms.model.Worm;
 
 
@@ -16,8 +17,10 @@ public class Shoot extends Command {
 
 	private final int propulsionYield;
 	private Projectile projectile;
+	private Trajectory trajectory;
 	private double totalDuration;
 	private boolean hasJumped;
+	private final double[] position = new double[2];
 
 	public Shoot(IFacade facade, Worm worm, int propulsionYield,
 			PlayGameScreen screen) {
@@ -37,8 +40,8 @@ public class Shoot extends Command {
 			getFacade().shoot(worm, propulsionYield);
 			projectile = getFacade().getActiveProjectile(getWorld());
 			if (projectile != null) {
-				totalDuration = getFacade().getJumpTime(projectile,
-						GUIConstants.JUMP_TIME_STEP);
+				trajectory = getFacade().getJumpTrajectory(projectile);
+				totalDuration = trajectory.getDuration();
 				ProjectileSprite sprite = new ProjectileSprite(getScreen(),
 						projectile);
 				sprite.setCenterLocation(
@@ -73,17 +76,18 @@ public class Shoot extends Command {
 				if (!hasJumped) {
 					hasJumped = true;
 					getFacade().jump(projectile, GUIConstants.JUMP_TIME_STEP);
+					if (trajectory.getTarget() != null)
+						getScreen().addMessage("Direct hit!", MessageType.INFO);
 					finished = true;
 				}
 			} else {
 				ProjectileSprite sprite = getScreen().getSpriteOfTypeFor(
 						ProjectileSprite.class, projectile);
 
-				double[] xy = getFacade().getJumpStep(projectile,
-						getElapsedTime());
+				trajectory.getPosition(getElapsedTime(), position);
 
-				sprite.setCenterLocation(getScreen().getScreenX(xy[0]),
-						getScreen().getScreenY(xy[1]));
+				sprite.setCenterLocation(getScreen().getScreenX(position[0]),
+						getScreen().getScreenY(position[1]));
 			}
 		} catch (ModelException e) {
 			e.printStackTrace();
@@ -78,7 +78,7 @@ public class MainMenuScreen extends AbstractMenuScreen<MainMenuOption> {
 		PlayGameScreen playGameScreen = PlayGameScreen.create(gui, gameState,
 				debugMode);
 
-		gameState.createWorld();
+		gameState.createWorld(gui.getOptions().enableDistanceField);
 
 		getGUI().switchToScreen(playGameScreen);
 	}
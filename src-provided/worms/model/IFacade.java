@@ -133,6 +133,86 @@ public interface IFacade {
 	public World createWorld(double width, double height,
 			boolean[][] passableMap, Random random);
 
+	/**
+	 * Creates a new world from a bit-packed terrain map.
+	 * 
+	 * This method behaves like createWorld, but takes the terrain as a TerrainMap
+	 * (one bit per pixel) instead of a boolean matrix (one byte per pixel).
+	 * The rows and columns of the terrain map follow the same conventions as the passableMap of createWorld.
+	 * The world takes ownership of the given terrain map.
+	 * 
+	 * @param width The width of the world (in meter)
+	 * 
+	 * @param height The height of the world (in meter)
+	 * 
+	 * @param terrain The terrain map indicating which pixels of the terrain are passable and impassable.
+	 * 
+	 * @param random A random number generator that can be used to randomize aspects of the world in a repeatable way.
+	 * 
+	 * @return The world.
+	 */
+	public World createWorldFromTerrain(double width, double height,
+			TerrainMap terrain, Random random);
+
+	/**
+	 * Precomputes a distance field for the terrain of the given world.
+	 * 
+	 * The distance field stores, for each pixel, the distance to the nearest impassable pixel.
+	 * Afterwards, most terrain queries of the world are answered by a single lookup in that field.
+	 * This does not change the outcome of any terrain query, but costs extra memory.
+	 * 
+	 * @param world The world for which to compute the distance field.
+	 */
+	public void enableDistanceField(World world);
+
+	/**
+	 * Precomputes a summed-area table of the impassable pixels of the terrain of the given world.
+	 * 
+	 * Afterwards, areas in open air or deep inside the terrain are decided by a few lookups
+	 * in that table. This does not change the outcome of any terrain query, but costs 2 bytes
+	 * of memory for each pixel, which is 16 times the memory of the terrain itself.
+	 * 
+	 * @param world The world for which to compute the summed-area table.
+	 */
+	public void enableImpassableCounts(World world);
+
+	/**
+	 * Stores the positions, radii and points of all the worms, food and projectiles of the given
+	 * world, also those that are added later, in parallel arrays held by that world.
+	 * 
+	 * Afterwards, starting a new round, and finding the worms near the flight of a projectile
+	 * whenever that flight spans more cells of the worm grid than there are worms, are loops
+	 * over those arrays. This does not change the outcome of any method.
+	 * 
+	 * @param world The world whose game objects are to be stored in arrays.
+	 */
+	public void enableEntityStore(World world);
+
+	/**
+	 * Returns the regions of the terrain of the given world that have changed
+	 * (for instance because a bazooka blasted a crater into it) since this method
+	 * was last called for that world.
+	 * 
+	 * Each region is a rectangle of pixels, given as {firstRow, firstColumn, lastRow, lastColumn},
+	 * with the same row and column conventions as the passableMap of createWorld.
+	 * After this call, the returned regions are no longer reported.
+	 * 
+	 * @param world The world of which to return the changed terrain.
+	 * 
+	 * @return The changed regions, possibly none.
+	 */
+	public int[][] getChangedTerrainRegions(World world);
+
+	/**
+	 * Returns whether the pixel at the given row and column of the terrain of the given world is passable.
+	 * The row and column follow the same conventions as the passableMap of createWorld.
+	 * 
+	 * @param world The world of which to check the terrain.
+	 * @param row The row of the pixel.
+	 * @param column The column of the pixel.
+	 */
+	public boolean isPassablePixel(World world, int row, int column);
+
 	/**
 	 * Create a new worm that is positioned at the given location in the given world,
 	 * looks in the given direction, has the given radius and the given name.
@@ -203,6 +283,50 @@ public interface IFacade {
 	 */
 	double[] getJumpStep(Worm worm, double t);
 
+	/**
+	 * Stores the location on the jump trajectory of the given projectile after a
+	 * time t in the given array, instead of returning a new array.
+	 * This allows to follow the trajectory every frame without allocating.
+	 * 
+	 * @param position An array with at least two elements, in which the x-coordinate
+	 *        is stored as the first element and the y-coordinate as the second element.
+	 */
+	void fillJumpStep(Projectile projectile, double t, double[] position);
+
+	/**
+	 * Stores the location on the jump trajectory of the given worm after a
+	 * time t in the given array, instead of returning a new array.
+	 * This allows to follow the trajectory every frame without allocating.
+	 * 
+	 * @param position An array with at least two elements, in which the x-coordinate
+	 *        is stored as the first element and the y-coordinate as the second element.
+	 */
+	void fillJumpStep(Worm worm, double t, double[] position);
+
+	/**
+	 * Returns the sampled flight path of the given projectile, as it will be resolved
+	 * by jump(projectile, ...). The path ends exactly where the projectile lands.
+	 * The returned trajectory does not change afterwards, so it can be used to animate
+	 * or replay the flight without asking the projectile anything else.
+	 */
+	Trajectory getJumpTrajectory(Projectile projectile);
+
+	/**
+	 * Returns the sampled jump path of the given worm, as it will be resolved
+	 * by jump(worm, ...). The path ends exactly where the worm lands.
+	 * The returned trajectory does not change afterwards, so it can be used to animate
+	 * or replay the jump without asking the worm anything else.
+	 */
+	Trajectory getJumpTrajectory(Worm worm);
+
+	/**
+	 * Returns a direction and a yield with which the given worm, which must be the active
+	 * worm, hits the given target with its selected weapon, or null if no such shot is found.
+	 * Only the shots that pass through the centre of the target according to the ballistics
+	 * of the weapon are tried, so this is meant for aiming aids and computer players.
+	 */
+	ShotSolution getShotSolution(Worm worm, Worm target);
+
 	/**
 	 * Determine the time that the given projectile can jump until it hits the terrain, hits a worm, or leaves the world.
 	 * The time should be determined using the given elementary time interval.
@@ -58,6 +58,45 @@ public class Bazooka extends Projectile {
 	protected double getForce() {
 		return (2.5 + this.getYield()*0.07);
 	}
+	
+	
+	/**
+	 * Returns the radius of the crater that a projectile from a bazooka blasts
+	 * into the terrain where it hits.
+	 */
+	@Basic
+	@Immutable
+	protected double getCraterRadius() {
+		return craterRadius;
+	}
+	
+	/**
+	 * The radius of the crater that a projectile from a bazooka blasts into the terrain.
+	 */
+	private final static double craterRadius = 0.5;
+	
+	
+	/**
+	 * Changes the position of this bazooka projectile as the result of a jump, and
+	 * blasts a crater into the terrain where it hits.
+	 * 
+	 * @param	timeStep
+	 * 			A time interval during which this projectile will not move completely trough impassable terrain.
+	 * 
+	 * @effect	The projectile jumps as any projectile.
+	 * 			| super.jump(timeStep)
+	 * @effect	If the projectile has landed within the world, the terrain around its
+	 * 			final position is removed.
+	 * 			| if ((! new.isTerminated()) && 
+	 * 			|		this.getWorld().isInWorld(new.getCoordinateX(), new.getCoordinateY(), this.getRadius()))
+	 * 			|	then this.getWorld().removeTerrain(new.getCoordinateX(), new.getCoordinateY(), this.getCraterRadius())
+	 */
+	@Override
+	protected void jump(double timeStep) throws ModelException {
+		super.jump(timeStep);
+		if ((! this.isTerminated()) && this.getWorld().isInWorld(this.getCoordinateX(), this.getCoordinateY(), this.getRadius()))
+			this.getWorld().removeTerrain(this.getCoordinateX(), this.getCoordinateY(), this.getCraterRadius());
+	}
 
 	
 	@Override
@@ -0,0 +1,250 @@
+package worms.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing a terrain map that is split into square chunks of pixels, which are
+ * loaded from a chunk source when they are first needed. At most a fixed number of chunks
+ * is kept in memory; when another chunk is needed, the least recently used chunk is evicted,
+ * after handing it back to the source if it was changed. The memory used by this map is
+ * thus bounded by the number of chunks it keeps, whatever the size of the terrain.
+ * Pixels are read concurrently, but changed by a single thread at a time.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	The chunk size of this map is a valid chunk size.
+ * 			| isValidChunkSize(this.getChunkSize())
+ * @invar	This map keeps at least one chunk in memory.
+ * 			| this.getMaxLoadedChunks() >= 1
+ */
+public class ChunkedTerrainMap extends TerrainMap {
+
+	/**
+	 * The width and height of a chunk in pixels.
+	 */
+	private final int chunkSize;
+	/**
+	 * The number of words in a row of a chunk.
+	 */
+	private final int wordsPerChunkRow;
+	/**
+	 * The maximum number of chunks kept in memory.
+	 */
+	private final int maxLoadedChunks;
+	/**
+	 * The source from which the chunks of this map are loaded.
+	 */
+	private final TerrainChunkSource source;
+	/**
+	 * The chunks in memory by key, in order of last use.
+	 */
+	private final Map<Long, Chunk> loadedChunks;
+	/**
+	 * The most recently used chunk, looked up without locking.
+	 */
+	private volatile Chunk lastChunk = null;
+
+	/**
+	 * A chunk of pixels in memory.
+	 */
+	private static class Chunk {
+
+		private final long key;
+		private final TerrainMap pixels;
+		private boolean changed = false;
+
+		private Chunk(long key, TerrainMap pixels) {
+			this.key = key;
+			this.pixels = pixels;
+		}
+	}
+
+
+
+
+	/**
+	 * Constructor to make a new chunked terrain map.
+	 *
+	 * @param 	widthInPixels
+	 * 			The width in pixels for this new terrain map.
+	 * @param 	heightInPixels
+	 * 			The height in pixels for this new terrain map.
+	 * @param 	chunkSize
+	 * 			The width and height of a chunk in pixels.
+	 * @param 	maxLoadedChunks
+	 * 			The maximum number of chunks kept in memory.
+	 * @param 	source
+	 * 			The source from which the chunks of this map are loaded.
+	 *
+	 * @post	The width in pixels of this new terrain map is equal to the given width.
+	 * 			| new.getWidthInPixels() == widthInPixels
+	 * @post	The height in pixels of this new terrain map is equal to the given height.
+	 * 			| new.getHeightInPixels() == heightInPixels
+	 * @post	The chunk size of this new map is equal to the given chunk size.
+	 * 			| new.getChunkSize() == chunkSize
+	 * @post	The maximum number of loaded chunks of this new map is equal to the given number.
+	 * 			| new.getMaxLoadedChunks() == maxLoadedChunks
+	 * @post	No chunks are loaded yet.
+	 * 			| new.getNumberOfLoadedChunks() == 0
+	 *
+	 * @throws	ModelException
+	 * 			One of the given dimensions is not valid, the chunk size is not valid, the
+	 * 			maximum number of loaded chunks is not positive or the source is not effective.
+	 * 			| (! isValidDimension(widthInPixels)) || (! isValidDimension(heightInPixels))
+	 * 			|	|| (! isValidChunkSize(chunkSize)) || (maxLoadedChunks < 1) || (source == null)
+	 */
+	public ChunkedTerrainMap(int widthInPixels, int heightInPixels, int chunkSize, int maxLoadedChunks,
+			TerrainChunkSource source) throws ModelException {
+		super(widthInPixels, heightInPixels, false);
+		if ((! isValidChunkSize(chunkSize)) || (maxLoadedChunks < 1) || (source == null))
+			throw new ModelException("Invalid chunks for terrain map!");
+		this.chunkSize = chunkSize;
+		this.wordsPerChunkRow = chunkSize / 64;
+		this.maxLoadedChunks = maxLoadedChunks;
+		this.source = source;
+		this.loadedChunks = new LinkedHashMap<Long, Chunk>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+				if (this.size() <= ChunkedTerrainMap.this.maxLoadedChunks)
+					return false;
+				ChunkedTerrainMap.this.evict(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+
+
+
+	/**
+	 * Checks whether the given size is a valid chunk size, so that every chunk starts at a new word.
+	 *
+	 * @param 	chunkSize
+	 * 			The chunk size to check.
+	 *
+	 * @return	| result == (chunkSize > 0) && (chunkSize % 64 == 0)
+	 */
+	public static boolean isValidChunkSize(int chunkSize) {
+		return (chunkSize > 0) && (chunkSize % 64 == 0);
+	}
+
+
+	/**
+	 * Returns the width and height of a chunk of this map in pixels.
+	 */
+	@Basic
+	@Immutable
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+
+
+	/**
+	 * Returns the maximum number of chunks this map keeps in memory.
+	 */
+	@Basic
+	@Immutable
+	public int getMaxLoadedChunks() {
+		return this.maxLoadedChunks;
+	}
+
+
+	/**
+	 * Returns the number of chunks this map currently keeps in memory.
+	 */
+	public synchronized int getNumberOfLoadedChunks() {
+		return this.loadedChunks.size();
+	}
+
+
+
+
+	/**
+	 * Returns the word holding the pixels of the given row in the given word of that row,
+	 * loading the chunk holding it if needed.
+	 *
+	 * @param 	row
+	 * 			The row of the word.
+	 * @param 	word
+	 * 			The index of the word within its row.
+	 */
+	@Override
+	protected long getWord(int row, int word) {
+		Chunk chunk = this.getChunk(row / this.chunkSize, word / this.wordsPerChunkRow);
+		return chunk.pixels.getWord(row % this.chunkSize, word % this.wordsPerChunkRow);
+	}
+
+
+	/**
+	 * Stores the given value as the word holding the pixels of the given row in the given
+	 * word of that row, loading the chunk holding it if needed.
+	 *
+	 * @param 	row
+	 * 			The row of the word.
+	 * @param 	word
+	 * 			The index of the word within its row.
+	 * @param 	value
+	 * 			The new value of the word.
+	 *
+	 * @post	The chunk holding the word is handed back to the source of this map when it is evicted.
+	 */
+	@Override
+	protected void setWord(int row, int word, long value) {
+		Chunk chunk = this.getChunk(row / this.chunkSize, word / this.wordsPerChunkRow);
+		chunk.pixels.setWord(row % this.chunkSize, word % this.wordsPerChunkRow, value);
+		chunk.changed = true;
+	}
+
+
+	/**
+	 * Returns the chunk at the given position in the grid of chunks, loading it
+	 * from the source of this map if it is not in memory.
+	 *
+	 * @param 	chunkRow
+	 * 			The row of the chunk in the grid of chunks.
+	 * @param 	chunkColumn
+	 * 			The column of the chunk in the grid of chunks.
+	 */
+	private Chunk getChunk(int chunkRow, int chunkColumn) {
+		long key = ((long) chunkRow << 32) | chunkColumn;
+		Chunk chunk = this.lastChunk;
+		if ((chunk != null) && (chunk.key == key))
+			return chunk;
+		synchronized (this) {
+			chunk = this.loadedChunks.get(key);
+			if (chunk == null) {
+				int firstRow = chunkRow*this.chunkSize;
+				int firstColumn = chunkColumn*this.chunkSize;
+				TerrainMap pixels = new TerrainMap(Math.min(this.chunkSize, this.getWidthInPixels() - firstColumn),
+						Math.min(this.chunkSize, this.getHeightInPixels() - firstRow));
+				this.source.loadChunk(firstRow, firstColumn, pixels);
+				chunk = new Chunk(key, pixels);
+				this.loadedChunks.put(key, chunk);
+			}
+			this.lastChunk = chunk;
+			return chunk;
+		}
+	}
+
+
+	/**
+	 * Evicts the given chunk from memory, handing it back to the source of this map if it was changed.
+	 *
+	 * @param 	chunk
+	 * 			The chunk to evict.
+	 */
+	private void evict(Chunk chunk) {
+		if (this.lastChunk == chunk)
+			this.lastChunk = null;
+		if (chunk.changed)
+			this.source.storeChunk((int) (chunk.key >>> 32)*this.chunkSize, (int) chunk.key*this.chunkSize, chunk.pixels);
+	}
+}
@@ -0,0 +1,265 @@
+package worms.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing a rasterized disk of a given radius on a grid of pixels, used to
+ * check whether a circular area of a world is passable without sampling it in polar
+ * coordinates. The disk is described relative to the pixel containing its center, for
+ * any position of that center within its pixel, by three sets of per-row spans:
+ * 	- the reach: all pixels that can contain a location of the sampled disk,
+ * 	- the core: all pixels whose centre certainly lies well inside the sampled disk,
+ * 	  but not too close to its center,
+ * 	- the sample offsets of those rings of the polar sampler that can fall outside the core.
+ * If all pixels in the reach are passable, the area is passable. If any pixel in the core
+ * is impassable, the polar sampler certainly hits it and the area is impassable. Otherwise
+ * the remaining rings are sampled at precomputed offsets, which are bitwise the same as
+ * the offsets the polar sampler computes, so all answers equal those of the polar sampler.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	The core of this kernel lies within its reach.
+ * 			| for each row in -this.getCoreRows()..this.getCoreRows()
+ * 			|	this.getCoreHalfWidth(row) <= this.getReachHalfWidth(row)
+ */
+public class DiskKernel {
+
+	/**
+	 * The radius of the disk of this kernel.
+	 */
+	private final double radius;
+	/**
+	 * The number of rows the reach of this kernel extends above and below the center row.
+	 */
+	private final int reachRows;
+	/**
+	 * The half widths of the reach of this kernel, indexed by row offset plus reachRows.
+	 */
+	private final int[] reachHalfWidths;
+	/**
+	 * The number of rows the core of this kernel extends above and below the center row.
+	 */
+	private final int coreRows;
+	/**
+	 * The half widths of the core of this kernel, indexed by row offset plus coreRows,
+	 * or -1 if the core has no pixels in that row.
+	 */
+	private final int[] coreHalfWidths;
+	/**
+	 * The half widths of the hole in the core of this kernel around its center, indexed by
+	 * row offset plus coreRows, or -1 if the core has no hole in that row.
+	 */
+	private final int[] holeHalfWidths;
+	/**
+	 * The horizontal offsets of the remaining samples of the polar sampler.
+	 */
+	private final double[] sampleOffsetsX;
+	/**
+	 * The vertical offsets of the remaining samples of the polar sampler.
+	 */
+	private final double[] sampleOffsetsY;
+
+
+
+
+	/**
+	 * Constructor to rasterize a disk with the given radius on a grid of pixels
+	 * with the given dimensions.
+	 *
+	 * @param 	radius
+	 * 			The radius of the disk for this new kernel.
+	 * @param 	pixelWidth
+	 * 			The width of a single pixel in meter.
+	 * @param 	pixelHeight
+	 * 			The height of a single pixel in meter.
+	 * @param 	step
+	 * 			The distance between the rings, and between the samples on a ring,
+	 * 			of the polar sampler.
+	 *
+	 * @post	The radius of this new kernel is equal to the given radius.
+	 * 			| new.getRadius() == radius
+	 *
+	 * @throws	ModelException
+	 * 			The given radius, pixel dimensions or step are not positive.
+	 * 			| (! (radius > 0)) || (! (pixelWidth > 0)) || (! (pixelHeight > 0)) || (! (step > 0))
+	 */
+	protected DiskKernel(double radius, double pixelWidth, double pixelHeight, double step)
+			throws ModelException {
+		if ((! (radius > 0)) || (! (pixelWidth > 0)) || (! (pixelHeight > 0)) || (! (step > 0)))
+			throw new ModelException("Invalid disk kernel dimensions!");
+		this.radius = radius;
+		double diagonal = Math.hypot(pixelWidth, pixelHeight);
+		double sampled = 0.999*radius;
+
+		// The reach: all pixels at a distance of at most the sampled radius of the center pixel.
+		double reach = sampled*(1 + 1e-9);
+		this.reachRows = 1 + (int) Math.floor(reach/pixelHeight);
+		this.reachHalfWidths = new int[2*this.reachRows + 1];
+		for (int row = -this.reachRows; row <= this.reachRows; row++) {
+			double dy = Math.max(0, Math.abs(row) - 1)*pixelHeight;
+			double dx = Math.sqrt(Math.max(0, reach*reach - dy*dy));
+			this.reachHalfWidths[row + this.reachRows] = 1 + (int) Math.floor(dx/pixelWidth);
+		}
+
+		// The core: all pixels whose centre lies between two pixel diagonals
+		// and the sampled radius minus a pixel diagonal of the center.
+		double outer = (sampled - diagonal)*(1 - 1e-9);
+		double inner = 2*diagonal*(1 + 1e-9);
+		this.coreRows = Math.max(0, (int) Math.floor(outer/pixelHeight - 0.5));
+		this.coreHalfWidths = new int[2*this.coreRows + 1];
+		this.holeHalfWidths = new int[2*this.coreRows + 1];
+		for (int row = -this.coreRows; row <= this.coreRows; row++) {
+			int core = -1;
+			int hole = -1;
+			for (int column = 0; Math.hypot((column + 0.5)*pixelWidth, (Math.abs(row) + 0.5)*pixelHeight) <= outer; column++) {
+				core = column;
+				if (Math.hypot(Math.max(0, column - 0.5)*pixelWidth, Math.max(0, Math.abs(row) - 0.5)*pixelHeight) < inner)
+					hole = column;
+			}
+			this.coreHalfWidths[row + this.coreRows] = core;
+			this.holeHalfWidths[row + this.coreRows] = hole;
+		}
+
+		// The rings of the polar sampler that can fall outside the core. A sample at a given
+		// distance lies in a pixel whose centre is at most one and a half pixel diagonal
+		// closer or further from the center pixel than that distance.
+		double skipFrom = inner + 1.5*diagonal*(1 + 1e-9);
+		double skipTo = outer - 1.5*diagonal*(1 + 1e-9);
+		int count = 0;
+		for (double distance=sampled; distance>0; distance = distance - step)
+			if ((distance < skipFrom) || (distance > skipTo))
+				for (double angle=0; angle<=2*Math.PI; angle = angle + step/distance)
+					count++;
+		this.sampleOffsetsX = new double[count];
+		this.sampleOffsetsY = new double[count];
+		int index = 0;
+		for (double distance=sampled; distance>0; distance = distance - step)
+			if ((distance < skipFrom) || (distance > skipTo))
+				for (double angle=0; angle<=2*Math.PI; angle = angle + step/distance) {
+					this.sampleOffsetsX[index] = Math.sin(angle)*distance;
+					this.sampleOffsetsY[index] = Math.cos(angle)*distance;
+					index++;
+				}
+	}
+
+
+
+
+	/**
+	 * Returns the radius of the disk of this kernel.
+	 */
+	@Basic
+	@Immutable
+	protected double getRadius() {
+		return this.radius;
+	}
+
+
+	/**
+	 * Returns the number of rows the reach of this kernel extends above and below the center row.
+	 */
+	@Basic
+	@Immutable
+	protected int getReachRows() {
+		return this.reachRows;
+	}
+
+
+	/**
+	 * Returns the number of pixels the reach of this kernel extends to the left and to the
+	 * right of the center column, in the row at the given offset of the center row.
+	 *
+	 * @param 	row
+	 * 			The offset of the row to the center row.
+	 *
+	 * @pre		The given row lies within the reach of this kernel.
+	 * 			| Math.abs(row) <= this.getReachRows()
+	 */
+	@Immutable
+	protected int getReachHalfWidth(int row) {
+		return this.reachHalfWidths[row + this.reachRows];
+	}
+
+
+	/**
+	 * Returns the number of rows the core of this kernel extends above and below the center row.
+	 */
+	@Basic
+	@Immutable
+	protected int getCoreRows() {
+		return this.coreRows;
+	}
+
+
+	/**
+	 * Returns the number of pixels the core of this kernel extends to the left and to the
+	 * right of the center column, in the row at the given offset of the center row,
+	 * or -1 if the core has no pixels in that row.
+	 *
+	 * @param 	row
+	 * 			The offset of the row to the center row.
+	 *
+	 * @pre		The given row lies within the core of this kernel.
+	 * 			| Math.abs(row) <= this.getCoreRows()
+	 */
+	@Immutable
+	protected int getCoreHalfWidth(int row) {
+		return this.coreHalfWidths[row + this.coreRows];
+	}
+
+
+	/**
+	 * Returns the number of pixels the hole in the core of this kernel extends to the left
+	 * and to the right of the center column, in the row at the given offset of the center row,
+	 * or -1 if the core has no hole in that row.
+	 *
+	 * @param 	row
+	 * 			The offset of the row to the center row.
+	 *
+	 * @pre		The given row lies within the core of this kernel.
+	 * 			| Math.abs(row) <= this.getCoreRows()
+	 */
+	@Immutable
+	protected int getHoleHalfWidth(int row) {
+		return this.holeHalfWidths[row + this.coreRows];
+	}
+
+
+	/**
+	 * Returns the number of samples of the polar sampler that can fall outside the core.
+	 */
+	@Immutable
+	protected int getNumberOfSamples() {
+		return this.sampleOffsetsX.length;
+	}
+
+
+	/**
+	 * Returns the horizontal offset of the sample at the given index to the center.
+	 *
+	 * @param 	index
+	 * 			The index of the sample.
+	 *
+	 * @pre		| 0 <= index < this.getNumberOfSamples()
+	 */
+	@Immutable
+	protected double getSampleOffsetX(int index) {
+		return this.sampleOffsetsX[index];
+	}
+
+
+	/**
+	 * Returns the vertical offset of the sample at the given index to the center.
+	 *
+	 * @param 	index
+	 * 			The index of the sample.
+	 *
+	 * @pre		| 0 <= index < this.getNumberOfSamples()
+	 */
+	@Immutable
+	protected double getSampleOffsetY(int index) {
+		return this.sampleOffsetsY[index];
+	}
+}
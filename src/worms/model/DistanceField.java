@@ -0,0 +1,263 @@
+package worms.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing a distance transform of a terrain map. For each pixel it stores
+ * the distance (in meter) between the centre of that pixel and the centre of the nearest
+ * impassable pixel, computed with the exact Euclidean distance transform of Felzenszwalb
+ * and Huttenlocher. Distances are clamped to a maximum range, beyond which the field
+ * only guarantees that the nearest impassable pixel is at least that far away.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	Each stored distance lies between zero and the maximum distance of this field.
+ * 			| for each row in 0..this.getTerrain().getHeightInPixels()-1
+ * 			|	for each column in 0..this.getTerrain().getWidthInPixels()-1
+ * 			|		0 <= this.getDistance(row, column) <= this.getMaxDistance()
+ */
+public class DistanceField {
+
+	/**
+	 * The terrain map from which this distance field is computed.
+	 */
+	private final TerrainMap terrain;
+	/**
+	 * The width of a single pixel in meter.
+	 */
+	private final double pixelWidth;
+	/**
+	 * The height of a single pixel in meter.
+	 */
+	private final double pixelHeight;
+	/**
+	 * The distance at which the stored distances are clamped.
+	 */
+	private final double maxDistance;
+	/**
+	 * The distances of all the pixels, stored row by row.
+	 */
+	private final float[] distances;
+
+
+
+
+	/**
+	 * Constructor to compute a new distance field for the given terrain map.
+	 *
+	 * @param 	terrain
+	 * 			The terrain map for this new distance field.
+	 * @param 	pixelWidth
+	 * 			The width of a single pixel in meter.
+	 * @param 	pixelHeight
+	 * 			The height of a single pixel in meter.
+	 * @param 	maxDistance
+	 * 			The distance at which the stored distances are clamped.
+	 *
+	 * @post	The distance of each pixel is the distance to the nearest impassable pixel
+	 * 			of the given terrain, clamped to the given maximum distance.
+	 * 			| for each row, column
+	 * 			|	new.getDistance(row, column) ==
+	 * 			|		min(maxDistance, min({distance(row, column, r, c) | ! terrain.isPassable(r, c)}))
+	 *
+	 * @throws	ModelException
+	 * 			The given pixel dimensions or maximum distance are not positive.
+	 * 			| (! (pixelWidth > 0)) || (! (pixelHeight > 0)) || (! (maxDistance > 0))
+	 */
+	protected DistanceField(TerrainMap terrain, double pixelWidth, double pixelHeight, double maxDistance)
+			throws ModelException {
+		if ((! (pixelWidth > 0)) || (! (pixelHeight > 0)) || (! (maxDistance > 0)))
+			throw new ModelException("Invalid distance field dimensions!");
+		this.terrain = terrain;
+		this.pixelWidth = pixelWidth;
+		this.pixelHeight = pixelHeight;
+		this.maxDistance = maxDistance;
+		this.distances = new float[terrain.getWidthInPixels()*terrain.getHeightInPixels()];
+		this.compute(0, terrain.getHeightInPixels()-1, 0, terrain.getWidthInPixels()-1);
+	}
+
+
+
+
+	/**
+	 * Returns the terrain map of this distance field.
+	 */
+	@Basic
+	@Immutable
+	protected TerrainMap getTerrain() {
+		return this.terrain;
+	}
+
+
+	/**
+	 * Returns the distance at which the distances of this field are clamped.
+	 */
+	@Basic
+	@Immutable
+	protected double getMaxDistance() {
+		return this.maxDistance;
+	}
+
+
+	/**
+	 * Returns the length of the diagonal of a single pixel.
+	 *
+	 * @return	| result == Math.sqrt(pixelWidth^2 + pixelHeight^2)
+	 */
+	protected double getPixelDiagonal() {
+		return Math.hypot(this.pixelWidth, this.pixelHeight);
+	}
+
+
+	/**
+	 * Returns the distance between the centre of the given pixel and the centre
+	 * of the nearest impassable pixel, clamped to the maximum distance of this field.
+	 *
+	 * @param 	row
+	 * 			The row of the pixel.
+	 * @param 	column
+	 * 			The column of the pixel.
+	 *
+	 * @pre		The given pixel lies in the terrain of this field.
+	 * 			| this.getTerrain().isValidPixel(row, column)
+	 */
+	protected double getDistance(int row, int column) {
+		return this.distances[row*this.terrain.getWidthInPixels() + column];
+	}
+
+
+
+
+	/**
+	 * Recomputes the distances after the terrain of this field has changed within the given
+	 * rectangle. Only the distances of pixels within the maximum distance of that rectangle
+	 * can change, so only those are recomputed.
+	 *
+	 * @param 	firstRow
+	 * 			The first row of the rectangle.
+	 * @param 	firstColumn
+	 * 			The first column of the rectangle.
+	 * @param 	lastRow
+	 * 			The last row of the rectangle.
+	 * @param 	lastColumn
+	 * 			The last column of the rectangle.
+	 *
+	 * @post	The distance of each pixel is the distance to the nearest impassable pixel
+	 * 			of the terrain of this field, clamped to the maximum distance of this field.
+	 * 			| for each row, column
+	 * 			|	new.getDistance(row, column) ==
+	 * 			|		min(getMaxDistance(), min({distance(row, column, r, c) | ! getTerrain().isPassable(r, c)}))
+	 */
+	protected void update(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		int marginRows = (int) Math.ceil(this.maxDistance/this.pixelHeight);
+		int marginColumns = (int) Math.ceil(this.maxDistance/this.pixelWidth);
+		this.compute(Math.max(0, firstRow - marginRows), Math.min(this.terrain.getHeightInPixels()-1, lastRow + marginRows),
+				Math.max(0, firstColumn - marginColumns), Math.min(this.terrain.getWidthInPixels()-1, lastColumn + marginColumns));
+	}
+
+
+	/**
+	 * Computes the distances of all pixels in the given rectangle of rows and columns.
+	 * Only impassable pixels within the maximum distance of the rectangle can influence
+	 * the clamped result, so the transform is run on the rectangle extended by that margin.
+	 *
+	 * @param 	firstRow
+	 * 			The first row of the rectangle.
+	 * @param 	lastRow
+	 * 			The last row of the rectangle.
+	 * @param 	firstColumn
+	 * 			The first column of the rectangle.
+	 * @param 	lastColumn
+	 * 			The last column of the rectangle.
+	 */
+	private void compute(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+		int width = this.terrain.getWidthInPixels();
+		int height = this.terrain.getHeightInPixels();
+		int marginRows = (int) Math.ceil(this.maxDistance/this.pixelHeight);
+		int marginColumns = (int) Math.ceil(this.maxDistance/this.pixelWidth);
+		int rowFrom = Math.max(0, firstRow - marginRows);
+		int rowTo = Math.min(height-1, lastRow + marginRows);
+		int columnFrom = Math.max(0, firstColumn - marginColumns);
+		int columnTo = Math.min(width-1, lastColumn + marginColumns);
+		if ((rowFrom > rowTo) || (columnFrom > columnTo))
+			return;
+		int rows = rowTo - rowFrom + 1;
+		int columns = columnTo - columnFrom + 1;
+		double infinity = 4.0*this.maxDistance*this.maxDistance;
+
+		// Vertical pass: squared distance to the nearest impassable pixel in the same column.
+		double[] columnDistances = new double[rows*columns];
+		double[] f = new double[Math.max(rows, columns)];
+		double[] d = new double[Math.max(rows, columns)];
+		int[] v = new int[Math.max(rows, columns)];
+		double[] z = new double[Math.max(rows, columns)+1];
+		for (int column = 0; column < columns; column++) {
+			for (int row = 0; row < rows; row++)
+				f[row] = this.terrain.isPassable(rowFrom + row, columnFrom + column) ? infinity : 0.0;
+			transform(f, rows, this.pixelHeight, d, v, z);
+			for (int row = 0; row < rows; row++)
+				columnDistances[row*columns + column] = d[row];
+		}
+
+		// Horizontal pass over the rows of the requested rectangle only.
+		for (int row = firstRow; row <= lastRow; row++) {
+			int offset = (row - rowFrom)*columns;
+			for (int column = 0; column < columns; column++)
+				f[column] = columnDistances[offset + column];
+			transform(f, columns, this.pixelWidth, d, v, z);
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				double distance = Math.sqrt(d[column - columnFrom]);
+				this.distances[row*width + column] = (float) Math.min(distance, this.maxDistance);
+			}
+		}
+	}
+
+
+	/**
+	 * Computes the one-dimensional squared distance transform of the given samples,
+	 * spaced the given distance apart, as the lower envelope of parabolas.
+	 *
+	 * @param 	f
+	 * 			The sampled function.
+	 * @param 	n
+	 * 			The number of samples.
+	 * @param 	spacing
+	 * 			The distance between two consecutive samples.
+	 * @param 	d
+	 * 			The array in which the transform is stored.
+	 * @param 	v
+	 * 			Scratch space for the locations of the parabolas in the envelope.
+	 * @param 	z
+	 * 			Scratch space for the boundaries between the parabolas in the envelope.
+	 */
+	private static void transform(double[] f, int n, double spacing, double[] d, int[] v, double[] z) {
+		int k = 0;
+		v[0] = 0;
+		z[0] = Double.NEGATIVE_INFINITY;
+		z[1] = Double.POSITIVE_INFINITY;
+		for (int q = 1; q < n; q++) {
+			double position = q*spacing;
+			double other = v[k]*spacing;
+			double s = ((f[q] + position*position) - (f[v[k]] + other*other)) / (2*position - 2*other);
+			while (s <= z[k]) {
+				k--;
+				other = v[k]*spacing;
+				s = ((f[q] + position*position) - (f[v[k]] + other*other)) / (2*position - 2*other);
+			}
+			k++;
+			v[k] = q;
+			z[k] = s;
+			z[k+1] = Double.POSITIVE_INFINITY;
+		}
+		k = 0;
+		for (int q = 0; q < n; q++) {
+			double position = q*spacing;
+			while (z[k+1] < position)
+				k++;
+			double offset = position - v[k]*spacing;
+			d[q] = offset*offset + f[v[k]];
+		}
+	}
+}
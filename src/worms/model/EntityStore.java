@@ -0,0 +1,412 @@
+package worms.model;
+
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing a store of the state of the game objects of a world in parallel arrays,
+ * indexed by the handles of those game objects. A game object that is attached to a store
+ * reads and writes its position, radius and state version, and a worm also its hit points,
+ * action points, maximum number of points and team, in that store instead of in its own fields.
+ * Queries and updates over many game objects then run as loops over a few arrays of primitive
+ * values, instead of as calls on every game object.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	The flags of a handle that is not in use are zero.
+ */
+public class EntityStore {
+
+	/**
+	 * The flag of the handle of a worm.
+	 */
+	protected static final byte WORM = 1;
+	/**
+	 * The flag of the handle of a food.
+	 */
+	protected static final byte FOOD = 2;
+	/**
+	 * The flag of the handle of a projectile.
+	 */
+	protected static final byte PROJECTILE = 4;
+	/**
+	 * The x coordinate, y coordinate and radius of the game object with each handle.
+	 */
+	private double[] x = new double[16];
+	private double[] y = new double[16];
+	private double[] radius = new double[16];
+	/**
+	 * The state version of the game object with each handle.
+	 */
+	private long[] stateVersions = new long[16];
+	/**
+	 * The kind of the game object with each handle, or zero if the handle is not in use.
+	 */
+	private byte[] flags = new byte[16];
+	/**
+	 * The hit points, action points and maximum number of hit and action points of the worm with each handle.
+	 */
+	private int[] hitPoints = new int[16];
+	private int[] actionPoints = new int[16];
+	private int[] maximumPoints = new int[16];
+	/**
+	 * The index of the team of the worm with each handle in its world, or -1 if that worm has no team.
+	 */
+	private int[] teamIds = new int[16];
+	/**
+	 * One more than the largest handle that has been in use in this store.
+	 */
+	private int size = 0;
+
+
+
+
+	/**
+	 * Returns one more than the largest handle that has been in use in this store.
+	 */
+	@Basic
+	protected int getSize() {
+		return this.size;
+	}
+
+
+	/**
+	 * Returns the flags of the given handle.
+	 *
+	 * @return	| if (handle is in use)
+	 * 			|	then result == WORM || result == FOOD || result == PROJECTILE
+	 * 			| else
+	 * 			|	result == 0
+	 */
+	@Basic
+	protected byte getFlags(int handle) {
+		return this.flags[handle];
+	}
+
+
+	/**
+	 * Returns the flag of the given game object.
+	 *
+	 * @return	| if (gameObject instanceof Worm) then result == WORM
+	 * 			| else if (gameObject instanceof Food) then result == FOOD
+	 * 			| else result == PROJECTILE
+	 */
+	protected static byte getFlag(GameObject gameObject) {
+		if (gameObject instanceof Worm)
+			return WORM;
+		if (gameObject instanceof Food)
+			return FOOD;
+		return PROJECTILE;
+	}
+
+
+	/**
+	 * Puts the given game object in this store at the given handle.
+	 *
+	 * @param 	handle
+	 * 			The handle of the game object.
+	 * @param 	flag
+	 * 			The kind of the game object.
+	 * @param 	x
+	 * 			The x coordinate of the game object.
+	 * @param 	y
+	 * 			The y coordinate of the game object.
+	 * @param 	radius
+	 * 			The radius of the game object.
+	 * @param 	stateVersion
+	 * 			The state version of the game object.
+	 *
+	 * @post	| new.getFlags(handle) == flag
+	 * 			| new.getX(handle) == x && new.getY(handle) == y && new.getRadius(handle) == radius
+	 * 			| new.getStateVersion(handle) == stateVersion
+	 * 			| new.getTeamId(handle) == -1
+	 */
+	protected void add(int handle, byte flag, double x, double y, double radius, long stateVersion) {
+		if (handle >= this.flags.length) {
+			int length = Math.max(2*this.flags.length, handle+1);
+			this.x = Arrays.copyOf(this.x, length);
+			this.y = Arrays.copyOf(this.y, length);
+			this.radius = Arrays.copyOf(this.radius, length);
+			this.stateVersions = Arrays.copyOf(this.stateVersions, length);
+			this.flags = Arrays.copyOf(this.flags, length);
+			this.hitPoints = Arrays.copyOf(this.hitPoints, length);
+			this.actionPoints = Arrays.copyOf(this.actionPoints, length);
+			this.maximumPoints = Arrays.copyOf(this.maximumPoints, length);
+			this.teamIds = Arrays.copyOf(this.teamIds, length);
+		}
+		this.flags[handle] = flag;
+		this.x[handle] = x;
+		this.y[handle] = y;
+		this.radius[handle] = radius;
+		this.stateVersions[handle] = stateVersion;
+		this.hitPoints[handle] = 0;
+		this.actionPoints[handle] = 0;
+		this.maximumPoints[handle] = 0;
+		this.teamIds[handle] = -1;
+		this.size = Math.max(this.size, handle+1);
+	}
+
+
+	/**
+	 * Removes the game object with the given handle from this store.
+	 *
+	 * @post	| new.getFlags(handle) == 0
+	 */
+	protected void remove(int handle) {
+		this.flags[handle] = 0;
+	}
+
+
+
+
+	/**
+	 * Returns the x coordinate of the game object with the given handle.
+	 */
+	@Basic
+	protected double getX(int handle) {
+		return this.x[handle];
+	}
+
+
+	/**
+	 * Sets the x coordinate of the game object with the given handle to the given value.
+	 *
+	 * @post	| new.getX(handle) == x
+	 */
+	protected void setX(int handle, double x) {
+		this.x[handle] = x;
+	}
+
+
+	/**
+	 * Returns the y coordinate of the game object with the given handle.
+	 */
+	@Basic
+	protected double getY(int handle) {
+		return this.y[handle];
+	}
+
+
+	/**
+	 * Sets the y coordinate of the game object with the given handle to the given value.
+	 *
+	 * @post	| new.getY(handle) == y
+	 */
+	protected void setY(int handle, double y) {
+		this.y[handle] = y;
+	}
+
+
+	/**
+	 * Returns the radius of the game object with the given handle.
+	 */
+	@Basic
+	protected double getRadius(int handle) {
+		return this.radius[handle];
+	}
+
+
+	/**
+	 * Sets the radius of the game object with the given handle to the given value.
+	 *
+	 * @post	| new.getRadius(handle) == radius
+	 */
+	protected void setRadius(int handle, double radius) {
+		this.radius[handle] = radius;
+	}
+
+
+	/**
+	 * Returns the state version of the game object with the given handle.
+	 */
+	@Basic
+	protected long getStateVersion(int handle) {
+		return this.stateVersions[handle];
+	}
+
+
+	/**
+	 * Increments the state version of the game object with the given handle.
+	 *
+	 * @post	| new.getStateVersion(handle) == this.getStateVersion(handle) + 1
+	 */
+	protected void incrementStateVersion(int handle) {
+		this.stateVersions[handle]++;
+	}
+
+
+	/**
+	 * Returns the hit points of the worm with the given handle.
+	 */
+	@Basic
+	protected int getHitPoints(int handle) {
+		return this.hitPoints[handle];
+	}
+
+
+	/**
+	 * Sets the hit points of the worm with the given handle to the given value.
+	 *
+	 * @post	| new.getHitPoints(handle) == hitPoints
+	 */
+	protected void setHitPoints(int handle, int hitPoints) {
+		this.hitPoints[handle] = hitPoints;
+	}
+
+
+	/**
+	 * Returns the action points of the worm with the given handle.
+	 */
+	@Basic
+	protected int getActionPoints(int handle) {
+		return this.actionPoints[handle];
+	}
+
+
+	/**
+	 * Sets the action points of the worm with the given handle to the given value.
+	 *
+	 * @post	| new.getActionPoints(handle) == actionPoints
+	 */
+	protected void setActionPoints(int handle, int actionPoints) {
+		this.actionPoints[handle] = actionPoints;
+	}
+
+
+	/**
+	 * Returns the maximum number of hit points and of action points of the worm with the given handle.
+	 */
+	@Basic
+	protected int getMaximumPoints(int handle) {
+		return this.maximumPoints[handle];
+	}
+
+
+	/**
+	 * Sets the maximum number of hit points and of action points of the worm with the given handle
+	 * to the given value.
+	 *
+	 * @post	| new.getMaximumPoints(handle) == maximumPoints
+	 */
+	protected void setMaximumPoints(int handle, int maximumPoints) {
+		this.maximumPoints[handle] = maximumPoints;
+	}
+
+
+	/**
+	 * Returns the index of the team of the worm with the given handle in its world,
+	 * or -1 if that worm has no team.
+	 */
+	@Basic
+	protected int getTeamId(int handle) {
+		return this.teamIds[handle];
+	}
+
+
+	/**
+	 * Sets the index of the team of the worm with the given handle to the given value.
+	 *
+	 * @post	| new.getTeamId(handle) == teamId
+	 */
+	protected void setTeamId(int handle, int teamId) {
+		this.teamIds[handle] = teamId;
+	}
+
+
+
+
+	/**
+	 * Gives each worm in this store, except for the worms without hit points, its maximum number
+	 * of action points and 10 more hit points, up to its maximum number of hit points.
+	 * A worm without hit points comes back to life, which this store cannot register;
+	 * the handles of those worms are returned without any change to them.
+	 *
+	 * @post	| for each handle in 0..this.getSize()-1
+	 * 			|	if ((this.getFlags(handle) == WORM) && (this.getHitPoints(handle) > 0))
+	 * 			|		then new.getActionPoints(handle) == this.getMaximumPoints(handle)
+	 * 			|		&& new.getHitPoints(handle) == min(this.getHitPoints(handle) + 10, this.getMaximumPoints(handle))
+	 * 			|		&& new.getStateVersion(handle) == this.getStateVersion(handle) + 2
+	 * @return	The handles of the worms without hit points, from small to large.
+	 * 			| for each handle in result
+	 * 			|	(this.getFlags(handle) == WORM) && (this.getHitPoints(handle) == 0)
+	 */
+	protected int[] startRound() {
+		int[] revived = new int[16];
+		int count = 0;
+		for (int handle = 0; handle < this.size; handle++) {
+			if (this.flags[handle] != WORM)
+				continue;
+			int points = this.hitPoints[handle];
+			if (points == 0) {
+				revived = append(revived, count++, handle);
+				continue;
+			}
+			int maximum = this.maximumPoints[handle];
+			this.actionPoints[handle] = maximum;
+			// As setHitPoints, without overflow.
+			this.hitPoints[handle] = (points >= maximum - 10) ? maximum : points + 10;
+			// As two calls of setters.
+			this.stateVersions[handle] += 2;
+		}
+		return Arrays.copyOf(revived, count);
+	}
+
+
+	/**
+	 * Returns the handles of the game objects with the given flag whose circle touches at least
+	 * one of the given rectangles, except for the game object with the excluded handle, from small
+	 * to large. Several threads may query this store at the same time, as long as none of them changes it.
+	 *
+	 * @param 	flag
+	 * 			The kind of the game objects to find.
+	 * @param 	rectangles
+	 * 			The rectangles, each as its smallest x coordinate, smallest y coordinate,
+	 * 			largest x coordinate and largest y coordinate.
+	 * @param 	excluded
+	 * 			The handle of the game object that is not to be found, or -1.
+	 *
+	 * @return	| for each handle in 0..this.getSize()-1
+	 * 			|	result.contains(handle) == (this.getFlags(handle) == flag) && (handle != excluded)
+	 * 			|		&& World.touchesAny(this.getX(handle), this.getY(handle), this.getRadius(handle), rectangles)
+	 */
+	protected int[] findInRectangles(byte flag, double[][] rectangles, int excluded) {
+		// The rectangle around all rectangles, which most game objects do not touch.
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (double[] rectangle : rectangles) {
+			minX = Math.min(minX, rectangle[0]);
+			minY = Math.min(minY, rectangle[1]);
+			maxX = Math.max(maxX, rectangle[2]);
+			maxY = Math.max(maxY, rectangle[3]);
+		}
+		int[] found = new int[16];
+		int count = 0;
+		double[] x = this.x, y = this.y, radius = this.radius;
+		byte[] flags = this.flags;
+		for (int handle = 0; handle < this.size; handle++) {
+			double r = radius[handle];
+			// Without branches on the coordinates, since most game objects are outside the rectangle.
+			boolean touches = (x[handle] + r >= minX) & (x[handle] - r <= maxX)
+					& (y[handle] + r >= minY) & (y[handle] - r <= maxY);
+			if (touches && (flags[handle] == flag) && (handle != excluded)
+					&& ((rectangles.length == 1) || World.touchesAny(x[handle], y[handle], r, rectangles)))
+				found = append(found, count++, handle);
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+
+	/**
+	 * Puts the given handle at the given index of the given array, and returns that array,
+	 * or a longer copy of it if the index lies beyond its end.
+	 */
+	private static int[] append(int[] handles, int index, int handle) {
+		if (index == handles.length)
+			handles = Arrays.copyOf(handles, 2*handles.length);
+		handles[index] = handle;
+		return handles;
+	}
+}
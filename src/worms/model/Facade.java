@@ -74,6 +74,61 @@ public class Facade implements IFacade {
 		 return new World(width,height,passableMap,random);
 	}
 
+	@Override
+	public World createWorldFromTerrain(double width, double height,
+			TerrainMap terrain, Random random) {
+		try {
+			return new World(width,height,terrain,random);
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
+	@Override
+	public void enableDistanceField(World world) {
+		try {
+			world.enableDistanceField();
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
+	@Override
+	public void enableImpassableCounts(World world) {
+		try {
+			world.enableImpassableCounts();
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
+	@Override
+	public void enableEntityStore(World world) {
+		try {
+			world.enableEntityStore();
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
+	@Override
+	public int[][] getChangedTerrainRegions(World world) {
+		try {
+			return world.takeChangedTerrainRegions();
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
+	@Override
+	public boolean isPassablePixel(World world, int row, int column) {
+		try {
+			return world.isPassablePixel(row, column);
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
 	@Override
 	public Worm createWorm(World world, double x, double y, double direction,
 			double radius, String name) {
@@ -152,6 +207,56 @@ public class Facade implements IFacade {
 		}
 	}
 
+	@Override
+	public void fillJumpStep(Projectile projectile, double t, double[] position) {
+		if ((position == null) || (position.length < 2))
+			throw new ModelException("Invalid position array!");
+		try {
+			projectile.fillJumpStep(t, position);
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
+	@Override
+	public void fillJumpStep(Worm worm, double t, double[] position) {
+		if ((position == null) || (position.length < 2))
+			throw new ModelException("Invalid position array!");
+		try {
+			worm.fillJumpStep(t, position);
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
+	@Override
+	public Trajectory getJumpTrajectory(Projectile projectile) {
+		try {
+			return projectile.getJumpTrajectory();
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
+	@Override
+	public Trajectory getJumpTrajectory(Worm worm) {
+		try {
+			return worm.getJumpTrajectory();
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
+	@Override
+	public ShotSolution getShotSolution(Worm worm, Worm target) {
+		try {
+			ShotSolution solution = new ShotSolution(worm, target);
+			return solution.isFound() ? solution : null;
+		} catch (NullPointerException exc) {
+			throw new ModelException("Null is invalid object!");
+		}
+	}
+
 	@Override
 	public double getJumpTime(Projectile projectile, double timeStep) {
 		try {
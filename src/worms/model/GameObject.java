@@ -42,6 +42,19 @@ public abstract class GameObject implements Cloneable {
 	 * The world in which this game object is.
 	 */
 	private World world;
+	/**
+	 * The number of changes to the state of this game object.
+	 */
+	private long stateVersion = 0;
+	/**
+	 * The handle of this game object in its world, or -1 if it has not been added to its world.
+	 */
+	private int handle = -1;
+	/**
+	 * The entity store of the world of this game object that holds its position, radius and
+	 * state version, or null if this game object holds them in its own fields.
+	 */
+	private EntityStore store = null;
 	
 	
 	
@@ -123,7 +136,81 @@ public abstract class GameObject implements Cloneable {
 	 * 			|	(this.getWorld().getGameObjects().contains(this))
 	 */
 	protected boolean hasProperWorld() {
-		return (this.getWorld() == null) || (this.getWorld().getGameObjects().contains(this));
+		return (this.getWorld() == null) || (this.getWorld().getGameObjectWithHandle(this.getHandle()) == this);
+	}
+	
+	
+	/**
+	 * Returns the handle of this game object in its world, or -1 if it is not in its world.
+	 * The handle of a game object does not change for as long as it is in its world.
+	 */
+	@Basic
+	@Raw
+	protected int getHandle() {
+		return this.handle;
+	}
+	
+	
+	/**
+	 * Set the handle of this game object in its world to the given handle.
+	 * 
+	 * @param 	handle
+	 * 			The new handle of this game object.
+	 * 
+	 * @post	| new.getHandle() == handle
+	 */
+	@Raw
+	protected void setHandle(int handle) {
+		this.handle = handle;
+	}
+	
+	
+	/**
+	 * Returns the entity store that holds the state of this game object,
+	 * or null if this game object holds its own state.
+	 */
+	@Basic
+	@Raw
+	protected EntityStore getStore() {
+		return this.store;
+	}
+	
+	
+	/**
+	 * Moves the state of this game object into the given entity store, at the handle of this game object.
+	 * 
+	 * @param 	store
+	 * 			The entity store of the world of this game object.
+	 * 
+	 * @post	| new.getStore() == store
+	 * @post	The state of this game object does not change.
+	 * 			| new.getCoordinateX() == this.getCoordinateX() && new.getCoordinateY() == this.getCoordinateY()
+	 * 			| new.getRadius() == this.getRadius() && new.getStateVersion() == this.getStateVersion()
+	 */
+	@Raw
+	protected void attachToStore(EntityStore store) {
+		store.add(this.getHandle(), EntityStore.getFlag(this), this.getCoordinateX(), this.getCoordinateY(),
+				this.getRadius(), this.getStateVersion());
+		this.store = store;
+	}
+	
+	
+	/**
+	 * Moves the state of this game object out of its entity store, back into its own fields.
+	 * The handle of this game object in that store is left as it is.
+	 * 
+	 * @post	| new.getStore() == null
+	 * @post	The state of this game object does not change.
+	 * 			| new.getCoordinateX() == this.getCoordinateX() && new.getCoordinateY() == this.getCoordinateY()
+	 * 			| new.getRadius() == this.getRadius() && new.getStateVersion() == this.getStateVersion()
+	 */
+	@Raw
+	protected void detachFromStore() {
+		this.coordinateX = this.getCoordinateX();
+		this.coordinateY = this.getCoordinateY();
+		this.radius = this.getRadius();
+		this.stateVersion = this.getStateVersion();
+		this.store = null;
 	}
 	
 	
@@ -154,6 +241,8 @@ public abstract class GameObject implements Cloneable {
 	@Basic
 	@Raw
 	protected double getCoordinateX(){
+		if (this.store != null)
+			return this.store.getX(this.handle);
 		return this.coordinateX;
 	}
 	
@@ -164,6 +253,8 @@ public abstract class GameObject implements Cloneable {
 	@Basic
 	@Raw
 	protected double getCoordinateY(){
+		if (this.store != null)
+			return this.store.getY(this.handle);
 		return this.coordinateY;
 	}
 	
@@ -190,14 +281,30 @@ public abstract class GameObject implements Cloneable {
 		if (!isValidCoordinate(coordinateX))
 			throw new ModelException("Illegal X coordinate!");
 		if (isXCoordinateOutOfBounds(coordinateX)){
-			this.coordinateX = coordinateX-this.getRadius();
+			this.storeCoordinateX(coordinateX-this.getRadius());
 			this.terminate();
 		}
 		else
-			this.coordinateX = coordinateX;
+			this.storeCoordinateX(coordinateX);
+		this.registerPositionChange();
+		this.registerStateChange();
 	}
 
 	
+	/**
+	 * Stores the given x coordinate as the x coordinate of this game object.
+	 * 
+	 * @post	| new.getCoordinateX() == coordinateX
+	 */
+	@Raw
+	private void storeCoordinateX(double coordinateX) {
+		if (this.store != null)
+			this.store.setX(this.handle, coordinateX);
+		else
+			this.coordinateX = coordinateX;
+	}
+	
+	
 	/**
 	 * Checks if the given coordinateX lies in the world of this game object.
 	 * 
@@ -236,14 +343,30 @@ public abstract class GameObject implements Cloneable {
 		if (!isValidCoordinate(coordinateY))
 			throw new ModelException("Illegal Y coordinate!");
 		if (this.isYCoordinateOutOfBounds(coordinateY)){
-			this.coordinateY = coordinateY-this.getRadius();
+			this.storeCoordinateY(coordinateY-this.getRadius());
 			this.terminate();
 		}
 		else
-			this.coordinateY = coordinateY;
+			this.storeCoordinateY(coordinateY);
+		this.registerPositionChange();
+		this.registerStateChange();
 	}
 
 	
+	/**
+	 * Stores the given y coordinate as the y coordinate of this game object.
+	 * 
+	 * @post	| new.getCoordinateY() == coordinateY
+	 */
+	@Raw
+	private void storeCoordinateY(double coordinateY) {
+		if (this.store != null)
+			this.store.setY(this.handle, coordinateY);
+		else
+			this.coordinateY = coordinateY;
+	}
+	
+	
 	/**
 	 * Checks if the given coordinateY lies in the world of this game object.
 	 * 
@@ -304,6 +427,8 @@ public abstract class GameObject implements Cloneable {
 	@Basic
 	@Raw
 	protected double getRadius(){
+		if (this.store != null)
+			return this.store.getRadius(this.handle);
 		return this.radius;
 	}
 
@@ -325,7 +450,12 @@ public abstract class GameObject implements Cloneable {
 	protected void setRadius(double radius) throws ModelException {
 		if (! isValidRadius(radius))
 			throw new ModelException("Illegal radius!");
-		this.radius = radius;
+		if (this.store != null)
+			this.store.setRadius(this.handle, radius);
+		else
+			this.radius = radius;
+		this.registerPositionChange();
+		this.registerStateChange();
 	}
 	
 	
@@ -341,6 +471,22 @@ public abstract class GameObject implements Cloneable {
 	
 	
 	
+	/**
+	 * Registers a change to the position or the radius of this game object with its world.
+	 * 
+	 * @effect	If this game object has a world, its position in that world is updated.
+	 * 			| if (this.getWorld() != null)
+	 * 			|	then this.getWorld().updateGameObjectPosition(this)
+	 */
+	@Raw
+	private void registerPositionChange() {
+		if (this.getWorld() != null)
+			this.getWorld().updateGameObjectPosition(this);
+	}
+	
+	
+	
+	
 	/**
 	 * Returns whether a game object is currently active or not.
 	 */
@@ -362,6 +508,38 @@ public abstract class GameObject implements Cloneable {
 	@Raw
 	protected void setStatus(boolean status) {
 		this.isActive = status;
+		this.registerStateChange();
+	}
+	
+	
+	
+	
+	/**
+	 * Returns the number of changes to the state of this game object so far.
+	 * Results that are computed from the state of this game object remain valid
+	 * for as long as this number does not change.
+	 */
+	@Basic
+	@Raw
+	protected long getStateVersion() {
+		if (this.store != null)
+			return this.store.getStateVersion(this.handle);
+		return this.stateVersion;
+	}
+	
+	
+	/**
+	 * Registers a change to the state of this game object.
+	 * 
+	 * @post	The state version of this game object is incremented.
+	 * 			| new.getStateVersion() == this.getStateVersion() + 1
+	 */
+	@Raw
+	protected void registerStateChange() {
+		if (this.store != null)
+			this.store.incrementStateVersion(this.handle);
+		else
+			this.stateVersion++;
 	}
 	
 	
@@ -414,6 +592,8 @@ public abstract class GameObject implements Cloneable {
 	@Override
 	protected GameObject clone() throws CloneNotSupportedException {
 		GameObject cloned = (GameObject) super.clone();
+		if (cloned.getStore() != null)
+			cloned.detachFromStore();
 		cloned.setWorld(cloned.getWorld().clone());
 		return cloned;
 	}
@@ -0,0 +1,138 @@
+package worms.model;
+
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing an index of the impassable pixels of a terrain map column by column,
+ * as the runs of impassable pixels from the top of each column to its bottom. The ground
+ * underneath any pixel, which is the first impassable pixel at or below it in its column,
+ * is found with a binary search over the runs of that column, instead of a scan down the column.
+ * A change of the terrain only requires the columns it touches to be indexed again.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	The ground underneath each pixel is the first impassable pixel at or below it.
+ * 			| for each row, column
+ * 			|	if (this.getGroundRow(row, column) >= 0)
+ * 			|		then ! this.getTerrain().isPassable(this.getGroundRow(row, column), column)
+ * 			|	for each between in row..this.getGroundRow(row, column)-1
+ * 			|		this.getTerrain().isPassable(between, column)
+ */
+public class GroundHeightIndex {
+
+	/**
+	 * The terrain map of which this index holds the impassable runs.
+	 */
+	private final TerrainMap terrain;
+	/**
+	 * The runs of impassable pixels of each column, from top to bottom, as the first
+	 * and the last row of each run: first0, last0, first1, last1, ...
+	 */
+	private final int[][] runs;
+	/**
+	 * An empty list of runs, shared by all columns without impassable pixels.
+	 */
+	private final static int[] noRuns = new int[0];
+
+
+
+
+	/**
+	 * Constructor to index the impassable pixels of the given terrain map.
+	 *
+	 * @param 	terrain
+	 * 			The terrain map for this new index.
+	 *
+	 * @post	The terrain of this new index is the given terrain.
+	 * 			| new.getTerrain() == terrain
+	 */
+	protected GroundHeightIndex(TerrainMap terrain) {
+		this.terrain = terrain;
+		this.runs = new int[terrain.getWidthInPixels()][];
+		this.update(0, terrain.getWidthInPixels()-1);
+	}
+
+
+
+
+	/**
+	 * Returns the terrain map of this index.
+	 */
+	@Basic
+	@Immutable
+	protected TerrainMap getTerrain() {
+		return this.terrain;
+	}
+
+
+	/**
+	 * Indexes the given columns of the terrain of this index again, after they have changed.
+	 *
+	 * @param 	firstColumn
+	 * 			The first column that has changed.
+	 * @param 	lastColumn
+	 * 			The last column that has changed.
+	 *
+	 * @pre		| (firstColumn >= 0) && (lastColumn < this.getTerrain().getWidthInPixels())
+	 */
+	protected void update(int firstColumn, int lastColumn) {
+		int height = this.terrain.getHeightInPixels();
+		int[] buffer = new int[16];
+		for (int column = firstColumn; column <= lastColumn; column++) {
+			int size = 0;
+			int row = 0;
+			while (row < height) {
+				while ((row < height) && this.terrain.isPassable(row, column))
+					row++;
+				if (row == height)
+					break;
+				int first = row;
+				while ((row < height) && ! this.terrain.isPassable(row, column))
+					row++;
+				if (size + 2 > buffer.length)
+					buffer = Arrays.copyOf(buffer, 2*buffer.length);
+				buffer[size++] = first;
+				buffer[size++] = row-1;
+			}
+			this.runs[column] = (size == 0) ? noRuns : Arrays.copyOf(buffer, size);
+		}
+	}
+
+
+	/**
+	 * Returns the first impassable row at or below the given row in the given column,
+	 * or -1 if all pixels from the given row down to the bottom of that column are passable.
+	 *
+	 * @param 	row
+	 * 			The row from which to look down.
+	 * @param 	column
+	 * 			The column in which to look.
+	 *
+	 * @pre		| this.getTerrain().isValidPixel(Math.max(row, 0), column)
+	 *
+	 * @return	| if (result >= 0)
+	 * 			|	then (result >= row) && ! this.getTerrain().isPassable(result, column)
+	 * 			| for each between in row..(result >= 0 ? result-1 : this.getTerrain().getHeightInPixels()-1)
+	 * 			|	this.getTerrain().isPassable(between, column)
+	 */
+	protected int getGroundRow(int row, int column) {
+		int[] columnRuns = this.runs[column];
+		// Binary search for the first run whose last row is not above the given row.
+		int low = 0;
+		int high = columnRuns.length/2;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (columnRuns[2*middle + 1] < row)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		if (low == columnRuns.length/2)
+			return -1;
+		return Math.max(row, columnRuns[2*low]);
+	}
+}
@@ -27,6 +27,42 @@ import be.kuleuven.cs.som.annotate.Raw;
 public abstract class MovableObject extends GameObject {
 
 	private double direction;
+	/**
+	 * The time step with which the cached jump of this movable object was computed,
+	 * or NaN if no jump has been cached.
+	 */
+	private double cachedJumpTimeStep = Double.NaN;
+	/**
+	 * The state version of this movable object when its cached jump was computed.
+	 */
+	private long cachedJumpStateVersion;
+	/**
+	 * The environment version of this movable object when its cached jump was computed.
+	 */
+	private long cachedJumpEnvironmentVersion;
+	/**
+	 * The time in the air of the cached jump of this movable object.
+	 */
+	private double cachedJumpTime;
+	/**
+	 * The landing position of the cached jump of this movable object, or null if it
+	 * has not been computed yet.
+	 */
+	private double[] cachedJumpLandingPosition;
+	/**
+	 * The sampled path of the cached jump of this movable object, or null if it
+	 * has not been computed yet.
+	 */
+	private Trajectory cachedJumpTrajectory;
+	/**
+	 * The state version of this movable object when its cached initial velocity was computed,
+	 * or -1 if no velocity has been cached.
+	 */
+	private long cachedVelocityStateVersion = -1;
+	/**
+	 * The cached horizontal and vertical initial velocity of the jump of this movable object.
+	 */
+	private double cachedVelocityX, cachedVelocityY;
 	
 	/**
 	 * The constructor to make a movable object.
@@ -96,11 +132,14 @@ public abstract class MovableObject extends GameObject {
 	 * 
 	 * @post	The new direction of this movable object is equal to the given direction.
 	 * 			| new.getDirection() == changeAngleModulo2PI(direction)
+	 * 
+	 * @effect	| this.registerStateChange()
 	 */
 	@Raw
 	protected void setDirection(double direction){
 		assert isValidDirection(direction);
 		this.direction = changeAngleModulo2PI(direction);
+		this.registerStateChange();
 	}
 
 	
@@ -216,26 +255,326 @@ public abstract class MovableObject extends GameObject {
 	 * 			| (!canJump())
 	 */
 	protected double[] getJumpStep(double time) throws ModelException {
+		double[] result = new double[2];
+		this.fillJumpStep(time, result);
+		return result;
+	}
+	
+	
+	/**
+	 * Stores the position of this movable object at a given time in a jump in the given array,
+	 * so that a trajectory can be followed without allocating an array for each position.
+	 * 
+	 * @param 	time
+	 * 			The point in time at which the position should be calculated.
+	 * @param 	position
+	 * 			The array in which to store the x and y coordinate of the position.
+	 * 
+	 * @post	| new.position[0] == this.getJumpStepX(time)
+	 * 			| new.position[1] == this.getJumpStepY(time)
+	 * 
+	 * @throws	ModelException
+	 * 			This movable object cannot jump.
+	 * 			| (!canJump())
+	 */
+	protected void fillJumpStep(double time, double[] position) throws ModelException {
+		position[0] = this.getJumpStepX(time);
+		position[1] = this.getJumpStepY(time);
+	}
+	
+	
+	/**
+	 * Calculates the x coordinate of this movable object at a given time in a jump.
+	 * 
+	 * @param 	time
+	 * 			The point in time at which the x coordinate should be calculated.
+	 * 
+	 * @return	| result == this.getCoordinateX()+this.getJumpVelocity()*Math.cos(this.getDirection())*time
+	 * 
+	 * @throws	ModelException
+	 * 			This movable object cannot jump.
+	 * 			| (!canJump())
+	 */
+	protected double getJumpStepX(double time) throws ModelException {
 		if (! this.canJump())
 			throw new ModelException("Cannot jump!");
-		double initialJumpVelocityX = this.getJumpVelocity()*Math.cos(this.getDirection());
-		double initialJumpVelocityY= this.getJumpVelocity()*Math.sin(this.getDirection());
-		double[] result = 
-		        {this.getCoordinateX()+initialJumpVelocityX*time,
-				this.getCoordinateY()+initialJumpVelocityY*time-0.5*this.getWorld().getGravity()*Math.pow(time, 2)};
-		return result;
+		this.updateInitialJumpVelocity();
+		return this.getCoordinateX()+this.cachedVelocityX*time;
+	}
+	
+	
+	/**
+	 * Calculates the y coordinate of this movable object at a given time in a jump.
+	 * 
+	 * @param 	time
+	 * 			The point in time at which the y coordinate should be calculated.
+	 * 
+	 * @return	| result == this.getCoordinateY()+this.getJumpVelocity()*Math.sin(this.getDirection())*time
+	 * 			|				-0.5*this.getWorld().getGravity()*Math.pow(time, 2)
+	 * 
+	 * @throws	ModelException
+	 * 			This movable object cannot jump.
+	 * 			| (!canJump())
+	 */
+	protected double getJumpStepY(double time) throws ModelException {
+		if (! this.canJump())
+			throw new ModelException("Cannot jump!");
+		this.updateInitialJumpVelocity();
+		return this.getCoordinateY()+this.cachedVelocityY*time-0.5*this.getWorld().getGravity()*Math.pow(time, 2);
+	}
+	
+	
+	/**
+	 * Returns the horizontal initial velocity of the jump of this movable object.
+	 * 
+	 * @return	| result == this.getJumpVelocity()*Math.cos(this.getDirection())
+	 */
+	protected double getInitialJumpVelocityX() {
+		this.updateInitialJumpVelocity();
+		return this.cachedVelocityX;
+	}
+	
+	
+	/**
+	 * Returns the vertical initial velocity of the jump of this movable object.
+	 * 
+	 * @return	| result == this.getJumpVelocity()*Math.sin(this.getDirection())
+	 */
+	protected double getInitialJumpVelocityY() {
+		this.updateInitialJumpVelocity();
+		return this.cachedVelocityY;
+	}
+	
+	
+	/**
+	 * Computes the horizontal and vertical initial velocity of the jump of this movable object,
+	 * unless they have already been computed for the current state of this movable object.
+	 * 
+	 * @post	| new.cachedVelocityX == this.getJumpVelocity()*Math.cos(this.getDirection())
+	 * 			| new.cachedVelocityY == this.getJumpVelocity()*Math.sin(this.getDirection())
+	 */
+	private void updateInitialJumpVelocity() {
+		if (this.cachedVelocityStateVersion == this.getStateVersion())
+			return;
+		this.cachedVelocityX = this.getJumpVelocity()*Math.cos(this.getDirection());
+		this.cachedVelocityY = this.getJumpVelocity()*Math.sin(this.getDirection());
+		this.cachedVelocityStateVersion = this.getStateVersion();
+	}
+	
+	
+	/**
+	 * Returns a time at which this movable object, following the trajectory of its jump, is still
+	 * at a free position, less than the given time step before it first reaches a position that
+	 * is not free. Instead of checking the position at every multiple of the step, the trajectory
+	 * is advanced at once over the time in which this movable object cannot move further than the
+	 * free clearance around its current position, so that the number of positions that are checked
+	 * depends on how close the trajectory passes to obstacles, and not on the duration of the jump.
+	 * Close to contact, where the clearance becomes small, the trajectory is advanced over the time
+	 * in which this movable object moves a tenth of its radius or of a pixel, whichever is smaller,
+	 * and the contact within the last advance is located by bisection, down to a single step.
+	 * 
+	 * @param 	step
+	 * 			The precision with which the contact is located.
+	 * 
+	 * @return	The position at the result is free, unless the result is zero,
+	 * 			and the trajectory reaches a position that is not free within a step after the result.
+	 * 			| position = this.getJumpStep(result)
+	 * 			| (result == 0) || this.isFreePosition(position[0], position[1])
+	 * 			| for some time in result..result+step
+	 * 			|	nextPosition = this.getJumpStep(time)
+	 * 			|	! this.isFreePosition(nextPosition[0], nextPosition[1])
+	 * 
+	 * @throws	ModelException
+	 * 			This movable object cannot jump.
+	 * 			| (! canJump())
+	 */
+	protected double getLastFreeJumpTime(double step) throws ModelException {
+		double gravity = this.getWorld().getGravity();
+		double minimum = 0.1*Math.min(this.getRadius(), Math.min(this.getWorld().getWidth()/this.getWorld().getWidthInPixels(),
+				this.getWorld().getHeight()/this.getWorld().getHeightInPixels()));
+		double time = 0.0;
+		double t = step;
+		double x = this.getJumpStepX(t);
+		double y = this.getJumpStepY(t);
+		double velocityX = this.cachedVelocityX;
+		double velocityY = this.cachedVelocityY;
+		while (this.isFreePosition(x, y)) {
+			time = t;
+			// Within a time delta, this object moves at most speed*delta + gravity*delta^2/2.
+			double distance = Math.max(this.getFreeClearance(x, y), minimum);
+			double speed = Math.hypot(velocityX, velocityY - gravity*t);
+			double delta = 2*distance/(speed + Math.sqrt(speed*speed + 2*gravity*distance));
+			t = time + Math.max(step, 0.999*delta);
+			x = this.getJumpStepX(t);
+			y = this.getJumpStepY(t);
+		}
+		while (t - time > step) {
+			double middle = 0.5*(time + t);
+			if (this.isFreePosition(this.getJumpStepX(middle), this.getJumpStepY(middle)))
+				time = middle;
+			else
+				t = middle;
+		}
+		return time;
+	}
+	
+	
+	/**
+	 * Checks whether this movable object could be at the given position during a jump.
+	 * 
+	 * @param 	x
+	 * 			The x coordinate of the position.
+	 * @param 	y
+	 * 			The y coordinate of the position.
+	 * 
+	 * @return	| result == this.getWorld().isPassableArea(x, y, this.getRadius())
+	 */
+	protected boolean isFreePosition(double x, double y) {
+		return this.getWorld().isPassableArea(x, y, this.getRadius());
+	}
+	
+	
+	/**
+	 * Returns a distance over which this movable object can move from the given free position,
+	 * in any direction, while its position remains free.
+	 * 
+	 * @param 	x
+	 * 			The x coordinate of the position.
+	 * @param 	y
+	 * 			The y coordinate of the position.
+	 * 
+	 * @return	| result == this.getWorld().getPassableClearance(x, y, this.getRadius())
+	 */
+	protected double getFreeClearance(double x, double y) {
+		return this.getWorld().getPassableClearance(x, y, this.getRadius());
 	}
 	
 	
 	/**
 	 * Returns the real time that a movable object is in the air.
 	 * (In contrast to getJumpTime(), the y coordinate can change.)
+	 * The result is cached, so that asking it again with the same step costs nothing for as
+	 * long as neither the state of this movable object nor its environment changes.
+	 * 
+	 * @param 	step
+	 * 			A time interval in which the movable object will not
+	 * 			completely move through impassable terrain.
+	 * 
+	 * @return	| result == this.computeJumpRealTimeInAir(step)
+	 * 
+	 * @throws	ModelException
+	 * 			This movable object cannot jump.
+	 * 			| (! canJump())
+	 */
+	protected final double getJumpRealTimeInAir(double step) throws ModelException {
+		long stateVersion = this.getStateVersion();
+		long environmentVersion = this.getEnvironmentVersion();
+		if ((step == this.cachedJumpTimeStep) && (stateVersion == this.cachedJumpStateVersion)
+				&& (environmentVersion == this.cachedJumpEnvironmentVersion))
+			return this.cachedJumpTime;
+		double time = this.computeJumpRealTimeInAir(step);
+		this.cachedJumpTimeStep = step;
+		this.cachedJumpStateVersion = stateVersion;
+		this.cachedJumpEnvironmentVersion = environmentVersion;
+		this.cachedJumpTime = time;
+		this.cachedJumpLandingPosition = null;
+		this.cachedJumpTrajectory = null;
+		return time;
+	}
+	
+	
+	/**
+	 * Returns the position at which this movable object lands at the end of its jump.
+	 * The result is cached together with the time in the air.
+	 * 
+	 * @param 	step
+	 * 			A time interval in which the movable object will not
+	 * 			completely move through impassable terrain.
+	 * 
+	 * @return	| result == this.getJumpStep(this.getJumpRealTimeInAir(step))
+	 * 
+	 * @throws	ModelException
+	 * 			This movable object cannot jump.
+	 * 			| (! canJump())
+	 */
+	protected double[] getJumpLandingPosition(double step) throws ModelException {
+		double time = this.getJumpRealTimeInAir(step);
+		if (this.cachedJumpLandingPosition == null)
+			this.cachedJumpLandingPosition = this.getJumpStep(time);
+		return this.cachedJumpLandingPosition.clone();
+	}
+	
+	
+	/**
+	 * Returns the sampled path of the jump of this movable object, computed with the time step
+	 * of its jump, so that the path ends exactly where the jump places this movable object.
+	 * The result is cached together with the time in the air.
+	 * 
+	 * @return	| result.getDuration() == this.getJumpRealTimeInAir(this.getJumpTimeStep())
+	 * 			| result.getEndX() == this.getJumpLandingPosition(this.getJumpTimeStep())[0]
+	 * 			| result.getEndY() == this.getJumpLandingPosition(this.getJumpTimeStep())[1]
+	 * 			| result.leavesWorld() == (this.isXCoordinateOutOfBounds(result.getEndX())
+	 * 			|	|| this.isYCoordinateOutOfBounds(result.getEndY()))
+	 * 			| result.getTarget() == this.getJumpTarget()
+	 * 
+	 * @throws	ModelException
+	 * 			This movable object cannot jump.
+	 * 			| (! canJump())
+	 */
+	protected Trajectory getJumpTrajectory() throws ModelException {
+		double time = this.getJumpRealTimeInAir(this.getJumpTimeStep());
+		if (this.cachedJumpTrajectory == null) {
+			double x = this.getJumpStepX(time);
+			double y = this.getJumpStepY(time);
+			this.cachedJumpTrajectory = new Trajectory(this, time,
+					this.isXCoordinateOutOfBounds(x) || this.isYCoordinateOutOfBounds(y), this.getJumpTarget());
+		}
+		return this.cachedJumpTrajectory;
+	}
+	
+	
+	/**
+	 * Returns the worm that this movable object hits at the end of its jump, or null if it lands
+	 * on impassable terrain or leaves the world. Only projectiles hit worms.
+	 * 
+	 * @return	| result == null
+	 * 
+	 * @throws	ModelException
+	 * 			This movable object cannot jump.
+	 * 			| ! this.canJump()
+	 */
+	protected Worm getJumpTarget() throws ModelException {
+		if (! this.canJump())
+			throw new ModelException("Cannot jump!");
+		return null;
+	}
+	
+	
+	/**
+	 * Returns the time step with which the jump of this movable object is computed when it jumps.
+	 */
+	protected abstract double getJumpTimeStep();
+	
+	
+	/**
+	 * Computes the real time that a movable object is in the air.
 	 * 
 	 * @param 	step
 	 * 			A time interval in which the movable object will not
 	 * 			completely move through impassable terrain.
 	 */
-	protected abstract double getJumpRealTimeInAir(double step);
+	protected abstract double computeJumpRealTimeInAir(double step);
+	
+	
+	/**
+	 * Returns a number that changes whenever something outside this movable object changes
+	 * that can change the outcome of its jump.
+	 * 
+	 * @return	| result == this.getWorld().getTerrainVersion()
+	 */
+	protected long getEnvironmentVersion() {
+		return this.getWorld().getTerrainVersion();
+	}
 	
 	
 	/**
@@ -0,0 +1,463 @@
+package worms.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing the plan of the next move of a worm. The candidate moves of a worm go
+ * in one of the directions within 0.7875 radians of its own direction, in steps of 0.0175 radians,
+ * and cover a fraction of its radius from 1.0 down to 0.1 meter, in steps of 0.1. Each candidate
+ * scores its covered distance over its divergence from the direction of the worm plus 0.5.
+ * The planned move is the adjacent candidate with the highest score, or if there is none, the
+ * passable candidate with the highest score. Of candidates with the same score, the one whose
+ * direction comes first is planned, and in each direction only the longest valid distance counts.
+ * 
+ * The score of a direction can never be higher than that of the longest distance in that direction
+ * for which the worm has enough action points, which is known without looking at the terrain.
+ * The directions are therefore visited from the highest such bound down, and a direction, or a
+ * distance within a direction, is only tested against the terrain if it could still beat the best
+ * candidate found so far. Each candidate is tested at most once, and if the world of the worm has
+ * a distance field, candidates that lie within a passable region found before are not tested
+ * against the terrain at all.
+ * 
+ * The terrain queries of different directions are independent, so if a worm has enough candidates,
+ * ranges of directions are searched on the common fork/join pool. Each range yields its own best
+ * candidate, and the ranges are merged in the order of their directions, so that the planned move
+ * is the same as that of a search by a single thread.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	If a move is planned, the worm can make that move.
+ * 			| if (this.hasMove())
+ * 			|	then this.getWorm().canMove(this.getSteps(), this.getDirection())
+ */
+public class MovePlanner {
+
+	/**
+	 * The worm whose move is planned.
+	 */
+	private final Worm worm;
+	/**
+	 * The candidate directions of the move, in the order in which they are swept.
+	 */
+	private final double[] directions;
+	/**
+	 * The candidate distances of the move, as fractions of the radius of the worm, from long to short.
+	 */
+	private final double[] distances;
+	/**
+	 * The divergence plus 0.5 of each candidate direction, by which its distances are divided.
+	 */
+	private final double[] divergences;
+	/**
+	 * The highest score each candidate direction could have, given the action points of the worm.
+	 */
+	private final double[] bounds;
+	/**
+	 * The number of candidates from which the directions are searched in parallel.
+	 */
+	private static volatile int parallelThreshold = Integer.MAX_VALUE;
+	/**
+	 * The largest number of directions searched by a single task.
+	 */
+	private static final int directionsPerTask = 12;
+	/**
+	 * The number of steps of the planned move, or 0 if no move is possible.
+	 */
+	private double steps = 0.0;
+	/**
+	 * The direction of the planned move.
+	 */
+	private double direction;
+	/**
+	 * The number of positions that were tested against the terrain to plan the move.
+	 */
+	private int numberOfTerrainQueries = 0;
+	/**
+	 * The number of clearances that were looked up to plan the move.
+	 */
+	private int numberOfClearanceQueries = 0;
+	/**
+	 * The number of positions that were tested against the terrain and the number of clearances
+	 * that were looked up by all planners so far.
+	 */
+	private static final AtomicLong totalTerrainQueries = new AtomicLong();
+	private static final AtomicLong totalClearanceQueries = new AtomicLong();
+
+
+
+
+	/**
+	 * Constructor to plan the next move of the given worm from its current position,
+	 * direction and action points.
+	 *
+	 * @param 	worm
+	 * 			The worm whose move is planned.
+	 *
+	 * @post	The worm of this new planner is the given worm.
+	 * 			| new.getWorm() == worm
+	 * @post	The planned move is the best adjacent move of the worm, or if there is none,
+	 * 			its best passable move.
+	 * 			| if (exists an adjacent move)
+	 * 			|	then worm.canMoveAdjacent(new.getSteps(), new.getDirection())
+	 * 			| else if (new.hasMove())
+	 * 			|	then worm.canMovePassable(new.getSteps(), new.getDirection())
+	 */
+	protected MovePlanner(Worm worm) {
+		this.worm = worm;
+		this.direction = worm.getDirection();
+		// The candidates are accumulated exactly as the sweep of the worm does.
+		int numberOfDirections = 0;
+		for (double direction = worm.getDirection()-0.7875; direction <= worm.getDirection()+0.7875; direction = direction + 0.0175)
+			numberOfDirections++;
+		this.directions = new double[numberOfDirections];
+		int index = 0;
+		for (double direction = worm.getDirection()-0.7875; direction <= worm.getDirection()+0.7875; direction = direction + 0.0175)
+			this.directions[index++] = direction;
+		int numberOfDistances = 0;
+		for (double steps = 1.0; steps >= 0.1/worm.getRadius(); steps = steps - 0.1)
+			numberOfDistances++;
+		this.distances = new double[numberOfDistances];
+		index = 0;
+		for (double steps = 1.0; steps >= 0.1/worm.getRadius(); steps = steps - 0.1)
+			this.distances[index++] = steps;
+		this.divergences = new double[numberOfDirections];
+		this.bounds = new double[numberOfDirections];
+		for (index = 0; index < numberOfDirections; index++) {
+			this.divergences[index] = Math.abs(this.directions[index]-worm.getDirection())+0.5;
+			double longest = 0.0;
+			for (double steps : this.distances)
+				if (worm.isPossibleMoveWithCurrentActionPoints((int)steps +1, this.directions[index])) {
+					longest = steps;
+					break;
+				}
+			this.bounds[index] = Math.abs(longest/this.divergences[index]);
+		}
+		if (! this.plan(true))
+			this.plan(false);
+		totalTerrainQueries.addAndGet(this.numberOfTerrainQueries);
+		totalClearanceQueries.addAndGet(this.numberOfClearanceQueries);
+	}
+
+
+
+
+	/**
+	 * Returns the worm whose move is planned.
+	 */
+	@Basic
+	@Immutable
+	protected Worm getWorm() {
+		return this.worm;
+	}
+
+
+	/**
+	 * Returns the number of steps of the planned move, as a fraction of the radius of the worm,
+	 * or 0 if the worm cannot move.
+	 */
+	@Basic
+	protected double getSteps() {
+		return this.steps;
+	}
+
+
+	/**
+	 * Returns the direction of the planned move.
+	 */
+	@Basic
+	protected double getDirection() {
+		return this.direction;
+	}
+
+
+	/**
+	 * Returns whether a move is planned.
+	 *
+	 * @return	| result == (this.getSteps() > 0)
+	 */
+	protected boolean hasMove() {
+		return this.steps > 0.0;
+	}
+
+
+	/**
+	 * Returns the number of positions that were tested against the terrain to plan the move.
+	 */
+	@Basic
+	protected int getNumberOfTerrainQueries() {
+		return this.numberOfTerrainQueries;
+	}
+
+
+	/**
+	 * Returns the number of clearances that were looked up to plan the move.
+	 */
+	@Basic
+	protected int getNumberOfClearanceQueries() {
+		return this.numberOfClearanceQueries;
+	}
+
+
+	/**
+	 * Returns the number of positions that were tested against the terrain by all planners so far.
+	 */
+	public static long getTotalTerrainQueries() {
+		return totalTerrainQueries.get();
+	}
+
+
+	/**
+	 * Returns the number of clearances that were looked up by all planners so far.
+	 */
+	public static long getTotalClearanceQueries() {
+		return totalClearanceQueries.get();
+	}
+
+
+	/**
+	 * Returns the number of candidates from which the directions of a move are searched in parallel.
+	 */
+	public static int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+
+	/**
+	 * Sets the number of candidates from which the directions of a move are searched in parallel.
+	 * By default the directions are never searched in parallel: an ordinary move has 91 directions
+	 * of 10 distances, too few to make up for handing them to the fork/join pool.
+	 *
+	 * @param 	threshold
+	 * 			The new threshold.
+	 *
+	 * @post	| new.getParallelThreshold() == threshold
+	 */
+	public static void setParallelThreshold(int threshold) {
+		parallelThreshold = threshold;
+	}
+
+
+	/**
+	 * Returns whether the directions of this plan are searched in parallel.
+	 *
+	 * @return	| result == (this.directions.length*this.distances.length >= getParallelThreshold())
+	 */
+	private boolean isParallel() {
+		return this.directions.length*this.distances.length >= getParallelThreshold();
+	}
+
+
+	/**
+	 * Plans the best adjacent or the best passable move of the worm, if there is one.
+	 *
+	 * @param 	adjacent
+	 * 			Whether the move must end in an adjacent position, rather than in a passable one.
+	 *
+	 * @return	Whether a move was found.
+	 */
+	private boolean plan(boolean adjacent) {
+		boolean parallel = this.isParallel();
+		Search search = new Search(0, this.directions.length, adjacent, parallel, new AtomicLong(Double.doubleToLongBits(0.0)));
+		if (parallel)
+			ForkJoinPool.commonPool().invoke(search);
+		else
+			search.compute();
+		this.numberOfTerrainQueries += search.numberOfTerrainQueries;
+		this.numberOfClearanceQueries += search.numberOfClearanceQueries;
+		if (search.bestIndex < 0)
+			return false;
+		this.steps = search.bestSteps;
+		this.direction = this.directions[search.bestIndex];
+		return true;
+	}
+
+
+	/**
+	 * A class describing the search for the best candidate in a range of directions.
+	 */
+	private class Search extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The first direction, and the direction after the last one, of this search.
+		 */
+		private final int first, end;
+		/**
+		 * Whether the move must end in an adjacent position, rather than in a passable one.
+		 */
+		private final boolean adjacent;
+		/**
+		 * Whether this search splits its range over several tasks.
+		 */
+		private final boolean split;
+		/**
+		 * The bits of the highest score found by any search for the same move so far. A candidate
+		 * with a lower score can never be planned, whichever search finds it.
+		 */
+		private final AtomicLong sharedBestScore;
+		/**
+		 * The index of the direction of the best candidate in the range, or -1 if there is none.
+		 */
+		private int bestIndex = -1;
+		/**
+		 * The score of the best candidate in the range.
+		 */
+		private double bestScore = 0.0;
+		/**
+		 * The number of steps of the best candidate in the range.
+		 */
+		private double bestSteps = 0.0;
+		/**
+		 * The number of positions tested against the terrain and the number of clearances looked up.
+		 */
+		private int numberOfTerrainQueries = 0, numberOfClearanceQueries = 0;
+		/**
+		 * The centres and the clearances of the passable circles of 1.1 times the radius of the
+		 * worm met by this search: x0, y0, clearance0, x1, y1, clearance1, ...
+		 */
+		private double[] clearances;
+		/**
+		 * The number of passable circles met by this search.
+		 */
+		private int numberOfClearances = 0;
+
+		private Search(int first, int end, boolean adjacent, boolean split, AtomicLong sharedBestScore) {
+			this.first = first;
+			this.end = end;
+			this.adjacent = adjacent;
+			this.split = split;
+			this.sharedBestScore = sharedBestScore;
+		}
+
+		@Override
+		protected void compute() {
+			if ((! this.split) || (this.end - this.first <= directionsPerTask)) {
+				this.search();
+				return;
+			}
+			int middle = (this.first + this.end) >>> 1;
+			Search left = new Search(this.first, middle, this.adjacent, true, this.sharedBestScore);
+			Search right = new Search(middle, this.end, this.adjacent, true, this.sharedBestScore);
+			invokeAll(left, right);
+			// Of equal scores, the one of the left range comes first.
+			Search best = ((right.bestIndex >= 0) && ((left.bestIndex < 0) || (right.bestScore > left.bestScore))) ? right : left;
+			this.bestIndex = best.bestIndex;
+			this.bestScore = best.bestScore;
+			this.bestSteps = best.bestSteps;
+			this.numberOfTerrainQueries = left.numberOfTerrainQueries + right.numberOfTerrainQueries;
+			this.numberOfClearanceQueries = left.numberOfClearanceQueries + right.numberOfClearanceQueries;
+		}
+
+		/**
+		 * Searches the directions of this range from the highest bound down.
+		 */
+		private void search() {
+			int[] order = new int[this.end - this.first];
+			for (int index = this.first; index < this.end; index++) {
+				// Insert the direction in the order of decreasing bounds, after the directions with the same bound.
+				int position = index - this.first;
+				while ((position > 0) && (bounds[order[position-1]] < bounds[index])) {
+					order[position] = order[position-1];
+					position--;
+				}
+				order[position] = index;
+			}
+			for (int index : order) {
+				if (! this.canImprove(bounds[index], index))
+					break;
+				for (double steps : distances) {
+					double score = Math.abs(steps/divergences[index]);
+					if (! this.canImprove(score, index))
+						break;
+					if (! worm.isPossibleMoveWithCurrentActionPoints((int)steps +1, directions[index]))
+						continue;
+					if (this.isValidPosition(steps, directions[index])) {
+						this.bestScore = score;
+						this.bestIndex = index;
+						this.bestSteps = steps;
+						this.shareBestScore(score);
+						break;
+					}
+				}
+			}
+			this.clearances = null;
+		}
+
+		/**
+		 * Returns whether a candidate with the given score in the direction at the given index
+		 * would be preferred over the best candidate of this range so far, and is not worse
+		 * than the best candidate of any other range.
+		 */
+		private boolean canImprove(double score, int index) {
+			if (score < Double.longBitsToDouble(this.sharedBestScore.get()))
+				return false;
+			if (this.bestIndex < 0)
+				return score > this.bestScore;
+			return (score > this.bestScore) || ((score == this.bestScore) && (index < this.bestIndex));
+		}
+
+		/**
+		 * Raises the highest score found by any search for the same move to the given score.
+		 * The bits of scores that are not negative are ordered as the scores themselves.
+		 */
+		private void shareBestScore(double score) {
+			long bits = Double.doubleToLongBits(score);
+			long current = this.sharedBestScore.get();
+			while ((bits > current) && ! this.sharedBestScore.compareAndSet(current, bits))
+				current = this.sharedBestScore.get();
+		}
+
+		/**
+		 * Returns whether the worm would end in an adjacent or a passable position after moving the
+		 * given number of steps in the given direction. A position cannot be adjacent if a circle of
+		 * 1.1 times the radius of the worm around it is passable, which is the case within the clearance
+		 * of each such circle met before. Those clearances are looked up in the distance field of the
+		 * world, and rule out positions in neighbouring directions and at neighbouring distances
+		 * without testing them against the terrain. A world only has a distance field after
+		 * enableDistanceField; without it, a clearance costs more than the terrain queries it saves,
+		 * so every position is tested against the terrain.
+		 */
+		private boolean isValidPosition(double steps, double direction) {
+			double radius = worm.getRadius();
+			double x = worm.getCoordinateX()+Math.cos(direction)*steps*radius;
+			double y = worm.getCoordinateY()+Math.sin(direction)*steps*radius;
+			if (! this.adjacent) {
+				this.numberOfTerrainQueries++;
+				return worm.getWorld().isPassableArea(x, y, radius);
+			}
+			if (! worm.getWorld().hasDistanceField()) {
+				this.numberOfTerrainQueries++;
+				return worm.getWorld().isAdjacent(x, y, radius);
+			}
+			for (int index = this.numberOfClearances-1; index >= 0; index--) {
+				double dx = x - this.clearances[3*index];
+				double dy = y - this.clearances[3*index+1];
+				if (dx*dx + dy*dy < this.clearances[3*index+2]*this.clearances[3*index+2])
+					return false;
+			}
+			this.numberOfClearanceQueries++;
+			double clearance = worm.getWorld().getPassableClearance(x, y, 1.1*radius);
+			if (clearance > 0) {
+				if (this.clearances == null)
+					this.clearances = new double[48];
+				else if (3*this.numberOfClearances == this.clearances.length)
+					this.clearances = Arrays.copyOf(this.clearances, 2*this.clearances.length);
+				this.clearances[3*this.numberOfClearances] = x;
+				this.clearances[3*this.numberOfClearances+1] = y;
+				this.clearances[3*this.numberOfClearances+2] = clearance;
+				this.numberOfClearances++;
+				return false;
+			}
+			this.numberOfTerrainQueries++;
+			return worm.getWorld().isAdjacent(x, y, radius);
+		}
+	}
+}
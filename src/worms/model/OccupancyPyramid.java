@@ -0,0 +1,446 @@
+package worms.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing a pyramid of occupancy levels over a terrain map. Each level divides
+ * the map in square blocks, twice as large as those of the level below, and stores for each
+ * block whether it is all passable, all impassable or mixed. A query on a region of the map
+ * starts at the coarsest level at which the region spans only a few blocks, and only descends
+ * into the mixed blocks that overlap the region, so its cost depends on the length of the
+ * terrain boundary within the region instead of on its area.
+ * The pyramid holds two bits for each block of 8 by 8 pixels, and a third of that again for
+ * the coarser levels, which is less than a hundredth of a byte per pixel, or about 4 percent
+ * of the bit-packed terrain map itself.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	A block is all passable (or all impassable) if and only if all the pixels
+ * 			of the terrain in that block are passable (or impassable).
+ */
+public class OccupancyPyramid {
+
+	/**
+	 * The level of the finest blocks of each pyramid, which are eight pixels wide.
+	 */
+	private final static int leafLevel = 3;
+	/**
+	 * The terrain map of this pyramid.
+	 */
+	private final TerrainMap terrain;
+	/**
+	 * The level of the coarsest blocks of this pyramid, which cover the whole map.
+	 */
+	private final int topLevel;
+	/**
+	 * The number of blocks in a row of blocks, by level.
+	 */
+	private final int[] blocksPerRow;
+	/**
+	 * The bits of the blocks that are all passable, by level.
+	 */
+	private final long[][] passable;
+	/**
+	 * The bits of the blocks that are all impassable, by level.
+	 */
+	private final long[][] impassable;
+
+
+
+
+	/**
+	 * Constructor to compute a new occupancy pyramid for the given terrain map.
+	 *
+	 * @param 	terrain
+	 * 			The terrain map for this new pyramid.
+	 *
+	 * @post	The terrain of this new pyramid is the given terrain.
+	 * 			| new.getTerrain() == terrain
+	 */
+	protected OccupancyPyramid(TerrainMap terrain) {
+		this.terrain = terrain;
+		int size = Math.max(1, Math.max(terrain.getWidthInPixels(), terrain.getHeightInPixels()));
+		int top = leafLevel;
+		while ((1 << top) < size)
+			top++;
+		this.topLevel = top;
+		this.blocksPerRow = new int[top+1];
+		this.passable = new long[top+1][];
+		this.impassable = new long[top+1][];
+		for (int level = leafLevel; level <= top; level++) {
+			int blockSize = 1 << level;
+			this.blocksPerRow[level] = (terrain.getWidthInPixels() + blockSize - 1) >> level;
+			int blocks = this.blocksPerRow[level]*((terrain.getHeightInPixels() + blockSize - 1) >> level);
+			this.passable[level] = new long[(blocks + 63) >> 6];
+			this.impassable[level] = new long[(blocks + 63) >> 6];
+		}
+		this.update(0, 0, terrain.getHeightInPixels()-1, terrain.getWidthInPixels()-1);
+	}
+
+
+
+
+	/**
+	 * Returns the terrain map of this pyramid.
+	 */
+	@Basic
+	@Immutable
+	protected TerrainMap getTerrain() {
+		return this.terrain;
+	}
+
+
+	/**
+	 * Returns the level of the coarsest blocks of this pyramid.
+	 */
+	@Basic
+	@Immutable
+	protected int getTopLevel() {
+		return this.topLevel;
+	}
+
+
+	/**
+	 * Checks whether the given block of the given level is all passable.
+	 *
+	 * @param 	level
+	 * 			The level of the block.
+	 * @param 	blockRow
+	 * 			The row of the block in its level.
+	 * @param 	blockColumn
+	 * 			The column of the block in its level.
+	 */
+	protected boolean isPassableBlock(int level, int blockRow, int blockColumn) {
+		return getBit(this.passable[level], blockRow*this.blocksPerRow[level] + blockColumn);
+	}
+
+
+	/**
+	 * Checks whether the given block of the given level is all impassable.
+	 *
+	 * @param 	level
+	 * 			The level of the block.
+	 * @param 	blockRow
+	 * 			The row of the block in its level.
+	 * @param 	blockColumn
+	 * 			The column of the block in its level.
+	 */
+	protected boolean isImpassableBlock(int level, int blockRow, int blockColumn) {
+		return getBit(this.impassable[level], blockRow*this.blocksPerRow[level] + blockColumn);
+	}
+
+
+	/**
+	 * Checks whether the reach or the core of the given disk kernel, placed with its
+	 * center in the given pixel, contains an impassable pixel of the terrain of this pyramid.
+	 * Pixels of the kernel outside the terrain are ignored.
+	 *
+	 * @param 	kernel
+	 * 			The disk kernel to check.
+	 * @param 	core
+	 * 			True to check the core of the kernel, false to check its reach.
+	 * @param 	centerRow
+	 * 			The row of the center pixel of the kernel.
+	 * @param 	centerColumn
+	 * 			The column of the center pixel of the kernel.
+	 *
+	 * @return	Whether any pixel in the reach or core of the kernel is impassable.
+	 * 			| result == (for some row, column in the reach or core of the kernel:
+	 * 			|	this.getTerrain().isValidPixel(row, column) && ! this.getTerrain().isPassable(row, column))
+	 */
+	protected boolean containsImpassable(DiskKernel kernel, boolean core, int centerRow, int centerColumn) {
+		int rows = core ? kernel.getCoreRows() : kernel.getReachRows();
+		int halfWidth = Math.max(halfWidth(kernel, core, false, 0), 0);
+		int firstRow = Math.max(0, centerRow - rows);
+		int lastRow = Math.min(this.terrain.getHeightInPixels()-1, centerRow + rows);
+		int firstColumn = Math.max(0, centerColumn - halfWidth);
+		int lastColumn = Math.min(this.terrain.getWidthInPixels()-1, centerColumn + halfWidth);
+		if ((firstRow > lastRow) || (firstColumn > lastColumn))
+			return false;
+		int level = leafLevel;
+		while ((level < this.topLevel) && ((1 << level) < Math.max(lastRow - firstRow, lastColumn - firstColumn)))
+			level++;
+		for (int blockRow = firstRow >> level; blockRow <= lastRow >> level; blockRow++)
+			for (int blockColumn = firstColumn >> level; blockColumn <= lastColumn >> level; blockColumn++)
+				if (this.containsImpassable(kernel, core, centerRow, centerColumn, level, blockRow, blockColumn))
+					return true;
+		return false;
+	}
+
+
+	/**
+	 * Checks whether the given rectangle contains an impassable pixel of the terrain of this
+	 * pyramid. Pixels of the rectangle outside the terrain are ignored.
+	 *
+	 * @param 	firstRow
+	 * 			The first row of the rectangle.
+	 * @param 	firstColumn
+	 * 			The first column of the rectangle.
+	 * @param 	lastRow
+	 * 			The last row of the rectangle.
+	 * @param 	lastColumn
+	 * 			The last column of the rectangle.
+	 *
+	 * @return	| result == (for some row in firstRow..lastRow, column in firstColumn..lastColumn:
+	 * 			|	this.getTerrain().isValidPixel(row, column) && ! this.getTerrain().isPassable(row, column))
+	 */
+	protected boolean containsImpassable(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		firstRow = Math.max(0, firstRow);
+		firstColumn = Math.max(0, firstColumn);
+		lastRow = Math.min(this.terrain.getHeightInPixels()-1, lastRow);
+		lastColumn = Math.min(this.terrain.getWidthInPixels()-1, lastColumn);
+		if ((firstRow > lastRow) || (firstColumn > lastColumn))
+			return false;
+		int level = leafLevel;
+		while ((level < this.topLevel) && ((1 << level) < Math.max(lastRow - firstRow, lastColumn - firstColumn)))
+			level++;
+		for (int blockRow = firstRow >> level; blockRow <= lastRow >> level; blockRow++)
+			for (int blockColumn = firstColumn >> level; blockColumn <= lastColumn >> level; blockColumn++)
+				if (this.containsImpassable(firstRow, firstColumn, lastRow, lastColumn, level, blockRow, blockColumn))
+					return true;
+		return false;
+	}
+
+
+	/**
+	 * Checks whether the part of the given block that lies in the given rectangle, which lies
+	 * within the terrain of this pyramid, contains an impassable pixel.
+	 *
+	 * @param 	firstRow
+	 * 			The first row of the rectangle.
+	 * @param 	firstColumn
+	 * 			The first column of the rectangle.
+	 * @param 	lastRow
+	 * 			The last row of the rectangle.
+	 * @param 	lastColumn
+	 * 			The last column of the rectangle.
+	 * @param 	level
+	 * 			The level of the block.
+	 * @param 	blockRow
+	 * 			The row of the block in its level.
+	 * @param 	blockColumn
+	 * 			The column of the block in its level.
+	 */
+	private boolean containsImpassable(int firstRow, int firstColumn, int lastRow, int lastColumn,
+			int level, int blockRow, int blockColumn) {
+		int fromRow = Math.max(firstRow, blockRow << level);
+		int fromColumn = Math.max(firstColumn, blockColumn << level);
+		int toRow = Math.min(lastRow, (blockRow << level) + (1 << level) - 1);
+		int toColumn = Math.min(lastColumn, (blockColumn << level) + (1 << level) - 1);
+		if ((fromRow > toRow) || (fromColumn > toColumn))
+			return false;
+		if (this.isPassableBlock(level, blockRow, blockColumn))
+			return false;
+		if (this.isImpassableBlock(level, blockRow, blockColumn))
+			return true;
+		if (level == leafLevel) {
+			for (int row = fromRow; row <= toRow; row++)
+				if (! this.terrain.isPassableRun(row, fromColumn, toColumn))
+					return true;
+			return false;
+		}
+		for (int child = 0; child < 4; child++)
+			if (this.containsImpassable(firstRow, firstColumn, lastRow, lastColumn, level - 1,
+					2*blockRow + (child >> 1), 2*blockColumn + (child & 1)))
+				return true;
+		return false;
+	}
+
+
+	/**
+	 * Checks whether the part of the given block that lies in the reach or the core of the given
+	 * disk kernel, placed with its center in the given pixel, contains an impassable pixel.
+	 *
+	 * @param 	kernel
+	 * 			The disk kernel to check.
+	 * @param 	core
+	 * 			True to check the core of the kernel, false to check its reach.
+	 * @param 	centerRow
+	 * 			The row of the center pixel of the kernel.
+	 * @param 	centerColumn
+	 * 			The column of the center pixel of the kernel.
+	 * @param 	level
+	 * 			The level of the block.
+	 * @param 	blockRow
+	 * 			The row of the block in its level.
+	 * @param 	blockColumn
+	 * 			The column of the block in its level.
+	 */
+	private boolean containsImpassable(DiskKernel kernel, boolean core, int centerRow, int centerColumn,
+			int level, int blockRow, int blockColumn) {
+		int firstRow = blockRow << level;
+		int firstColumn = blockColumn << level;
+		int lastRow = Math.min(this.terrain.getHeightInPixels()-1, firstRow + (1 << level) - 1);
+		int lastColumn = Math.min(this.terrain.getWidthInPixels()-1, firstColumn + (1 << level) - 1);
+		if ((firstRow > lastRow) || (firstColumn > lastColumn))
+			return false;
+		if (! overlaps(kernel, core, false, centerRow, centerColumn, firstRow, firstColumn, lastRow, lastColumn))
+			return false;
+		if (this.isPassableBlock(level, blockRow, blockColumn))
+			return false;
+		if (this.isImpassableBlock(level, blockRow, blockColumn)
+				&& ! overlaps(kernel, core, true, centerRow, centerColumn, firstRow, firstColumn, lastRow, lastColumn))
+			return true;
+		if (level == leafLevel) {
+			for (int row = firstRow; row <= lastRow; row++) {
+				int halfWidth = halfWidth(kernel, core, false, row - centerRow);
+				int holeWidth = halfWidth(kernel, core, true, row - centerRow);
+				if (! this.terrain.isPassableRun(row, Math.max(firstColumn, centerColumn - halfWidth),
+						Math.min(lastColumn, centerColumn - holeWidth - 1)))
+					return true;
+				if (! this.terrain.isPassableRun(row, Math.max(firstColumn, centerColumn + holeWidth + 1),
+						Math.min(lastColumn, centerColumn + halfWidth)))
+					return true;
+			}
+			return false;
+		}
+		for (int child = 0; child < 4; child++)
+			if (this.containsImpassable(kernel, core, centerRow, centerColumn, level - 1,
+					2*blockRow + (child >> 1), 2*blockColumn + (child & 1)))
+				return true;
+		return false;
+	}
+
+
+	/**
+	 * Returns the half width of the reach, the core or the hole in the core of the given
+	 * disk kernel in the row at the given offset of its center row, or -1 if it has
+	 * no pixels in that row.
+	 *
+	 * @param 	kernel
+	 * 			The disk kernel.
+	 * @param 	core
+	 * 			True for the core of the kernel, false for its reach.
+	 * @param 	hole
+	 * 			True for the hole in the core of the kernel. The reach has no hole.
+	 * @param 	row
+	 * 			The offset of the row to the center row.
+	 */
+	private static int halfWidth(DiskKernel kernel, boolean core, boolean hole, int row) {
+		if (! core)
+			return ((! hole) && (Math.abs(row) <= kernel.getReachRows())) ? kernel.getReachHalfWidth(row) : -1;
+		if (Math.abs(row) > kernel.getCoreRows())
+			return -1;
+		return hole ? kernel.getHoleHalfWidth(row) : kernel.getCoreHalfWidth(row);
+	}
+
+
+	/**
+	 * Checks whether the given rectangle overlaps the reach, the core or the hole in the core of
+	 * the given disk kernel, placed with its center in the given pixel. Since the half widths of
+	 * the kernel do not grow away from its center row, it suffices to check the row of the
+	 * rectangle that is closest to the center row.
+	 *
+	 * @param 	kernel
+	 * 			The disk kernel.
+	 * @param 	core
+	 * 			True for the core of the kernel, false for its reach.
+	 * @param 	hole
+	 * 			True for the hole in the core of the kernel.
+	 * @param 	centerRow
+	 * 			The row of the center pixel of the kernel.
+	 * @param 	centerColumn
+	 * 			The column of the center pixel of the kernel.
+	 * @param 	firstRow
+	 * 			The first row of the rectangle.
+	 * @param 	firstColumn
+	 * 			The first column of the rectangle.
+	 * @param 	lastRow
+	 * 			The last row of the rectangle.
+	 * @param 	lastColumn
+	 * 			The last column of the rectangle.
+	 */
+	private static boolean overlaps(DiskKernel kernel, boolean core, boolean hole, int centerRow, int centerColumn,
+			int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		int row = Math.max(firstRow, Math.min(lastRow, centerRow));
+		int halfWidth = halfWidth(kernel, core, hole, row - centerRow);
+		return (halfWidth >= 0) && (centerColumn - halfWidth <= lastColumn) && (centerColumn + halfWidth >= firstColumn);
+	}
+
+
+	/**
+	 * Recomputes the blocks of all levels that overlap the given rectangle,
+	 * after the terrain of this pyramid has changed within that rectangle.
+	 *
+	 * @param 	firstRow
+	 * 			The first row of the rectangle.
+	 * @param 	firstColumn
+	 * 			The first column of the rectangle.
+	 * @param 	lastRow
+	 * 			The last row of the rectangle.
+	 * @param 	lastColumn
+	 * 			The last column of the rectangle.
+	 */
+	protected void update(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		firstRow = Math.max(0, firstRow);
+		firstColumn = Math.max(0, firstColumn);
+		lastRow = Math.min(this.terrain.getHeightInPixels()-1, lastRow);
+		lastColumn = Math.min(this.terrain.getWidthInPixels()-1, lastColumn);
+		if ((firstRow > lastRow) || (firstColumn > lastColumn))
+			return;
+		for (int level = leafLevel; level <= this.topLevel; level++)
+			for (int blockRow = firstRow >> level; blockRow <= lastRow >> level; blockRow++)
+				for (int blockColumn = firstColumn >> level; blockColumn <= lastColumn >> level; blockColumn++)
+					this.computeBlock(level, blockRow, blockColumn);
+	}
+
+
+	/**
+	 * Computes the given block from the terrain, or from its children in the level below.
+	 *
+	 * @param 	level
+	 * 			The level of the block.
+	 * @param 	blockRow
+	 * 			The row of the block in its level.
+	 * @param 	blockColumn
+	 * 			The column of the block in its level.
+	 */
+	private void computeBlock(int level, int blockRow, int blockColumn) {
+		boolean allPassable = true;
+		boolean allImpassable = true;
+		if (level == leafLevel) {
+			int firstColumn = blockColumn << level;
+			int lastColumn = Math.min(this.terrain.getWidthInPixels()-1, firstColumn + (1 << level) - 1);
+			int lastRow = Math.min(this.terrain.getHeightInPixels()-1, (blockRow << level) + (1 << level) - 1);
+			for (int row = blockRow << level; row <= lastRow; row++) {
+				allPassable = allPassable && this.terrain.isPassableRun(row, firstColumn, lastColumn);
+				allImpassable = allImpassable && this.terrain.isImpassableRun(row, firstColumn, lastColumn);
+			}
+		}
+		else {
+			int rows = (this.terrain.getHeightInPixels() + (1 << (level-1)) - 1) >> (level-1);
+			for (int child = 0; child < 4; child++) {
+				int childRow = 2*blockRow + (child >> 1);
+				int childColumn = 2*blockColumn + (child & 1);
+				if ((childRow < rows) && (childColumn < this.blocksPerRow[level-1])) {
+					allPassable = allPassable && this.isPassableBlock(level-1, childRow, childColumn);
+					allImpassable = allImpassable && this.isImpassableBlock(level-1, childRow, childColumn);
+				}
+			}
+		}
+		int index = blockRow*this.blocksPerRow[level] + blockColumn;
+		setBit(this.passable[level], index, allPassable);
+		setBit(this.impassable[level], index, allImpassable);
+	}
+
+
+	/**
+	 * Returns the bit at the given index of the given bits.
+	 */
+	private static boolean getBit(long[] bits, int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+
+	/**
+	 * Sets the bit at the given index of the given bits to the given value.
+	 */
+	private static void setBit(long[] bits, int index, boolean value) {
+		if (value)
+			bits[index >>> 6] |= (1L << index);
+		else
+			bits[index >>> 6] &= ~(1L << index);
+	}
+}
@@ -1,5 +1,7 @@
 package worms.model;
 
+import java.util.List;
+
 import be.kuleuven.cs.som.annotate.*;
 
 
@@ -364,6 +366,7 @@ public abstract class Projectile extends MovableObject {
 		if (! isValidYield(yield))
 			throw new ModelException("Invalid yield!");
 		this.yield = yield;
+		this.registerStateChange();
 	}
 	
 	
@@ -385,54 +388,172 @@ public abstract class Projectile extends MovableObject {
 	
 	
 	/**
-	 * Calculates the time that this worm will be in the air.
+	 * Calculates the time that this projectile will be in the air. The flight through the terrain
+	 * is sampled at multiples of the given step, but the flight past the worms is swept: the first
+	 * contact with a worm other than the active worm is computed exactly, so that a projectile never
+	 * passes through a worm between two samples, however small the projectile and the worm are.
 	 * 
 	 * @param	step
-	 * 			A time interval during which the worm will not move completely trough impassable terrain.
+	 * 			A time interval during which the projectile will not move completely trough impassable terrain.
 	 * 
 	 * @return	Returns the time that this projectile is in the air until it hits impassable terrain
-	 * 			or it hits another worm. If the worm leaves the world, extra time is provided to make 
-	 * 			the worm visually disappear.
-	 * 			| for each time in {t | t in 0..result & t = n*step (with n integer)}
-	 * 			|	position = this.getJumpStep(t)
-	 * 			|	(this.getWorld().isPassableArea(position[0],position[1], this.getRadius())
-	 * 			|		&& ! this.getWorld().coordinatesOverlapsWorm(position[0]-0.5*this.getRadius(),
-	 * 			|					position[1]-0.5*this.getRadius(),this.getRadius()) ) == true
-	 * 			| 
-	 * 			| nextPosition = this.getJumpStep(result+step)
-	 * 			| (! this.getWorld().isPassableArea(nextPosition[0], nextPosition[1], this.getRadius()) 
-	 * 			|		|| this.getWorld().coordinatesOverlapsWorm(nextPosition[0]-0.5*this.getRadius(),
-	 * 			|					nextPosition[1]-0.5*this.getRadius(),this.getRadius()) )  == true
-	 * 			|
-	 * 			| if(! this.getWorld().isInWorld(position[0], position[1], this.getRadius()))
-	 * 			|	then result = result + 0.20 
+	 * 			or it hits another worm. If the projectile leaves the world, extra time is provided to make 
+	 * 			the projectile visually disappear.
+	 * 			| time = this.getLastFreeJumpTime(10*step)
+	 * 			| target = this.getFirstWormHit(time + 10*step)
+	 * 			| if (target != null)
+	 * 			|	then result == this.getWormHitTime(target, time + 10*step)
+	 * 			| else if (! this.getWorld().isInWorld(this.getJumpStepX(time + 10*step), this.getJumpStepY(time + 10*step), this.getRadius()))
+	 * 			|	then result == time + 0.20
+	 * 			| else
+	 * 			|	result == time
 	 */
 	@Override
-	protected double getJumpRealTimeInAir(double step) {
-		double time = 0.0;
-		double radius = this.getRadius();
+	protected double computeJumpRealTimeInAir(double step) {
 		step = 10.0*step;
-		boolean hasLanded = false;
-		
-		for (double t = step; (! hasLanded) ; t = t + step) {
-			double[] position = this.getJumpStep(t);
-			if (this.getWorld().isPassableArea(position[0], position[1], radius)
-					&& ! this.getWorld().coordinatesOverlapsWorm(position[0]-0.5*radius,position[1]-0.5*radius,radius)) {
-				time = t;
-				}
-			else if(! this.getWorld().isInWorld(position[0], position[1], radius)) {
-				time = time+0.20;
-				hasLanded = true;
+		double time = this.getLastFreeJumpTime(step);
+		// The terrain stops this projectile somewhere within the step after the last free time.
+		Worm target = this.getFirstWormHit(time + step);
+		if (target != null)
+			return this.getWormHitTime(target, time + step);
+		if (! this.getWorld().isInWorld(this.getJumpStepX(time + step), this.getJumpStepY(time + step), this.getRadius()))
+			time = time+0.20;
+		return time;
+	}
+	
+	
+	/**
+	 * Returns the worm, other than the active worm, that this projectile touches first during its
+	 * flight, if it touches it no later than the given time. Of worms touched at the same time,
+	 * the one that comes first in the world is returned.
+	 * 
+	 * @param 	limit
+	 * 			The time after which the worms are of no interest.
+	 * 
+	 * @return	| if (result != null)
+	 * 			|	then this.getWormHitTime(result, limit) <= limit
+	 * 			|	&& for each worm in this.getWorld().getAllWorms()
+	 * 			|		(worm == this.getWorld().getActiveWorm()) || this.getWormHitTime(worm, limit) >= this.getWormHitTime(result, limit)
+	 * 			| else
+	 * 			|	for each worm in this.getWorld().getAllWorms()
+	 * 			|		(worm == this.getWorld().getActiveWorm()) || this.getWormHitTime(worm, limit) > limit
+	 */
+	protected Worm getFirstWormHit(double limit) {
+		// Only the worms near the flight can be touched.
+		List<Worm> worms = this.getWormsNearFlight(limit);
+		Worm target = null;
+		for (int counter = 0; counter < worms.size(); counter = counter + 1) {
+			Worm worm = worms.get(counter);
+			// Looking no further than the first contact so far, a later worm must touch strictly earlier.
+			double time = this.getWormHitTime(worm, limit);
+			if ((time <= limit) && ((target == null) || (time < limit))) {
+				target = worm;
+				limit = time;
 			}
-			else {
-				hasLanded = true;}
 		}
-		
-		return time;
+		return target;
+	}
+	
+	
+	/**
+	 * Returns the worms, other than the active worm, that are close enough to the flight of this
+	 * projectile up to the given time to be touched by it, in the order of the worms of its world.
+	 * The flight is cut into pieces that are each as wide as a cell of the grid of the worms of
+	 * its world, and these are the worms whose bounding box touches the bounding box of one of
+	 * those pieces, widened by the radius of this projectile. The worms are then found in the cells
+	 * along the flight, whatever the number of worms in the world. If there would be more pieces
+	 * than worms, the flight is taken as a whole.
+	 * 
+	 * @param 	limit
+	 * 			The time after which the flight is of no interest.
+	 * 
+	 * @return	| for each worm in this.getWorld().getAllWorms()
+	 * 			|	if ((worm != this.getWorld().getActiveWorm()) && (this.getWormHitTime(worm, limit) <= limit))
+	 * 			|		then result.contains(worm)
+	 */
+	protected List<Worm> getWormsNearFlight(double limit) {
+		if (! (limit < Double.POSITIVE_INFINITY))
+			return this.getWorld().getWormsInRectangle(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+					Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+		limit = Math.max(0, limit);
+		double width = Math.abs(this.getJumpStepX(limit) - this.getCoordinateX());
+		double pieces = Math.ceil(width/this.getWorld().getWormCellSize());
+		int numberOfPieces = (pieces < this.getWorld().getAllWorms().size()) ? (int) Math.max(1, pieces) : 1;
+		double[][] rectangles = new double[numberOfPieces][];
+		// A micrometer more, for rounding errors of the positions in between.
+		double margin = this.getRadius() + 1e-6;
+		// The flight is highest where its vertical velocity is zero.
+		double apex = this.getInitialJumpVelocityY()/this.getWorld().getGravity();
+		double startTime = 0, startX = this.getCoordinateX(), startY = this.getCoordinateY();
+		for (int piece = 0; piece < numberOfPieces; piece++) {
+			double endTime = (piece == numberOfPieces - 1) ? limit : limit*(piece + 1)/numberOfPieces;
+			double endX = this.getJumpStepX(endTime), endY = this.getJumpStepY(endTime);
+			double minY = Math.min(startY, endY), maxY = Math.max(startY, endY);
+			if ((apex > startTime) && (apex < endTime))
+				maxY = Math.max(maxY, this.getJumpStepY(apex));
+			rectangles[piece] = new double[] { Math.min(startX, endX) - margin, minY - margin,
+					Math.max(startX, endX) + margin, maxY + margin };
+			startTime = endTime;
+			startX = endX;
+			startY = endY;
+		}
+		return this.getWorld().getWormsInRectangles(rectangles);
+	}
+	
+	
+	/**
+	 * Returns the first time at which this projectile overlaps the given worm during its flight,
+	 * or infinity if that does not happen up to the given time.
+	 * 
+	 * @param 	worm
+	 * 			The worm to be hit.
+	 * @param 	limit
+	 * 			The time after which the worm is of no interest.
+	 * 
+	 * @return	| result == SweptCollision.getFirstContactTime(this, worm.getCoordinateX(), worm.getCoordinateY(),
+	 * 			|	worm.getRadius(), limit)
+	 */
+	protected double getWormHitTime(Worm worm, double limit) {
+		return SweptCollision.getFirstContactTime(this, worm.getCoordinateX(), worm.getCoordinateY(), worm.getRadius(), limit);
+	}
+	
+	
+	/**
+	 * Returns the worm that this projectile hits at the end of its flight, or null if it hits
+	 * the terrain or leaves the world.
+	 * 
+	 * @return	| time = this.getJumpRealTimeInAir(this.getJumpTimeStep())
+	 * 			| if ((this.getFirstWormHit(time) != null) && (this.getWormHitTime(this.getFirstWormHit(time), time) == time))
+	 * 			|	then result == this.getFirstWormHit(time)
+	 * 			| else
+	 * 			|	result == null
+	 * 
+	 * @throws	ModelException
+	 * 			This projectile cannot jump.
+	 * 			| ! this.canJump()
+	 */
+	@Override
+	protected Worm getJumpTarget() throws ModelException {
+		double time = this.getJumpRealTimeInAir(this.getJumpTimeStep());
+		Worm target = this.getFirstWormHit(time);
+		if ((target != null) && (this.getWormHitTime(target, time) == time))
+			return target;
+		return null;
+	}
+	
+	
+	/**
+	 * Returns a number that changes whenever something outside this projectile changes
+	 * that can change the outcome of its flight: the terrain and the worms of its world.
+	 * 
+	 * @return	| result == this.getWorld().getTerrainVersion() + this.getWorld().getWormVersion()
+	 */
+	@Override
+	protected long getEnvironmentVersion() {
+		return this.getWorld().getTerrainVersion() + this.getWorld().getWormVersion();
 	}
 	
 	
-
 	/**
 	 * Changes the position of this projectile as the result of a jump in the current direction
 	 * of this projectile. The direction does not change during the jump.
@@ -442,11 +563,11 @@ public abstract class Projectile extends MovableObject {
 	 * 
 	 * @effect	The new x and y coordinates are assigned to this projectile. The end position of the jump 
 	 * 			is calculated by getting the step at the last position of the jump.
-	 * 			| position = this.getJumpStep(this.getJumpRealTimeInAir(10^-5))
+	 * 			| position = this.getJumpLandingPosition(this.getJumpTimeStep())
 	 * 			| this.setCoordinates(position[0], position[1])
 	 * @effect	If a worm is hit, it will lose the amount of hit points specific to this projectile.
-	 * 			| if (this.getWorld().projectileOverlapsWorm(this))
-	 * 			|		target = this.getWormThatOverlaps(this)
+	 * 			| if (this.getJumpTarget() != null)
+	 * 			|		target = this.getJumpTarget()
 	 * 			|		target.setHitPoints(target.getHitpoints() - this.getLostHitpoints())
 	 * 
 	 * @throws	ModelException
@@ -458,10 +579,11 @@ public abstract class Projectile extends MovableObject {
 		if (! this.canJump()) 
 			throw new ModelException("Cannot jump!");
 
-		double[] position = this.getJumpStep(this.getJumpRealTimeInAir(Math.pow(10, -6)));
+		// The target follows from the flight from the current position, so it is found before moving.
+		Worm target = this.getJumpTarget();
+		double[] position = this.getJumpLandingPosition(this.getJumpTimeStep());
 		this.setCoordinates(position[0], position[1]);
 		
-		Worm target = this.getWorld().getWormThatOverlaps(this);
 		if (target != null) {
 			target.setHitPoints(target.getHitPoints()-this.getLostHitPoints());
 		}
@@ -478,6 +600,17 @@ public abstract class Projectile extends MovableObject {
 	
 	
 	
+	/**
+	 * Returns the time step with which the flight of this projectile is computed when it jumps.
+	 * 
+	 * @return	| result == 10^-6
+	 */
+	@Override
+	protected double getJumpTimeStep() {
+		return Math.pow(10, -6);
+	}
+	
+	
 	/**
 	 * Returns the initial velocity of the potential jump of this projectile.
 	 * 
@@ -0,0 +1,313 @@
+package worms.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing a direction and a yield with which a worm hits a target worm with its
+ * current weapon. For each yield, the initial velocity of the projectile follows from its force,
+ * and the closed-form ballistics of its jump give the two directions, a flat and a steep one,
+ * in which a projectile with that velocity passes through the centre of the target. The start of
+ * the projectile lies on the edge of the worm in the direction of the shot, so each direction is
+ * refined until it no longer changes. Only these candidates are verified, by resolving the flight
+ * of a projectile against the terrain and the worms.
+ * 
+ * The candidates are verified from the lowest yield up, the flat direction before the steep one,
+ * and the first one that hits the target is the solution. The force of a rifle does not depend on
+ * its yield, so for a rifle only a yield of 0 is tried. If there are enough yields, ranges of yields
+ * are verified on the common fork/join pool, and the first hit of the lowest range is taken, so that
+ * the solution is the same as that of a verification by a single thread.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	If a solution is found, a projectile of the weapon of the worm, shot from the worm in
+ * 			its direction and with its yield, hits the target.
+ * 			| if (this.isFound())
+ * 			|	then this.getShot(this.getDirection(), this.getYield()).getJumpTarget() == this.getTarget()
+ */
+public class ShotSolution {
+
+	/**
+	 * The largest number of refinements of a direction for the start of the projectile.
+	 */
+	private static final int maxRefinements = 20;
+	/**
+	 * The number of yields from which the candidates are verified in parallel.
+	 */
+	private static volatile int parallelThreshold =
+			(Runtime.getRuntime().availableProcessors() > 1) ? 16 : Integer.MAX_VALUE;
+	/**
+	 * The largest number of yields verified by a single task.
+	 */
+	private static final int yieldsPerTask = 8;
+	/**
+	 * The worm that shoots.
+	 */
+	private final Worm shooter;
+	/**
+	 * The worm to be hit.
+	 */
+	private final Worm target;
+	/**
+	 * Whether the worm shoots with a bazooka, rather than with a rifle.
+	 */
+	private final boolean bazooka;
+	/**
+	 * The direction of the solution, or NaN if no solution is found.
+	 */
+	private final double direction;
+	/**
+	 * The yield of the solution, or -1 if no solution is found.
+	 */
+	private final int yield;
+
+
+
+
+	/**
+	 * Constructor to solve the shot of the given worm with its current weapon at the given target.
+	 *
+	 * @param 	shooter
+	 * 			The worm that shoots.
+	 * @param 	target
+	 * 			The worm to be hit.
+	 *
+	 * @post	| new.getShooter() == shooter && new.getTarget() == target
+	 *
+	 * @throws	ModelException
+	 * 			The shooter is not the active worm of its world, or it is the target,
+	 * 			or the target is not an active worm in the same world.
+	 * 			| (shooter != shooter.getWorld().getActiveWorm()) || (shooter == target)
+	 * 			|	|| (target.getWorld() != shooter.getWorld()) || ! target.getStatus()
+	 */
+	protected ShotSolution(Worm shooter, Worm target) throws ModelException {
+		if ((shooter == target) || (target.getWorld() != shooter.getWorld()) || (! target.getStatus()))
+			throw new ModelException("Invalid target!");
+		if (shooter != shooter.getWorld().getActiveWorm())
+			throw new ModelException("Only the active worm can shoot!");
+		this.shooter = shooter;
+		this.target = target;
+		this.bazooka = shooter.getProjectile() instanceof Bazooka;
+		int numberOfYields = this.bazooka ? 101 : 1;
+		boolean parallel = numberOfYields >= getParallelThreshold();
+		Search search = new Search(0, numberOfYields, parallel);
+		if (parallel)
+			ForkJoinPool.commonPool().invoke(search);
+		else
+			search.compute();
+		this.direction = search.direction;
+		this.yield = search.yield;
+	}
+
+
+
+
+	/**
+	 * Returns the worm that shoots.
+	 */
+	@Basic
+	@Immutable
+	public Worm getShooter() {
+		return this.shooter;
+	}
+
+
+	/**
+	 * Returns the worm to be hit.
+	 */
+	@Basic
+	@Immutable
+	public Worm getTarget() {
+		return this.target;
+	}
+
+
+	/**
+	 * Returns whether a direction and a yield are found with which the shooter hits the target.
+	 *
+	 * @return	| result == (this.getYield() >= 0)
+	 */
+	public boolean isFound() {
+		return this.yield >= 0;
+	}
+
+
+	/**
+	 * Returns the direction in which the shooter must shoot, or NaN if no solution is found.
+	 */
+	@Basic
+	@Immutable
+	public double getDirection() {
+		return this.direction;
+	}
+
+
+	/**
+	 * Returns the yield with which the shooter must shoot, or -1 if no solution is found.
+	 */
+	@Basic
+	@Immutable
+	public int getYield() {
+		return this.yield;
+	}
+
+
+	/**
+	 * Returns the number of yields from which the candidates are verified in parallel.
+	 */
+	public static int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+
+	/**
+	 * Sets the number of yields from which the candidates are verified in parallel.
+	 * By default this is 16 on a machine with more than one processor, and never otherwise.
+	 *
+	 * @param 	threshold
+	 * 			The new threshold.
+	 *
+	 * @post	| new.getParallelThreshold() == threshold
+	 */
+	public static void setParallelThreshold(int threshold) {
+		parallelThreshold = threshold;
+	}
+
+
+	/**
+	 * Returns a projectile of the weapon of the shooter, as the shooter would shoot it
+	 * in the given direction and with the given yield.
+	 *
+	 * @param 	direction
+	 * 			The direction of the shot, between 0 and 2Pi radians.
+	 * @param 	yield
+	 * 			The yield of the shot.
+	 *
+	 * @return	| result.getCoordinateX() == this.getShooter().getCoordinateX() + this.getShooter().getRadius()*Math.cos(direction)
+	 * 			| result.getCoordinateY() == this.getShooter().getCoordinateY() + this.getShooter().getRadius()*Math.sin(direction)
+	 * 			| result.getDirection() == direction && result.getYield() == yield
+	 */
+	protected Projectile getShot(double direction, int yield) throws ModelException {
+		double x = this.shooter.getCoordinateX() + this.shooter.getRadius()*Math.cos(direction);
+		double y = this.shooter.getCoordinateY() + this.shooter.getRadius()*Math.sin(direction);
+		Projectile projectile = this.bazooka ? new Bazooka(x, y, true, this.shooter.getWorld(), direction)
+				: new Rifle(x, y, true, this.shooter.getWorld(), direction);
+		projectile.setYield(yield);
+		return projectile;
+	}
+
+
+	/**
+	 * Returns the direction, between 0 and 2Pi radians, in which a projectile with the given
+	 * initial velocity, starting on the edge of the shooter in that direction, passes through the
+	 * centre of the target, along the flat or the steep arc, or NaN if it cannot reach the target.
+	 *
+	 * @param 	velocity
+	 * 			The initial velocity of the projectile.
+	 * @param 	steep
+	 * 			Whether the steep arc is asked, rather than the flat one.
+	 */
+	private double getCandidateDirection(double velocity, boolean steep) {
+		double direction = this.aim(this.shooter.getCoordinateX(), this.shooter.getCoordinateY(), velocity, steep);
+		for (int refinement = 0; (refinement < maxRefinements) && ! Double.isNaN(direction); refinement++) {
+			double next = this.aim(this.shooter.getCoordinateX() + this.shooter.getRadius()*Math.cos(direction),
+					this.shooter.getCoordinateY() + this.shooter.getRadius()*Math.sin(direction), velocity, steep);
+			if (Double.isNaN(next) || (Math.abs(next - direction) < 1e-12)) {
+				direction = next;
+				break;
+			}
+			direction = next;
+		}
+		if (Double.isNaN(direction))
+			return direction;
+		direction = direction % (2*Math.PI);
+		return (direction < 0) ? direction + 2*Math.PI : direction;
+	}
+
+
+	/**
+	 * Returns the direction in which a projectile with the given initial velocity, starting at the
+	 * given position, passes through the centre of the target, or NaN if it cannot reach it.
+	 * With the horizontal distance dx and the vertical distance dy to the centre, the tangent of
+	 * that direction is (v^2 -+ sqrt(v^4 - g(g dx^2 + 2 dy v^2)))/(g dx).
+	 */
+	private double aim(double x, double y, double velocity, boolean steep) {
+		double gravity = this.shooter.getWorld().getGravity();
+		double dx = this.target.getCoordinateX() - x;
+		double dy = this.target.getCoordinateY() - y;
+		double square = velocity*velocity;
+		double discriminant = square*square - gravity*(gravity*dx*dx + 2*dy*square);
+		if (discriminant < 0)
+			return Double.NaN;
+		double root = Math.sqrt(discriminant);
+		return Math.atan2(steep ? square + root : square - root, gravity*dx);
+	}
+
+
+	/**
+	 * A class describing the verification of the candidates of a range of yields.
+	 */
+	private class Search extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The first yield, and the yield after the last one, of this search.
+		 */
+		private final int first, end;
+		/**
+		 * Whether this search splits its range over several tasks.
+		 */
+		private final boolean split;
+		/**
+		 * The direction of the first hit in the range, or NaN if there is none.
+		 */
+		private double direction = Double.NaN;
+		/**
+		 * The yield of the first hit in the range, or -1 if there is none.
+		 */
+		private int yield = -1;
+
+		private Search(int first, int end, boolean split) {
+			this.first = first;
+			this.end = end;
+			this.split = split;
+		}
+
+		@Override
+		protected void compute() {
+			if ((! this.split) || (this.end - this.first <= yieldsPerTask)) {
+				this.search();
+				return;
+			}
+			int middle = (this.first + this.end) >>> 1;
+			Search left = new Search(this.first, middle, true);
+			Search right = new Search(middle, this.end, true);
+			invokeAll(left, right);
+			Search first = (left.yield >= 0) ? left : right;
+			this.direction = first.direction;
+			this.yield = first.yield;
+		}
+
+		/**
+		 * Verifies the candidates of this range from the lowest yield up.
+		 */
+		private void search() {
+			for (int yield = this.first; yield < this.end; yield++) {
+				double velocity = getShot(shooter.getDirection(), yield).getJumpVelocity();
+				for (int arc = 0; arc < 2; arc++) {
+					double direction = getCandidateDirection(velocity, arc == 1);
+					if ((! Double.isNaN(direction)) && (getShot(direction, yield).getJumpTarget() == target)) {
+						this.direction = direction;
+						this.yield = yield;
+						return;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package worms.model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing an index of the game objects of a world in a uniform grid of square cells,
+ * so that the objects that overlap with a circle are found by testing the objects in the cells
+ * around that circle, instead of all objects of the world.
+ * Each object is held in every cell that its bounding box touches, and is moved to other cells
+ * whenever its position or radius changes. Positions outside the world are held in the border cells.
+ * Of several overlapping objects, the one that was added to the grid first is found, as a scan
+ * over the objects in the order in which they were added would.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @param	<T>
+ * 			The type of the game objects in this grid.
+ *
+ * @invar	Each object of this grid is held in all cells that its bounding box touches.
+ */
+public class SpatialGrid<T extends GameObject> {
+
+	/**
+	 * The side of a cell, in meters, of a grid that does not have too many cells:
+	 * a few times the radius of a worm or a food.
+	 */
+	private final static double preferredCellSize = 1.0;
+	/**
+	 * The largest number of cells of a grid along either side of its world.
+	 */
+	private final static int maxCellsPerSide = 256;
+	/**
+	 * The side of the cells of this grid.
+	 */
+	private final double cellSize;
+	/**
+	 * The number of columns and rows of cells of this grid.
+	 */
+	private final int columns;
+	private final int rows;
+	/**
+	 * The entries of the objects in each cell of this grid, row by row, or null for a cell
+	 * that has never held an object.
+	 */
+	private final List<List<Entry>> cells;
+	/**
+	 * The entry of each object of this grid.
+	 */
+	private final Map<GameObject, Entry> entries = new IdentityHashMap<GameObject, Entry>();
+	/**
+	 * The sequence number of the next object that is added to this grid.
+	 */
+	private long nextSequenceNumber = 0;
+
+	/**
+	 * An object of this grid with the range of cells that holds it.
+	 */
+	private static class Entry {
+
+		private final GameObject object;
+		private final long sequenceNumber;
+		private int firstColumn, lastColumn, firstRow, lastRow;
+
+		private Entry(GameObject object, long sequenceNumber) {
+			this.object = object;
+			this.sequenceNumber = sequenceNumber;
+		}
+	}
+
+
+
+
+	/**
+	 * Constructor to make a new, empty grid for a world with the given dimensions.
+	 *
+	 * @param 	width
+	 * 			The width of the world of this new grid.
+	 * @param 	height
+	 * 			The height of the world of this new grid.
+	 *
+	 * @post	This new grid holds no objects.
+	 * 			| new.getNumberOfObjects() == 0
+	 */
+	protected SpatialGrid(double width, double height) {
+		this.cellSize = Math.max(preferredCellSize, Math.max(width, height)/maxCellsPerSide);
+		this.columns = (int) Math.max(1, Math.min(maxCellsPerSide, Math.ceil(width/this.cellSize)));
+		this.rows = (int) Math.max(1, Math.min(maxCellsPerSide, Math.ceil(height/this.cellSize)));
+		this.cells = new ArrayList<List<Entry>>(this.columns*this.rows);
+		for (int cell = 0; cell < this.columns*this.rows; cell++)
+			this.cells.add(null);
+	}
+
+
+
+
+	/**
+	 * Returns the number of objects in this grid.
+	 */
+	@Basic
+	protected int getNumberOfObjects() {
+		return this.entries.size();
+	}
+
+
+	/**
+	 * Returns the side of the cells of this grid.
+	 */
+	@Basic
+	protected double getCellSize() {
+		return this.cellSize;
+	}
+
+
+	/**
+	 * Returns the number of cells of this grid that the given rectangle touches.
+	 *
+	 * @param 	minX
+	 * 			The smallest x coordinate of the rectangle.
+	 * @param 	minY
+	 * 			The smallest y coordinate of the rectangle.
+	 * @param 	maxX
+	 * 			The largest x coordinate of the rectangle.
+	 * @param 	maxY
+	 * 			The largest y coordinate of the rectangle.
+	 */
+	protected int getNumberOfCells(double minX, double minY, double maxX, double maxY) {
+		return (this.getColumn(maxX) - this.getColumn(minX) + 1)*(this.getRow(maxY) - this.getRow(minY) + 1);
+	}
+
+
+	/**
+	 * Checks whether the given object is in this grid.
+	 *
+	 * @param 	object
+	 * 			The object to check.
+	 */
+	@Basic
+	protected boolean contains(GameObject object) {
+		return this.entries.containsKey(object);
+	}
+
+
+	/**
+	 * Adds the given object to this grid, after all objects that are already in it.
+	 *
+	 * @param 	object
+	 * 			The object to add.
+	 *
+	 * @post	| new.contains(object)
+	 */
+	protected void add(T object) {
+		if (this.contains(object))
+			return;
+		Entry entry = new Entry(object, this.nextSequenceNumber++);
+		this.entries.put(object, entry);
+		this.setCells(entry);
+		this.insert(entry);
+	}
+
+
+	/**
+	 * Removes the given object from this grid, if it is in it.
+	 *
+	 * @param 	object
+	 * 			The object to remove.
+	 *
+	 * @post	| ! new.contains(object)
+	 */
+	protected void remove(GameObject object) {
+		Entry entry = this.entries.remove(object);
+		if (entry != null)
+			this.delete(entry);
+	}
+
+
+	/**
+	 * Moves the given object to the cells of its current position and radius, if it is in this grid.
+	 * Objects that are not in this grid, such as objects that were not yet added to their world, are ignored.
+	 *
+	 * @param 	object
+	 * 			The object that has moved or changed its radius.
+	 */
+	protected void update(GameObject object) {
+		Entry entry = this.entries.get(object);
+		if (entry == null)
+			return;
+		double x = object.getCoordinateX(), y = object.getCoordinateY(), radius = object.getRadius();
+		// Most moves stay within the same cells, which then need no change at all.
+		if ((this.getColumn(x - radius) != entry.firstColumn) || (this.getColumn(x + radius) != entry.lastColumn)
+				|| (this.getRow(y - radius) != entry.firstRow) || (this.getRow(y + radius) != entry.lastRow)) {
+			this.delete(entry);
+			this.setCells(entry);
+			this.insert(entry);
+		}
+	}
+
+
+	/**
+	 * Returns the object of this grid that overlaps with the circle with the given centre and radius
+	 * and that was added first, ignoring the given excluded object, or null if there is no such object.
+	 *
+	 * @param 	x
+	 * 			The x coordinate of the centre of the circle.
+	 * @param 	y
+	 * 			The y coordinate of the centre of the circle.
+	 * @param 	radius
+	 * 			The radius of the circle.
+	 * @param 	excluded
+	 * 			An object to ignore, or null.
+	 *
+	 * @return	| if (result != null)
+	 * 			|	then (result != excluded) && GameObject.overlaps(x, y, radius,
+	 * 			|		result.getCoordinateX(), result.getCoordinateY(), result.getRadius())
+	 */
+	@SuppressWarnings("unchecked")
+	protected T getFirstOverlapping(double x, double y, double radius, GameObject excluded) {
+		Entry first = null;
+		int lastColumn = this.getColumn(x + radius), lastRow = this.getRow(y + radius);
+		for (int row = this.getRow(y - radius); row <= lastRow; row++)
+			for (int column = this.getColumn(x - radius); column <= lastColumn; column++) {
+				List<Entry> cell = this.cells.get(row*this.columns + column);
+				if (cell != null)
+					for (int counter = 0; counter < cell.size(); counter++) {
+						Entry entry = cell.get(counter);
+						// An object in several cells is tested again, which does not change the first one found.
+						if (((first == null) || (entry.sequenceNumber < first.sequenceNumber))
+								&& (entry.object != excluded) && this.overlaps(entry.object, x, y, radius))
+							first = entry;
+					}
+			}
+		return (first == null) ? null : (T) first.object;
+	}
+
+
+	/**
+	 * Checks whether an object of this grid other than the given excluded object overlaps
+	 * with the circle with the given centre and radius.
+	 *
+	 * @param 	x
+	 * 			The x coordinate of the centre of the circle.
+	 * @param 	y
+	 * 			The y coordinate of the centre of the circle.
+	 * @param 	radius
+	 * 			The radius of the circle.
+	 * @param 	excluded
+	 * 			An object to ignore, or null.
+	 *
+	 * @return	| result == (this.getFirstOverlapping(x, y, radius, excluded) != null)
+	 */
+	protected boolean hasOverlapping(double x, double y, double radius, GameObject excluded) {
+		int lastColumn = this.getColumn(x + radius), lastRow = this.getRow(y + radius);
+		for (int row = this.getRow(y - radius); row <= lastRow; row++)
+			for (int column = this.getColumn(x - radius); column <= lastColumn; column++) {
+				List<Entry> cell = this.cells.get(row*this.columns + column);
+				if (cell != null)
+					for (int counter = 0; counter < cell.size(); counter++) {
+						GameObject object = cell.get(counter).object;
+						if ((object != excluded) && this.overlaps(object, x, y, radius))
+							return true;
+					}
+			}
+		return false;
+	}
+
+
+	/**
+	 * Adds the objects of this grid whose bounding box touches the given rectangle, other than
+	 * the given excluded object, to the given set. Several threads may query this grid at the
+	 * same time, as long as none of them changes it.
+	 *
+	 * @param 	minX
+	 * 			The smallest x coordinate of the rectangle.
+	 * @param 	minY
+	 * 			The smallest y coordinate of the rectangle.
+	 * @param 	maxX
+	 * 			The largest x coordinate of the rectangle.
+	 * @param 	maxY
+	 * 			The largest y coordinate of the rectangle.
+	 * @param 	excluded
+	 * 			An object to ignore, or null.
+	 * @param 	result
+	 * 			The set to which the objects are added.
+	 *
+	 * @effect	| for each object in this grid
+	 * 			|	if ((object != excluded)
+	 * 			|			&& (object.getCoordinateX() + object.getRadius() >= minX) && (object.getCoordinateX() - object.getRadius() <= maxX)
+	 * 			|			&& (object.getCoordinateY() + object.getRadius() >= minY) && (object.getCoordinateY() - object.getRadius() <= maxY))
+	 * 			|		then result.add(object)
+	 */
+	@SuppressWarnings("unchecked")
+	protected void addTouching(double minX, double minY, double maxX, double maxY, GameObject excluded, Set<T> result) {
+		int lastColumn = this.getColumn(maxX), lastRow = this.getRow(maxY);
+		for (int row = this.getRow(minY); row <= lastRow; row++)
+			for (int column = this.getColumn(minX); column <= lastColumn; column++) {
+				List<Entry> cell = this.cells.get(row*this.columns + column);
+				if (cell != null)
+					for (int counter = 0; counter < cell.size(); counter++) {
+						GameObject object = cell.get(counter).object;
+						double x = object.getCoordinateX(), y = object.getCoordinateY(), radius = object.getRadius();
+						if ((object != excluded) && (x + radius >= minX) && (x - radius <= maxX)
+								&& (y + radius >= minY) && (y - radius <= maxY))
+							result.add((T) object);
+					}
+			}
+	}
+
+
+	/**
+	 * Checks whether the given object overlaps with the circle with the given centre and radius.
+	 */
+	private boolean overlaps(GameObject object, double x, double y, double radius) {
+		return GameObject.overlaps(object.getCoordinateX(), object.getCoordinateY(), object.getRadius(), x, y, radius);
+	}
+
+
+	/**
+	 * Sets the range of cells of the given entry to the cells that the bounding box of its object touches.
+	 */
+	private void setCells(Entry entry) {
+		GameObject object = entry.object;
+		entry.firstColumn = this.getColumn(object.getCoordinateX() - object.getRadius());
+		entry.lastColumn = this.getColumn(object.getCoordinateX() + object.getRadius());
+		entry.firstRow = this.getRow(object.getCoordinateY() - object.getRadius());
+		entry.lastRow = this.getRow(object.getCoordinateY() + object.getRadius());
+	}
+
+
+	/**
+	 * Adds the given entry to all cells of its range.
+	 */
+	private void insert(Entry entry) {
+		for (int row = entry.firstRow; row <= entry.lastRow; row++)
+			for (int column = entry.firstColumn; column <= entry.lastColumn; column++) {
+				int index = row*this.columns + column;
+				if (this.cells.get(index) == null)
+					this.cells.set(index, new ArrayList<Entry>(4));
+				this.cells.get(index).add(entry);
+			}
+	}
+
+
+	/**
+	 * Removes the given entry from all cells of its range.
+	 */
+	private void delete(Entry entry) {
+		for (int row = entry.firstRow; row <= entry.lastRow; row++)
+			for (int column = entry.firstColumn; column <= entry.lastColumn; column++) {
+				List<Entry> cell = this.cells.get(row*this.columns + column);
+				// Entries are compared by identity, and the order within a cell does not matter.
+				int index = cell.indexOf(entry);
+				cell.set(index, cell.get(cell.size() - 1));
+				cell.remove(cell.size() - 1);
+			}
+	}
+
+
+	/**
+	 * Returns the column of cells of the given x coordinate, clamped to the columns of this grid.
+	 */
+	private int getColumn(double x) {
+		double column = Math.floor(x/this.cellSize);
+		return (int) Math.max(0, Math.min(this.columns - 1, column));
+	}
+
+
+	/**
+	 * Returns the row of cells of the given y coordinate, clamped to the rows of this grid.
+	 */
+	private int getRow(double y) {
+		double row = Math.floor(y/this.cellSize);
+		return (int) Math.max(0, Math.min(this.rows - 1, row));
+	}
+}
@@ -0,0 +1,191 @@
+package worms.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing a summed-area table over the impassable pixels of a terrain map,
+ * which counts the impassable pixels in any rectangle of the map at once. The table is
+ * split into square tiles, each with its own summed-area table, so that a change of the
+ * terrain only requires the tables of the tiles it touches to be recomputed. A rectangle
+ * is counted with a constant number of lookups in each tile it overlaps.
+ * The table holds a short for each pixel, which is 16 times the bit-packed terrain map and
+ * twice a boolean for each pixel, so a world only builds it on request.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	Each count of this table is the number of impassable pixels of its terrain
+ * 			in the given rectangle.
+ * 			| for each firstRow, firstColumn, lastRow, lastColumn
+ * 			|	this.countImpassable(firstRow, firstColumn, lastRow, lastColumn) ==
+ * 			|		sum({this.getTerrain().countImpassable(row, firstColumn, lastColumn)
+ * 			|			| row in firstRow..lastRow})
+ */
+public class SummedAreaTable {
+
+	/**
+	 * The number of pixels along each side of a tile, as a power of two.
+	 */
+	private final static int tileShift = 6;
+	/**
+	 * The number of pixels along each side of a tile.
+	 */
+	private final static int tileSize = 1 << tileShift;
+	/**
+	 * The terrain map of which this table counts the impassable pixels.
+	 */
+	private final TerrainMap terrain;
+	/**
+	 * The number of tiles in a row of tiles.
+	 */
+	private final int tilesPerRow;
+	/**
+	 * The summed-area tables of all tiles, stored tile by tile and row by row within a tile.
+	 * The entry for a pixel is the number of impassable pixels in its tile that lie
+	 * neither below nor to the right of it.
+	 */
+	private final short[] sums;
+
+
+
+
+	/**
+	 * Constructor to compute a new summed-area table for the given terrain map.
+	 *
+	 * @param 	terrain
+	 * 			The terrain map for this new table.
+	 *
+	 * @post	The terrain of this new table is the given terrain.
+	 * 			| new.getTerrain() == terrain
+	 */
+	protected SummedAreaTable(TerrainMap terrain) {
+		this.terrain = terrain;
+		this.tilesPerRow = (terrain.getWidthInPixels() + tileSize - 1) >> tileShift;
+		int tilesPerColumn = (terrain.getHeightInPixels() + tileSize - 1) >> tileShift;
+		this.sums = new short[this.tilesPerRow*tilesPerColumn*tileSize*tileSize];
+		this.update(0, 0, terrain.getHeightInPixels()-1, terrain.getWidthInPixels()-1);
+	}
+
+
+
+
+	/**
+	 * Returns the terrain map of this table.
+	 */
+	@Basic
+	@Immutable
+	protected TerrainMap getTerrain() {
+		return this.terrain;
+	}
+
+
+	/**
+	 * Returns the number of impassable pixels in the given rectangle of the terrain of this table.
+	 *
+	 * @param 	firstRow
+	 * 			The first row of the rectangle.
+	 * @param 	firstColumn
+	 * 			The first column of the rectangle.
+	 * @param 	lastRow
+	 * 			The last row of the rectangle.
+	 * @param 	lastColumn
+	 * 			The last column of the rectangle.
+	 *
+	 * @pre		The given rectangle is empty or lies within the terrain of this table.
+	 * 			| (firstRow > lastRow) || (firstColumn > lastColumn) ||
+	 * 			|	(this.getTerrain().isValidPixel(firstRow, firstColumn)
+	 * 			|	&& this.getTerrain().isValidPixel(lastRow, lastColumn))
+	 */
+	protected int countImpassable(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		int count = 0;
+		for (int tileRow = firstRow >> tileShift; tileRow <= lastRow >> tileShift; tileRow++) {
+			int top = tileRow << tileShift;
+			int fromRow = Math.max(firstRow, top) - top;
+			int toRow = Math.min(lastRow, top + tileSize - 1) - top;
+			for (int tileColumn = firstColumn >> tileShift; tileColumn <= lastColumn >> tileShift; tileColumn++) {
+				int left = tileColumn << tileShift;
+				int fromColumn = Math.max(firstColumn, left) - left;
+				int toColumn = Math.min(lastColumn, left + tileSize - 1) - left;
+				int offset = (tileRow*this.tilesPerRow + tileColumn) << (2*tileShift);
+				count += this.getSum(offset, toRow, toColumn) - this.getSum(offset, fromRow-1, toColumn)
+						- this.getSum(offset, toRow, fromColumn-1) + this.getSum(offset, fromRow-1, fromColumn-1);
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * Returns the number of impassable pixels in the given tile that lie neither below
+	 * nor to the right of the given pixel of that tile.
+	 *
+	 * @param 	offset
+	 * 			The offset of the tile in the sums of this table.
+	 * @param 	row
+	 * 			The row of the pixel in the tile, or -1.
+	 * @param 	column
+	 * 			The column of the pixel in the tile, or -1.
+	 */
+	private int getSum(int offset, int row, int column) {
+		if ((row < 0) || (column < 0))
+			return 0;
+		return this.sums[offset + (row << tileShift) + column];
+	}
+
+
+	/**
+	 * Recomputes the summed-area tables of all tiles that overlap the given rectangle,
+	 * after the terrain of this table has changed within that rectangle.
+	 *
+	 * @param 	firstRow
+	 * 			The first row of the rectangle.
+	 * @param 	firstColumn
+	 * 			The first column of the rectangle.
+	 * @param 	lastRow
+	 * 			The last row of the rectangle.
+	 * @param 	lastColumn
+	 * 			The last column of the rectangle.
+	 *
+	 * @post	The counts of this table match the terrain of this table.
+	 * 			| for each firstRow, firstColumn, lastRow, lastColumn
+	 * 			|	new.countImpassable(firstRow, firstColumn, lastRow, lastColumn) ==
+	 * 			|		sum({this.getTerrain().countImpassable(row, firstColumn, lastColumn)
+	 * 			|			| row in firstRow..lastRow})
+	 */
+	protected void update(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		firstRow = Math.max(0, firstRow);
+		firstColumn = Math.max(0, firstColumn);
+		lastRow = Math.min(this.terrain.getHeightInPixels()-1, lastRow);
+		lastColumn = Math.min(this.terrain.getWidthInPixels()-1, lastColumn);
+		for (int tileRow = firstRow >> tileShift; tileRow <= lastRow >> tileShift; tileRow++)
+			for (int tileColumn = firstColumn >> tileShift; tileColumn <= lastColumn >> tileShift; tileColumn++)
+				this.computeTile(tileRow, tileColumn);
+	}
+
+
+	/**
+	 * Computes the summed-area table of the given tile.
+	 *
+	 * @param 	tileRow
+	 * 			The row of the tile.
+	 * @param 	tileColumn
+	 * 			The column of the tile.
+	 */
+	private void computeTile(int tileRow, int tileColumn) {
+		int offset = (tileRow*this.tilesPerRow + tileColumn) << (2*tileShift);
+		int top = tileRow << tileShift;
+		int left = tileColumn << tileShift;
+		int rows = Math.min(tileSize, this.terrain.getHeightInPixels() - top);
+		int columns = Math.min(tileSize, this.terrain.getWidthInPixels() - left);
+		for (int row = 0; row < tileSize; row++) {
+			int rowSum = 0;
+			for (int column = 0; column < tileSize; column++) {
+				if ((row < rows) && (column < columns) && ! this.terrain.isPassable(top + row, left + column))
+					rowSum++;
+				int index = offset + (row << tileShift) + column;
+				this.sums[index] = (short) (rowSum + ((row > 0) ? this.sums[index - tileSize] : 0));
+			}
+		}
+	}
+}
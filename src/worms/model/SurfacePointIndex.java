@@ -0,0 +1,210 @@
+package worms.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing an index of the locations in a world at which an entity with a given
+ * radius is adjacent to impassable terrain, so that new entities are placed by picking a
+ * random location from the index instead of searching for one.
+ * The world is scanned in columns a quarter of the radius apart, at locations one radius
+ * apart in each column. Between two locations of a column at which the area or the slightly larger adjacency area
+ * changes from passable to impassable or back, an adjacent location is searched by bisection
+ * down to the step of the world for the radius.
+ * Since the scan reads all of the terrain, worlds whose terrain is loaded in chunks have no such index.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	Each location of this index is adjacent to impassable terrain in the world
+ * 			of this index, at the time the index was built.
+ * 			| for each index in 0..this.getNumberOfLocations()-1
+ * 			|	world.isAdjacent(this.getLocationX(index), this.getLocationY(index), this.getRadius())
+ */
+public class SurfacePointIndex {
+
+	/**
+	 * The radius of the entities for which this index holds locations.
+	 */
+	private final double radius;
+	/**
+	 * The coordinates of the locations of this index, as x0, y0, x1, y1, ...
+	 */
+	private double[] coordinates = new double[256];
+	/**
+	 * The number of locations in this index.
+	 */
+	private int numberOfLocations = 0;
+	/**
+	 * The world that is being indexed, only while this index is being built.
+	 */
+	private World world;
+	/**
+	 * The resolution with which changes of state are located.
+	 */
+	private final double step;
+	/**
+	 * The states of a location: the adjacency area is passable, the location is adjacent,
+	 * or the area itself is not passable.
+	 */
+	private final static int FREE = 0, ADJACENT = 1, BLOCKED = 2;
+
+
+
+
+	/**
+	 * Constructor to build a new index of the adjacent locations of the given world.
+	 *
+	 * @param 	world
+	 * 			The world of which to index the adjacent locations.
+	 * @param 	radius
+	 * 			The radius of the entities for which to index the locations.
+	 *
+	 * @post	The radius of this new index is equal to the given radius.
+	 * 			| new.getRadius() == radius
+	 * @post	Each location of this new index is adjacent in the given world.
+	 * 			| for each index in 0..new.getNumberOfLocations()-1
+	 * 			|	world.isAdjacent(new.getLocationX(index), new.getLocationY(index), radius)
+	 *
+	 * @throws	ModelException
+	 * 			The given radius is not positive.
+	 * 			| ! (radius > 0)
+	 */
+	protected SurfacePointIndex(World world, double radius) throws ModelException {
+		if (! (radius > 0))
+			throw new ModelException("Invalid radius for surface index!");
+		this.radius = radius;
+		this.world = world;
+		this.step = world.getStep(radius);
+		double margin = 1.1*radius;
+		for (double x = margin; x <= world.getWidth() - margin; x += radius/4) {
+			int previousState = -1;
+			double previousY = Double.NaN;
+			for (double y = margin; y <= world.getHeight() - margin; y += radius) {
+				int state = this.getState(x, y);
+				if (state == ADJACENT)
+					this.add(x, y);
+				else if ((previousState >= 0) && (previousState != state) && (previousState != ADJACENT))
+					this.refine(x, previousY, previousState, y, state);
+				previousState = state;
+				previousY = y;
+			}
+		}
+		this.world = null;
+	}
+
+
+	/**
+	 * Returns the state of the given location for the radius of this index: whether the area
+	 * with that radius is passable, and whether the slightly larger adjacency area is passable.
+	 *
+	 * @return	| if (! world.isPassableArea(x, y, 1.1*getRadius()))
+	 * 			|	then result == (world.isPassableArea(x, y, getRadius()) ? ADJACENT : BLOCKED)
+	 * 			| else result == FREE
+	 */
+	private int getState(double x, double y) {
+		if (this.world.isPassableArea(x, y, 1.1*this.radius))
+			return FREE;
+		return this.world.isPassableArea(x, y, this.radius) ? ADJACENT : BLOCKED;
+	}
+
+
+	/**
+	 * Searches an adjacent location between two locations of a column that have a different
+	 * state, neither of which is adjacent, by bisection down to the step of the world.
+	 * At most one location is added for each change of state that is found.
+	 */
+	private void refine(double x, double firstY, int firstState, double lastY, int lastState) {
+		if (lastY - firstY <= this.step)
+			return;
+		double middleY = (firstY + lastY)/2;
+		int middleState = this.getState(x, middleY);
+		if (middleState == ADJACENT) {
+			this.add(x, middleY);
+			return;
+		}
+		if (middleState != firstState)
+			this.refine(x, firstY, firstState, middleY, middleState);
+		if (middleState != lastState)
+			this.refine(x, middleY, middleState, lastY, lastState);
+	}
+
+
+	/**
+	 * Adds the given location to this index.
+	 */
+	private void add(double x, double y) {
+		if (2*this.numberOfLocations + 1 >= this.coordinates.length)
+			this.coordinates = Arrays.copyOf(this.coordinates, 2*this.coordinates.length);
+		this.coordinates[2*this.numberOfLocations] = x;
+		this.coordinates[2*this.numberOfLocations + 1] = y;
+		this.numberOfLocations++;
+	}
+
+
+
+
+	/**
+	 * Returns the radius of the entities for which this index holds locations.
+	 */
+	@Basic
+	@Immutable
+	protected double getRadius() {
+		return this.radius;
+	}
+
+
+	/**
+	 * Returns the number of locations in this index.
+	 */
+	@Basic
+	@Immutable
+	protected int getNumberOfLocations() {
+		return this.numberOfLocations;
+	}
+
+
+	/**
+	 * Returns the x coordinate of the location at the given index.
+	 *
+	 * @pre		| (index >= 0) && (index < this.getNumberOfLocations())
+	 */
+	protected double getLocationX(int index) {
+		return this.coordinates[2*index];
+	}
+
+
+	/**
+	 * Returns the y coordinate of the location at the given index.
+	 *
+	 * @pre		| (index >= 0) && (index < this.getNumberOfLocations())
+	 */
+	protected double getLocationY(int index) {
+		return this.coordinates[2*index + 1];
+	}
+
+
+	/**
+	 * Returns a random location of this index.
+	 *
+	 * @param 	random
+	 * 			The random generator with which to pick the location.
+	 *
+	 * @return	The x and y coordinate of a location of this index.
+	 * 			| for some index in 0..this.getNumberOfLocations()-1
+	 * 			|	result[0] == this.getLocationX(index) && result[1] == this.getLocationY(index)
+	 *
+	 * @throws	ModelException
+	 * 			This index has no locations.
+	 * 			| this.getNumberOfLocations() == 0
+	 */
+	protected double[] getRandomLocation(Random random) throws ModelException {
+		if (this.numberOfLocations == 0)
+			throw new ModelException("No adjacent location in this world!");
+		int index = random.nextInt(this.numberOfLocations);
+		return new double[] {this.getLocationX(index), this.getLocationY(index)};
+	}
+}
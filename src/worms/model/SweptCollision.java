@@ -0,0 +1,210 @@
+package worms.model;
+
+import java.util.Arrays;
+
+/**
+ * A class of methods to find where the jump of a movable object first touches a circle.
+ * During a jump, the squared distance between the centre of the movable object and the centre of
+ * the circle is a polynomial of the fourth degree in time, whose derivative is a polynomial of the
+ * third degree. Its roots split the jump into pieces during which the distance only grows or
+ * only shrinks, so the movable object can only start to overlap the circle at the end of a piece
+ * during which the distance shrinks. The first contact is then found by bisection within that
+ * piece, whatever the length of the jump and however small the circle or the movable object is.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ */
+public class SweptCollision {
+
+	/**
+	 * The largest number of bisections to find the first contact within a piece of a jump.
+	 */
+	private static final int maxBisections = 200;
+
+
+
+
+	/**
+	 * Private constructor, since this class only has static methods.
+	 */
+	private SweptCollision() {
+	}
+
+
+
+
+	/**
+	 * Returns the first time at which the given movable object, following the trajectory of its
+	 * jump, overlaps the circle with the given centre and radius. The result does not depend on
+	 * the given limit, which only allows to stop looking once it has passed.
+	 *
+	 * @param 	object
+	 * 			The movable object that jumps.
+	 * @param 	x
+	 * 			The x coordinate of the centre of the circle.
+	 * @param 	y
+	 * 			The y coordinate of the centre of the circle.
+	 * @param 	radius
+	 * 			The radius of the circle.
+	 * @param 	limit
+	 * 			The time after which a contact is of no interest.
+	 *
+	 * @return	The movable object does not overlap the circle before the result, and does overlap
+	 * 			it at the result, or the result is infinity if no contact is found up to the limit.
+	 * 			| if (result <= limit)
+	 * 			|	then overlapsAt(object, result, x, y, radius)
+	 * 			|	&& for each time in 0..result
+	 * 			|		(time == result) || ! overlapsAt(object, time, x, y, radius)
+	 * 			| else
+	 * 			|	result == Double.POSITIVE_INFINITY
+	 *
+	 * @throws	ModelException
+	 * 			The movable object cannot jump.
+	 * 			| ! object.canJump()
+	 */
+	protected static double getFirstContactTime(MovableObject object, double x, double y, double radius, double limit)
+			throws ModelException {
+		if (overlapsAt(object, 0, x, y, radius))
+			return 0;
+		double offsetX = object.getCoordinateX() - x;
+		double offsetY = object.getCoordinateY() - y;
+		double velocityX = object.getInitialJumpVelocityX();
+		double velocityY = object.getInitialJumpVelocityY();
+		double gravity = object.getWorld().getGravity();
+		// Half the derivative of the squared distance between the centres.
+		double[] extremes = getPositiveRoots(0.5*gravity*gravity, -1.5*gravity*velocityY,
+				velocityX*velocityX + velocityY*velocityY - offsetY*gravity, offsetX*velocityX + offsetY*velocityY);
+		// After the last extreme, the distance only grows.
+		double start = 0;
+		for (double end : extremes) {
+			if (start > limit)
+				break;
+			if (overlapsAt(object, end, x, y, radius)) {
+				double contact = bisect(object, start, end, x, y, radius);
+				return (contact <= limit) ? contact : Double.POSITIVE_INFINITY;
+			}
+			start = end;
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+
+	/**
+	 * Returns whether the given movable object overlaps the circle with the given centre and radius
+	 * at the given time of its jump.
+	 *
+	 * @return	| result == GameObject.overlaps(object.getJumpStepX(time), object.getJumpStepY(time),
+	 * 			|	object.getRadius(), x, y, radius)
+	 */
+	protected static boolean overlapsAt(MovableObject object, double time, double x, double y, double radius)
+			throws ModelException {
+		return GameObject.overlaps(object.getJumpStepX(time), object.getJumpStepY(time), object.getRadius(), x, y, radius);
+	}
+
+
+	/**
+	 * Returns the first time between the given times at which the given movable object overlaps
+	 * the circle, given that it does not at the first time and does at the second.
+	 */
+	private static double bisect(MovableObject object, double outside, double inside, double x, double y, double radius)
+			throws ModelException {
+		for (int bisection = 0; bisection < maxBisections; bisection++) {
+			double middle = outside + 0.5*(inside - outside);
+			if ((middle <= outside) || (middle >= inside))
+				break;
+			if (overlapsAt(object, middle, x, y, radius))
+				inside = middle;
+			else
+				outside = middle;
+		}
+		return inside;
+	}
+
+
+	/**
+	 * Returns the positive real roots of the polynomial with the given coefficients, from small
+	 * to large. Roots of even multiplicity may be missed, but there the polynomial does not change sign.
+	 *
+	 * @param 	cubic
+	 * 			The coefficient of the third power.
+	 * @param 	quadratic
+	 * 			The coefficient of the second power.
+	 * @param 	linear
+	 * 			The coefficient of the first power.
+	 * @param 	constant
+	 * 			The constant coefficient.
+	 */
+	protected static double[] getPositiveRoots(double cubic, double quadratic, double linear, double constant) {
+		double[] roots;
+		double scale = Math.max(Math.max(Math.abs(quadratic), Math.abs(linear)), Math.abs(constant));
+		if (Math.abs(cubic) > 1e-12*scale) {
+			roots = getCubicRoots(quadratic/cubic, linear/cubic, constant/cubic);
+			for (int index = 0; index < roots.length; index++)
+				roots[index] = polish(roots[index], cubic, quadratic, linear, constant);
+		}
+		else if (Math.abs(quadratic) > 1e-12*Math.max(Math.abs(linear), Math.abs(constant))) {
+			double discriminant = linear*linear - 4*quadratic*constant;
+			if (discriminant < 0)
+				roots = new double[0];
+			else {
+				// The form without cancellation for each root.
+				double q = -0.5*(linear + Math.copySign(Math.sqrt(discriminant), linear));
+				roots = (q == 0) ? new double[] {0} : new double[] {q/quadratic, constant/q};
+			}
+		}
+		else if (linear != 0)
+			roots = new double[] {-constant/linear};
+		else
+			roots = new double[0];
+		int count = 0;
+		for (double root : roots)
+			if (root > 0)
+				roots[count++] = root;
+		double[] result = Arrays.copyOf(roots, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+
+	/**
+	 * Returns the real roots of the monic polynomial of the third degree with the given lower
+	 * coefficients, by reducing it to a depressed cubic.
+	 */
+	private static double[] getCubicRoots(double quadratic, double linear, double constant) {
+		double shift = quadratic/3;
+		double p = linear - quadratic*shift;
+		double q = 2*shift*shift*shift - shift*linear + constant;
+		double discriminant = 0.25*q*q + p*p*p/27;
+		if (discriminant > 0) {
+			double root = Math.sqrt(discriminant);
+			return new double[] {Math.cbrt(-0.5*q + root) + Math.cbrt(-0.5*q - root) - shift};
+		}
+		if (p == 0)
+			return new double[] {Math.cbrt(-q) - shift};
+		double amplitude = 2*Math.sqrt(-p/3);
+		double angle = Math.acos(Math.max(-1, Math.min(1, 3*q/(p*amplitude))))/3;
+		return new double[] {
+				amplitude*Math.cos(angle) - shift,
+				amplitude*Math.cos(angle - 2*Math.PI/3) - shift,
+				amplitude*Math.cos(angle - 4*Math.PI/3) - shift };
+	}
+
+
+	/**
+	 * Improves the given root of the polynomial with the given coefficients with Newton steps.
+	 */
+	private static double polish(double root, double cubic, double quadratic, double linear, double constant) {
+		for (int step = 0; step < 3; step++) {
+			double value = ((cubic*root + quadratic)*root + linear)*root + constant;
+			double slope = (3*cubic*root + 2*quadratic)*root + linear;
+			if (slope == 0)
+				break;
+			double next = root - value/slope;
+			if (Double.isNaN(next) || Double.isInfinite(next))
+				break;
+			root = next;
+		}
+		return root;
+	}
+}
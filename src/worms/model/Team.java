@@ -27,6 +27,14 @@ public class Team implements Cloneable {
 	 * The list of worms that are members of this team.
 	 */
 	private final List<Worm> worms = new ArrayList<Worm>();
+	/**
+	 * The number of worms in this team that are alive.
+	 */
+	private int numberOfLivingWorms = 0;
+	/**
+	 * The world to which this team belongs, or null if it does not belong to a world.
+	 */
+	private World world = null;
 	
 	
 	/**
@@ -98,6 +106,17 @@ public class Team implements Cloneable {
 	}
 	
 	
+	/**
+	 * Returns the number of worms in this team that are alive.
+	 * 
+	 * @return	| result == this.getLivingWorms().size()
+	 */
+	@Basic
+	protected int getNumberOfLivingWorms() {
+		return this.numberOfLivingWorms;
+	}
+	
+	
 	/**
 	 * Returns all the worms in this team that are alive.
 	 * 
@@ -124,8 +143,12 @@ public class Team implements Cloneable {
 	 * @param 	worm
 	 * 			The worm that should be added to this team.
 	 * 
-	 * @post	The worm is in the team.
+	 * @post	The worm is in the team, once.
 	 * 			| new.getAllWorms().contains(worm)
+	 * @post	If the worm was not yet in this team and is alive, the number of living worms
+	 * 			of this team is incremented.
+	 * 			| if (! this.getWorms().contains(worm) && worm.isAlive())
+	 * 			|	then new.getNumberOfLivingWorms() == this.getNumberOfLivingWorms() + 1
 	 * 
 	 * @throws 	ModelException
 	 *			This exception is thrown if this team cannot add the given worm. 
@@ -134,7 +157,11 @@ public class Team implements Cloneable {
 	protected void addWorm(@Raw Worm worm) throws ModelException {
 		if (! canHaveAsWorm(worm))
 			throw new ModelException("Cannot have this worm in the team!");
+		if (this.worms.contains(worm))
+			return;
 		this.worms.add(worm);
+		if (worm.isAlive())
+			this.changeNumberOfLivingWorms(1);
 	}
 
 
@@ -178,6 +205,9 @@ public class Team implements Cloneable {
 	 * 
 	 * @post	The given worm is no longer part of this team.
 	 * 			| ! this.getAllWorms().contains(worm)
+	 * @post	If the given worm is alive, the number of living worms of this team is decremented.
+	 * 			| if (worm.isAlive())
+	 * 			|	then new.getNumberOfLivingWorms() == this.getNumberOfLivingWorms() - 1
 	 * 
 	 * @throws	ModelExceptionxception
 	 * 			The exception is thrown if this team cannot remove the given worm.
@@ -187,6 +217,8 @@ public class Team implements Cloneable {
 		if (! this.canRemoveWorm(worm))
 			throw new ModelException("Cannot remove this worm from team!");
 		this.worms.remove(worm);
+		if (worm.isAlive())
+			this.changeNumberOfLivingWorms(-1);
 	}
 	
 	
@@ -206,6 +238,73 @@ public class Team implements Cloneable {
 	
 	
 	
+	/**
+	 * Registers that the given worm has died or come back to life.
+	 * 
+	 * @param 	worm
+	 * 			The worm of which the result of isAlive() has changed.
+	 * 
+	 * @post	If the given worm is in this team, the number of living worms of this team
+	 * 			is incremented if it is alive, and decremented otherwise.
+	 * 			| if (this.getWorms().contains(worm))
+	 * 			|	then new.getNumberOfLivingWorms() == this.getNumberOfLivingWorms() + (worm.isAlive() ? 1 : -1)
+	 */
+	protected void registerLivingChange(Worm worm) {
+		if (this.worms.contains(worm))
+			this.changeNumberOfLivingWorms(worm.isAlive() ? 1 : -1);
+	}
+	
+	
+	/**
+	 * Changes the number of living worms of this team by the given amount, and tells the world
+	 * of this team when this team gets its first survivor or loses its last one.
+	 * 
+	 * @param 	change
+	 * 			The change of the number of living worms.
+	 * 
+	 * @post	| new.getNumberOfLivingWorms() == this.getNumberOfLivingWorms() + change
+	 * @effect	| if ((this.getWorld() != null) && ((this.getNumberOfLivingWorms() > 0) != (new.getNumberOfLivingWorms() > 0)))
+	 * 			|	then this.getWorld().registerSurvivingTeamChange(new.getNumberOfLivingWorms() > 0)
+	 */
+	private void changeNumberOfLivingWorms(int change) {
+		boolean hadSurvivors = (this.numberOfLivingWorms > 0);
+		this.numberOfLivingWorms += change;
+		if ((this.world != null) && (hadSurvivors != (this.numberOfLivingWorms > 0)))
+			this.world.registerSurvivingTeamChange(this.numberOfLivingWorms > 0);
+	}
+	
+	
+	
+	
+	/**
+	 * Returns the world to which this team belongs, or null if it does not belong to a world.
+	 */
+	@Basic
+	protected World getWorld() {
+		return this.world;
+	}
+	
+	
+	/**
+	 * Sets the world to which this team belongs to the given world.
+	 * 
+	 * @param 	world
+	 * 			The world of this team.
+	 * 
+	 * @post	| new.getWorld() == world
+	 * @effect	If this team has living worms, the given world learns that it has survivors.
+	 * 			| if ((world != null) && (this.getNumberOfLivingWorms() > 0))
+	 * 			|	then world.registerSurvivingTeamChange(true)
+	 */
+	protected void setWorld(World world) {
+		this.world = world;
+		if ((world != null) && (this.numberOfLivingWorms > 0))
+			world.registerSurvivingTeamChange(true);
+	}
+	
+	
+	
+	
 	protected Team clone() throws CloneNotSupportedException {
 		return (Team) super.clone();
 	}
@@ -0,0 +1,39 @@
+package worms.model;
+
+/**
+ * An interface for the providers of the chunks of a chunked terrain map, such as a
+ * file holding a large battlefield or a generator of terrain.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ */
+public interface TerrainChunkSource {
+
+	/**
+	 * Fills the given chunk with the pixels of the terrain in the rectangle
+	 * whose top left pixel lies at the given row and column. The chunk is
+	 * impassable when it is handed to this method.
+	 *
+	 * @param 	firstRow
+	 * 			The row in the terrain of the top row of the chunk.
+	 * @param 	firstColumn
+	 * 			The column in the terrain of the leftmost column of the chunk.
+	 * @param 	chunk
+	 * 			The chunk to fill, whose dimensions are those of the rectangle.
+	 */
+	public void loadChunk(int firstRow, int firstColumn, TerrainMap chunk);
+
+	/**
+	 * Stores a chunk that was changed after it was loaded, before it is evicted from memory.
+	 * A later call of loadChunk for the same rectangle must give back the stored pixels.
+	 *
+	 * @param 	firstRow
+	 * 			The row in the terrain of the top row of the chunk.
+	 * @param 	firstColumn
+	 * 			The column in the terrain of the leftmost column of the chunk.
+	 * @param 	chunk
+	 * 			The changed chunk.
+	 */
+	public void storeChunk(int firstRow, int firstColumn, TerrainMap chunk);
+}
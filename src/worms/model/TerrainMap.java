@@ -0,0 +1,583 @@
+package worms.model;
+
+import java.nio.LongBuffer;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing the terrain of a world as a bit-packed map of passable pixels.
+ * Each pixel takes up a single bit in an array of long words, one bit per pixel
+ * instead of one byte per pixel for a boolean matrix. Each row starts at a new word,
+ * so that runs of passable or impassable pixels in a row can be scanned a word at a time.
+ * The words can be filled with a single bulk copy from a buffer, such as a mapped file.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	The dimensions of this terrain map are valid dimensions.
+ * 			| isValidDimension(this.getWidthInPixels()) && isValidDimension(this.getHeightInPixels())
+ */
+public class TerrainMap {
+
+	/**
+	 * The number of bits in one word of the map.
+	 */
+	private static final int bitsPerWord = 64;
+	/**
+	 * The width of this terrain map in pixels.
+	 */
+	private final int widthInPixels;
+	/**
+	 * The height of this terrain map in pixels.
+	 */
+	private final int heightInPixels;
+	/**
+	 * The number of words used to store one row of this terrain map.
+	 */
+	private final int wordsPerRow;
+	/**
+	 * The words in which the pixels of this terrain map are stored row by row.
+	 * A bit that is set represents a passable pixel.
+	 */
+	private final long[] words;
+
+
+
+
+	/**
+	 * Constructor to make a new terrain map in which all pixels are impassable.
+	 *
+	 * @param 	widthInPixels
+	 * 			The width in pixels for this new terrain map.
+	 * @param 	heightInPixels
+	 * 			The height in pixels for this new terrain map.
+	 *
+	 * @post	The width in pixels of this new terrain map is equal to the given width.
+	 * 			| new.getWidthInPixels() == widthInPixels
+	 * @post	The height in pixels of this new terrain map is equal to the given height.
+	 * 			| new.getHeightInPixels() == heightInPixels
+	 * @post	All the pixels of this new terrain map are impassable.
+	 * 			| for each row in 0..heightInPixels-1
+	 * 			|	for each column in 0..widthInPixels-1
+	 * 			|		! new.isPassable(row, column)
+	 *
+	 * @throws	ModelException
+	 * 			One of the given dimensions is not a valid dimension.
+	 * 			| (! isValidDimension(widthInPixels)) || (! isValidDimension(heightInPixels))
+	 */
+	public TerrainMap(int widthInPixels, int heightInPixels) throws ModelException {
+		this(widthInPixels, heightInPixels, true);
+	}
+
+
+	/**
+	 * Constructor to make a new terrain map that either stores its pixels in an array on the heap,
+	 * or leaves storing its words to a subclass that overrides getWord and setWord.
+	 *
+	 * @param 	widthInPixels
+	 * 			The width in pixels for this new terrain map.
+	 * @param 	heightInPixels
+	 * 			The height in pixels for this new terrain map.
+	 * @param 	allocate
+	 * 			Whether this new terrain map allocates an array for its words.
+	 *
+	 * @post	The width in pixels of this new terrain map is equal to the given width.
+	 * 			| new.getWidthInPixels() == widthInPixels
+	 * @post	The height in pixels of this new terrain map is equal to the given height.
+	 * 			| new.getHeightInPixels() == heightInPixels
+	 *
+	 * @throws	ModelException
+	 * 			One of the given dimensions is not a valid dimension, or the words of a terrain map
+	 * 			with the given dimensions do not fit in a single array.
+	 * 			| (! isValidDimension(widthInPixels)) || (! isValidDimension(heightInPixels))
+	 * 			|	|| (allocate && heightInPixels*ceil(widthInPixels/64) > Integer.MAX_VALUE)
+	 */
+	protected TerrainMap(int widthInPixels, int heightInPixels, boolean allocate) throws ModelException {
+		if ((! isValidDimension(widthInPixels)) || (! isValidDimension(heightInPixels)))
+			throw new ModelException("Invalid dimensions for terrain map!");
+		this.widthInPixels = widthInPixels;
+		this.heightInPixels = heightInPixels;
+		this.wordsPerRow = (widthInPixels + bitsPerWord - 1) / bitsPerWord;
+		if (! allocate)
+			this.words = null;
+		else if ((long) this.wordsPerRow*heightInPixels > Integer.MAX_VALUE)
+			throw new ModelException("Terrain map too large for a single array!");
+		else
+			this.words = new long[this.wordsPerRow*heightInPixels];
+	}
+
+
+	/**
+	 * Constructor to make a new terrain map with the pixels in the given buffer of words.
+	 * The words are copied from the buffer at once, so later changes to this terrain map
+	 * are not written to the given buffer. Reading a buffer word by word, in particular
+	 * a mapped buffer, is several times slower than reading an array on the heap.
+	 *
+	 * @param 	widthInPixels
+	 * 			The width in pixels for this new terrain map.
+	 * @param 	heightInPixels
+	 * 			The height in pixels for this new terrain map.
+	 * @param 	words
+	 * 			The buffer holding the pixels row by row, starting at index zero, with each row 
+	 * 			starting at a new word and a bit that is set representing a passable pixel.
+	 *
+	 * @post	The width in pixels of this new terrain map is equal to the given width.
+	 * 			| new.getWidthInPixels() == widthInPixels
+	 * @post	The height in pixels of this new terrain map is equal to the given height.
+	 * 			| new.getHeightInPixels() == heightInPixels
+	 * @post	The words of this new terrain map are those at the start of the given buffer.
+	 * 			| for each index in 0..heightInPixels*ceil(widthInPixels/64)-1
+	 * 			|	new.getWordBuffer().get(index) == words.get(index)
+	 *
+	 * @throws	ModelException
+	 * 			One of the given dimensions is not a valid dimension, or the given buffer
+	 * 			is too small to hold a terrain map with the given dimensions.
+	 * 			| (! isValidDimension(widthInPixels)) || (! isValidDimension(heightInPixels))
+	 * 			|	|| words.limit() < heightInPixels*ceil(widthInPixels/64)
+	 */
+	public TerrainMap(int widthInPixels, int heightInPixels, LongBuffer words) throws ModelException {
+		if ((! isValidDimension(widthInPixels)) || (! isValidDimension(heightInPixels)))
+			throw new ModelException("Invalid dimensions for terrain map!");
+		this.widthInPixels = widthInPixels;
+		this.heightInPixels = heightInPixels;
+		this.wordsPerRow = (widthInPixels + bitsPerWord - 1) / bitsPerWord;
+		if (words.limit() < (long) this.wordsPerRow*heightInPixels)
+			throw new ModelException("Terrain buffer too small!");
+		this.words = new long[this.wordsPerRow*heightInPixels];
+		LongBuffer source = words.duplicate();
+		source.position(0);
+		source.get(this.words);
+	}
+
+
+	/**
+	 * Constructor to make a new terrain map from a boolean map of passable pixels.
+	 *
+	 * @param 	passableMap
+	 * 			The boolean map, with passableMap[row][column] true if and only if
+	 * 			the pixel at the given row and column is passable.
+	 *
+	 * @post	The dimensions of this new terrain map are the dimensions of the given map.
+	 * 			| new.getHeightInPixels() == passableMap.length
+	 * 			| new.getWidthInPixels() == passableMap[0].length
+	 * @post	Each pixel of this new terrain map is passable if and only if it is passable in the given map.
+	 * 			| for each row in 0..passableMap.length-1
+	 * 			|	for each column in 0..passableMap[0].length-1
+	 * 			|		new.isPassable(row, column) == passableMap[row][column]
+	 */
+	public TerrainMap(boolean[][] passableMap) throws ModelException {
+		this((passableMap.length == 0) ? 0 : passableMap[0].length, passableMap.length);
+		for (int row = 0; row < this.getHeightInPixels(); row++) {
+			for (int column = 0; column < this.getWidthInPixels(); column++) {
+				if (passableMap[row][column])
+					this.setPassable(row, column, true);
+			}
+		}
+	}
+
+
+
+
+	/**
+	 * Checks whether the given dimension is a valid dimension for a terrain map.
+	 *
+	 * @param 	dimension
+	 * 			The dimension to check.
+	 *
+	 * @return	Returns whether the given dimension is not negative.
+	 * 			| result == (dimension >= 0)
+	 */
+	protected static boolean isValidDimension(int dimension) {
+		return (dimension >= 0);
+	}
+
+
+	/**
+	 * Returns the width of this terrain map in pixels.
+	 */
+	@Basic
+	@Immutable
+	public int getWidthInPixels() {
+		return this.widthInPixels;
+	}
+
+
+	/**
+	 * Returns the height of this terrain map in pixels.
+	 */
+	@Basic
+	@Immutable
+	public int getHeightInPixels() {
+		return this.heightInPixels;
+	}
+
+
+	/**
+	 * Returns the number of words used to store a single row of this terrain map.
+	 */
+	@Basic
+	@Immutable
+	protected int getWordsPerRow() {
+		return this.wordsPerRow;
+	}
+
+
+	/**
+	 * Returns a read-only view on the words of this terrain map, holding its pixels row by row,
+	 * with each row starting at a new word and a bit that is set representing a passable pixel.
+	 *
+	 * @return	| result.limit() >= this.getHeightInPixels()*ceil(this.getWidthInPixels()/64)
+	 *
+	 * @throws	ModelException
+	 * 			The words of this terrain map are not stored in a single buffer.
+	 * 			| ! this.hasWordBuffer()
+	 */
+	public LongBuffer getWordBuffer() throws ModelException {
+		if (! this.hasWordBuffer())
+			throw new ModelException("Terrain map has no single word buffer!");
+		return LongBuffer.wrap(this.words).asReadOnlyBuffer();
+	}
+
+
+	/**
+	 * Checks whether the words of this terrain map are stored in a single buffer, so that the whole
+	 * map is available at once. Maps that are not, such as chunked maps, may be too large for
+	 * indexes that cover every pixel.
+	 */
+	public boolean hasWordBuffer() {
+		return this.words != null;
+	}
+
+
+	/**
+	 * Checks whether the given row and column denote a pixel of this terrain map.
+	 *
+	 * @param 	row
+	 * 			The row of the pixel.
+	 * @param 	column
+	 * 			The column of the pixel.
+	 *
+	 * @return	Returns whether the row and column lie within the dimensions of this map.
+	 * 			| result == (row >= 0) && (row < this.getHeightInPixels())
+	 * 			|				&& (column >= 0) && (column < this.getWidthInPixels())
+	 */
+	public boolean isValidPixel(int row, int column) {
+		return (row >= 0) && (row < this.getHeightInPixels()) && (column >= 0) && (column < this.getWidthInPixels());
+	}
+
+
+
+
+	/**
+	 * Returns the word holding the pixels of the given row in the given word of that row.
+	 * Bit i of the result represents the pixel in column 64*word + i.
+	 *
+	 * @param 	row
+	 * 			The row of the word.
+	 * @param 	word
+	 * 			The index of the word within its row.
+	 *
+	 * @pre		The given word lies within this terrain map.
+	 * 			| (row >= 0) && (row < this.getHeightInPixels()) && (word >= 0) && (word < this.getWordsPerRow())
+	 */
+	protected long getWord(int row, int word) {
+		return this.words[row*this.wordsPerRow + word];
+	}
+
+
+	/**
+	 * Stores the given value as the word holding the pixels of the given row in the given word of that row.
+	 *
+	 * @param 	row
+	 * 			The row of the word.
+	 * @param 	word
+	 * 			The index of the word within its row.
+	 * @param 	value
+	 * 			The new value of the word.
+	 *
+	 * @pre		The given word lies within this terrain map.
+	 * 			| (row >= 0) && (row < this.getHeightInPixels()) && (word >= 0) && (word < this.getWordsPerRow())
+	 * @post	| new.getWord(row, word) == value
+	 */
+	protected void setWord(int row, int word, long value) {
+		this.words[row*this.wordsPerRow + word] = value;
+	}
+
+
+
+
+	/**
+	 * Checks whether the pixel at the given row and column is passable.
+	 *
+	 * @param 	row
+	 * 			The row of the pixel, row 0 being the top row.
+	 * @param 	column
+	 * 			The column of the pixel, column 0 being the leftmost column.
+	 *
+	 * @pre		The given row and column denote a pixel of this terrain map.
+	 * 			| this.isValidPixel(row, column)
+	 */
+	public boolean isPassable(int row, int column) {
+		assert this.isValidPixel(row, column);
+		long word = this.getWord(row, column >>> 6);
+		return (word & (1L << column)) != 0;
+	}
+
+
+	/**
+	 * Set whether the pixel at the given row and column is passable.
+	 *
+	 * @param 	row
+	 * 			The row of the pixel.
+	 * @param 	column
+	 * 			The column of the pixel.
+	 * @param	passable
+	 * 			Whether the pixel should be passable.
+	 *
+	 * @post	The pixel at the given row and column is passable if and only if passable is true.
+	 * 			| new.isPassable(row, column) == passable
+	 *
+	 * @throws	ModelException
+	 * 			The given row and column do not denote a pixel of this terrain map.
+	 * 			| ! this.isValidPixel(row, column)
+	 */
+	public void setPassable(int row, int column, boolean passable) throws ModelException {
+		if (! this.isValidPixel(row, column))
+			throw new ModelException("Pixel outside of terrain map!");
+		int word = column >>> 6;
+		if (passable)
+			this.setWord(row, word, this.getWord(row, word) | (1L << column));
+		else
+			this.setWord(row, word, this.getWord(row, word) & ~(1L << column));
+	}
+
+
+	/**
+	 * Set whether all the pixels in a row between two columns are passable.
+	 * The row is written a word at a time.
+	 *
+	 * @param 	row
+	 * 			The row of the pixels.
+	 * @param 	fromColumn
+	 * 			The first column to set.
+	 * @param 	toColumn
+	 * 			The last column to set (inclusive).
+	 * @param	passable
+	 * 			Whether the pixels should be passable.
+	 *
+	 * @post	Each pixel in the given range is passable if and only if passable is true.
+	 * 			| for each column in fromColumn..toColumn:
+	 * 			|	new.isPassable(row, column) == passable
+	 *
+	 * @throws	ModelException
+	 * 			The given range is not empty and does not lie within this terrain map.
+	 * 			| (fromColumn <= toColumn) && ! (this.isValidPixel(row, fromColumn) && this.isValidPixel(row, toColumn))
+	 */
+	public void setPassableRun(int row, int fromColumn, int toColumn, boolean passable) throws ModelException {
+		if (fromColumn > toColumn)
+			return;
+		if (! (this.isValidPixel(row, fromColumn) && this.isValidPixel(row, toColumn)))
+			throw new ModelException("Pixel outside of terrain map!");
+		for (int word = (fromColumn >>> 6); word <= (toColumn >>> 6); word++) {
+			long mask = getRangeMask(word, fromColumn, toColumn);
+			if (passable)
+				this.setWord(row, word, this.getWord(row, word) | mask);
+			else
+				this.setWord(row, word, this.getWord(row, word) & ~mask);
+		}
+	}
+
+
+
+
+	/**
+	 * Returns the mask of the bits in a word that belong to the columns
+	 * between fromColumn and toColumn, clipped to the given word.
+	 *
+	 * @param 	word
+	 * 			The index of the word within its row.
+	 * @param 	fromColumn
+	 * 			The first column of the range.
+	 * @param 	toColumn
+	 * 			The last column of the range.
+	 */
+	private static long getRangeMask(int word, int fromColumn, int toColumn) {
+		long mask = -1L;
+		if ((fromColumn >>> 6) == word)
+			mask &= (-1L << fromColumn);
+		if ((toColumn >>> 6) == word)
+			mask &= (-1L >>> (bitsPerWord - 1 - (toColumn & 63)));
+		return mask;
+	}
+
+
+	/**
+	 * Checks whether all the pixels in a row between two columns are passable.
+	 * The row is scanned a word at a time.
+	 *
+	 * @param 	row
+	 * 			The row to check.
+	 * @param 	fromColumn
+	 * 			The first column to check.
+	 * @param 	toColumn
+	 * 			The last column to check (inclusive).
+	 *
+	 * @return	Returns whether every pixel in the given range is passable.
+	 * 			An empty range is passable.
+	 * 			| result == (for each column in fromColumn..toColumn:
+	 * 			|				this.isPassable(row, column))
+	 *
+	 * @pre		The given range lies within this terrain map.
+	 * 			| (fromColumn > toColumn) || (this.isValidPixel(row, fromColumn) && this.isValidPixel(row, toColumn))
+	 */
+	public boolean isPassableRun(int row, int fromColumn, int toColumn) {
+		if (fromColumn > toColumn)
+			return true;
+		assert this.isValidPixel(row, fromColumn) && this.isValidPixel(row, toColumn);
+		for (int word = (fromColumn >>> 6); word <= (toColumn >>> 6); word++) {
+			long mask = getRangeMask(word, fromColumn, toColumn);
+			if ((this.getWord(row, word) & mask) != mask)
+				return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Checks whether all the pixels in a row between two columns are impassable.
+	 * The row is scanned a word at a time.
+	 *
+	 * @param 	row
+	 * 			The row to check.
+	 * @param 	fromColumn
+	 * 			The first column to check.
+	 * @param 	toColumn
+	 * 			The last column to check (inclusive).
+	 *
+	 * @return	Returns whether every pixel in the given range is impassable.
+	 * 			An empty range is impassable.
+	 * 			| result == (for each column in fromColumn..toColumn:
+	 * 			|				! this.isPassable(row, column))
+	 *
+	 * @pre		The given range lies within this terrain map.
+	 * 			| (fromColumn > toColumn) || (this.isValidPixel(row, fromColumn) && this.isValidPixel(row, toColumn))
+	 */
+	public boolean isImpassableRun(int row, int fromColumn, int toColumn) {
+		if (fromColumn > toColumn)
+			return true;
+		assert this.isValidPixel(row, fromColumn) && this.isValidPixel(row, toColumn);
+		for (int word = (fromColumn >>> 6); word <= (toColumn >>> 6); word++) {
+			if ((this.getWord(row, word) & getRangeMask(word, fromColumn, toColumn)) != 0)
+				return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns the number of impassable pixels in a row between two columns.
+	 *
+	 * @param 	row
+	 * 			The row to count in.
+	 * @param 	fromColumn
+	 * 			The first column to count.
+	 * @param 	toColumn
+	 * 			The last column to count (inclusive).
+	 *
+	 * @return	The number of impassable pixels in the given range.
+	 * 			| result == card({column | column in fromColumn..toColumn && ! this.isPassable(row, column)})
+	 *
+	 * @pre		The given range lies within this terrain map.
+	 * 			| (fromColumn > toColumn) || (this.isValidPixel(row, fromColumn) && this.isValidPixel(row, toColumn))
+	 */
+	public int countImpassable(int row, int fromColumn, int toColumn) {
+		if (fromColumn > toColumn)
+			return 0;
+		assert this.isValidPixel(row, fromColumn) && this.isValidPixel(row, toColumn);
+		int count = 0;
+		for (int word = (fromColumn >>> 6); word <= (toColumn >>> 6); word++) {
+			long mask = getRangeMask(word, fromColumn, toColumn);
+			count += Long.bitCount(~this.getWord(row, word) & mask);
+		}
+		return count;
+	}
+
+
+	/**
+	 * Returns the first column at or after the given column in which the pixel
+	 * of the given row is impassable.
+	 *
+	 * @param 	row
+	 * 			The row to scan.
+	 * @param 	fromColumn
+	 * 			The column from which to start scanning.
+	 *
+	 * @return	The first impassable column, or -1 if the rest of the row is passable.
+	 * 			| if (this.isPassableRun(row, fromColumn, this.getWidthInPixels()-1))
+	 * 			|	then result == -1
+	 * 			| else
+	 * 			|	(! this.isPassable(row, result)) && this.isPassableRun(row, fromColumn, result-1)
+	 */
+	public int nextImpassable(int row, int fromColumn) {
+		if (fromColumn >= this.getWidthInPixels())
+			return -1;
+		int lastColumn = this.getWidthInPixels()-1;
+		for (int word = (fromColumn >>> 6); word <= (lastColumn >>> 6); word++) {
+			long solid = ~this.getWord(row, word) & getRangeMask(word, fromColumn, lastColumn);
+			if (solid != 0)
+				return (word << 6) + Long.numberOfTrailingZeros(solid);
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Returns the first column at or after the given column in which the pixel
+	 * of the given row is passable.
+	 *
+	 * @param 	row
+	 * 			The row to scan.
+	 * @param 	fromColumn
+	 * 			The column from which to start scanning.
+	 *
+	 * @return	The first passable column, or -1 if the rest of the row is impassable.
+	 * 			| if (this.isImpassableRun(row, fromColumn, this.getWidthInPixels()-1))
+	 * 			|	then result == -1
+	 * 			| else
+	 * 			|	this.isPassable(row, result) && this.isImpassableRun(row, fromColumn, result-1)
+	 */
+	public int nextPassable(int row, int fromColumn) {
+		if (fromColumn >= this.getWidthInPixels())
+			return -1;
+		int lastColumn = this.getWidthInPixels()-1;
+		for (int word = (fromColumn >>> 6); word <= (lastColumn >>> 6); word++) {
+			long free = this.getWord(row, word) & getRangeMask(word, fromColumn, lastColumn);
+			if (free != 0)
+				return (word << 6) + Long.numberOfTrailingZeros(free);
+		}
+		return -1;
+	}
+
+
+
+
+	/**
+	 * Returns a boolean map of the pixels of this terrain map.
+	 *
+	 * @return	A new boolean map in which each element is true if and only if the
+	 * 			corresponding pixel of this map is passable.
+	 * 			| for each row in 0..this.getHeightInPixels()-1
+	 * 			|	for each column in 0..this.getWidthInPixels()-1
+	 * 			|		result[row][column] == this.isPassable(row, column)
+	 */
+	public boolean[][] toPassableMap() {
+		boolean[][] result = new boolean[this.getHeightInPixels()][this.getWidthInPixels()];
+		for (int row = 0; row < this.getHeightInPixels(); row++) {
+			for (int column = 0; column < this.getWidthInPixels(); column++) {
+				result[row][column] = this.isPassable(row, column);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,251 @@
+package worms.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class describing the resolved flight of a movable object as a path of positions, sampled at
+ * equal time intervals from the start of the flight up to its impact, so that the flight can be
+ * animated, marked or replayed by interpolating along the path instead of computing it again.
+ * The last position of the path is exactly the position at which the movable object lands.
+ * A trajectory also records how the flight ends, on the terrain, on a worm or outside the world,
+ * so that its outcome is known before the jump is made.
+ * A trajectory never changes once it is made, not even when the movable object does.
+ *
+ * @version 1.0
+ * @author 	Gertjan Maenhout (2Bbi Computerwetenschappen - Elektrotechniek) &
+ * 			Harald Schafer (2Bbi Elektrotechniek - Computerwetenschappen)
+ *
+ * @invar	A trajectory has at least two positions.
+ * 			| this.getNumberOfPositions() >= 2
+ * @invar	The positions of a trajectory are spread evenly over its duration.
+ * 			| for each index in 0..this.getNumberOfPositions()-1
+ * 			|	this.getTime(index) == index*this.getDuration()/(this.getNumberOfPositions()-1)
+ * @invar	A trajectory that ends on a worm does not end outside the world.
+ * 			| (this.getTarget() == null) || ! this.leavesWorld()
+ */
+public class Trajectory {
+
+	/**
+	 * The largest time interval between two successive positions of a trajectory, unless
+	 * the trajectory would then have more than the largest number of intervals.
+	 */
+	private static final double maxSampleInterval = 0.01;
+	/**
+	 * The largest number of intervals of a trajectory, for exceptionally long flights.
+	 */
+	private static final int maxIntervals = 1 << 16;
+	/**
+	 * The duration of this trajectory.
+	 */
+	private final double duration;
+	/**
+	 * The x coordinates of the positions of this trajectory.
+	 */
+	private final double[] coordinatesX;
+	/**
+	 * The y coordinates of the positions of this trajectory.
+	 */
+	private final double[] coordinatesY;
+	/**
+	 * Whether the movable object ends outside its world at the end of this trajectory,
+	 * and is terminated by its jump.
+	 */
+	private final boolean leavesWorld;
+	/**
+	 * The worm on which the movable object ends at the end of this trajectory, if any.
+	 */
+	private final Worm target;
+
+
+
+
+	/**
+	 * Constructor to sample the jump of the given movable object over the given duration.
+	 *
+	 * @param 	object
+	 * 			The movable object whose jump is sampled.
+	 * @param 	duration
+	 * 			The time the given movable object is in the air.
+	 * @param 	leavesWorld
+	 * 			Whether the given movable object ends outside its world at the end of its jump.
+	 * @param 	target
+	 * 			The worm on which the given movable object ends at the end of its jump, if any.
+	 *
+	 * @post	The duration of this new trajectory is equal to the given duration.
+	 * 			| new.getDuration() == duration
+	 * @post	Each position of this new trajectory is the position of the jump of the given
+	 * 			movable object at the time of that position.
+	 * 			| for each index in 0..new.getNumberOfPositions()-1
+	 * 			|	new.getX(index) == object.getJumpStepX(new.getTime(index))
+	 * 			|	new.getY(index) == object.getJumpStepY(new.getTime(index))
+	 * @post	| new.leavesWorld() == leavesWorld
+	 * @post	| new.getTarget() == target
+	 *
+	 * @throws	ModelException
+	 * 			The given duration is negative or not a number, the movable object cannot jump,
+	 * 			or it would end both on a worm and outside its world.
+	 * 			| ! (duration >= 0) || ! object.canJump() || (leavesWorld && (target != null))
+	 */
+	protected Trajectory(MovableObject object, double duration, boolean leavesWorld, Worm target) throws ModelException {
+		if (! (duration >= 0))
+			throw new ModelException("Invalid duration of a trajectory!");
+		if (leavesWorld && (target != null))
+			throw new ModelException("A trajectory cannot end both on a worm and outside the world!");
+		int intervals = (int) Math.max(1, Math.min(maxIntervals, Math.ceil(duration/maxSampleInterval)));
+		this.duration = duration;
+		this.coordinatesX = new double[intervals + 1];
+		this.coordinatesY = new double[intervals + 1];
+		for (int index = 0; index <= intervals; index++) {
+			// The last time is the duration itself, so that the path ends exactly at the landing position.
+			double time = (index == intervals) ? duration : index*duration/intervals;
+			this.coordinatesX[index] = object.getJumpStepX(time);
+			this.coordinatesY[index] = object.getJumpStepY(time);
+		}
+		this.leavesWorld = leavesWorld;
+		this.target = target;
+	}
+
+
+
+
+	/**
+	 * Returns the duration of this trajectory.
+	 */
+	@Basic
+	@Immutable
+	public double getDuration() {
+		return this.duration;
+	}
+
+
+	/**
+	 * Returns the number of positions of this trajectory.
+	 */
+	@Basic
+	@Immutable
+	public int getNumberOfPositions() {
+		return this.coordinatesX.length;
+	}
+
+
+	/**
+	 * Returns the time of the position at the given index.
+	 *
+	 * @pre		| (index >= 0) && (index < this.getNumberOfPositions())
+	 *
+	 * @return	| result == index*this.getDuration()/(this.getNumberOfPositions()-1)
+	 */
+	public double getTime(int index) {
+		int intervals = this.coordinatesX.length - 1;
+		return (index == intervals) ? this.duration : index*this.duration/intervals;
+	}
+
+
+	/**
+	 * Returns the x coordinate of the position at the given index.
+	 *
+	 * @pre		| (index >= 0) && (index < this.getNumberOfPositions())
+	 */
+	@Immutable
+	public double getX(int index) {
+		return this.coordinatesX[index];
+	}
+
+
+	/**
+	 * Returns the y coordinate of the position at the given index.
+	 *
+	 * @pre		| (index >= 0) && (index < this.getNumberOfPositions())
+	 */
+	@Immutable
+	public double getY(int index) {
+		return this.coordinatesY[index];
+	}
+
+
+	/**
+	 * Returns the x coordinate of the position at which this trajectory ends.
+	 *
+	 * @return	| result == this.getX(this.getNumberOfPositions()-1)
+	 */
+	public double getEndX() {
+		return this.coordinatesX[this.coordinatesX.length - 1];
+	}
+
+
+	/**
+	 * Returns the y coordinate of the position at which this trajectory ends.
+	 *
+	 * @return	| result == this.getY(this.getNumberOfPositions()-1)
+	 */
+	public double getEndY() {
+		return this.coordinatesY[this.coordinatesY.length - 1];
+	}
+
+
+	/**
+	 * Returns whether the movable object ends outside its world at the end of this trajectory,
+	 * and is terminated by its jump, instead of landing on impassable terrain or on a worm.
+	 */
+	@Basic
+	@Immutable
+	public boolean leavesWorld() {
+		return this.leavesWorld;
+	}
+
+
+	/**
+	 * Returns the worm on which the movable object ends at the end of this trajectory,
+	 * and which it hits, or null if it lands on impassable terrain or leaves the world.
+	 */
+	@Basic
+	@Immutable
+	public Worm getTarget() {
+		return this.target;
+	}
+
+
+	/**
+	 * Returns whether the movable object lands on impassable terrain at the end of this trajectory.
+	 *
+	 * @return	| result == (! this.leavesWorld()) && (this.getTarget() == null)
+	 */
+	public boolean landsOnTerrain() {
+		return (! this.leavesWorld) && (this.target == null);
+	}
+
+
+	/**
+	 * Stores the position on this trajectory at the given time in the given array, interpolated
+	 * linearly between the two positions around that time. Times before the start or after the
+	 * end of this trajectory give the first or the last position.
+	 *
+	 * @param 	time
+	 * 			The time at which to determine the position.
+	 * @param 	position
+	 * 			An array with at least two elements, in which the x and the y coordinate are stored.
+	 *
+	 * @post	| if (time <= 0)
+	 * 			|	then new.position[0] == this.getX(0) && new.position[1] == this.getY(0)
+	 * @post	| if (time >= this.getDuration())
+	 * 			|	then new.position[0] == this.getEndX() && new.position[1] == this.getEndY()
+	 */
+	public void getPosition(double time, double[] position) {
+		int intervals = this.coordinatesX.length - 1;
+		if ((time >= this.duration) || ! (this.duration > 0)) {
+			position[0] = (time > 0) ? this.getEndX() : this.coordinatesX[0];
+			position[1] = (time > 0) ? this.getEndY() : this.coordinatesY[0];
+			return;
+		}
+		if (! (time > 0)) {
+			position[0] = this.coordinatesX[0];
+			position[1] = this.coordinatesY[0];
+			return;
+		}
+		double scaled = time/this.duration*intervals;
+		int index = Math.min(intervals - 1, (int) scaled);
+		double fraction = scaled - index;
+		position[0] = this.coordinatesX[index] + fraction*(this.coordinatesX[index + 1] - this.coordinatesX[index]);
+		position[1] = this.coordinatesY[index] + fraction*(this.coordinatesY[index + 1] - this.coordinatesY[index]);
+	}
+}
@@ -1,6 +1,7 @@
 package worms.model;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import be.kuleuven.cs.som.annotate.*;
 import worms.util.Util;
@@ -51,10 +52,74 @@ public class World implements Cloneable {
 	 */
 	private double width;
 	/**
-	 * The Boolean map respresnting whether the corresponding pixels of the
+	 * The bit-packed terrain map representing whether the corresponding pixels of the
 	 * map are passable.
 	 */
-	private final boolean[][] passableMap;
+	private final TerrainMap terrain;
+	/**
+	 * The optional summed-area table counting the impassable pixels of the terrain of this world,
+	 * or null if this world has none.
+	 */
+	private SummedAreaTable impassableCounts = null;
+	/**
+	 * The occupancy pyramid of the terrain of this world, or null if the terrain
+	 * is too large to be indexed as a whole.
+	 */
+	private final OccupancyPyramid occupancy;
+	/**
+	 * The optional distance field of the terrain of this world, or null if
+	 * the terrain queries of this world sample the terrain map directly.
+	 */
+	private DistanceField distanceField = null;
+	/**
+	 * The distance (in meter) at which the distance field of this world is clamped.
+	 */
+	private final static double maxFieldDistance = 2.0;
+	/**
+	 * The optional entity store that holds the state of the game objects of this world,
+	 * or null if each game object holds its own state.
+	 */
+	private EntityStore entityStore = null;
+	/**
+	 * The disk kernels used to check circular areas of this world, by radius.
+	 */
+	private final Map<Double, DiskKernel> diskKernels = new ConcurrentHashMap<Double, DiskKernel>();
+	/**
+	 * The disk kernel that was last asked for, so that the radius need not be boxed to look it up again.
+	 */
+	private volatile DiskKernel lastDiskKernel = null;
+	/**
+	 * The maximum number of disk kernels kept by this world.
+	 */
+	private final static int maxDiskKernels = 64;
+	/**
+	 * The maximum half size, in pixels, of the squares of passable pixels used to bound
+	 * the distance to the nearest impassable pixel.
+	 */
+	private final static int maxClearancePixels = 256;
+	/**
+	 * The rectangles of pixels, as {firstRow, firstColumn, lastRow, lastColumn}, in which 
+	 * the terrain of this world has changed since they were last taken.
+	 */
+	private final List<int[]> changedTerrainRegions = new ArrayList<int[]>();
+	/**
+	 * The indexes of the adjacent locations of this world, by radius of the entities to place.
+	 */
+	private final Map<Double, SurfacePointIndex> surfacePointIndexes = new HashMap<Double, SurfacePointIndex>();
+	/**
+	 * The index of the ground underneath each pixel of this world, or null if it has not been
+	 * built yet or if the terrain of this world is not held in memory at once.
+	 */
+	private GroundHeightIndex groundHeights = null;
+	/**
+	 * The number of changes to the terrain of this world.
+	 */
+	private long terrainVersion = 0;
+	/**
+	 * The number of changes to the worms of this world: worms that are added or removed,
+	 * changes to the state of a worm, and changes of the active worm.
+	 */
+	private long wormVersion = 0;
 	/**
 	 * A boolean representing whether the game has started.
 	 */
@@ -64,13 +129,71 @@ public class World implements Cloneable {
 	 */
 	private final Random random;
 	/**
-	 * The list containing all the game objects that are in this world.
+	 * The list containing all the game objects that are in this world. A game object that is
+	 * removed is replaced by the last one, so the order of this list changes on removals.
 	 */
 	private final List<GameObject> gameObjects = new ArrayList<GameObject>();
 	/**
-	 * The index of the active worm in the list of all worms.
+	 * The worms in this world. A worm that is removed is replaced by the last one.
 	 */
-	private int indexOfActiveWorm=0;
+	private final List<Worm> worms = new ArrayList<Worm>();
+	/**
+	 * The food in this world. A food that is removed is replaced by the last one.
+	 */
+	private final List<Food> food = new ArrayList<Food>();
+	/**
+	 * The projectiles that were added to the game objects of this world.
+	 * A projectile that is removed is replaced by the last one.
+	 */
+	private final List<Projectile> projectiles = new ArrayList<Projectile>();
+	/**
+	 * The game object with each handle, or null for a handle that is not in use.
+	 */
+	private final List<GameObject> gameObjectsByHandle = new ArrayList<GameObject>();
+	/**
+	 * The handles that are not in use, of which the last one is used first.
+	 */
+	private int[] freeHandles = new int[16];
+	private int numberOfFreeHandles = 0;
+	/**
+	 * The index of the game object with each handle in the list of all game objects,
+	 * and in the list of the worms, the food or the projectiles of this world.
+	 */
+	private int[] gameObjectIndexes = new int[16];
+	private int[] typedIndexes = new int[16];
+	/**
+	 * The turn order of the worms in this world, as a ring of handles: the handle of
+	 * the worm after and before the worm with each handle.
+	 */
+	private int[] nextInTurn = new int[16];
+	private int[] previousInTurn = new int[16];
+	/**
+	 * The handle of the worm that starts each round, or -1 if there are no worms.
+	 */
+	private int firstInTurn = -1;
+	/**
+	 * Read-only views of the worms, the food and the projectiles in this world.
+	 */
+	private final List<Worm> wormsView = Collections.unmodifiableList(this.worms);
+	private final List<Food> foodView = Collections.unmodifiableList(this.food);
+	private final List<Projectile> projectilesView = Collections.unmodifiableList(this.projectiles);
+	/**
+	 * The grids in which the worms and the food in this world are indexed by position.
+	 */
+	private final SpatialGrid<Worm> wormGrid;
+	private final SpatialGrid<Food> foodGrid;
+	/**
+	 * The handle of the active worm, or -1 if there are no worms.
+	 */
+	private int activeWormHandle = -1;
+	/**
+	 * The number of teams of this world with living worms.
+	 */
+	private int numberOfSurvivingTeams = 0;
+	/**
+	 * The number of living worms in this world that are not in a team.
+	 */
+	private int numberOfSurvivorsWithoutTeam = 0;
 	/**
 	 * A list containing all the teams that are in this world.
 	 */
@@ -110,8 +233,10 @@ public class World implements Cloneable {
 	 * 			| new.getWidth() == width
 	 * @post	The new height of this world is equal to the given height.
 	 * 			| new.getHeight() == height
-	 * @post	The new passable map of this world is equal to the given map.
-	 * 			| new.getPassableMap() == passableMap
+	 * @post	The new terrain of this world is the bit-packed version of the given map.
+	 * 			| for each row in 0..passableMap.length-1
+	 * 			|	for each column in 0..passableMap[0].length-1
+	 * 			|		new.isPassablePixel(row, column) == passableMap[row][column]
 	 * @post	The new random of this world is equal to the given random.
 	 * 			| new.getRandom() == random
 	 * 
@@ -121,10 +246,47 @@ public class World implements Cloneable {
 	 */
 	protected World(double width, double height,boolean[][] passableMap, Random random) 
 			throws ModelException {
+		this(width, height, new TerrainMap(passableMap), random);
+	}
+	
+	
+	/**
+	 * Constructor of the world from a bit-packed terrain map.
+	 * 
+	 * @param 	width
+	 * 			The width for this new world.
+	 * @param 	height
+	 * 			The height for this new world.
+	 * @param 	terrain
+	 * 			The terrain map for this new world.
+	 * @param 	random
+	 * 			The random for this new world.
+	 * 
+	 * @post	The new width of this world is equal to the given width.
+	 * 			| new.getWidth() == width
+	 * @post	The new height of this world is equal to the given height.
+	 * 			| new.getHeight() == height
+	 * @post	The new terrain of this world is equal to the given terrain.
+	 * 			| new.getTerrain() == terrain
+	 * @post	The new random of this world is equal to the given random.
+	 * 			| new.getRandom() == random
+	 * 
+	 * @throws 	ModelException
+	 * 			The exception is thrown if height or width aren't valid dimension.
+	 * 			| isValidDimension(width) || isValidDimension(height)
+	 */
+	protected World(double width, double height, TerrainMap terrain, Random random) 
+			throws ModelException {
 		this.setHeight(height);
 		this.setWidth(width);
-		this.passableMap = passableMap;
+		this.terrain = terrain;
+		if (terrain.hasWordBuffer())
+			this.occupancy = new OccupancyPyramid(terrain);
+		else
+			this.occupancy = null;
 		this.random = random; 
+		this.wormGrid = new SpatialGrid<Worm>(this.getWidth(), this.getHeight());
+		this.foodGrid = new SpatialGrid<Food>(this.getWidth(), this.getHeight());
 	}
 	
 	
@@ -188,6 +350,18 @@ public class World implements Cloneable {
 	}
 	
 	
+	/**
+	 * Returns the index of the given team in the teams of this world,
+	 * or -1 if the given team is not in this world.
+	 * 
+	 * @return	| result == this.getTeams().indexOf(team)
+	 */
+	@Raw
+	protected int getIndexOfTeam(Team team) {
+		return this.getTeams().indexOf(team);
+	}
+	
+	
 	/**
 	 * Returns the amount of teams in this world.
 	 * 
@@ -244,13 +418,252 @@ public class World implements Cloneable {
 	
 	
 	/**
-	 * Returns the passable map of this world.
+	 * Returns the terrain map of this world.
 	 */
 	@Basic
 	@Raw
 	@Immutable
-	protected final boolean[][] getPassableMap() {
-		return this.passableMap;
+	protected final TerrainMap getTerrain() {
+		return this.terrain;
+	}
+	
+	
+	/**
+	 * Returns the summed-area table of the impassable pixels of this world,
+	 * or null if this world has no summed-area table.
+	 */
+	@Basic
+	@Raw
+	protected final SummedAreaTable getImpassableCounts() {
+		return this.impassableCounts;
+	}
+	
+	
+	/**
+	 * Returns the occupancy pyramid of the terrain of this world,
+	 * or null if the terrain of this world is not stored as a whole.
+	 */
+	@Basic
+	@Raw
+	@Immutable
+	protected final OccupancyPyramid getOccupancy() {
+		return this.occupancy;
+	}
+	
+	
+	/**
+	 * Returns the distance field of the terrain of this world,
+	 * or null if this world has no distance field.
+	 */
+	@Basic
+	@Raw
+	protected final DistanceField getDistanceField() {
+		return this.distanceField;
+	}
+	
+	
+	/**
+	 * Checks whether this world answers its terrain queries with a distance field.
+	 * 
+	 * @return	| result == (this.getDistanceField() != null)
+	 */
+	@Raw
+	protected final boolean hasDistanceField() {
+		return this.getDistanceField() != null;
+	}
+	
+	
+	/**
+	 * Computes a distance field for the terrain of this world, so that most calls
+	 * of isPassableArea are decided by a single lookup instead of by sampling.
+	 * The results of isPassableArea and all methods built on it are not changed.
+	 * A chunked terrain is not stored as a whole, so no distance field is computed for it.
+	 * 
+	 * @post	This world has a distance field of its terrain, if its terrain is stored as a whole.
+	 * 			| new.hasDistanceField() == this.getTerrain().hasWordBuffer()
+	 */
+	@Raw
+	protected void enableDistanceField() {
+		if ((! this.hasDistanceField()) && this.getTerrain().hasWordBuffer())
+			this.distanceField = new DistanceField(this.getTerrain(),
+					getWidth()/getWidthInPixels(), getHeight()/getHeightInPixels(), maxFieldDistance);
+	}
+	
+	
+	/**
+	 * Computes a summed-area table of the impassable pixels of this world, so that areas in
+	 * open air or deep inside the terrain are decided by a few lookups, and the clearance around
+	 * a location by counting pixels instead of by descending the occupancy pyramid.
+	 * The results of isPassableArea and all methods built on it are not changed.
+	 * The table holds a short for each pixel: 2 bytes, against an eighth of a byte for the
+	 * bit-packed terrain, so a world with this table takes more than twice the memory of
+	 * a world that held its terrain as a boolean for each pixel.
+	 * A chunked terrain is not stored as a whole, so no table is computed for it.
+	 * 
+	 * @post	This world has a summed-area table of its terrain, if its terrain is stored as a whole.
+	 * 			| (new.getImpassableCounts() != null) == this.getTerrain().hasWordBuffer()
+	 */
+	@Raw
+	protected void enableImpassableCounts() {
+		if ((this.getImpassableCounts() == null) && this.getTerrain().hasWordBuffer())
+			this.impassableCounts = new SummedAreaTable(this.getTerrain());
+	}
+	
+	
+	/**
+	 * Returns the entity store of this world, or null if this world has no entity store.
+	 */
+	@Basic
+	@Raw
+	protected final EntityStore getEntityStore() {
+		return this.entityStore;
+	}
+	
+	
+	/**
+	 * Checks whether the game objects of this world hold their state in an entity store.
+	 * 
+	 * @return	| result == (this.getEntityStore() != null)
+	 */
+	@Raw
+	protected final boolean hasEntityStore() {
+		return this.getEntityStore() != null;
+	}
+	
+	
+	/**
+	 * Moves the state of all the game objects of this world, and of the game objects that are
+	 * added later, into an entity store, so that the worms near a flight and the start of a
+	 * round are handled by loops over arrays instead of over game objects.
+	 * The state of the game objects and the results of all methods are not changed.
+	 * 
+	 * @post	| new.hasEntityStore()
+	 * @post	| for each gameObject in this.gameObjects
+	 * 			|	(new gameObject).getStore() == new.getEntityStore()
+	 */
+	@Raw
+	protected void enableEntityStore() {
+		if (this.hasEntityStore())
+			return;
+		this.entityStore = new EntityStore();
+		for (GameObject gameObject : this.gameObjects)
+			gameObject.attachToStore(this.entityStore);
+	}
+	
+	
+	/**
+	 * Removes the terrain in a circular area of this world, making all the pixels whose
+	 * centre lies within the circle passable. The summed-area table, the occupancy pyramid
+	 * and the distance field of this world are only updated around the circle, so the cost
+	 * of this method depends on the size of the circle and not on the size of this world.
+	 * 
+	 * @param 	x
+	 * 			The x coordinate of the center of the circle.
+	 * @param 	y
+	 * 			The y coordinate of the center of the circle.
+	 * @param 	radius
+	 * 			The radius of the circle.
+	 * 
+	 * @post	All the pixels whose centre lies within the circle are passable.
+	 * 			| for each row, column in the pixels of this world
+	 * 			|	if (Math.hypot((column+0.5)*pixelWidth - x, (getHeightInPixels()-row-0.5)*pixelHeight - y) <= radius)
+	 * 			|		then new.isPassablePixel(row, column)
+	 * @post	If any pixel has changed, the smallest rectangle of pixels around all changed
+	 * 			pixels is added to the changed terrain regions of this world, and the indexes
+	 * 			of the adjacent locations of this world are rebuilt when they are next needed.
+	 * @post	If any pixel has changed, the terrain version of this world is incremented.
+	 * 			| new.getTerrainVersion() == this.getTerrainVersion() + 1
+	 * 
+	 * @throws	ModelException
+	 * 			The given coordinates or radius are not numbers, or the radius is negative.
+	 * 			| Double.isNaN(x) || Double.isNaN(y) || Double.isNaN(radius) || radius < 0
+	 */
+	protected void removeTerrain(double x, double y, double radius) throws ModelException {
+		if (Double.isNaN(x) || Double.isNaN(y) || Double.isNaN(radius) || radius < 0)
+			throw new ModelException("Invalid area to remove!");
+		double pixelHeight = getHeight()/getHeightInPixels();
+		double pixelWidth = getWidth()/getWidthInPixels();
+		int firstRow = Math.max(0, (int) Math.floor(getHeightInPixels() - 0.5 - (y + radius)/pixelHeight));
+		int lastRow = Math.min(getHeightInPixels()-1, (int) Math.ceil(getHeightInPixels() - 0.5 - (y - radius)/pixelHeight));
+		int firstChangedRow = getHeightInPixels();
+		int lastChangedRow = -1;
+		int firstChangedColumn = getWidthInPixels();
+		int lastChangedColumn = -1;
+		for (int row = firstRow; row <= lastRow; row++) {
+			double dy = (getHeightInPixels()-row-0.5)*pixelHeight - y;
+			if (Math.abs(dy) > radius)
+				continue;
+			double halfWidth = Math.sqrt(radius*radius - dy*dy);
+			int firstColumn = Math.max(0, (int) Math.ceil((x - halfWidth)/pixelWidth - 0.5));
+			int lastColumn = Math.min(getWidthInPixels()-1, (int) Math.floor((x + halfWidth)/pixelWidth - 0.5));
+			if ((firstColumn <= lastColumn) && ! this.getTerrain().isPassableRun(row, firstColumn, lastColumn)) {
+				this.getTerrain().setPassableRun(row, firstColumn, lastColumn, true);
+				firstChangedRow = Math.min(firstChangedRow, row);
+				lastChangedRow = row;
+				firstChangedColumn = Math.min(firstChangedColumn, firstColumn);
+				lastChangedColumn = Math.max(lastChangedColumn, lastColumn);
+			}
+		}
+		if (firstChangedRow > lastChangedRow)
+			return;
+		if (this.getImpassableCounts() != null)
+			this.getImpassableCounts().update(firstChangedRow, firstChangedColumn, lastChangedRow, lastChangedColumn);
+		if (this.getOccupancy() != null)
+			this.getOccupancy().update(firstChangedRow, firstChangedColumn, lastChangedRow, lastChangedColumn);
+		if (this.hasDistanceField())
+			this.getDistanceField().update(firstChangedRow, firstChangedColumn, lastChangedRow, lastChangedColumn);
+		if (this.groundHeights != null)
+			this.groundHeights.update(firstChangedColumn, lastChangedColumn);
+		this.changedTerrainRegions.add(new int[] {firstChangedRow, firstChangedColumn, lastChangedRow, lastChangedColumn});
+		this.surfacePointIndexes.clear();
+		this.terrainVersion++;
+	}
+	
+	
+	/**
+	 * Returns the number of changes to the terrain of this world so far.
+	 * Results that are computed from the terrain of this world remain valid
+	 * for as long as this number does not change.
+	 */
+	@Basic
+	protected long getTerrainVersion() {
+		return this.terrainVersion;
+	}
+	
+	
+	/**
+	 * Returns the number of changes to the worms of this world so far: worms that are added
+	 * or removed, changes to the state of a worm, and changes of the active worm.
+	 * Results that are computed from the worms of this world remain valid
+	 * for as long as this number does not change.
+	 */
+	@Basic
+	protected long getWormVersion() {
+		return this.wormVersion;
+	}
+	
+	
+	/**
+	 * Registers a change to the worms of this world.
+	 * 
+	 * @post	The worm version of this world is incremented.
+	 * 			| new.getWormVersion() == this.getWormVersion() + 1
+	 */
+	protected void registerWormChange() {
+		this.wormVersion++;
+	}
+	
+	
+	/**
+	 * Returns the rectangles of pixels in which the terrain of this world has changed since
+	 * this method was last called, each as {firstRow, firstColumn, lastRow, lastColumn}.
+	 * 
+	 * @post	The changed terrain regions of this world are forgotten.
+	 */
+	protected int[][] takeChangedTerrainRegions() {
+		int[][] regions = this.changedTerrainRegions.toArray(new int[this.changedTerrainRegions.size()][]);
+		this.changedTerrainRegions.clear();
+		return regions;
 	}
 	
 	
@@ -294,13 +707,13 @@ public class World implements Cloneable {
 	 * Returns the vertical dimension of this world in a number of pixels.
 	 * 
 	 * @return	Returns the height in pixels of this world.
-	 * 			|	result == this.getPassableMap().length
+	 * 			|	result == this.getTerrain().getHeightInPixels()
 	 */
 	@Basic
 	@Raw
 	@Immutable
 	protected final int getHeightInPixels(){
-		return this.passableMap.length;
+		return this.terrain.getHeightInPixels();
 	}
 
 	
@@ -309,13 +722,13 @@ public class World implements Cloneable {
 	 * Returns the horizontal dimension of this world in a number of pixels.
 	 * 
 	 * @return	Returns the width in pixels of this world.
-	 * 			|	result == this.getPassableMap()[0].length
+	 * 			|	result == this.getTerrain().getWidthInPixels()
 	 */
 	@Basic
 	@Raw
 	@Immutable
 	protected final int getWidthInPixels(){
-		return this.passableMap[0].length;
+		return this.terrain.getWidthInPixels();
 	}
 	
 	
@@ -327,18 +740,18 @@ public class World implements Cloneable {
 	 * @param	column
 	 * 			The column in which the pixel is.
 	 * 
-	 * @return 	The boolean value at the given indices in the boolean map.
-	 * 			|result == this.getPassableMap[row][column]
+	 * @return 	The value of the pixel at the given indices in the terrain map.
+	 * 			|result == this.getTerrain().isPassable(row, column)
 	 * 
 	 * @throws 	ModelException 
-	 * 			The given indices are invalid for the boolean map of this world.
+	 * 			The given indices are invalid for the terrain map of this world.
 	 * 			| !(row < this.getHeightInPixels() && row >= 0 && column < this.getWidthInPixels() && column >= 0) 
 	 */
 	@Basic
 	@Raw
 	protected boolean isPassablePixel(int row, int column) throws ModelException{
 		if (row < this.getHeightInPixels() && row >= 0 && column < this.getWidthInPixels() && column >= 0) 
-			return this.passableMap[row][column];
+			return this.terrain.isPassable(row, column);
 		throw new ModelException("Tested passable pixel outside of range!");
 	}
 	
@@ -375,7 +788,12 @@ public class World implements Cloneable {
 	 * @param 	radius
 	 * 			The radius of the circle to be checked.
 	 * 
-	 * @return	Whether all the pixels within the circle are passable pixels.
+	 * @return	Whether all the pixels within the circle are passable pixels. The area is
+	 * 			sampled on concentric rings around its center. If this world has a distance
+	 * 			field, most areas are decided by a single lookup in that field. Otherwise
+	 * 			the rows of pixels of the disk kernel for the given radius are scanned, and only
+	 * 			the rings near the boundary of the area are sampled, at precomputed locations.
+	 * 			Both shortcuts give the same result as sampling all rings.
 	 *			|step = 0.5*Math.min(getHeight()/(1.0*getHeightInPixels()), getWidth()/(1.0*getWidthInPixels()))
 	 *			|if (! isInWorld(x, y, radius))
 	 *			| 	result == false
@@ -389,20 +807,178 @@ public class World implements Cloneable {
 	 *			|	result == true
 	 */
 	protected boolean isPassableArea(double x, double y, double radius){
-		double step = 0.5*Math.min(getHeight()/(1.0*getHeightInPixels()), getWidth()/(1.0*getWidthInPixels()));
 		if (! isInWorld(x, y, radius))
 			return false;
-		for(double distance=0.999*radius; distance>0;distance = distance -step){
-			for(double angle=0; angle<=2*Math.PI; angle= angle + step/distance){
-				if (!(isPassableLocation(x+Math.sin(angle)*distance,y+Math.cos(angle)*distance))){
-					return false;
-				}
-			}
-			}
+		if (this.hasDistanceField()) {
+			int classification = this.classifyAreaWithDistanceField(x, y, radius);
+			if (classification != 0)
+				return classification > 0;
+		}
+		return this.isPassableAreaScanned(x, y, radius);
+	}
+	
+	
+	/**
+	 * Checks if a circular area, lying within the bounds of this world, is passable
+	 * with the disk kernel for its radius. If this world has a summed-area table, areas in
+	 * open air or deep inside the terrain are decided by counting the impassable pixels in the
+	 * bounding box of the reach of the kernel. Otherwise, if all the pixels in the reach of the kernel
+	 * are passable, so are all sampled locations. If a pixel in the core of the kernel
+	 * is impassable, a sampled location certainly lies in it. Both are checked with the
+	 * occupancy pyramid of this world, which only descends into blocks of pixels that
+	 * are neither all passable nor all impassable. Otherwise all the pixels
+	 * in the core are passable and only the remaining samples of the kernel are checked.
+	 * 
+	 * @param  	x
+	 * 			The x coordinate of the center of the circle to be checked.
+	 * @param 	y
+	 * 			The x coordinate of the center of the circle to be checked.
+	 * @param 	radius
+	 * 			The radius of the circle to be checked.
+	 * 
+	 * @return	Whether all the locations sampled by isPassableArea are passable.
+	 * 			| result == isPassableArea(x, y, radius)
+	 */
+	private boolean isPassableAreaScanned(double x, double y, double radius){
+		if (! (radius > 0))
+			return true;
+		DiskKernel kernel = this.getDiskKernel(radius);
+		int centerRow = getHeightInPixels()-1-(int)(y/(getHeight()/getHeightInPixels()));
+		int centerColumn = (int)(x/(getWidth()/getWidthInPixels()));
+		if (this.getImpassableCounts() != null) {
+			int firstBoxRow = Math.max(0, centerRow-kernel.getReachRows());
+			int lastBoxRow = Math.min(getHeightInPixels()-1, centerRow+kernel.getReachRows());
+			int firstBoxColumn = Math.max(0, centerColumn-kernel.getReachHalfWidth(0));
+			int lastBoxColumn = Math.min(getWidthInPixels()-1, centerColumn+kernel.getReachHalfWidth(0));
+			int impassable = this.getImpassableCounts().countImpassable(firstBoxRow, firstBoxColumn, lastBoxRow, lastBoxColumn);
+			if (impassable == 0)
+				return true;
+			if (impassable == (lastBoxRow-firstBoxRow+1)*(lastBoxColumn-firstBoxColumn+1))
+				return false;
+		}
+		if (! this.containsImpassable(kernel, false, centerRow, centerColumn))
+			return true;
+		if (this.containsImpassable(kernel, true, centerRow, centerColumn))
+			return false;
+		for (int index = 0; index < kernel.getNumberOfSamples(); index++)
+			if (!(isPassableLocation(x+kernel.getSampleOffsetX(index),y+kernel.getSampleOffsetY(index))))
+				return false;
 		return true;
 	}
 	
 	
+	/**
+	 * Checks whether the reach or the core of the given disk kernel, centred on the given pixel,
+	 * contains an impassable pixel of this world. The occupancy pyramid of this world is used
+	 * if it has one; otherwise the rows of the kernel are scanned in the terrain a word at a time.
+	 * 
+	 * @param 	kernel
+	 * 			The disk kernel to check.
+	 * @param 	core
+	 * 			Whether to check the core of the kernel instead of its reach.
+	 * @param 	centerRow
+	 * 			The row of the pixel on which the kernel is centred.
+	 * @param 	centerColumn
+	 * 			The column of the pixel on which the kernel is centred.
+	 * 
+	 * @return	| result == this.getOccupancy().containsImpassable(kernel, core, centerRow, centerColumn)
+	 */
+	private boolean containsImpassable(DiskKernel kernel, boolean core, int centerRow, int centerColumn){
+		if (this.getOccupancy() != null)
+			return this.getOccupancy().containsImpassable(kernel, core, centerRow, centerColumn);
+		int rows = core ? kernel.getCoreRows() : kernel.getReachRows();
+		int lastColumn = getWidthInPixels()-1;
+		for (int row = Math.max(-rows, -centerRow); row <= Math.min(rows, getHeightInPixels()-1-centerRow); row++) {
+			int halfWidth = core ? kernel.getCoreHalfWidth(row) : kernel.getReachHalfWidth(row);
+			int holeWidth = core ? kernel.getHoleHalfWidth(row) : -1;
+			if (halfWidth < 0)
+				continue;
+			int from = Math.max(0, centerColumn-halfWidth);
+			int to = Math.min(lastColumn, centerColumn+halfWidth);
+			if (holeWidth < 0) {
+				if (! this.getTerrain().isPassableRun(centerRow+row, from, to))
+					return true;
+			}
+			else if ((! this.getTerrain().isPassableRun(centerRow+row, from, Math.min(to, centerColumn-holeWidth-1)))
+					|| (! this.getTerrain().isPassableRun(centerRow+row, Math.max(from, centerColumn+holeWidth+1), to)))
+				return true;
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Returns the disk kernel for the given radius on the pixels of this world.
+	 * Kernels are cached by radius, since only few different radii occur in a game.
+	 * 
+	 * @param 	radius
+	 * 			The radius of the disk kernel.
+	 * 
+	 * @return	A disk kernel with the given radius.
+	 * 			| result.getRadius() == radius
+	 */
+	private DiskKernel getDiskKernel(double radius){
+		DiskKernel kernel = this.lastDiskKernel;
+		if ((kernel != null) && (kernel.getRadius() == radius))
+			return kernel;
+		kernel = this.diskKernels.get(radius);
+		if (kernel == null) {
+			if (this.diskKernels.size() >= maxDiskKernels)
+				this.diskKernels.clear();
+			kernel = new DiskKernel(radius, getWidth()/getWidthInPixels(), getHeight()/getHeightInPixels(),
+					0.5*Math.min(getHeight()/(1.0*getHeightInPixels()), getWidth()/(1.0*getWidthInPixels())));
+			this.diskKernels.put(radius, kernel);
+		}
+		this.lastDiskKernel = kernel;
+		return kernel;
+	}
+	
+	
+	/**
+	 * Decides with the distance field of this world whether a circular area, lying
+	 * within the bounds of this world, is passable, if that can be decided without
+	 * sampling. The field gives the distance D from the centre of the pixel containing
+	 * the center of the circle to the nearest impassable pixel centre, so the nearest
+	 * impassable pixel centre lies between D-diagonal/2 and D+diagonal/2 from the center.
+	 * The sampler only looks at locations up to 0.999*radius from the center, so the
+	 * area is certainly passable if no impassable pixel can hold such a location.
+	 * The rings of the sampler are half a pixel apart and the samples on a ring are half
+	 * a pixel apart, so an impassable pixel whose centre lies well inside the sampled
+	 * disk (and not too close to its center, where the rings are strongly curved) is 
+	 * certainly hit by a sample.
+	 * 
+	 * @param  	x
+	 * 			The x coordinate of the center of the circle to be checked.
+	 * @param 	y
+	 * 			The x coordinate of the center of the circle to be checked.
+	 * @param 	radius
+	 * 			The radius of the circle to be checked.
+	 * 
+	 * @return	A positive number if the area is certainly passable, a negative number if the
+	 * 			area is certainly impassable and zero if the area has to be scanned.
+	 * 			| if (result > 0)
+	 * 			|	then isPassableAreaScanned(x, y, radius)
+	 * 			| if (result < 0)
+	 * 			|	then ! isPassableAreaScanned(x, y, radius)
+	 */
+	private int classifyAreaWithDistanceField(double x, double y, double radius){
+		DistanceField field = this.getDistanceField();
+		int row = getHeightInPixels()-1-(int)(y/(getHeight()/getHeightInPixels()));
+		int column = (int)(x/(getWidth()/getWidthInPixels()));
+		if (! field.getTerrain().isValidPixel(row, column))
+			return 0;
+		double distance = field.getDistance(row, column);
+		double diagonal = field.getPixelDiagonal();
+		double sampled = 0.999*radius;
+		if (distance > (sampled + diagonal)*(1 + 1e-6))
+			return 1;
+		if ((distance < field.getMaxDistance()) && (distance - diagonal/2 >= 2*diagonal*(1 + 1e-6))
+				&& (distance + diagonal/2 <= (sampled - diagonal)*(1 - 1e-6)))
+			return -1;
+		return 0;
+	}
+	
+	
 	/**
 	 * Checks if a circular area with a given radius with the center
 	 * on the given locations x and y is located within the bounds of this world.
@@ -427,6 +1003,101 @@ public class World implements Cloneable {
 	protected boolean isInWorld(double x, double y, double radius) {
 		return !((x-radius) < 0 || (x+radius) > getWidth() || (y-radius) < 0 || (y + radius) > getHeight());
 	}
+	
+	
+	/**
+	 * Returns a distance over which a circular area with the given radius can move from
+	 * the given location, in any direction, while it remains passable. Only locations within
+	 * 0.999 times the radius of the center are sampled by isPassableArea, so the area remains
+	 * passable as long as it lies within this world and those locations stay further from
+	 * each impassable pixel than the distance they moved. The distance from the location to the
+	 * nearest impassable pixel is bounded from below with the distance field of this world if it
+	 * has one, and otherwise with the largest square of passable pixels around the location, found
+	 * with the summed-area table or the occupancy pyramid of this world. Without any of these,
+	 * no distance is guaranteed.
+	 * 
+	 * @param  	x
+	 * 			The x coordinate of the center of the circle.
+	 * @param 	y
+	 * 			The y coordinate of the center of the circle.
+	 * @param 	radius
+	 * 			The radius of the circle.
+	 * 
+	 * @return	The result is not negative, and the area remains passable over the result.
+	 * 			| result >= 0
+	 * 			| for each distance in 0..result, direction in 0..2*Math.PI
+	 * 			|	isPassableArea(x+distance*Math.cos(direction), y+distance*Math.sin(direction), radius)
+	 */
+	protected double getPassableClearance(double x, double y, double radius) {
+		if ((! isInWorld(x, y, radius)) || (! (radius > 0)))
+			return 0;
+		double pixelHeight = getHeight()/getHeightInPixels();
+		double pixelWidth = getWidth()/getWidthInPixels();
+		int row = getHeightInPixels()-1-(int)(y/pixelHeight);
+		int column = (int)(x/pixelWidth);
+		if (! this.getTerrain().isValidPixel(row, column))
+			return 0;
+		double free;
+		if (this.hasDistanceField())
+			free = this.getDistanceField().getDistance(row, column) - this.getDistanceField().getPixelDiagonal();
+		else if ((this.getImpassableCounts() != null) || (this.getOccupancy() != null))
+			free = this.getPassableSquareHalfSize(row, column)*Math.min(pixelWidth, pixelHeight);
+		else
+			return 0;
+		double border = Math.min(Math.min(x - radius, getWidth() - x - radius), Math.min(y - radius, getHeight() - y - radius));
+		double clearance = Math.min(border, free - 0.999*radius) - 1e-9*(1 + radius);
+		return Math.max(0, clearance);
+	}
+	
+	
+	/**
+	 * Returns the largest half size of a square of pixels around the given pixel, clipped
+	 * to this world, in which all the pixels are passable, up to a maximum.
+	 * 
+	 * @param 	row
+	 * 			The row of the center pixel of the square.
+	 * @param 	column
+	 * 			The column of the center pixel of the square.
+	 * 
+	 * @return	Zero if the given pixel is impassable, or otherwise the largest number of pixels,
+	 * 			up to the maximum, the square can extend around the given pixel while all its
+	 * 			pixels remain passable.
+	 * 			| result == max({h | h in 0..maxClearancePixels && ! hasImpassableAround(row, column, h)})
+	 */
+	private int getPassableSquareHalfSize(int row, int column) {
+		if (this.hasImpassableAround(row, column, 0))
+			return 0;
+		int empty = 0;
+		int full = 1;
+		while ((full <= maxClearancePixels) && ! this.hasImpassableAround(row, column, full)) {
+			empty = full;
+			full = 2*full;
+		}
+		if (full > maxClearancePixels)
+			return empty;
+		while (full - empty > 1) {
+			int middle = (empty + full)/2;
+			if (! this.hasImpassableAround(row, column, middle))
+				empty = middle;
+			else
+				full = middle;
+		}
+		return empty;
+	}
+	
+	
+	/**
+	 * Checks whether the square with the given half size around the given pixel, clipped
+	 * to this world, contains an impassable pixel. The impassable pixels are counted with
+	 * the summed-area table of this world if it has one, and looked up in its occupancy
+	 * pyramid otherwise.
+	 */
+	private boolean hasImpassableAround(int row, int column, int halfSize) {
+		if (this.getImpassableCounts() == null)
+			return this.getOccupancy().containsImpassable(row-halfSize, column-halfSize, row+halfSize, column+halfSize);
+		return this.getImpassableCounts().countImpassable(Math.max(0, row-halfSize), Math.max(0, column-halfSize),
+				Math.min(getHeightInPixels()-1, row+halfSize), Math.min(getWidthInPixels()-1, column+halfSize)) > 0;
+	}
 
 	
 	/**
@@ -471,7 +1142,125 @@ public class World implements Cloneable {
 	
 	/**
 	 * Returns a random valid location to put a new worm or food based on 
-	 * the radius of the entity.
+	 * the radius of the entity. The location is picked from the index of the
+	 * adjacent locations of this world for that radius. Only if that index
+	 * is empty, a location is searched along a line from the border of this
+	 * world towards its center.
+	 * 
+	 * @param 	radius
+	 * 			The radius of the entity for which to find a random location.
+	 * 
+	 * @return 	The x and y position of the random location that was found as a list.
+	 * 			| if ((getSurfacePointIndex(radius) != null) && (getSurfacePointIndex(radius).getNumberOfLocations() > 0))
+	 * 			|	then isAdjacent(result[0], result[1], radius)
+	 * 			| else
+	 * 			|	result == searchAdjacentLocation(radius)
+	 * 
+	 * @throws	ModelException
+	 * 			No location was found.
+	 * 			| ((getSurfacePointIndex(radius) == null) || (getSurfacePointIndex(radius).getNumberOfLocations() == 0))
+	 * 			|	&& searchAdjacentLocation(radius) throws ModelException
+	 */
+	private double[] getRandomAdjacentLocation(double radius) throws ModelException {
+		SurfacePointIndex index = this.getSurfacePointIndex(radius);
+		if ((index != null) && (index.getNumberOfLocations() > 0))
+			return index.getRandomLocation(this.getRandom());
+		return this.searchAdjacentLocation(radius);
+	}
+	
+	
+	/**
+	 * Returns the index of the adjacent locations of this world for the given radius,
+	 * building it if this world has none for that radius, or null if the terrain of this
+	 * world is not held in memory at once (since indexing it would load all of it).
+	 * 
+	 * @param 	radius
+	 * 			The radius of the entities to place.
+	 * 
+	 * @return	An index of the locations at which an entity with the given radius
+	 * 			is adjacent to the terrain of this world.
+	 * 			| if (this.getTerrain().hasWordBuffer())
+	 * 			|	then result.getRadius() == radius
+	 * 			| else
+	 * 			|	result == null
+	 */
+	protected SurfacePointIndex getSurfacePointIndex(double radius) {
+		if (! this.getTerrain().hasWordBuffer())
+			return null;
+		SurfacePointIndex index = this.surfacePointIndexes.get(radius);
+		if (index == null) {
+			index = new SurfacePointIndex(this, radius);
+			this.surfacePointIndexes.put(radius, index);
+		}
+		return index;
+	}
+	
+	
+	/**
+	 * Returns the index of the ground underneath each pixel of this world, building it
+	 * if this world has none yet, or null if the terrain of this world is not held
+	 * in memory at once (since indexing it would load all of it).
+	 */
+	protected GroundHeightIndex getGroundHeightIndex() {
+		if ((this.groundHeights == null) && this.getTerrain().hasWordBuffer())
+			this.groundHeights = new GroundHeightIndex(this.getTerrain());
+		return this.groundHeights;
+	}
+	
+	
+	/**
+	 * Returns a height down to which a circular area with the given radius can be lowered from
+	 * the given location, while no impassable pixel of this world lies within the area. For each
+	 * column of pixels that the area overlaps, the ground underneath the area is looked up in the
+	 * ground height index of this world, and the area must stay above that ground by the height
+	 * of the area in that column. Pixels are taken as closed squares, so that such an area is
+	 * always passable as long as it lies within this world.
+	 * 
+	 * @param 	x
+	 * 			The x coordinate of the center of the area.
+	 * @param 	y
+	 * 			The y coordinate from which the area is lowered.
+	 * @param 	radius
+	 * 			The radius of the area.
+	 * 
+	 * @return	For all heights between the result and the given y coordinate, no impassable
+	 * 			pixel lies within the area, so the area is passable if it lies within this world.
+	 * 			If the area already overlaps an impassable pixel, or if this world has no ground
+	 * 			height index, the result is larger than the given y coordinate.
+	 * 			| for each height in result..y
+	 * 			|	if (isInWorld(x, height, radius))
+	 * 			|		then isPassableArea(x, height, radius)
+	 */
+	protected double getLowestFreeHeight(double x, double y, double radius) {
+		GroundHeightIndex index = this.getGroundHeightIndex();
+		if ((index == null) || ! (radius > 0) || Double.isNaN(x) || Double.isNaN(y))
+			return Double.POSITIVE_INFINITY;
+		double pixelWidth = getWidth()/getWidthInPixels();
+		double pixelHeight = getHeight()/getHeightInPixels();
+		double margin = 1e-9*(1 + radius);
+		int firstColumn = Math.max(0, (int) Math.floor((x - radius)/pixelWidth));
+		int lastColumn = Math.min(getWidthInPixels()-1, (int) Math.floor((x + radius)/pixelWidth));
+		double lowest = Double.NEGATIVE_INFINITY;
+		for (int column = firstColumn; column <= lastColumn; column++) {
+			double dx = Math.max(0, Math.max(column*pixelWidth - x, x - (column+1)*pixelWidth));
+			if (dx > radius)
+				continue;
+			// In this column, the area reaches from y-height to y+height.
+			double height = Math.sqrt(radius*radius - dx*dx) + margin;
+			int row = Math.max(0, (int) Math.ceil(getHeightInPixels() - 1 - (y + height)/pixelHeight));
+			if (row >= getHeightInPixels())
+				continue;
+			int ground = index.getGroundRow(row, column);
+			if (ground >= 0)
+				lowest = Math.max(lowest, (getHeightInPixels() - ground)*pixelHeight + height);
+		}
+		return lowest + margin;
+	}
+	
+	
+	/**
+	 * Returns a random adjacent location for an entity with the given radius, found
+	 * by walking from a random point on the border of this world towards its center.
 	 * 
 	 * @param 	radius
 	 * 			The radius of the entity for which to find a random location.
@@ -493,8 +1282,7 @@ public class World implements Cloneable {
 	 *@throws	No location was found.
 	 *			| If the nothing is returned during the while loop.
 	 */		
-	//TODO commentaar world
-	private double[] getRandomAdjacentLocation(double radius) throws ModelException {
+	private double[] searchAdjacentLocation(double radius) throws ModelException {
 		double[][] possibles = {{(getRandom().nextDouble())*(getWidth()-radius*2.0)+radius,0},
 								{(getRandom().nextDouble())*(getWidth()-radius*2.0)+radius,getHeight()},
 								{0, (getRandom().nextDouble())*(getHeight()-radius*2.0)+radius},
@@ -554,7 +1342,8 @@ public class World implements Cloneable {
 	
 	
 	/**
-	 * Returns all the worms in this world.
+	 * Returns all the worms in this world. The result is a read-only view that is kept up to
+	 * date by adding and removing game objects, so it is neither built nor copied on each call.
 	 * 
 	 * @return	Returns all the worms that are currently in this world as a list.
 	 * 			|for each gameObject in this.getGameObjects
@@ -562,18 +1351,13 @@ public class World implements Cloneable {
 	 * 			|		result.contains(gameObject) 
 	 */
 	protected List<Worm> getAllWorms(){
-		List<Worm> worms = new ArrayList<Worm>();
-		List<GameObject> objects = getGameObjects();
-		for(int counter = 0; counter < (objects.size()); counter = counter +1){
-			if (objects.get(counter) instanceof Worm)
-				worms.add((Worm) objects.get(counter));
-		}
-		return worms;
+		return this.wormsView;
 	}
 	
 	
 	/**
-	 * Returns all the food in this world.
+	 * Returns all the food in this world. The result is a read-only view that is kept up to
+	 * date by adding and removing game objects.
 	 * 
 	 * @return	Returns all the food that are currently in this world as a list.
 	 * 			|for each gameObject in this.getGameObjects
@@ -581,14 +1365,20 @@ public class World implements Cloneable {
 	 * 			|		result.contains(gameObject)
 	 */
 	protected List<Food> getAllFood(){
-		List<Food> food = new ArrayList<Food>();
-		List<GameObject> objects = getGameObjects();
-		for(int counter = 0; counter < (objects.size()); counter = counter +1){
-			if (objects.get(counter) instanceof Food)
-				food.add((Food) objects.get(counter));
-		}
-		return food;
-			
+		return this.foodView;
+	}
+	
+	
+	/**
+	 * Returns all the projectiles that were added to the game objects of this world.
+	 * The result is a read-only view that is kept up to date by adding and removing game objects.
+	 * 
+	 * @return	|for each gameObject in this.getGameObjects
+	 * 			| if gameObject instanceof Projectile
+	 * 			|		result.contains(gameObject)
+	 */
+	protected List<Projectile> getAllProjectiles(){
+		return this.projectilesView;
 	}
 	
 	
@@ -606,91 +1396,115 @@ public class World implements Cloneable {
 	 * 			| 		result == null
 	 */
 	protected Food getFoodThatOverlaps(Worm worm) {
-		for(Food food: this.getAllFood()){
-			if (worm.overlapsGameObject(food))
-				return food;
-		}
-		return null;
+		return this.foodGrid.getFirstOverlapping(worm.getCoordinateX(), worm.getCoordinateY(), worm.getRadius(), null);
 	}
 
 	
 	/**
-	 * Returns the worm that overlaps with a given projectile if there is a worm that overlaps.
+	 * Returns the worms of this world, other than the active worm, whose bounding box touches
+	 * the given rectangle, in the order of the worms of this world.
 	 * 
-	 * @param	projectile
-	 * 			The projectile to check.
-	 *
-	 * @return	Returns the requested worm or null if no worm is found that overlaps.
-	 * 			| for any worm in this.getAllWorms()
-	 * 			| if projectile.Overlaps(worm)
-	 * 			|		result == worm
-	 * 			| else
-	 * 			| 		result == null
+	 * @param 	minX
+	 * 			The smallest x coordinate of the rectangle.
+	 * @param 	minY
+	 * 			The smallest y coordinate of the rectangle.
+	 * @param 	maxX
+	 * 			The largest x coordinate of the rectangle.
+	 * @param 	maxY
+	 * 			The largest y coordinate of the rectangle.
+	 * 
+	 * @return	| result == this.getWormsInRectangles(new double[][] { { minX, minY, maxX, maxY } })
 	 */
-	protected Worm getWormThatOverlaps(Projectile projectile) {
-		for (Worm worm: this.getAllWorms()) {
-			if (projectile.overlapsGameObject(worm)) {
-				return worm;
-			}
-		}
-		return null;
+	protected List<Worm> getWormsInRectangle(double minX, double minY, double maxX, double maxY) {
+		return this.getWormsInRectangles(new double[][] { { minX, minY, maxX, maxY } });
 	}
 	
 	
-	
 	/**
-	 * Checks if a circle with given centre and radius overlaps 
-	 * with a worm.
+	 * Returns the worms of this world, other than the active worm, whose bounding box touches
+	 * at least one of the given rectangles, in the order of the worms of this world.
+	 * If the rectangles cover fewer cells of the grid of the worms than there are worms, only
+	 * the worms in those cells are tested. Otherwise all worms are tested, by a loop over the
+	 * arrays of the entity store of this world if it has one.
 	 * 
-	 * @param 	x
-	 * 			The x coordinate of the centre.
-	 * @param 	y
-	 * 			The y coordinate of the centre.
-	 * @param 	radius
-	 * 			The radius of the circle.
+	 * @param 	rectangles
+	 * 			The rectangles, each as its smallest x coordinate, smallest y coordinate,
+	 * 			largest x coordinate and largest y coordinate.
 	 * 
-	 * @return	Returns if a worm overlaps with the given circle.
-	 * 			| for any worm in this.getAllWorms()
-	 * 			| 	if (GameObjects.overlaps(x,y,radius,worm.getCoordinateX(), worm.getCoordinateY, worm.getRadius()))
-	 * 			|		then result == true
-	 * 			| result == false
-	 */	
-	protected boolean coordinatesOverlapsWorm(double x, double y, double radius) {
-		for (Worm worm: this.getAllWorms()) {
-			if (worm != this.getActiveWorm())
-				if (GameObject.overlaps(worm.getCoordinateX(),worm.getCoordinateY(),worm.getRadius(),
-									x,y,radius)) {
-					return true;
+	 * @return	| for each worm in this.getAllWorms()
+	 * 			|	result.contains(worm) == (worm != this.getActiveWorm()) && for some rectangle in rectangles
+	 * 			|		(worm.getCoordinateX() + worm.getRadius() >= rectangle[0]) && (worm.getCoordinateX() - worm.getRadius() <= rectangle[2])
+	 * 			|		&& (worm.getCoordinateY() + worm.getRadius() >= rectangle[1]) && (worm.getCoordinateY() - worm.getRadius() <= rectangle[3])
+	 */
+	protected List<Worm> getWormsInRectangles(double[][] rectangles) {
+		Worm activeWorm = this.worms.isEmpty() ? null : this.getActiveWorm();
+		long numberOfCells = 0;
+		for (double[] rectangle : rectangles)
+			numberOfCells += this.wormGrid.getNumberOfCells(rectangle[0], rectangle[1], rectangle[2], rectangle[3]);
+		int[] indexes;
+		if (numberOfCells < this.worms.size()) {
+			Set<Worm> found = Collections.newSetFromMap(new IdentityHashMap<Worm, Boolean>());
+			for (double[] rectangle : rectangles)
+				this.wormGrid.addTouching(rectangle[0], rectangle[1], rectangle[2], rectangle[3], activeWorm, found);
+			indexes = new int[found.size()];
+			int counter = 0;
+			for (Worm worm : found)
+				indexes[counter++] = this.typedIndexes[worm.getHandle()];
+		}
+		else if (this.hasEntityStore()) {
+			indexes = this.getEntityStore().findInRectangles(EntityStore.WORM, rectangles, this.getActiveWormHandle());
+			for (int counter = 0; counter < indexes.length; counter++)
+				indexes[counter] = this.typedIndexes[indexes[counter]];
+		}
+		else {
+			List<Worm> result = new ArrayList<Worm>();
+			for (int counter = 0; counter < this.worms.size(); counter++) {
+				Worm worm = this.worms.get(counter);
+				if ((worm != activeWorm) && touchesAny(worm.getCoordinateX(), worm.getCoordinateY(), worm.getRadius(), rectangles))
+					result.add(worm);
 			}
+			return result;
 		}
-		return false;
+		Arrays.sort(indexes);
+		List<Worm> result = new ArrayList<Worm>(indexes.length);
+		for (int index : indexes)
+			result.add(this.worms.get(index));
+		return result;
 	}
 	
 	
 	/**
-	 * Returns whether a given projectile overlaps with a worm.
+	 * Checks whether the bounding box of the circle with the given centre and radius touches
+	 * at least one of the given rectangles.
 	 * 
-	 * @param	projectile
-	 * 			The projectile to check.
-	 *
-	 * @return	Returns true if the given projectile overlaps with a worm that is not the active worm
-	 * 			(the worm that fired the projectile).
-	 *			| result == (this.getWormThatOverlapsProjectile(projectile) != null) 
-	 *			|			&& (this.getWormThatOverlapsProjectile(projectile) != this.getActiveWorm())
+	 * @return	| result == for some rectangle in rectangles
+	 * 			|	(x + radius >= rectangle[0]) && (x - radius <= rectangle[2])
+	 * 			|	&& (y + radius >= rectangle[1]) && (y - radius <= rectangle[3])
+	 */
+	protected static boolean touchesAny(double x, double y, double radius, double[][] rectangles) {
+		for (double[] rectangle : rectangles)
+			if ((x + radius >= rectangle[0]) && (x - radius <= rectangle[2])
+					&& (y + radius >= rectangle[1]) && (y - radius <= rectangle[3]))
+				return true;
+		return false;
+	}
+	
+	
+	/**
+	 * Returns the side of the cells of the grid in which the worms of this world are indexed.
 	 */
-	protected boolean projectileOverlapsWorm(Projectile projectile) {
-		Worm worm = this.getWormThatOverlaps(projectile);
-		return (worm != null) && (worm != this.getActiveWorm());
+	protected double getWormCellSize() {
+		return this.wormGrid.getCellSize();
 	}
 	
 	
 	/**
-	 * Returns the index of the active worm in the list of all the worms in this world.
+	 * Returns the handle of the active worm, or -1 if there are no worms in this world.
 	 */
 	@Basic
 	@Raw
-	private int getIndexOfActiveWorm() {
-		return this.indexOfActiveWorm;
+	private int getActiveWormHandle() {
+		return this.activeWormHandle;
 	}
 	
 	
@@ -698,10 +1512,33 @@ public class World implements Cloneable {
 	 * Returns the active worm(the worm who's turn it is). 
 	 * 
 	 * @return	The active worm.
-	 * 			|result == this.getAllWorms().get(getIndexOfActiveWorm())
+	 * 			|result == this.getGameObjectWithHandle(getActiveWormHandle())
+	 * 
+	 * @throws	IndexOutOfBoundsException
+	 * 			There are no worms in this world.
+	 * 			| this.getAllWorms().isEmpty()
 	 */
 	protected Worm getActiveWorm(){
-		return this.getAllWorms().get(getIndexOfActiveWorm());
+		if (this.getActiveWormHandle() < 0)
+			throw new IndexOutOfBoundsException("No active worm!");
+		return (Worm) this.gameObjectsByHandle.get(this.getActiveWormHandle());
+	}
+	
+	
+	/**
+	 * Returns the game object with the given handle in this world, or null if no game object
+	 * of this world has that handle.
+	 * 
+	 * @param	handle
+	 * 			The handle of the wanted game object.
+	 * 
+	 * @return	| if (result != null)
+	 * 			|	then this.getGameObjects().contains(result) && (result.getHandle() == handle)
+	 */
+	protected GameObject getGameObjectWithHandle(int handle) {
+		if ((handle < 0) || (handle >= this.gameObjectsByHandle.size()))
+			return null;
+		return this.gameObjectsByHandle.get(handle);
 	}
 	
 	
@@ -776,58 +1613,88 @@ public class World implements Cloneable {
 	/**
 	 * Checks if the game is over.
 	 * 
-	 * @return	Creates a list of all the remaining teams still in the game.
-	 * 			With null being the team of the worms that are not in a team.
-	 * 			If this list contains more than 1 element the game is not over,
-	 * 			and if the list contains only null, but there are multiple worms
-	 * 			in the "null team" the game is also not yet over. In all the other 
+	 * @return	The teams with living worms and, as one more side, the living worms of this world
+	 * 			that are not in a team still play. If there is more than 1 side the game is not over,
+	 * 			and if the only side is that of the worms that are not in a team, but there are
+	 * 			multiple such worms the game is also not yet over. In all the other 
 	 * 			cases the game is over.
-	 * 			|Set<Team> set = new HashSet<Team>();
-	 * 			|
-	 * 			|for each worm in getAllWorms()
-	 * 			| 	set.add(worm.getTeam())
-	 *			|
-	 *			|if (set.size() > 1)
+	 * 			|sides = this.numberOfSurvivingTeams + (this.numberOfSurvivorsWithoutTeam > 0 ? 1 : 0)
+	 *			|if (sides > 1)
 	 * 			|	result == false
-	 *			|else if (set.size()==1 && set.contains(null) && getAllWorms().size()>1)
+	 *			|else if (this.numberOfSurvivingTeams == 0 && this.numberOfSurvivorsWithoutTeam > 1)
 	 *			|	result == false
 	 *			|else
 	 *			|	result == true
 	 */
 	protected boolean isGameFinished() {
-		Set<Team> set = new HashSet<Team>();
-		for(int counter=0;counter<getAllWorms().size();counter++){
-			set.add(getAllWorms().get(counter).getTeam());
-		}
-		if (set.size() > 1)
+		int sides = this.numberOfSurvivingTeams + ((this.numberOfSurvivorsWithoutTeam > 0) ? 1 : 0);
+		if (sides > 1)
 			return false;
-		else if (set.size()==1 && set.contains(null) && getAllWorms().size()>1)
+		else if ((this.numberOfSurvivingTeams == 0) && (this.numberOfSurvivorsWithoutTeam > 1))
 			return false;
 		else
 			return true;
 	}
 	
 	
+	/**
+	 * Registers that a team of this world got its first living worm or lost its last one.
+	 * 
+	 * @param 	survives
+	 * 			Whether the team now has living worms.
+	 * 
+	 * @post	| new.numberOfSurvivingTeams == this.numberOfSurvivingTeams + (survives ? 1 : -1)
+	 */
+	protected void registerSurvivingTeamChange(boolean survives) {
+		this.numberOfSurvivingTeams += survives ? 1 : -1;
+	}
+	
+	
+	/**
+	 * Registers that the given worm, which is not in a team, has started or stopped
+	 * being a living worm of this world that is not in a team.
+	 * 
+	 * @param 	worm
+	 * 			The worm that has changed.
+	 * @param 	survives
+	 * 			Whether the given worm is now such a living worm.
+	 * 
+	 * @post	If the given worm is in this world, the number of living worms without
+	 * 			a team is incremented if it survives, and decremented otherwise.
+	 * 			| if (this.getGameObjectWithHandle(worm.getHandle()) == worm)
+	 * 			|	then new.numberOfSurvivorsWithoutTeam == this.numberOfSurvivorsWithoutTeam + (survives ? 1 : -1)
+	 */
+	protected void registerSurvivorWithoutTeam(Worm worm, boolean survives) {
+		if (this.getGameObjectWithHandle(worm.getHandle()) == worm)
+			this.numberOfSurvivorsWithoutTeam += survives ? 1 : -1;
+	}
+	
+	
 	/**
 	 * Returns the winner of the game (only applicable if the game is over).
 	 * 
-	 * @return	Returns the name of the winning worm or the name
-	 * 			of the winning team if the worm that is still
-	 * 			alive was part of a team. If no worms are still 
-	 * 			alive "nobody" will be returned.
-	 * 			|if (getAllWorms().size() ==0)
-	 *			|	result == "Nobody"
-	 *			|else if (getAllWorms().get(0).getTeam() == null)
-	 *			|	result == getAllWorms().get(0).getName()
+	 * @return	Returns the name of a living worm or the name of its team if that worm
+	 * 			is part of a team. Once the game is over, all living worms are on the
+	 * 			winning side. If no worms are still alive "Nobody" will be returned.
+	 * 			|if (for some worm in getAllWorms(): worm.isAlive())
+	 *			|	if (worm.getTeam() == null)
+	 *			|		result == worm.getName()
+	 *			|	else
+	 *			|		result == worm.getTeam().getName()
 	 *			|else
-	 *			|	result == getAllWorms().get(0).getTeam().getName()
+	 *			|	result == "Nobody"
 	 */
 	protected String getWinner(){
-		if (getAllWorms().size() ==0)
-			return "Nobody";
-		if (getAllWorms().get(0).getTeam() == null)
-			return getAllWorms().get(0).getName();
-		return getAllWorms().get(0).getTeam().getName();
+		if ((this.numberOfSurvivingTeams > 0) || (this.numberOfSurvivorsWithoutTeam > 0)) {
+			// Only worms at zero hit points that were not removed yet are skipped.
+			List<Worm> worms = this.getAllWorms();
+			for (int counter = 0; counter < worms.size(); counter = counter + 1) {
+				Worm worm = worms.get(counter);
+				if (worm.isAlive())
+					return (worm.getTeam() == null) ? worm.getName() : worm.getTeam().getName();
+			}
+		}
+		return "Nobody";
 	}
 	
 	
@@ -942,8 +1809,12 @@ public class World implements Cloneable {
 	 * @param 	gameObject
 	 * 			Game object to be added.
 	 * 
-	 * @post 	The given game object is in the world.
+	 * @post 	The given game object is in the world, with a handle that it keeps
+	 * 			for as long as it is in the world.
 	 * 			| new.gameObjects.contains(gameObject)
+	 * 			| (new this.getGameObjectWithHandle(gameObject.getHandle())) == gameObject
+	 * @post	If the given game object is a worm, it takes its turns after all worms that
+	 * 			are already in the world. The first worm that is added is the active worm.
 	 * 
 	 * @throws 	ModelException
 	 * 			The world cannot have this object as a game object.
@@ -952,7 +1823,31 @@ public class World implements Cloneable {
 	protected void addAsGameObject(@Raw GameObject gameObject) throws ModelException {
 		if (! this.canHaveAsGameObject(gameObject))
 			throw new ModelException("Cannot assign this game object to this world!");
+		if (this.getGameObjectWithHandle(gameObject.getHandle()) == gameObject)
+			return;
+		int handle = this.allocateHandle(gameObject);
+		if (this.hasEntityStore())
+			gameObject.attachToStore(this.getEntityStore());
+		this.gameObjectIndexes[handle] = this.gameObjects.size();
 		this.gameObjects.add(gameObject);
+		if (gameObject instanceof Worm) {
+			this.typedIndexes[handle] = this.worms.size();
+			this.worms.add((Worm) gameObject);
+			this.wormGrid.add((Worm) gameObject);
+			this.addToTurnOrder(handle);
+			if (((Worm) gameObject).isAlive() && (((Worm) gameObject).getTeam() == null))
+				this.numberOfSurvivorsWithoutTeam++;
+			this.registerWormChange();
+		}
+		else if (gameObject instanceof Food) {
+			this.typedIndexes[handle] = this.food.size();
+			this.food.add((Food) gameObject);
+			this.foodGrid.add((Food) gameObject);
+		}
+		else if (gameObject instanceof Projectile) {
+			this.typedIndexes[handle] = this.projectiles.size();
+			this.projectiles.add((Projectile) gameObject);
+		}
 	}
 	
 	
@@ -962,33 +1857,179 @@ public class World implements Cloneable {
 	 * @param 	gameObject
 	 * 			Game object to be removed.
 	 * 
-	 * @post	The object has been removed from the world.
+	 * @post	The object has been removed from the world, and its handle is free.
 	 * 			|! this.gameObjects.contains(gameObject)
-	 * @post	If the object that has been removed is a worm,
-	 * 			and this worm's index in the list of worms is
-	 * 			smaller than the index of the active worm.
-	 * 			The index of the active worm is adjusted.
-	 * 			|if (gameObject instanceof Worm){
-	 *			|	if (index < getIndexOfActiveWorm())
-	 *			|		new.getIndexOfActiveWorm == getIndexOfActiveWorm-1
-	 * 
-	 * @effect	If the object that is removed is the active worm,
-	 * 			The next worm's turn is started.
-	 * 			|if (gameObject instanceof Worm){
-	 * 			|	if (index == getIndexOfActiveWorm())
-	 *			|		this.nextTurn()
+	 * 			| new.gameObject.getHandle() == -1
+	 * @post	If the object that has been removed is a worm, it is removed from the turn order.
+	 * 			The active worm does not change, unless it is the removed worm.
+	 * 
+	 * @effect	If the object that is removed is the active worm, the turn passes to the worm
+	 * 			after it. If the removed worm was the last worm of the round, a new round is started.
+	 * 			|if (gameObject == this.getActiveWorm())
+	 * 			|	if (this.getActiveWorm() was the last worm of the round)
+	 * 			|		then this.setActionPointsToMaxAndAdd10HitPoints()
 	 */
 	protected void removeAsGameObject(@Raw GameObject gameObject) throws ModelException {
-		int index = getAllWorms().indexOf(gameObject);
-		this.gameObjects.remove(gameObject);
+		int handle = gameObject.getHandle();
+		if (this.getGameObjectWithHandle(handle) != gameObject)
+			return;
+		removeAt(this.gameObjects, this.gameObjectIndexes[handle], this.gameObjectIndexes);
+		if (gameObject instanceof Food) {
+			removeAt(this.food, this.typedIndexes[handle], this.typedIndexes);
+			this.foodGrid.remove(gameObject);
+		}
+		else if (gameObject instanceof Projectile)
+			removeAt(this.projectiles, this.typedIndexes[handle], this.typedIndexes);
+		if (gameObject.getStore() != null) {
+			gameObject.detachFromStore();
+			this.getEntityStore().remove(handle);
+		}
+		this.freeHandle(gameObject);
 		if (gameObject instanceof Worm){
-			if (index == getIndexOfActiveWorm()){
-				nextTurn();
-			}
-			if (index < getIndexOfActiveWorm()){
-				setIndexOfActiveWorm(getIndexOfActiveWorm()-1);
+			removeAt(this.worms, this.typedIndexes[handle], this.typedIndexes);
+			this.wormGrid.remove(gameObject);
+			if (((Worm) gameObject).isAlive() && (((Worm) gameObject).getTeam() == null))
+				this.numberOfSurvivorsWithoutTeam--;
+			this.registerWormChange();
+			this.removeFromTurnOrder(handle);
+		}
+	}
+	
+	
+	/**
+	 * Removes the element at the given index from the given list, by moving the last element
+	 * of that list into its place, and records the new index of that last element by its handle.
+	 * 
+	 * @param 	list
+	 * 			The list from which to remove.
+	 * @param 	index
+	 * 			The index of the element to remove.
+	 * @param 	indexes
+	 * 			The index in the given list of the game object with each handle.
+	 */
+	private static <T extends GameObject> void removeAt(List<T> list, int index, int[] indexes) {
+		T last = list.remove(list.size() - 1);
+		if (index < list.size()) {
+			list.set(index, last);
+			indexes[last.getHandle()] = index;
+		}
+	}
+	
+	
+	/**
+	 * Gives the given game object a handle that is not in use, and returns that handle.
+	 * 
+	 * @param 	gameObject
+	 * 			The game object that needs a handle.
+	 * 
+	 * @post	| (new this.getGameObjectWithHandle(result)) == gameObject
+	 * @post	| (new gameObject).getHandle() == result
+	 */
+	private int allocateHandle(@Raw GameObject gameObject) {
+		int handle;
+		if (this.numberOfFreeHandles > 0) {
+			handle = this.freeHandles[--this.numberOfFreeHandles];
+			this.gameObjectsByHandle.set(handle, gameObject);
+		}
+		else {
+			handle = this.gameObjectsByHandle.size();
+			this.gameObjectsByHandle.add(gameObject);
+			if (handle >= this.gameObjectIndexes.length) {
+				int length = 2*this.gameObjectIndexes.length;
+				this.gameObjectIndexes = Arrays.copyOf(this.gameObjectIndexes, length);
+				this.typedIndexes = Arrays.copyOf(this.typedIndexes, length);
+				this.nextInTurn = Arrays.copyOf(this.nextInTurn, length);
+				this.previousInTurn = Arrays.copyOf(this.previousInTurn, length);
 			}
 		}
+		gameObject.setHandle(handle);
+		return handle;
+	}
+	
+	
+	/**
+	 * Frees the handle of the given game object, so that it can be given to another game object.
+	 * 
+	 * @param 	gameObject
+	 * 			The game object that is removed from this world.
+	 * 
+	 * @post	| (new gameObject).getHandle() == -1
+	 */
+	private void freeHandle(@Raw GameObject gameObject) {
+		int handle = gameObject.getHandle();
+		this.gameObjectsByHandle.set(handle, null);
+		if (this.numberOfFreeHandles == this.freeHandles.length)
+			this.freeHandles = Arrays.copyOf(this.freeHandles, 2*this.freeHandles.length);
+		this.freeHandles[this.numberOfFreeHandles++] = handle;
+		gameObject.setHandle(-1);
+	}
+	
+	
+	/**
+	 * Adds the worm with the given handle to the end of the turn order of this world.
+	 * If there were no worms, it becomes the active worm.
+	 * 
+	 * @param 	handle
+	 * 			The handle of the worm to add.
+	 */
+	private void addToTurnOrder(int handle) {
+		if (this.firstInTurn < 0) {
+			this.nextInTurn[handle] = handle;
+			this.previousInTurn[handle] = handle;
+			this.firstInTurn = handle;
+			this.setActiveWormHandle(handle);
+		}
+		else {
+			int last = this.previousInTurn[this.firstInTurn];
+			this.nextInTurn[last] = handle;
+			this.previousInTurn[handle] = last;
+			this.nextInTurn[handle] = this.firstInTurn;
+			this.previousInTurn[this.firstInTurn] = handle;
+		}
+	}
+	
+	
+	/**
+	 * Removes the worm with the given handle from the turn order of this world.
+	 * If it is the active worm, the turn passes to the worm after it, and if it was
+	 * the last worm of the round, a new round is started.
+	 * 
+	 * @param 	handle
+	 * 			The handle of the worm to remove.
+	 */
+	private void removeFromTurnOrder(int handle) {
+		int next = this.nextInTurn[handle];
+		boolean endsRound = (next == this.firstInTurn);
+		if (next == handle) {
+			this.firstInTurn = -1;
+			this.setActiveWormHandle(-1);
+			return;
+		}
+		int previous = this.previousInTurn[handle];
+		this.nextInTurn[previous] = next;
+		this.previousInTurn[next] = previous;
+		if (this.firstInTurn == handle)
+			this.firstInTurn = next;
+		if (this.getActiveWormHandle() == handle) {
+			if (endsRound)
+				this.setActionPointsToMaxAndAdd10HitPoints();
+			this.setActiveWormHandle(next);
+		}
+	}
+	
+	
+	/**
+	 * Moves the given game object to its current position and radius in the grids of this world.
+	 * Game objects that are not indexed by position in this world are ignored.
+	 * 
+	 * @param 	gameObject
+	 * 			The game object that has moved or changed its radius.
+	 */
+	protected void updateGameObjectPosition(@Raw GameObject gameObject) {
+		if (gameObject instanceof Worm)
+			this.wormGrid.update(gameObject);
+		else if (gameObject instanceof Food)
+			this.foodGrid.update(gameObject);
 	}
 	
 	
@@ -996,24 +2037,25 @@ public class World implements Cloneable {
 	 * Adds a new worm to the world at a random adjacent location.
 	 * 
 	 * @post	The new Worm has been added at a random adjacent location on the map.
-	 *			Or no worm has been added. The radius of this worm is 0.3. This worm
+	 *			The radius of this worm is 0.3. This worm
 	 *			will receive a random name and may or may not be in a team.
-	 *			| new.getAllWorms() == this.getAllWorms()+1 || new.getAllWorms() == this.getAllWorms()
-	 *			| if (new.getAllWorms() == this.getAllWorms()+1)
-	 *			|	radius = new.getAllWorms().get(new.getAllWorms().size-1).getRadius()
-	 *			|	x = new.getAllWorms().get(new.getAllWorms().size-1).getCoordinateX
-	 *			|	y = new.getAllWorms().get(new.getAllWorms().size-1).getCoordinateY
-	 * 			|	isAdjacent(x,y,radius)
+	 *			| new.getAllWorms() == this.getAllWorms()+1
+	 *			| radius = new.getAllWorms().get(new.getAllWorms().size-1).getRadius()
+	 *			| x = new.getAllWorms().get(new.getAllWorms().size-1).getCoordinateX
+	 *			| y = new.getAllWorms().get(new.getAllWorms().size-1).getCoordinateY
+	 * 			| isAdjacent(x,y,radius)
 	 * 
 	 * @throws	ModelException
 	 * 			The game has already started.
 	 * 			| getStatus()
+	 * @throws	ModelException
+	 * 			There is no adjacent location for a worm in this world.
+	 * 			| getRandomAdjacentLocation(0.3) throws ModelException
 	 */
 	protected void addWorm(){
 		if (getStatus())
 			throw new ModelException("Cannot place worms once game has started!");
 		double radius = 0.3;
-		try {
 		double[] position = getRandomAdjacentLocation(radius);
 		Worm worm = new Worm(position[0],position[1],random.nextDouble()*Math.PI*2.0,radius,
 							this.getRandomName(),true,this);
@@ -1022,9 +2064,6 @@ public class World implements Cloneable {
 		int random = getRandom().nextInt(this.getNumberOfTeams()+1);
 		if (! (random == this.getNumberOfTeams()))
 			worm.joinTeam(this.getTeamAt(random));
-		}
-		catch(ModelException modelException){
-		}	
 	}
 	
 	
@@ -1032,27 +2071,24 @@ public class World implements Cloneable {
 	 * Adds a new food to the world at a random adjacent location.
 	 * 
 	 * @post	The new food has been added at a random adjacent location on the map.
-	 *			Or no food has been added.
-	 *			| new.getAllFood() == this.getAllFood()+1 || new.getAllFood() == this.getAllFood()
-	 *			| if (new.getAllWorms() == this.getAllWorms()+1)
-	 *			|	x = new.getAllFood().get(new.getAllFood().size-1).getCoordinateX
-	 *			|	y = new.getAllFood().get(new.getAllFood().size-1).getCoordinateY
-	 * 			|	isAdjacent(x,y,0.2)
+	 *			| new.getAllFood() == this.getAllFood()+1
+	 *			| x = new.getAllFood().get(new.getAllFood().size-1).getCoordinateX
+	 *			| y = new.getAllFood().get(new.getAllFood().size-1).getCoordinateY
+	 * 			| isAdjacent(x,y,0.2)
 	 * 
 	 * @throws	ModelException
 	 * 			The game has already started.
 	 * 			| getStatus()
+	 * @throws	ModelException
+	 * 			There is no adjacent location for food in this world.
+	 * 			| getRandomAdjacentLocation(0.2) throws ModelException
 	 */
 	protected void addFood(){
 		if (getStatus())
 			throw new ModelException("Cannot place worms once game has started!");
-		try {
 		double[] position = getRandomAdjacentLocation(0.20);
 		Food food = new  Food(position[0],position[1],true,this);
 		this.addAsGameObject(food);
-		}
-		catch(ModelException modelException){
-		}
 	}
 	
 	
@@ -1067,6 +2103,7 @@ public class World implements Cloneable {
 	 */
 	private void addAsTeam(Team team) {
 		this.teams.add(team);
+		team.setWorld(this);
 	}
 
 	/**
@@ -1130,8 +2167,9 @@ public class World implements Cloneable {
 	protected boolean isProperTeam(Team team) {
 		if (! team.hasProperWorms())
 			return false;
-		for(Worm worm: team.getLivingWorms()) {
-			if (! (worm.getWorld() == this))
+		List<Worm> worms = team.getWorms();
+		for (int counter = 0; counter < worms.size(); counter = counter + 1) {
+			if (worms.get(counter).isAlive() && ! (worms.get(counter).getWorld() == this))
 				return false;
 		}
 		return true;
@@ -1143,42 +2181,42 @@ public class World implements Cloneable {
 	 * If all worms in the world have had their turn, all action points are set to the max, the hit
 	 * points are increased by 10 and the it is the first worm's turn again.
 	 * 
-	 * @post	The index of the active worm is now the index of the next worm 
-	 * 			or the first worm if all worms have had their turn this round.
-	 * 			|if (this.getIndexOfActiveWorm()+1 >= this.getAllWorms().size())
-	 *			|	new.getIndexOfActiveWorm() == 0
-	 *			|else 
-	 *			|	new.getIndexOfActiveWorm() == this.getIndexOfActiveWorm()+1
+	 * @post	The active worm is now the worm after it in the turn order, which is
+	 * 			the first worm if all worms have had their turn this round.
+	 *			|if (this.getActiveWormHandle() >= 0)
+	 *			|	new.getActiveWormHandle() == this.nextInTurn[this.getActiveWormHandle()]
 	 * 
 	 * @effect	If the next round is started the hit points of all worms are increased
 	 * 			by 10 and their action points set to max.
-	 * 			|if (this.getIndexOfActiveWorm()+1 >= this.getAllWorms().size())
+	 * 			|if ((this.getActiveWormHandle() < 0) || (this.nextInTurn[this.getActiveWormHandle()] == this.firstInTurn))
 	 * 			|	this.setActionPointsToMaxAndAdd10HitPoints()
 	 */
 	protected void nextTurn() {
-		if (getIndexOfActiveWorm()+1 >= getAllWorms().size()){
+		if (getActiveWormHandle() < 0){
 			setActionPointsToMaxAndAdd10HitPoints();
-			setIndexOfActiveWorm(0);
-		}
-		else{
-			setIndexOfActiveWorm(getIndexOfActiveWorm()+1);
+			setActiveWormHandle(-1);
+			return;
 		}
+		int next = this.nextInTurn[getActiveWormHandle()];
+		if (next == this.firstInTurn)
+			setActionPointsToMaxAndAdd10HitPoints();
+		setActiveWormHandle(next);
 	}
 	
 	
 	/**
-	 * Sets the index of the active worm in the list of all the worms in this world.
+	 * Sets the handle of the active worm of this world.
 	 * 
-	 * @param 	indexToBeSet
-	 * 			The index to be set.
+	 * @param 	handle
+	 * 			The handle to be set.
 	 * 
-	 * @post 	The index has been set.
-	 * 			new.getIndexOfActiveWorm() == indexToBeSet
+	 * @post 	The handle has been set.
+	 * 			new.getActiveWormHandle() == handle
 	 */
 	@Raw
-	private void setIndexOfActiveWorm(int indexToBeSet) {
-		this.indexOfActiveWorm = indexToBeSet;
-		
+	private void setActiveWormHandle(int handle) {
+		this.activeWormHandle = handle;
+		this.registerWormChange();
 	}
 	
 	
@@ -1194,9 +2232,21 @@ public class World implements Cloneable {
 	 * 			|		newWorm.getHitPoints() == oldWorm.getHitpoints() +10
 	 */
 	private void setActionPointsToMaxAndAdd10HitPoints(){
-		for(int counter  = 0;counter < getAllWorms().size(); counter = counter+1){
-			getAllWorms().get(counter).setActionPoints(getAllWorms().get(counter).getMaximumActionPoints());
-			getAllWorms().get(counter).setHitPoints(getAllWorms().get(counter).getHitPoints()+10);
+		if (this.hasEntityStore()) {
+			// Worms that come back to life go through their setters, which register that change.
+			for (int handle : this.getEntityStore().startRound()) {
+				Worm worm = (Worm) this.getGameObjectWithHandle(handle);
+				worm.setActionPoints(worm.getMaximumActionPoints());
+				worm.setHitPoints(worm.getHitPoints()+10);
+			}
+			this.registerWormChange();
+			return;
+		}
+		List<Worm> worms = getAllWorms();
+		for(int counter  = 0;counter < worms.size(); counter = counter+1){
+			Worm worm = worms.get(counter);
+			worm.setActionPoints(worm.getMaximumActionPoints());
+			worm.setHitPoints(worm.getHitPoints()+10);
 		}
 	}
 	
@@ -78,6 +78,18 @@ public class Worm extends MovableObject{
 	 * The number of the current weapon of this worm.
 	 */
 	private int currentWeaponNumber = 0;
+	/**
+	 * The plan of the next move of this worm, or null if no move has been planned.
+	 */
+	private MovePlanner cachedMovePlanner;
+	/**
+	 * The state version of this worm when its cached move was planned.
+	 */
+	private long cachedMoveStateVersion;
+	/**
+	 * The terrain version of the world of this worm when its cached move was planned.
+	 */
+	private long cachedMoveTerrainVersion;
 	
 	
 	
@@ -219,6 +231,81 @@ public class Worm extends MovableObject{
 	
 	
 	
+	/**
+	 * Registers a change to the state of this worm, which is also a change to the worms of its world.
+	 * 
+	 * @effect	| super.registerStateChange()
+	 * @effect	If this worm has a world, a change to the worms of that world is registered.
+	 * 			| if (this.getWorld() != null)
+	 * 			|	then this.getWorld().registerWormChange()
+	 */
+	@Raw
+	@Override
+	protected void registerStateChange() {
+		super.registerStateChange();
+		if (this.getWorld() != null)
+			this.getWorld().registerWormChange();
+	}
+	
+	
+	/**
+	 * Set the radius of this worm to the given radius.
+	 * 
+	 * @effect	| super.setRadius(radius)
+	 * @effect	If this worm is attached to an entity store, its maximum number of points
+	 * 			is stored for its new radius.
+	 * 			| if (this.getStore() != null)
+	 * 			|	then this.getStore().setMaximumPoints(this.getHandle(), this.getMaximumHitPoints())
+	 */
+	@Raw
+	@Override
+	protected void setRadius(double radius) throws ModelException {
+		super.setRadius(radius);
+		if (this.getStore() != null)
+			this.getStore().setMaximumPoints(this.getHandle(), this.getMaximumHitPoints());
+	}
+	
+	
+	/**
+	 * Moves the state of this worm into the given entity store, at the handle of this worm.
+	 * 
+	 * @effect	| super.attachToStore(store)
+	 * @post	The points and the team of this worm do not change.
+	 * 			| new.getActionPoints() == this.getActionPoints() && new.getHitPoints() == this.getHitPoints()
+	 * 			| store.getMaximumPoints(this.getHandle()) == this.getMaximumHitPoints()
+	 * 			| store.getTeamId(this.getHandle()) == this.getWorld().getIndexOfTeam(this.getTeam())
+	 */
+	@Raw
+	@Override
+	protected void attachToStore(EntityStore store) {
+		int actionPoints = this.getActionPoints();
+		int hitPoints = this.getHitPoints();
+		super.attachToStore(store);
+		store.setActionPoints(this.getHandle(), actionPoints);
+		store.setHitPoints(this.getHandle(), hitPoints);
+		store.setMaximumPoints(this.getHandle(), this.getMaximumHitPoints());
+		if (this.getTeam() != null)
+			store.setTeamId(this.getHandle(), this.getWorld().getIndexOfTeam(this.getTeam()));
+	}
+	
+	
+	/**
+	 * Moves the state of this worm out of its entity store, back into its own fields.
+	 * 
+	 * @effect	| super.detachFromStore()
+	 * @post	The points of this worm do not change.
+	 * 			| new.getActionPoints() == this.getActionPoints() && new.getHitPoints() == this.getHitPoints()
+	 */
+	@Raw
+	@Override
+	protected void detachFromStore() {
+		this.actionPoints = this.getActionPoints();
+		this.hitPoints = this.getHitPoints();
+		super.detachFromStore();
+	}
+	
+	
+	
 	/**
 	 * Returns the minimum radius of this worm.
 	 * 
@@ -297,6 +384,8 @@ public class Worm extends MovableObject{
 	@Basic
 	@Raw
 	protected int getActionPoints(){
+		if (this.getStore() != null)
+			return this.getStore().getActionPoints(this.getHandle());
 		return this.actionPoints;
 	}
 	
@@ -335,13 +424,28 @@ public class Worm extends MovableObject{
 	 */
 	protected void setActionPoints(int actionPoints){
 		if ((0 < actionPoints) && (actionPoints <= this.getMaximumActionPoints()))
-			this.actionPoints = actionPoints;
+			this.storeActionPoints(actionPoints);
 		else if (actionPoints <= 0){
-			this.actionPoints = 0;
+			this.storeActionPoints(0);
 			this.getWorld().nextTurn(); 
 		}
 		else if (actionPoints > this.getMaximumActionPoints())
-			this.actionPoints = this.getMaximumActionPoints();
+			this.storeActionPoints(this.getMaximumActionPoints());
+		this.registerStateChange();
+	}
+	
+	
+	/**
+	 * Stores the given number of action points as the action points of this worm.
+	 * 
+	 * @post	| new.getActionPoints() == actionPoints
+	 */
+	@Raw
+	private void storeActionPoints(int actionPoints) {
+		if (this.getStore() != null)
+			this.getStore().setActionPoints(this.getHandle(), actionPoints);
+		else
+			this.actionPoints = actionPoints;
 	}
 	
 	
@@ -353,6 +457,8 @@ public class Worm extends MovableObject{
 	@Basic
 	@Raw
 	protected int getHitPoints() {
+		if (this.getStore() != null)
+			return this.getStore().getHitPoints(this.getHandle());
 		return this.hitPoints;
 	}
 	
@@ -375,16 +481,58 @@ public class Worm extends MovableObject{
 	 * 			the hitPoints of this worm are set to the maximum number of hit points.
 	 * 			| if (actionPoints > getMaximumHitPoints())
 	 * 			| 	new.getHitPoints() == this.getMaximumHitPoints()	
+	 * 
+	 * @effect	If this worm dies or comes back to life, that change is registered.
+	 * 			| if (this.isAlive() != new.isAlive())
+	 * 			|	then this.registerLivingChange()
+	 * @effect	If the given number of hit points is negative, this worm is terminated.
+	 * 			| if (hitPoints < 0)
+	 * 			|	then this.terminate()
 	 */
 	protected void setHitPoints(int hitPoints) {
+		boolean wasAlive = this.isAlive();
 		if ((0 <= hitPoints) && (hitPoints <= this.getMaximumHitPoints()))
-			this.hitPoints = hitPoints;
-		else if (hitPoints < 0) {
-			this.hitPoints = 0;
-			this.terminate();
-		}
+			this.storeHitPoints(hitPoints);
+		else if (hitPoints < 0)
+			this.storeHitPoints(0);
 		else if (hitPoints > this.getMaximumHitPoints())
-			this.hitPoints = this.getMaximumHitPoints();
+			this.storeHitPoints(this.getMaximumHitPoints());
+		if (wasAlive != this.isAlive())
+			this.registerLivingChange();
+		if (hitPoints < 0)
+			this.terminate();
+		this.registerStateChange();
+	}
+	
+	
+	/**
+	 * Stores the given number of hit points as the hit points of this worm.
+	 * 
+	 * @post	| new.getHitPoints() == hitPoints
+	 */
+	@Raw
+	private void storeHitPoints(int hitPoints) {
+		if (this.getStore() != null)
+			this.getStore().setHitPoints(this.getHandle(), hitPoints);
+		else
+			this.hitPoints = hitPoints;
+	}
+	
+	
+	/**
+	 * Registers that this worm has died or come back to life with its team or, if it is not
+	 * in a team, with its world.
+	 * 
+	 * @effect	| if (this.getTeam() != null)
+	 * 			|	then this.getTeam().registerLivingChange(this)
+	 * 			| else if (this.getWorld() != null)
+	 * 			|	then this.getWorld().registerSurvivorWithoutTeam(this, this.isAlive())
+	 */
+	private void registerLivingChange() {
+		if (this.getTeam() != null)
+			this.getTeam().registerLivingChange(this);
+		else if (this.getWorld() != null)
+			this.getWorld().registerSurvivorWithoutTeam(this, this.isAlive());
 	}
 	
 	
@@ -489,18 +637,38 @@ public class Worm extends MovableObject{
 	 * @param 	team
 	 * 			The new team of this worm.
 	 * 
-	 * @post	The worm is assigned to the given team.
+	 * @post	The worm is assigned to the given team, and the given team holds this worm.
 	 * 			| new.getTeam() == team
+	 * 			| (new team).getWorms().contains(this)
+	 * @post	If this worm was in another team, that team no longer holds this worm.
+	 * 			| if ((this.getTeam() != null) && (this.getTeam() != team))
+	 * 			|	then ! (new this.getTeam()).getWorms().contains(this)
+	 * 
+	 * @effect	If this worm was not in a team and is alive, its world no longer
+	 * 			counts it as a survivor without a team.
+	 * 			| if ((this.getTeam() == null) && this.isAlive())
+	 * 			|	then this.getWorld().registerSurvivorWithoutTeam(this, false)
 	 * 
 	 * @throws 	ModelException
 	 * 			The exception is thrown if the assignment happens 
 	 * 			after the game has already started.
 	 * 			| this.getWorld().getStatus()
+	 * @throws	ModelException
+	 * 			The exception is thrown if the given team is invalid.
+	 * 			| (! isValidTeam(team))
 	 */
 	protected void joinTeam(Team team) throws ModelException {
 		if (this.getWorld().getStatus())
 			throw new ModelException("Game has already started, cannot assign to team!");
+		if (! isValidTeam(team))
+			throw new ModelException("Invalid team assignment!");
+		Team oldTeam = this.getTeam();
+		if ((oldTeam != null) && (oldTeam != team) && oldTeam.canRemoveWorm(this))
+			oldTeam.removeFromTeam(this);
+		if ((oldTeam == null) && this.isAlive())
+			this.getWorld().registerSurvivorWithoutTeam(this, false);
 		this.setTeam(team);
+		team.addWorm(this);
 	}
 	
 	
@@ -518,6 +686,8 @@ public class Worm extends MovableObject{
 		if (! isValidTeam(team))
 			throw new ModelException("Invalid team assignment!");
 		this.team = team;
+		if (this.getStore() != null)
+			this.getStore().setTeamId(this.getHandle(), this.getWorld().getIndexOfTeam(team));
 	}
 	
 	
@@ -625,7 +795,7 @@ public class Worm extends MovableObject{
 	 * 
 	 * @effect	The new x and y coordinates are assigned to this worm. The end position of the jump 
 	 * 			is calculated by getting the step at the last position of the jump.
-	 * 			| position = this.getJumpStep(this.getJumpRealTimeInAir(10^-5))
+	 * 			| position = this.getJumpLandingPosition(this.getJumpTimeStep())
 	 * 			| this.setCoordinates(position[0], position[1])
 	 * 
 	 * @post	If the worm is still active after the jump, 
@@ -644,7 +814,7 @@ public class Worm extends MovableObject{
 			throw new ModelException("Cannot jump!");
 		}
 				
-		double[] position = this.getJumpStep(this.getJumpRealTimeInAir(Math.pow(10, -5)));
+		double[] position = this.getJumpLandingPosition(this.getJumpTimeStep());
 		this.setCoordinates(position[0], position[1]);
 
 		//	If setCoordinates terminates this worm, these function shall only work if the status is active.
@@ -655,6 +825,17 @@ public class Worm extends MovableObject{
 	}
 
 	
+	/**
+	 * Returns the time step with which the jump of this worm is computed when it jumps.
+	 * 
+	 * @return	| result == 10^-5
+	 */
+	@Override
+	protected double getJumpTimeStep() {
+		return Math.pow(10, -5);
+	}
+	
+	
 	/**
 	 * Returns the initial velocity of the potential jump of this worm.
 	 * 
@@ -690,34 +871,18 @@ public class Worm extends MovableObject{
 	 * @return	Returns the time that this worm is in the air until it reaches impassable terrain
 	 * 			or it leaves the world. If the worm leaves the world, extra time is provided to make 
 	 * 			the worm visually disappear.
-	 * 			| for each time in {t | t in 0..result & t = n*step (with n integer)}
-	 * 			|	position = this.getJumpStep(t)
-	 * 			|	this.getWorld().isPassableArea(position[0],position[1], this.getRadius()) == true
-	 * 			| 
-	 * 			| nextPosition = this.getJumpStep(result+step)
-	 * 			| ! this.getWorld().isPassableArea(nextPosition[0], nextPosition[1], this.getRadius())  == true
-	 * 			|
-	 * 			| if(! this.getWorld().isInWorld(position[0], position[1], this.getRadius()))
-	 * 			|	then result = result + 0.20 
+	 * 			| time = this.getLastFreeJumpTime(100*step)
+	 * 			| if (! this.getWorld().isInWorld(this.getJumpStepX(time + 100*step), this.getJumpStepY(time + 100*step), this.getRadius()))
+	 * 			|	then result == time + 0.20
+	 * 			| else
+	 * 			|	result == time
 	 */
 	@Override
-	protected double getJumpRealTimeInAir(double step) {
-		double time = 0.0;
-		boolean hasLanded = false;
+	protected double computeJumpRealTimeInAir(double step) {
 		step = 100.0*step;
-
-		for (double t = step; (! hasLanded) ; t = t + step) {
-			double[] position = this.getJumpStep(t);
-			if (this.getWorld().isPassableArea(position[0], position[1], this.getRadius())) {
-				time = t;}
-			else if(! this.getWorld().isInWorld(position[0], position[1], this.getRadius())) {
-				time = time+0.20;
-				hasLanded = true;
-			}
-			else {
-				hasLanded = true;}
-		}
-
+		double time = this.getLastFreeJumpTime(step);
+		if (! this.getWorld().isInWorld(this.getJumpStepX(time + step), this.getJumpStepY(time + step), this.getRadius()))
+			time = time+0.20;
 		return time;
 	}
 	
@@ -877,7 +1042,9 @@ public class Worm extends MovableObject{
 		if (this.canFall()) {
 			double startY = this.getCoordinateY();
 			double finalY = startY;
-			for(double Y = startY; this.canFall(this.getCoordinateX(), finalY)&&(Y>-0.1*getRadius());
+			// Above this height, the adjacency area is certainly passable, so this worm can fall.
+			double freeY = this.getWorld().getLowestFreeHeight(this.getCoordinateX(), startY, 1.1*this.getRadius());
+			for(double Y = startY; ((finalY >= freeY) || this.canFall(this.getCoordinateX(), finalY))&&(Y>-0.1*getRadius());
 					Y = Y - (this.getWorld().getStep(this.getRadius()))) {
 					finalY = Y; 
 			}
@@ -949,6 +1116,7 @@ public class Worm extends MovableObject{
 	 *  position that keeps the divergence minimal and the covered distance maximal. The divergence is
 	 *  the difference between the current direction of the worm and the direction in which the worm 
 	 *  would have to move to end up in the position in question.
+	 *  The candidates are evaluated by a move planner, which skips those that cannot be the optimal move.
 	 *  
 	 * @effect	Executes the optimal move, as described above. 
 	 * 			|if (Math.abs(getMaxCoverableDistanceAdjacent(direction)/(Math.abs(direction-getDirection())+0.5))) >= (Math.abs(getMaxCoverableDistanceAdjacent(direction2)/(Math.abs(direction2-getDirection())+0.5)))
@@ -975,34 +1143,29 @@ public class Worm extends MovableObject{
 	protected void move() throws ModelException {
 		if (!canMove())
 			throw new ModelException("This worm cannot move!");
-		double maxSuccesOfMoveValue = 0.0;
-		double toBeExecutedDirection = getDirection();
-		double toBeExecutedSteps = 0.0;
-		for(double direction = getDirection()-0.7875;direction <= getDirection()+0.7875;direction = direction + 0.0175){
-			double possibleMaxSuccesOfMoveValue = Math.abs(getMaxCoverableDistanceAdjacent(direction)/(Math.abs(direction-getDirection())+0.5));
-			if (maxSuccesOfMoveValue < possibleMaxSuccesOfMoveValue){
-				maxSuccesOfMoveValue = possibleMaxSuccesOfMoveValue;
-				toBeExecutedSteps = getMaxCoverableDistanceAdjacent(direction);
-				toBeExecutedDirection = direction;
-				
-			}
-			}
-		if (toBeExecutedSteps > 0.0){
-			move(toBeExecutedSteps,toBeExecutedDirection);
-			return;
-		}
-			
-		for(double direction = getDirection()-0.7875;direction <= getDirection()+0.7875;direction = direction + 0.0175){
-				double possibleMaxSuccesOfMoveValue = Math.abs(getMaxCoverableDistancePassable(direction)/(Math.abs(direction-getDirection())+0.5));
-				if (maxSuccesOfMoveValue < possibleMaxSuccesOfMoveValue){
-					maxSuccesOfMoveValue = possibleMaxSuccesOfMoveValue;
-					
-					toBeExecutedSteps = getMaxCoverableDistancePassable(direction);
-					toBeExecutedDirection = direction;
-		}
+		MovePlanner planner = getMovePlanner();
+		move(planner.getSteps(), planner.getDirection());
+	}
+	
+	
+	/**
+	 * Returns the plan of the next move of this worm. The plan is kept, so that asking it
+	 * again, as canMove() and move() both do, costs nothing for as long as neither the state
+	 * of this worm nor the terrain of its world changes.
+	 * 
+	 * @return	| result.getSteps() == (new MovePlanner(this)).getSteps()
+	 * 			| result.getDirection() == (new MovePlanner(this)).getDirection()
+	 */
+	protected MovePlanner getMovePlanner() {
+		long stateVersion = this.getStateVersion();
+		long terrainVersion = this.getWorld().getTerrainVersion();
+		if ((this.cachedMovePlanner == null) || (stateVersion != this.cachedMoveStateVersion)
+				|| (terrainVersion != this.cachedMoveTerrainVersion)) {
+			this.cachedMovePlanner = new MovePlanner(this);
+			this.cachedMoveStateVersion = stateVersion;
+			this.cachedMoveTerrainVersion = terrainVersion;
 		}
-		if (toBeExecutedSteps > 0.0)
-			move(toBeExecutedSteps,toBeExecutedDirection);
+		return this.cachedMovePlanner;
 	}
 	
 	
@@ -1060,13 +1223,8 @@ public class Worm extends MovableObject{
 	protected boolean canMove(){
 		if (!getStatus())
 			return false;
-		for(double steps= 1.0; steps >= 0.1/(getRadius());steps = steps -0.1){
-			for(double direction = getDirection()-0.7875; direction <= getDirection()+0.7875;direction = direction + 0.0175){
-				if (canMove(steps,direction))
-					return true;
-			}
-		}
-		return false;
+		// A worm that can move always has a passable candidate, so the plan is only empty if it cannot move.
+		return getMovePlanner().hasMove();
 	}
 	
 	
@@ -1234,8 +1392,9 @@ public class Worm extends MovableObject{
 	 * 			|		then eat(this.getWorld().getFoodThatOverlaps(this))
 	 */
 	private void eatFoodIfPossible(){
-		if (getWorld().getFoodThatOverlaps(this)!=null)
-			eat(getWorld().getFoodThatOverlaps(this));
+		Food food = getWorld().getFoodThatOverlaps(this);
+		if (food != null)
+			eat(food);
 	}
 
 
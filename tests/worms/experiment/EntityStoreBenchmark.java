@@ -0,0 +1,121 @@
+package worms.experiment;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import worms.model.Facade;
+import worms.model.IFacade;
+import worms.model.Projectile;
+import worms.model.World;
+import worms.model.Worm;
+
+/**
+ * Compares crowded worlds whose game objects hold their own state with the same worlds whose
+ * game objects are stored in the parallel arrays of an entity store, both for the outcome and
+ * for the speed of the start of a round and of the flight of a projectile. The worms are placed
+ * on a floor and on platforms. The number of worms may be given as the first argument.
+ */
+public class EntityStoreBenchmark {
+
+	private static final int numberOfRounds = 50;
+
+	private static final int numberOfShots = 500;
+
+	private static final int numberOfRepetitions = 6;
+
+	private static final IFacade facade = new Facade();
+
+	public static void main(String[] args) {
+		int numberOfWorms = (args.length > 0) ? Integer.parseInt(args[0]) : 4000;
+		World plain = createWorld(numberOfWorms);
+		World stored = createWorld(numberOfWorms);
+		facade.enableEntityStore(stored);
+		// Once without timing, for the compiler.
+		playRounds(plain, 10);
+		playRounds(stored, 10);
+		shoot(plain, 100, new Random(1));
+		shoot(stored, 100, new Random(1));
+
+		// Both worlds take turns to go first, so that neither gains from the other warming up.
+		long plainRounds = 0, storedRounds = 0, plainShots = 0, storedShots = 0;
+		int mismatches = 0;
+		for (int repetition = 0; repetition < numberOfRepetitions; repetition++) {
+			World first = (repetition % 2 == 0) ? plain : stored;
+			World second = (first == plain) ? stored : plain;
+			long start = System.nanoTime();
+			playRounds(first, numberOfRounds);
+			long firstTime = System.nanoTime() - start;
+			start = System.nanoTime();
+			playRounds(second, numberOfRounds);
+			long secondTime = System.nanoTime() - start;
+			plainRounds += (first == plain) ? firstTime : secondTime;
+			storedRounds += (first == plain) ? secondTime : firstTime;
+
+			start = System.nanoTime();
+			double[] firstTimes = shoot(first, numberOfShots, new Random(repetition));
+			firstTime = System.nanoTime() - start;
+			start = System.nanoTime();
+			double[] secondTimes = shoot(second, numberOfShots, new Random(repetition));
+			secondTime = System.nanoTime() - start;
+			plainShots += (first == plain) ? firstTime : secondTime;
+			storedShots += (first == plain) ? secondTime : firstTime;
+			if (! Arrays.equals(firstTimes, secondTimes))
+				mismatches++;
+		}
+		Worm[] plainWorms = facade.getWorms(plain).toArray(new Worm[0]);
+		Worm[] storedWorms = facade.getWorms(stored).toArray(new Worm[0]);
+		for (int i = 0; i < plainWorms.length; i++)
+			if ((facade.getHitPoints(plainWorms[i]) != facade.getHitPoints(storedWorms[i]))
+					|| (facade.getActionPoints(plainWorms[i]) != facade.getActionPoints(storedWorms[i])))
+				mismatches++;
+
+		System.out.printf("%d worms   %d rounds: objects %5d ms store %4d ms (x%.1f)   %d flights: objects %5d ms store %4d ms (x%.1f)   mismatches %d%n",
+				plainWorms.length, numberOfRepetitions*numberOfRounds, plainRounds/1000000, storedRounds/1000000, (double) plainRounds/storedRounds,
+				numberOfRepetitions*numberOfShots, plainShots/1000000, storedShots/1000000, (double) plainShots/storedShots, mismatches);
+	}
+
+	/**
+	 * Returns a world of 400 by 40 meter with pixels of 0.25 meter, a floor of 1 meter and
+	 * two rows of platforms, with the given number of worms in the same places for each call.
+	 */
+	private static World createWorld(int numberOfWorms) {
+		boolean[][] passableMap = new boolean[160][1600];
+		for (int row = 0; row < 160; row++)
+			for (int column = 0; column < 1600; column++) {
+				boolean isFloor = (row >= 156);
+				boolean isPlatform = ((row == 100) || (row == 60)) && ((column/40) % 3 != 0);
+				passableMap[row][column] = ! (isFloor || isPlatform);
+			}
+		World world = facade.createWorld(400, 40, passableMap, new Random(3));
+		for (int i = 0; i < numberOfWorms; i++)
+			facade.addNewWorm(world);
+		return world;
+	}
+
+	/**
+	 * Ends the turn of every worm of the given world, the given number of times over.
+	 */
+	private static void playRounds(World world, int rounds) {
+		int turns = rounds*facade.getWorms(world).size();
+		for (int turn = 0; turn < turns; turn++)
+			facade.startNextTurn(world);
+	}
+
+	/**
+	 * Returns the times in the air of the given number of projectiles, each of the current worm
+	 * of the given world in a random direction, ending the turn of that worm after each projectile.
+	 */
+	private static double[] shoot(World world, int shots, Random random) {
+		double[] times = new double[shots];
+		for (int shot = 0; shot < shots; shot++) {
+			Worm shooter = facade.getCurrentWorm(world);
+			double angle = random.nextDouble()*Math.PI - facade.getOrientation(shooter);
+			if (facade.canTurn(shooter, angle))
+				facade.turn(shooter, angle);
+			Projectile projectile = facade.getActiveProjectile(world);
+			times[shot] = (projectile == null) ? -1 : facade.getJumpTime(projectile, 1e-5);
+			facade.startNextTurn(world);
+		}
+		return times;
+	}
+}
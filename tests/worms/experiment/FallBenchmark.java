@@ -0,0 +1,64 @@
+package worms.experiment;
+
+import java.io.File;
+import java.util.Random;
+
+import worms.gui.Level;
+import worms.model.Facade;
+import worms.model.IFacade;
+import worms.model.World;
+import worms.model.Worm;
+
+/**
+ * Compares the falls of worms, as resolved with the ground height index, with the step-by-step
+ * falls they replace on the bundled levels, both for their outcome and for their speed.
+ * Worms are dropped from random free locations. Run from the root of the project.
+ */
+public class FallBenchmark {
+
+	private static final String[] levels = { "Simple", "Skulls", "Skulls-lowres" };
+
+	private static final int numberOfFalls = 300;
+
+	private static final IFacade facade = new Facade();
+
+	public static void main(String[] args) {
+		for (String name : levels) {
+			Level level = new Level(new File("levels/" + name + ".lvl"));
+			level.load();
+			double width = level.getWorldWidth(), height = level.getWorldHeight();
+			World world = facade.createWorldFromTerrain(width, height, level.getTerrainMap(), new Random(3));
+			Random random = new Random(11);
+			long stepped = 0, indexed = 0;
+			int falls = 0, mismatches = 0;
+			boolean warmedUp = false;
+			while (falls < numberOfFalls) {
+				double radius = 0.25 + 0.25*random.nextDouble();
+				double x = radius*1.1 + (width - 2.2*radius)*random.nextDouble();
+				double y = radius*1.1 + (height - 2.2*radius)*random.nextDouble();
+				if (facade.isImpassable(world, x, y, 1.1*radius))
+					continue;
+				Worm worm = facade.createWorm(world, x, y, 0, radius, "Faller");
+				if (! warmedUp) {
+					// The first fall builds the index.
+					facade.fall(worm);
+					warmedUp = true;
+					continue;
+				}
+				falls++;
+				long start = System.nanoTime();
+				double expected = y;
+				for (double Y = y; (! facade.isAdjacent(world, x, expected, radius)) && (Y > -0.1*radius); Y = Y - 0.02*radius)
+					expected = Y;
+				stepped += System.nanoTime() - start;
+				start = System.nanoTime();
+				facade.fall(worm);
+				indexed += System.nanoTime() - start;
+				if (facade.isAlive(worm) ? (facade.getY(worm) != expected) : (expected >= 0))
+					mismatches++;
+			}
+			System.out.printf("%-14s %d falls: stepped %6d ms indexed %5d ms (x%.1f)   mismatches %d%n",
+					name, falls, stepped/1000000, indexed/1000000, (double) stepped/indexed, mismatches);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package worms.experiment;
+
+import java.io.File;
+import java.util.Random;
+
+import worms.gui.Level;
+import worms.model.Facade;
+import worms.model.IFacade;
+import worms.model.World;
+
+/**
+ * Compares the area queries of a world with the polar sampler they replace on the bundled levels,
+ * both for their answers and for their speed. Run from the root of the project.
+ */
+public class IsPassableAreaBenchmark {
+
+	private static final String[] levels = { "Simple", "Skulls", "Skulls-lowres" };
+
+	private static final int numberOfQueries = 50000;
+
+	private static final IFacade facade = new Facade();
+
+	public static void main(String[] args) {
+		for (String name : levels) {
+			Level level = new Level(new File("levels/" + name + ".lvl"));
+			level.load();
+			World world = facade.createWorldFromTerrain(level.getWorldWidth(), level.getWorldHeight(), level.getTerrainMap(), new Random(3));
+			double[][] queries = createQueries(world, level, new Random(7));
+
+			boolean[] expected = new boolean[numberOfQueries];
+			long start = System.nanoTime();
+			for (int i = 0; i < numberOfQueries; i++)
+				expected[i] = isPassableAreaSampled(world, level, queries[i][0], queries[i][1], queries[i][2]);
+			long sampled = System.nanoTime() - start;
+
+			int mismatches = 0;
+			start = System.nanoTime();
+			for (int i = 0; i < numberOfQueries; i++)
+				if (facade.isImpassable(world, queries[i][0], queries[i][1], queries[i][2]) == expected[i])
+					mismatches++;
+			long scanned = System.nanoTime() - start;
+
+			facade.enableImpassableCounts(world);
+			start = System.nanoTime();
+			for (int i = 0; i < numberOfQueries; i++)
+				if (facade.isImpassable(world, queries[i][0], queries[i][1], queries[i][2]) == expected[i])
+					mismatches++;
+			long counted = System.nanoTime() - start;
+
+			facade.enableDistanceField(world);
+			start = System.nanoTime();
+			for (int i = 0; i < numberOfQueries; i++)
+				if (facade.isImpassable(world, queries[i][0], queries[i][1], queries[i][2]) == expected[i])
+					mismatches++;
+			long field = System.nanoTime() - start;
+
+			System.out.printf("%-14s sampler %6d ms   kernel %5d ms (x%.1f)   with counts %5d ms (x%.1f)   field %5d ms (x%.1f)   mismatches %d%n",
+					name, sampled / 1000000, scanned / 1000000, (double) sampled / scanned,
+					counted / 1000000, (double) sampled / counted, field / 1000000, (double) sampled / field, mismatches);
+		}
+	}
+
+	/**
+	 * Half of the queries are spread uniformly over the world, the other half are
+	 * worm-sized areas on the surface of the terrain, where the answers are hardest.
+	 */
+	private static double[][] createQueries(World world, Level level, Random random) {
+		double[][] queries = new double[numberOfQueries][];
+		for (int i = 0; i < numberOfQueries; i++) {
+			double x = random.nextDouble() * level.getWorldWidth();
+			double y = random.nextDouble() * level.getWorldHeight();
+			double radius = 0.25 + random.nextInt(4) * 0.1;
+			if (i % 2 == 1) {
+				while (facade.isImpassable(world, x, y, radius) && y + 0.1 + radius < level.getWorldHeight())
+					y += 0.1;
+				while (! facade.isImpassable(world, x, y - 0.01, radius) && y - 0.01 - radius > 0)
+					y -= 0.01;
+				radius *= 1.1;
+			}
+			queries[i] = new double[] { x, y, radius };
+		}
+		return queries;
+	}
+
+	/**
+	 * The polar sampler as the world implemented its area queries before the disk kernel.
+	 */
+	private static boolean isPassableAreaSampled(World world, Level level, double x, double y, double radius) {
+		double pixelHeight = level.getWorldHeight()/level.getMapHeight();
+		double pixelWidth = level.getWorldWidth()/level.getMapWidth();
+		double step = 0.5*Math.min(pixelHeight, pixelWidth);
+		if ((x - radius < 0) || (x + radius > level.getWorldWidth()) || (y - radius < 0) || (y + radius > level.getWorldHeight()))
+			return false;
+		for (double distance=0.999*radius; distance>0; distance = distance - step)
+			for (double angle=0; angle<=2*Math.PI; angle = angle + step/distance) {
+				double sampleX = x+Math.sin(angle)*distance;
+				double sampleY = y+Math.cos(angle)*distance;
+				if (! facade.isPassablePixel(world, level.getMapHeight()-1-(int)(sampleY/pixelHeight), (int)(sampleX/pixelWidth)))
+					return false;
+			}
+		return true;
+	}
+}
@@ -0,0 +1,100 @@
+package worms.experiment;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+
+import worms.gui.Level;
+import worms.model.TerrainMap;
+
+/**
+ * Compares the single-threaded and the parallel decoding of map images into terrain maps,
+ * on the bundled levels scaled up by whole factors, and times the first start of each level,
+ * which decodes its map image and writes its compiled terrain, against a later start, which
+ * reads that compiled terrain. Run from the root of the project.
+ */
+public class LevelDecodeBenchmark {
+
+	private static final String[] levels = { "Simple", "Skulls", "Skulls-lowres" };
+
+	private static final int[] factors = { 1, 2, 4 };
+
+	private static final int repetitions = 5;
+
+	public static void main(String[] args) {
+		System.out.println("Threads: " + Runtime.getRuntime().availableProcessors());
+		for (String name : levels) {
+			long cold = Long.MAX_VALUE;
+			long warm = Long.MAX_VALUE;
+			for (int i = 0; i < repetitions; i++) {
+				new File("levels/" + name + ".terrain").delete();
+				cold = Math.min(cold, timeStart(name));
+				warm = Math.min(warm, timeStart(name));
+			}
+			System.out.printf("%-14s first start %6.1f ms   later start %6.1f ms%n", name, cold/1e6, warm/1e6);
+		}
+		for (String name : levels) {
+			Level level = new Level(new File("levels/" + name + ".lvl"));
+			level.load();
+			for (int factor : factors) {
+				BufferedImage image = scale(level.getMapImage(), factor);
+				long sequential = Long.MAX_VALUE;
+				long parallel = Long.MAX_VALUE;
+				TerrainMap expected = null;
+				TerrainMap actual = null;
+				for (int i = 0; i < repetitions; i++) {
+					long start = System.nanoTime();
+					expected = Level.decodeTerrainMap(image, false);
+					sequential = Math.min(sequential, System.nanoTime() - start);
+					start = System.nanoTime();
+					actual = Level.decodeTerrainMap(image, true);
+					parallel = Math.min(parallel, System.nanoTime() - start);
+				}
+				System.out.printf("%-14s x%d %6d x %-6d single %6.1f ms   parallel %6.1f ms (x%.1f)   %s%n",
+						name, factor, image.getWidth(), image.getHeight(), sequential/1e6, parallel/1e6,
+						(double) sequential/parallel, isEqual(expected, actual) ? "equal" : "DIFFERENT");
+			}
+		}
+	}
+
+	/**
+	 * Returns the time to load the level with the given name and to get its terrain map.
+	 */
+	private static long timeStart(String name) {
+		long start = System.nanoTime();
+		Level level = new Level(new File("levels/" + name + ".lvl"));
+		level.load();
+		level.getTerrainMap();
+		return System.nanoTime() - start;
+	}
+
+	private static BufferedImage scale(BufferedImage image, int factor) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		BufferedImage result = new BufferedImage(factor*width, factor*height, BufferedImage.TYPE_4BYTE_ABGR);
+		byte[] source = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		byte[] target = ((DataBufferByte) result.getRaster().getDataBuffer()).getData();
+		for (int row = 0; row < factor*height; row++)
+			for (int column = 0; column < factor*width; column++)
+				System.arraycopy(source, 4*((row/factor)*width + column/factor),
+						target, 4*(row*factor*width + column), 4);
+		return result;
+	}
+
+	private static boolean isEqual(TerrainMap first, TerrainMap second) {
+		for (int row = 0; row < first.getHeightInPixels(); row++) {
+			int column = 0;
+			while (column >= 0) {
+				int next = first.nextPassable(row, column);
+				if (second.nextPassable(row, column) != next)
+					return false;
+				if (next < 0)
+					break;
+				column = first.nextImpassable(row, next);
+				if (second.nextImpassable(row, next) != column)
+					return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,134 @@
+package worms.experiment;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import worms.gui.Level;
+import worms.model.Facade;
+import worms.model.IFacade;
+import worms.model.MovePlanner;
+import worms.model.World;
+import worms.model.Worm;
+
+/**
+ * Compares the moves chosen by the move planner with the direction sweep it replaces on the
+ * bundled levels, both for their answers and for their speed. Each move is made by a new worm
+ * with all its action points, in a random direction, at the place of one of the worms of the level,
+ * so that no move is bounded by the action points of the worm. Both count their terrain queries:
+ * the planner also counts the clearances it looks up, with which it skips the terrain queries of
+ * candidates near a position that is certainly not adjacent. It only does so in a world with a
+ * distance field, which a world does not have unless it is enabled, so each level is run once
+ * without and once with a distance field. Run from the root of the project, optionally with the
+ * number of candidates from which the planner searches in parallel.
+ */
+public class MoveBenchmark {
+
+	private static final String[] levels = { "Simple", "Skulls", "Skulls-lowres" };
+
+	private static final int numberOfWorms = 20;
+
+	private static final int numberOfMoves = 200;
+
+	private static final IFacade facade = new Facade();
+
+	private static long sweptQueries;
+
+	public static void main(String[] args) {
+		if (args.length > 0)
+			MovePlanner.setParallelThreshold(Integer.parseInt(args[0]));
+		for (String name : levels) {
+			Level level = new Level(new File("levels/" + name + ".lvl"));
+			level.load();
+			World world = facade.createWorldFromTerrain(level.getWorldWidth(), level.getWorldHeight(), level.getTerrainMap(), new Random(3));
+			for (int i = 0; i < numberOfWorms; i++)
+				facade.addNewWorm(world);
+			List<Worm> worms = new ArrayList<Worm>(facade.getWorms(world));
+			compare(name + " kernel", world, worms);
+			facade.enableDistanceField(world);
+			compare(name + " field", world, worms);
+		}
+	}
+
+	/**
+	 * Compares the sweep with the planner for moves from the places of the given worms of the given world.
+	 */
+	private static void compare(String name, World world, List<Worm> worms) {
+		Random random = new Random(11);
+		long swept = 0, planned = 0;
+		sweptQueries = 0;
+		long plannedQueries = MovePlanner.getTotalTerrainQueries(), plannedClearances = MovePlanner.getTotalClearanceQueries();
+		int mismatches = 0;
+		for (int i = 0; i < numberOfMoves; i++) {
+			Worm place = worms.get(random.nextInt(worms.size()));
+			Worm worm = facade.createWorm(world, facade.getX(place), facade.getY(place), random.nextDouble()*2*Math.PI,
+					facade.getRadius(place), "Mover");
+			long start = System.nanoTime();
+			double[] expected = getMoveSwept(world, worm);
+			swept += System.nanoTime() - start;
+			double x = facade.getX(worm), y = facade.getY(worm), radius = facade.getRadius(worm);
+			start = System.nanoTime();
+			boolean canMove = facade.canMove(worm);
+			planned += System.nanoTime() - start;
+			if (canMove != (expected[0] > 0))
+				mismatches++;
+			else if (canMove) {
+				facade.move(worm);
+				if ((facade.getX(worm) != x + radius*expected[0]*Math.cos(expected[1]))
+						|| (facade.getY(worm) != y + radius*expected[0]*Math.sin(expected[1])))
+					mismatches++;
+			}
+		}
+		plannedQueries = MovePlanner.getTotalTerrainQueries() - plannedQueries;
+		plannedClearances = MovePlanner.getTotalClearanceQueries() - plannedClearances;
+		System.out.printf("%-21s sweep %6d ms planner %5d ms (x%.1f)   per move: terrain queries sweep %6.1f planner %5.1f, clearances planner %5.1f   mismatches %d%n",
+				name, swept/1000000, planned/1000000, (double) swept/planned, (double) sweptQueries/numberOfMoves,
+				(double) plannedQueries/numberOfMoves, (double) plannedClearances/numberOfMoves, mismatches);
+	}
+
+	/**
+	 * The sweep with which worms chose their move before the planner, as steps and direction.
+	 */
+	private static double[] getMoveSwept(World world, Worm worm) {
+		double maxSuccesOfMoveValue = 0.0;
+		double toBeExecutedDirection = facade.getOrientation(worm);
+		double toBeExecutedSteps = 0.0;
+		for (double direction = facade.getOrientation(worm)-0.7875; direction <= facade.getOrientation(worm)+0.7875; direction = direction + 0.0175) {
+			double possibleMaxSuccesOfMoveValue = Math.abs(getMaxCoverableDistance(world, worm, direction, true)/(Math.abs(direction-facade.getOrientation(worm))+0.5));
+			if (maxSuccesOfMoveValue < possibleMaxSuccesOfMoveValue) {
+				maxSuccesOfMoveValue = possibleMaxSuccesOfMoveValue;
+				toBeExecutedSteps = getMaxCoverableDistance(world, worm, direction, true);
+				toBeExecutedDirection = direction;
+			}
+		}
+		if (toBeExecutedSteps > 0.0)
+			return new double[] { toBeExecutedSteps, toBeExecutedDirection };
+		for (double direction = facade.getOrientation(worm)-0.7875; direction <= facade.getOrientation(worm)+0.7875; direction = direction + 0.0175) {
+			double possibleMaxSuccesOfMoveValue = Math.abs(getMaxCoverableDistance(world, worm, direction, false)/(Math.abs(direction-facade.getOrientation(worm))+0.5));
+			if (maxSuccesOfMoveValue < possibleMaxSuccesOfMoveValue) {
+				maxSuccesOfMoveValue = possibleMaxSuccesOfMoveValue;
+				toBeExecutedSteps = getMaxCoverableDistance(world, worm, direction, false);
+				toBeExecutedDirection = direction;
+			}
+		}
+		return new double[] { toBeExecutedSteps, toBeExecutedDirection };
+	}
+
+	/**
+	 * The distance a worm could cover in the given direction before the planner, counting the terrain queries.
+	 * A worm with all its action points can afford every such move.
+	 */
+	private static double getMaxCoverableDistance(World world, Worm worm, double direction, boolean adjacent) {
+		double radius = facade.getRadius(worm);
+		for (double steps = 1.0; steps >= 0.1/radius; steps = steps - 0.1) {
+			double x = facade.getX(worm)+Math.cos(direction)*steps*radius;
+			double y = facade.getY(worm)+Math.sin(direction)*steps*radius;
+			sweptQueries++;
+			boolean valid = adjacent ? facade.isAdjacent(world, x, y, radius) : ! facade.isImpassable(world, x, y, radius);
+			if (valid)
+				return steps;
+		}
+		return 0.0;
+	}
+}
@@ -0,0 +1,150 @@
+package worms.experiment;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import worms.gui.Level;
+import worms.model.Facade;
+import worms.model.IFacade;
+import worms.model.Projectile;
+import worms.model.World;
+import worms.model.Worm;
+
+/**
+ * Compares the time in the air of worm jumps and projectiles, as computed by the
+ * clearance-stepping integrator, with the fixed-step loops it replaces on the bundled
+ * levels, both for its answers and for its speed. Worms jump as new worms with all their
+ * action points, at the place of one of the worms of the level, and the worms of the level
+ * shoot in turn. Run from the root of the project.
+ */
+public class TrajectoryBenchmark {
+
+	private static final String[] levels = { "Simple", "Skulls", "Skulls-lowres" };
+
+	private static final int numberOfWorms = 20;
+
+	private static final int numberOfJumps = 100;
+
+	private static final IFacade facade = new Facade();
+
+	public static void main(String[] args) {
+		for (String name : levels) {
+			Level level = new Level(new File("levels/" + name + ".lvl"));
+			level.load();
+			World world = facade.createWorldFromTerrain(level.getWorldWidth(), level.getWorldHeight(), level.getTerrainMap(), new Random(3));
+			for (int i = 0; i < numberOfWorms; i++)
+				facade.addNewWorm(world);
+			List<Worm> worms = new ArrayList<Worm>(facade.getWorms(world));
+			Random random = new Random(11);
+			long fixedWorm = 0, adaptiveWorm = 0, fixedProjectile = 0, adaptiveProjectile = 0;
+			int mismatches = 0;
+			for (int i = 0; i < numberOfJumps; i++) {
+				Worm place = worms.get(random.nextInt(worms.size()));
+				Worm worm = facade.createWorm(world, facade.getX(place), facade.getY(place), random.nextDouble()*Math.PI,
+						facade.getRadius(place), "Jumper");
+				long start = System.nanoTime();
+				double expected = getWormTimeFixed(level, world, worm, 1e-5);
+				fixedWorm += System.nanoTime() - start;
+				start = System.nanoTime();
+				double actual = facade.getJumpTime(worm, 1e-5);
+				adaptiveWorm += System.nanoTime() - start;
+				if (! (Math.abs(expected - actual) < 1e-3) && ! isSameLanding(facade.getJumpStep(worm, expected),
+						facade.getJumpStep(worm, actual), facade.getRadius(worm)))
+					mismatches++;
+
+				facade.startNextTurn(world);
+				Worm shooter = facade.getCurrentWorm(world);
+				if (random.nextBoolean())
+					facade.selectNextWeapon(shooter);
+				double angle = random.nextDouble()*Math.PI - facade.getOrientation(shooter);
+				if (! facade.canTurn(shooter, angle))
+					continue;
+				facade.turn(shooter, angle);
+				Projectile projectile = facade.getActiveProjectile(world);
+				facade.shoot(shooter, random.nextInt(101));
+				if (facade.getCurrentWorm(world) != shooter)
+					continue;
+				start = System.nanoTime();
+				expected = getProjectileTimeFixed(level, world, projectile, shooter, 1e-6);
+				fixedProjectile += System.nanoTime() - start;
+				start = System.nanoTime();
+				actual = facade.getJumpTime(projectile, 1e-6);
+				adaptiveProjectile += System.nanoTime() - start;
+				if (! (Math.abs(expected - actual) < 1e-5) && ! isSameLanding(facade.getJumpStep(projectile, expected),
+						facade.getJumpStep(projectile, actual), facade.getRadius(projectile)))
+					mismatches++;
+			}
+			System.out.printf("%-14s worms: fixed %6d ms adaptive %5d ms (x%.1f)   projectiles: fixed %6d ms adaptive %5d ms (x%.1f)   mismatches %d%n",
+					name, fixedWorm/1000000, adaptiveWorm/1000000, (double) fixedWorm/adaptiveWorm,
+					fixedProjectile/1000000, adaptiveProjectile/1000000, (double) fixedProjectile/adaptiveProjectile, mismatches);
+		}
+	}
+
+	/**
+	 * Checks whether both given positions at the end of a jump are the same, with the tolerance of
+	 * the jump tests: a tenth of the given radius. Neither loop locates the contact exactly, and a
+	 * trajectory that grazes the terrain may be stopped a few steps apart by both.
+	 */
+	private static boolean isSameLanding(double[] expected, double[] actual, double radius) {
+		return Math.hypot(expected[0] - actual[0], expected[1] - actual[1]) <= 0.1*radius;
+	}
+
+	private static boolean isInWorld(Level level, double x, double y, double radius) {
+		return (x - radius >= 0) && (x + radius <= level.getWorldWidth()) && (y - radius >= 0) && (y + radius <= level.getWorldHeight());
+	}
+
+	/**
+	 * The fixed-step loop with which the time in the air of worms was computed before the integrator.
+	 */
+	private static double getWormTimeFixed(Level level, World world, Worm worm, double step) {
+		double time = 0.0;
+		double radius = facade.getRadius(worm);
+		boolean hasLanded = false;
+		step = 100.0*step;
+		for (double t = step; (! hasLanded) ; t = t + step) {
+			double[] position = facade.getJumpStep(worm, t);
+			if (! facade.isImpassable(world, position[0], position[1], radius))
+				time = t;
+			else if (! isInWorld(level, position[0], position[1], radius)) {
+				time = time+0.20;
+				hasLanded = true;
+			}
+			else
+				hasLanded = true;
+		}
+		return time;
+	}
+
+	/**
+	 * The fixed-step loop with which the time in the air of projectiles was computed before the integrator,
+	 * testing the worms other than the given shooter at the sampled positions.
+	 */
+	private static double getProjectileTimeFixed(Level level, World world, Projectile projectile, Worm shooter, double step) {
+		double time = 0.0;
+		double radius = facade.getRadius(projectile);
+		step = 10.0*step;
+		boolean hasLanded = false;
+		for (double t = step; (! hasLanded) ; t = t + step) {
+			double[] position = facade.getJumpStep(projectile, t);
+			if ((! facade.isImpassable(world, position[0], position[1], radius))
+					&& ! overlapsWorm(world, shooter, position[0], position[1], radius))
+				time = t;
+			else if (! isInWorld(level, position[0], position[1], radius)) {
+				time = time+0.20;
+				hasLanded = true;
+			}
+			else
+				hasLanded = true;
+		}
+		return time;
+	}
+
+	private static boolean overlapsWorm(World world, Worm shooter, double x, double y, double radius) {
+		for (Worm worm : facade.getWorms(world))
+			if ((worm != shooter) && (Math.hypot(x - facade.getX(worm), y - facade.getY(worm)) < radius + facade.getRadius(worm)))
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,118 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChunkedTerrainMapTest {
+
+	private TerrainMap reference;
+	private Map<String, TerrainMap> stored;
+	private int loads;
+	private ChunkedTerrainMap chunked;
+
+	@Before
+	public void setUp() {
+		// 300 by 200 pixels: rolling hills with a few caves, cut into chunks of 64 pixels.
+		reference = new TerrainMap(300, 200);
+		Random random = new Random(37);
+		for (int row = 0; row < 200; row++)
+			for (int column = 0; column < 300; column++)
+				reference.setPassable(row, column, (row < 100 + 30*Math.sin(column/25.0)) || (random.nextInt(30) == 0));
+		stored = new HashMap<String, TerrainMap>();
+		loads = 0;
+		chunked = new ChunkedTerrainMap(300, 200, 64, 3, new TerrainChunkSource() {
+
+			public void loadChunk(int firstRow, int firstColumn, TerrainMap chunk) {
+				loads++;
+				TerrainMap copy = stored.get(firstRow + "," + firstColumn);
+				for (int row = 0; row < chunk.getHeightInPixels(); row++)
+					for (int column = 0; column < chunk.getWidthInPixels(); column++)
+						chunk.setPassable(row, column, (copy != null) ? copy.isPassable(row, column)
+								: reference.isPassable(firstRow + row, firstColumn + column));
+			}
+
+			public void storeChunk(int firstRow, int firstColumn, TerrainMap chunk) {
+				stored.put(firstRow + "," + firstColumn, chunk);
+			}
+		});
+	}
+
+	@Test
+	public void testPixels() {
+		for (int row = 0; row < 200; row++)
+			for (int column = 0; column < 300; column++)
+				assertEquals(reference.isPassable(row, column), chunked.isPassable(row, column));
+		assertEquals(3, chunked.getNumberOfLoadedChunks());
+		assertFalse(chunked.hasWordBuffer());
+	}
+
+	@Test
+	public void testRuns() {
+		Random random = new Random(41);
+		for (int i = 0; i < 2000; i++) {
+			int row = random.nextInt(200);
+			int from = random.nextInt(300);
+			int to = from + random.nextInt(300 - from);
+			assertEquals(reference.isPassableRun(row, from, to), chunked.isPassableRun(row, from, to));
+			assertEquals(reference.countImpassable(row, from, to), chunked.countImpassable(row, from, to));
+			assertEquals(reference.nextImpassable(row, from), chunked.nextImpassable(row, from));
+			assertEquals(reference.nextPassable(row, from), chunked.nextPassable(row, from));
+		}
+	}
+
+	@Test
+	public void testChangesSurviveEviction() {
+		chunked.setPassableRun(150, 10, 250, true);
+		for (int row = 0; row < 200; row++)
+			chunked.isPassable(row, 299);
+		for (int column = 10; column <= 250; column++)
+			assertTrue(chunked.isPassable(150, column));
+		assertFalse(stored.isEmpty());
+		assertTrue(loads > 6);
+	}
+
+	@Test
+	public void testWorld() {
+		World world = new World(30, 20, reference, new Random(3));
+		World chunkedWorld = new World(30, 20, chunked, new Random(3));
+		assertNull(chunkedWorld.getOccupancy());
+		chunkedWorld.enableDistanceField();
+		assertFalse(chunkedWorld.hasDistanceField());
+		Random random = new Random(43);
+		for (int i = 0; i < 2000; i++) {
+			double x = 30*random.nextDouble();
+			double y = 20*random.nextDouble();
+			double radius = 0.05 + 2*random.nextDouble();
+			assertEquals(world.isPassableArea(x, y, radius), chunkedWorld.isPassableArea(x, y, radius));
+		}
+	}
+
+	@Test
+	public void testPlacingWormsLoadsFewChunks() {
+		World chunkedWorld = new World(30, 20, chunked, new Random(3));
+		assertNull(chunkedWorld.getSurfacePointIndex(0.3));
+		for (int attempt = 0; attempt < 5; attempt++) {
+			int loadsBefore = loads;
+			try {
+				chunkedWorld.addWorm();
+			} catch (ModelException exc) {
+				// A walk towards the center may miss the surface.
+			}
+			// Indexing the surface would load each of the 20 chunks.
+			assertTrue(loads - loadsBefore < 20);
+		}
+		for (Worm worm : chunkedWorld.getAllWorms())
+			assertTrue(chunkedWorld.isAdjacent(worm.getCoordinateX(), worm.getCoordinateY(), worm.getRadius()));
+	}
+
+	@Test(expected = ModelException.class)
+	public void testIllegalChunkSize() {
+		new ChunkedTerrainMap(300, 200, 100, 3, null);
+	}
+}
@@ -0,0 +1,58 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DiskKernelTest {
+
+	@Test(expected = ModelException.class)
+	public void testConstructorIllegalRadius() {
+		new DiskKernel(0, 0.1, 0.1, 0.05);
+	}
+
+	@Test
+	public void testCoreWithinReach() {
+		DiskKernel kernel = new DiskKernel(1, 0.1, 0.1, 0.05);
+		assertTrue(kernel.getCoreRows() < kernel.getReachRows());
+		for (int row = -kernel.getCoreRows(); row <= kernel.getCoreRows(); row++) {
+			assertTrue(kernel.getCoreHalfWidth(row) <= kernel.getReachHalfWidth(row));
+			assertTrue(kernel.getHoleHalfWidth(row) <= kernel.getCoreHalfWidth(row));
+		}
+		assertEquals(kernel.getReachHalfWidth(3), kernel.getReachHalfWidth(-3));
+		assertTrue(kernel.getHoleHalfWidth(0) >= 0);
+	}
+
+	@Test
+	public void testIsPassableAreaSameAsSampling() {
+		boolean[][] passableMap = new boolean[60][60];
+		Random random = new Random(11);
+		for (int row = 0; row < 60; row++)
+			for (int column = 0; column < 60; column++)
+				passableMap[row][column] = random.nextInt(100) != 0;
+		World world = new World(6, 6, passableMap, new Random(3));
+		for (int i = 0; i < 3000; i++) {
+			double x = 6*random.nextDouble();
+			double y = 6*random.nextDouble();
+			double radius = 0.05 + random.nextDouble();
+			assertEquals(isPassableAreaSampled(world, x, y, radius), world.isPassableArea(x, y, radius));
+		}
+	}
+
+	private static boolean isPassableAreaSampled(World world, double x, double y, double radius) {
+		double step = 0.5*Math.min(world.getHeight()/(1.0*world.getHeightInPixels()), world.getWidth()/(1.0*world.getWidthInPixels()));
+		if (! world.isInWorld(x, y, radius))
+			return false;
+		double pixelSize = world.getWidth()/world.getWidthInPixels();
+		for (double distance=0.999*radius; distance>0; distance = distance - step)
+			for (double angle=0; angle<=2*Math.PI; angle = angle + step/distance) {
+				double sampleX = x+Math.sin(angle)*distance;
+				double sampleY = y+Math.cos(angle)*distance;
+				if (! world.isPassablePixel(59-(int)(sampleY/pixelSize), (int)(sampleX/pixelSize)))
+					return false;
+			}
+		return true;
+	}
+}
@@ -0,0 +1,61 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DistanceFieldTest {
+
+	private boolean[][] passableMap;
+	private World world;
+	private World worldWithField;
+
+	@Before
+	public void setUp() {
+		// 40 by 40 pixels of 0.1 meter, with a floor and a block in the middle.
+		passableMap = new boolean[40][40];
+		for (int row = 0; row < 40; row++)
+			for (int column = 0; column < 40; column++)
+				passableMap[row][column] = (row < 35) && ! ((row >= 15) && (row < 20) && (column >= 15) && (column < 20));
+		world = new World(4, 4, passableMap, new Random(3));
+		worldWithField = new World(4, 4, passableMap, new Random(3));
+		worldWithField.enableDistanceField();
+	}
+
+	@Test
+	public void testEnableDistanceField() {
+		assertFalse(world.hasDistanceField());
+		assertTrue(worldWithField.hasDistanceField());
+	}
+
+	@Test(expected = ModelException.class)
+	public void testConstructorIllegalPixelDimensions() {
+		new DistanceField(new TerrainMap(passableMap), 0, 0.1, 1);
+	}
+
+	@Test
+	public void testGetDistance() {
+		DistanceField field = new DistanceField(new TerrainMap(passableMap), 0.1, 0.1, 1);
+		assertEquals(0, field.getDistance(35, 3), 1e-6);
+		assertEquals(0, field.getDistance(17, 17), 1e-6);
+		assertEquals(0.1, field.getDistance(34, 3), 1e-6);
+		assertEquals(0.3, field.getDistance(17, 12), 1e-6);
+		assertEquals(Math.hypot(0.3, 0.3), field.getDistance(12, 12), 1e-6);
+		assertEquals(1, field.getDistance(0, 0), 1e-6);
+	}
+
+	@Test
+	public void testIsPassableAreaSameAsSampling() {
+		Random random = new Random(5);
+		for (int i = 0; i < 2000; i++) {
+			double x = 4*random.nextDouble();
+			double y = 4*random.nextDouble();
+			double radius = 0.05 + random.nextDouble();
+			assertEquals(world.isPassableArea(x, y, radius), worldWithField.isPassableArea(x, y, radius));
+			assertEquals(world.isAdjacent(x, y, radius), worldWithField.isAdjacent(x, y, radius));
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntityIndexTest {
+
+	private World world;
+	private Worm first;
+	private Worm second;
+
+	@Before
+	public void setUp() {
+		// Pixels of 1 meter, with a flat floor of 1 meter.
+		world = new World(10, 8, PassableMaps.withFloor(10, 8, 1), new Random(3));
+		first = new Worm(2, 1.3, 0, 0.3, "First", true, world);
+		world.addAsGameObject(first);
+		second = new Worm(6, 1.3, 0, 0.3, "Second", true, world);
+		world.addAsGameObject(second);
+	}
+
+	@Test
+	public void testViewsFollowAdditionsAndRemovals() {
+		List<Worm> worms = world.getAllWorms();
+		List<Food> food = world.getAllFood();
+		assertSame(worms, world.getAllWorms());
+		assertEquals(2, worms.size());
+		assertSame(first, worms.get(0));
+		Food snack = new Food(4, 1.3, true, world);
+		world.addAsGameObject(snack);
+		assertEquals(1, food.size());
+		assertSame(snack, food.get(0));
+		assertEquals(2, worms.size());
+		world.removeAsGameObject(first);
+		assertEquals(1, worms.size());
+		assertSame(second, worms.get(0));
+		assertSame(second, world.getActiveWorm());
+		world.removeAsGameObject(snack);
+		assertTrue(food.isEmpty());
+	}
+
+	@Test
+	public void testProjectilesAreIndexed() {
+		Projectile projectile = first.getProjectile();
+		world.addAsGameObject(projectile);
+		assertEquals(1, world.getAllProjectiles().size());
+		assertSame(projectile, world.getAllProjectiles().get(0));
+		assertEquals(2, world.getAllWorms().size());
+		world.removeAsGameObject(projectile);
+		assertTrue(world.getAllProjectiles().isEmpty());
+	}
+
+	@Test
+	public void testHandlesAreStableAndReused() {
+		Food snack = new Food(4, 1.3, true, world);
+		world.addAsGameObject(snack);
+		int handle = second.getHandle();
+		assertSame(second, world.getGameObjectWithHandle(handle));
+		int firstHandle = first.getHandle();
+		world.removeAsGameObject(first);
+		assertEquals(-1, first.getHandle());
+		assertNull(world.getGameObjectWithHandle(firstHandle));
+		assertEquals(handle, second.getHandle());
+		assertSame(second, world.getGameObjectWithHandle(handle));
+		Food other = new Food(8, 1.3, true, world);
+		world.addAsGameObject(other);
+		assertEquals(firstHandle, other.getHandle());
+		assertTrue(snack.hasProperWorld() && other.hasProperWorld());
+	}
+
+	@Test
+	public void testTurnsFollowTheOrderOfAddition() {
+		Worm third = new Worm(8, 1.3, 0, 0.3, "Third", true, world);
+		world.addAsGameObject(third);
+		assertSame(first, world.getActiveWorm());
+		world.nextTurn();
+		assertSame(second, world.getActiveWorm());
+		// Removing another worm does not change the active worm.
+		world.removeAsGameObject(first);
+		assertSame(second, world.getActiveWorm());
+		world.nextTurn();
+		assertSame(third, world.getActiveWorm());
+		world.nextTurn();
+		assertSame(second, world.getActiveWorm());
+	}
+
+	@Test
+	public void testRemovingTheActiveWormPassesTheTurn() {
+		Worm third = new Worm(8, 1.3, 0, 0.3, "Third", true, world);
+		world.addAsGameObject(third);
+		world.removeAsGameObject(first);
+		assertSame(second, world.getActiveWorm());
+		world.nextTurn();
+		second.setHitPoints(second.getHitPoints() - 20);
+		int hitPoints = second.getHitPoints();
+		// The last worm of the round is removed during its turn, so a new round starts.
+		world.removeAsGameObject(third);
+		assertSame(second, world.getActiveWorm());
+		assertEquals(hitPoints + 10, second.getHitPoints());
+		world.removeAsGameObject(second);
+		assertTrue(world.getAllWorms().isEmpty());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testViewsAreReadOnly() {
+		world.getAllWorms().add(first);
+	}
+}
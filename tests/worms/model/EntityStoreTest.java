@@ -0,0 +1,251 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class EntityStoreTest {
+
+	/**
+	 * Returns a world of 40 by 20 meter with pixels of 0.5 meter and a flat floor of 1 meter,
+	 * with the given number of worms and food at the same places for the same seed.
+	 */
+	private static World createWorld(int numberOfWorms, boolean withStore) {
+		World world = new World(40, 20, PassableMaps.withFloor(80, 40, 2), new Random(3));
+		if (withStore)
+			world.enableEntityStore();
+		Random random = new Random(5);
+		for (int i = 0; i < numberOfWorms; i++) {
+			world.addAsGameObject(new Worm(1 + 38*random.nextDouble(), 2 + 17*random.nextDouble(), 0,
+					0.25 + 0.25*random.nextDouble(), "Crowd", true, world));
+			world.addAsGameObject(new Food(1 + 38*random.nextDouble(), 2 + 17*random.nextDouble(), true, world));
+		}
+		return world;
+	}
+
+	@Test
+	public void testEnablingKeepsState() {
+		World world = createWorld(20, false);
+		List<Worm> worms = world.getAllWorms();
+		worms.get(3).setHitPoints(17);
+		worms.get(4).setActionPoints(23);
+		double[][] before = new double[worms.size()][];
+		for (int i = 0; i < worms.size(); i++) {
+			Worm worm = worms.get(i);
+			before[i] = new double[] { worm.getCoordinateX(), worm.getCoordinateY(), worm.getRadius(),
+					worm.getHitPoints(), worm.getActionPoints(), worm.getStateVersion() };
+		}
+		world.enableEntityStore();
+		for (int i = 0; i < worms.size(); i++) {
+			Worm worm = worms.get(i);
+			assertSame(world.getEntityStore(), worm.getStore());
+			assertArrayEquals(before[i], new double[] { worm.getCoordinateX(), worm.getCoordinateY(), worm.getRadius(),
+					worm.getHitPoints(), worm.getActionPoints(), worm.getStateVersion() }, 0);
+		}
+		for (Food food : world.getAllFood())
+			assertEquals(EntityStore.FOOD, world.getEntityStore().getFlags(food.getHandle()));
+	}
+
+	@Test
+	public void testSettersWriteThroughAndRemovalCopiesBack() {
+		World world = createWorld(5, true);
+		EntityStore store = world.getEntityStore();
+		Worm worm = world.getAllWorms().get(2);
+		int handle = worm.getHandle();
+		worm.setCoordinates(12.5, 7.5);
+		worm.setRadius(0.4);
+		worm.setHitPoints(40);
+		worm.setActionPoints(30);
+		assertEquals(12.5, store.getX(handle), 0);
+		assertEquals(7.5, store.getY(handle), 0);
+		assertEquals(0.4, store.getRadius(handle), 0);
+		assertEquals(worm.getMaximumHitPoints(), store.getMaximumPoints(handle));
+		assertEquals(40, store.getHitPoints(handle));
+		assertEquals(30, store.getActionPoints(handle));
+		long stateVersion = worm.getStateVersion();
+		world.removeAsGameObject(worm);
+		assertNull(worm.getStore());
+		assertEquals(0, store.getFlags(handle));
+		assertEquals(12.5, worm.getCoordinateX(), 0);
+		assertEquals(7.5, worm.getCoordinateY(), 0);
+		assertEquals(0.4, worm.getRadius(), 0);
+		assertEquals(40, worm.getHitPoints());
+		assertEquals(30, worm.getActionPoints());
+		assertEquals(stateVersion, worm.getStateVersion());
+	}
+
+	@Test
+	public void testTeamIds() {
+		World world = new World(40, 20, PassableMaps.withFloor(80, 40, 2), new Random(3));
+		Worm loner = new Worm(5, 3, 0, 0.3, "Loner", true, world);
+		world.addAsGameObject(loner);
+		world.addTeam("Alpha");
+		world.addTeam("Beta");
+		for (int i = 0; i < 12; i++)
+			world.addWorm();
+		world.enableEntityStore();
+		EntityStore store = world.getEntityStore();
+		assertEquals(-1, store.getTeamId(loner.getHandle()));
+		Worm member = null;
+		for (Worm worm : world.getAllWorms()) {
+			assertEquals(world.getIndexOfTeam(worm.getTeam()), store.getTeamId(worm.getHandle()));
+			if (worm.getTeam() != null)
+				member = worm;
+		}
+		loner.joinTeam(member.getTeam());
+		assertTrue(store.getTeamId(loner.getHandle()) >= 0);
+		assertEquals(store.getTeamId(member.getHandle()), store.getTeamId(loner.getHandle()));
+	}
+
+	@Test
+	public void testRoundsMatchTheSetters() {
+		World plain = createWorld(30, false);
+		World stored = createWorld(30, true);
+		for (World world : new World[] { plain, stored }) {
+			List<Worm> worms = world.getAllWorms();
+			worms.get(1).setHitPoints(0);
+			worms.get(2).setHitPoints(5);
+			worms.get(3).setHitPoints(worms.get(3).getMaximumHitPoints() - 4);
+			worms.get(4).setActionPoints(1);
+			for (int turn = 0; turn < 2*worms.size() + 1; turn++)
+				world.nextTurn();
+		}
+		List<Worm> expected = plain.getAllWorms();
+		List<Worm> actual = stored.getAllWorms();
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getHitPoints(), actual.get(i).getHitPoints());
+			assertEquals(expected.get(i).getActionPoints(), actual.get(i).getActionPoints());
+			assertEquals(expected.get(i).getStateVersion(), actual.get(i).getStateVersion());
+		}
+		assertEquals(25, actual.get(2).getHitPoints());
+		assertTrue(actual.get(1).isAlive());
+		assertEquals(plain.isGameFinished(), stored.isGameFinished());
+		assertEquals(plain.getWinner(), stored.getWinner());
+	}
+
+	@Test
+	public void testFlightsMatchTheObjectPath() {
+		World plain = createWorld(400, false);
+		World stored = createWorld(400, true);
+		Random random = new Random(7);
+		for (int shot = 0; shot < 40; shot++) {
+			double direction = random.nextDouble()*Math.PI;
+			int yield = random.nextInt(101);
+			Object[] results = new Object[2];
+			double[] times = new double[2];
+			for (int i = 0; i < 2; i++) {
+				World world = (i == 0) ? plain : stored;
+				Projectile projectile = world.getActiveWorm().getProjectile();
+				projectile.setDirection(direction);
+				projectile.setYield(yield);
+				times[i] = projectile.getJumpRealTimeInAir(1e-5);
+				Worm target = projectile.getFirstWormHit(times[i]);
+				results[i] = (target == null) ? null : world.getAllWorms().indexOf(target);
+			}
+			assertEquals(times[0], times[1], 0);
+			assertEquals(results[0], results[1]);
+		}
+	}
+
+	@Test
+	public void testConcurrentQueries() throws InterruptedException {
+		final World world = createWorld(3000, true);
+		final double[][] rectangles = new double[200][];
+		final List<List<Worm>> expected = new ArrayList<List<Worm>>();
+		Random random = new Random(9);
+		for (int i = 0; i < rectangles.length; i++) {
+			double x = 40*random.nextDouble(), y = 20*random.nextDouble();
+			rectangles[i] = new double[] { x, y, x + 8*random.nextDouble(), y + 4*random.nextDouble() };
+			expected.add(world.getWormsInRectangle(rectangles[i][0], rectangles[i][1], rectangles[i][2], rectangles[i][3]));
+		}
+		final AtomicInteger mismatches = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int repetition = 0; repetition < 10; repetition++)
+						for (int i = 0; i < rectangles.length; i++) {
+							int index = (i + 37*offset) % rectangles.length;
+							double[] rectangle = rectangles[index];
+							if (! expected.get(index).equals(world.getWormsInRectangle(rectangle[0], rectangle[1], rectangle[2], rectangle[3])))
+								mismatches.incrementAndGet();
+						}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(0, mismatches.get());
+	}
+
+	@Test
+	public void testParallelShotsMatchSequentialShots() {
+		World world = createWorld(300, true);
+		Worm shooter = world.getActiveWorm();
+		if (! (shooter.getProjectile() instanceof Bazooka))
+			shooter.selectWeapon();
+		int threshold = ShotSolution.getParallelThreshold();
+		try {
+			for (int i = 1; i < 40; i += 3) {
+				Worm target = world.getAllWorms().get(i);
+				ShotSolution.setParallelThreshold(Integer.MAX_VALUE);
+				ShotSolution sequential = new ShotSolution(shooter, target);
+				ShotSolution.setParallelThreshold(0);
+				ShotSolution parallel = new ShotSolution(shooter, target);
+				assertEquals(sequential.getYield(), parallel.getYield());
+				assertEquals(sequential.getDirection(), parallel.getDirection(), 0);
+				if (parallel.isFound())
+					assertSame(target, parallel.getShot(parallel.getDirection(), parallel.getYield()).getJumpTarget());
+			}
+		} finally {
+			ShotSolution.setParallelThreshold(threshold);
+		}
+	}
+
+	@Test
+	public void testRectanglesMatchAScan() {
+		World plain = createWorld(500, false);
+		World stored = createWorld(500, true);
+		Random random = new Random(11);
+		for (int i = 0; i < 100; i++) {
+			// Few small rectangles are answered from the grid, many large ones by a scan.
+			double[][] rectangles = new double[1 + random.nextInt(4)][];
+			double size = (i % 2 == 0) ? 3 : 30;
+			for (int j = 0; j < rectangles.length; j++) {
+				double x = 44*random.nextDouble() - 2, y = 24*random.nextDouble() - 2;
+				rectangles[j] = new double[] { x, y, x + size*random.nextDouble(), y + size*random.nextDouble() };
+			}
+			List<Worm> expected = new ArrayList<Worm>();
+			for (Worm worm : plain.getAllWorms())
+				if ((worm != plain.getActiveWorm())
+						&& World.touchesAny(worm.getCoordinateX(), worm.getCoordinateY(), worm.getRadius(), rectangles))
+					expected.add(worm);
+			assertEquals(expected, plain.getWormsInRectangles(rectangles));
+			List<Worm> actual = stored.getWormsInRectangles(rectangles);
+			assertEquals(expected.size(), actual.size());
+			for (int j = 0; j < actual.size(); j++)
+				assertEquals(plain.getAllWorms().indexOf(expected.get(j)), stored.getAllWorms().indexOf(actual.get(j)));
+		}
+	}
+
+	@Test
+	public void testWormsNearFlightIncludeEveryHit() {
+		World world = createWorld(400, true);
+		Projectile projectile = world.getActiveWorm().getProjectile();
+		projectile.setDirection(1.0);
+		List<Worm> near = projectile.getWormsNearFlight(2.0);
+		assertTrue(near.size() < world.getAllWorms().size() - 1);
+		assertFalse(near.contains(world.getActiveWorm()));
+		for (Worm worm : world.getAllWorms())
+			if ((worm != world.getActiveWorm()) && (projectile.getWormHitTime(worm, 2.0) <= 2.0))
+				assertTrue(near.contains(worm));
+	}
+}
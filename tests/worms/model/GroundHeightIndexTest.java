@@ -0,0 +1,95 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroundHeightIndexTest {
+
+	private boolean[][] passableMap;
+	private World world;
+
+	@Before
+	public void setUp() {
+		// 120 by 100 pixels of 0.1 meter, with random blocks in the air above a floor.
+		Random random = new Random(17);
+		passableMap = new boolean[100][120];
+		for (int row = 0; row < 100; row++)
+			for (int column = 0; column < 120; column++)
+				passableMap[row][column] = (row < 90);
+		for (int block = 0; block < 25; block++) {
+			int top = random.nextInt(80);
+			int left = random.nextInt(110);
+			int height = 1 + random.nextInt(6);
+			int width = 1 + random.nextInt(10);
+			for (int row = top; row < top + height; row++)
+				for (int column = left; column < left + width; column++)
+					passableMap[row][column] = false;
+		}
+		world = new World(12, 10, passableMap, new Random(3));
+	}
+
+	private int getGroundRow(int row, int column) {
+		for (int ground = row; ground < passableMap.length; ground++)
+			if (! passableMap[ground][column])
+				return ground;
+		return -1;
+	}
+
+	@Test
+	public void testGroundRows() {
+		GroundHeightIndex index = world.getGroundHeightIndex();
+		for (int column = 0; column < 120; column++)
+			for (int row = 0; row < 100; row++)
+				assertEquals(getGroundRow(row, column), index.getGroundRow(row, column));
+	}
+
+	@Test
+	public void testUpdatedAfterCrater() {
+		GroundHeightIndex index = world.getGroundHeightIndex();
+		world.removeTerrain(6, 1, 1.5);
+		for (int row = 0; row < 100; row++)
+			for (int column = 0; column < 120; column++)
+				passableMap[row][column] = world.isPassablePixel(row, column);
+		for (int column = 0; column < 120; column++)
+			for (int row = 0; row < 100; row++)
+				assertEquals(getGroundRow(row, column), index.getGroundRow(row, column));
+	}
+
+	@Test
+	public void testLowestFreeHeightIsPassable() {
+		Random random = new Random(5);
+		for (int i = 0; i < 300; i++) {
+			double x = 0.5 + 11*random.nextDouble();
+			double y = 0.5 + 9*random.nextDouble();
+			double radius = 0.25 + 0.5*random.nextDouble();
+			double lowest = world.getLowestFreeHeight(x, y, radius);
+			for (double height = y; height >= lowest; height -= 0.01)
+				if (world.isInWorld(x, height, radius))
+					assertTrue(world.isPassableArea(x, height, radius));
+		}
+	}
+
+	@Test
+	public void testFallAsBefore() {
+		Random random = new Random(9);
+		for (int i = 0; i < 100; i++) {
+			Worm worm = new Worm(0.5 + 11*random.nextDouble(), 1 + 8.5*random.nextDouble(), 0, 0.25 + 0.3*random.nextDouble(), "Faller", true, world);
+			if (! worm.canFall())
+				continue;
+			double radius = worm.getRadius();
+			double startY = worm.getCoordinateY();
+			double expected = startY;
+			for (double y = startY; worm.canFall(worm.getCoordinateX(), expected) && (y > -0.1*radius); y = y - world.getStep(radius))
+				expected = y;
+			worm.fall();
+			if (worm.getStatus())
+				assertEquals(expected, worm.getCoordinateY(), 0);
+			else
+				assertTrue(expected < 0);
+		}
+	}
+}
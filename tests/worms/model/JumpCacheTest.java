@@ -0,0 +1,97 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class JumpCacheTest {
+
+	private World world;
+	private Worm worm;
+
+	@Before
+	public void setUp() {
+		// Pixels of 0.5 meter, with a flat floor of 1 meter and a wall of 1 meter on the right.
+		world = new World(10, 8, PassableMaps.block(PassableMaps.withFloor(20, 16, 2), 0, 16, 18, 20), new Random(3));
+		worm = new Worm(2, 1.3, Math.PI/4, 0.3, "Cached", true, world);
+		world.addAsGameObject(worm);
+	}
+
+	@Test
+	public void testRepeatedCallsAreCached() {
+		double time = worm.getJumpRealTimeInAir(1e-4);
+		long stateVersion = worm.getStateVersion();
+		assertEquals(time, worm.getJumpRealTimeInAir(1e-4), 0);
+		assertEquals(time, worm.computeJumpRealTimeInAir(1e-4), 0);
+		assertEquals(stateVersion, worm.getStateVersion());
+		double[] landing = worm.getJumpLandingPosition(1e-4);
+		assertArrayEquals(worm.getJumpStep(time), landing, 0);
+		landing[0] = -1;
+		assertArrayEquals(worm.getJumpStep(time), worm.getJumpLandingPosition(1e-4), 0);
+	}
+
+	@Test
+	public void testStepIsPartOfTheKey() {
+		worm.getJumpRealTimeInAir(1e-4);
+		assertEquals(worm.computeJumpRealTimeInAir(1e-5), worm.getJumpRealTimeInAir(1e-5), 0);
+	}
+
+	@Test
+	public void testDirectionInvalidates() {
+		double time = worm.getJumpRealTimeInAir(1e-4);
+		worm.setDirection(Math.PI/3);
+		double newTime = worm.getJumpRealTimeInAir(1e-4);
+		assertTrue(time != newTime);
+		assertEquals(worm.computeJumpRealTimeInAir(1e-4), newTime, 0);
+	}
+
+	@Test
+	public void testActionPointsAndPositionInvalidate() {
+		double time = worm.getJumpRealTimeInAir(1e-4);
+		worm.setActionPoints(worm.getActionPoints()/2);
+		assertTrue(time != worm.getJumpRealTimeInAir(1e-4));
+		time = worm.getJumpRealTimeInAir(1e-4);
+		worm.setCoordinates(5, 1.3);
+		assertEquals(worm.computeJumpRealTimeInAir(1e-4), worm.getJumpRealTimeInAir(1e-4), 0);
+	}
+
+	@Test
+	public void testTerrainInvalidates() {
+		worm.setDirection(0.2);
+		double time = worm.getJumpRealTimeInAir(1e-4);
+		double[] landing = worm.getJumpLandingPosition(1e-4);
+		world.removeTerrain(landing[0], 1, 0.6);
+		double newTime = worm.getJumpRealTimeInAir(1e-4);
+		assertTrue(newTime > time);
+		assertEquals(worm.computeJumpRealTimeInAir(1e-4), newTime, 0);
+	}
+
+	@Test
+	public void testProjectileInvalidatedByWorms() {
+		Projectile projectile = worm.getProjectile();
+		double time = projectile.getJumpRealTimeInAir(1e-5);
+		long wormVersion = world.getWormVersion();
+		world.addAsGameObject(new Worm(4, 3.3, 0, 0.5, "Target", true, world));
+		assertTrue(world.getWormVersion() > wormVersion);
+		double newTime = projectile.getJumpRealTimeInAir(1e-5);
+		assertTrue(newTime < time);
+		assertEquals(projectile.computeJumpRealTimeInAir(1e-5), newTime, 0);
+	}
+
+	@Test
+	public void testYieldInvalidates() {
+		Projectile projectile = worm.getProjectile();
+		if (! (projectile instanceof Bazooka)) {
+			worm.selectWeapon();
+			projectile = worm.getProjectile();
+		}
+		projectile.setYield(0);
+		double time = projectile.getJumpRealTimeInAir(1e-5);
+		projectile.setYield(100);
+		assertEquals(projectile.computeJumpRealTimeInAir(1e-5), projectile.getJumpRealTimeInAir(1e-5), 0);
+		assertTrue(time != projectile.getJumpRealTimeInAir(1e-5));
+	}
+}
@@ -0,0 +1,189 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MovePlannerTest {
+
+	/**
+	 * The sweep with which worms chose their move before the planner, as steps and direction,
+	 * or null if the worm cannot move.
+	 */
+	private static double[] getMoveSwept(Worm worm) {
+		if (! canMoveSwept(worm))
+			return null;
+		double maxSuccesOfMoveValue = 0.0;
+		double toBeExecutedDirection = worm.getDirection();
+		double toBeExecutedSteps = 0.0;
+		for (double direction = worm.getDirection()-0.7875; direction <= worm.getDirection()+0.7875; direction = direction + 0.0175) {
+			double possibleMaxSuccesOfMoveValue = Math.abs(worm.getMaxCoverableDistanceAdjacent(direction)/(Math.abs(direction-worm.getDirection())+0.5));
+			if (maxSuccesOfMoveValue < possibleMaxSuccesOfMoveValue) {
+				maxSuccesOfMoveValue = possibleMaxSuccesOfMoveValue;
+				toBeExecutedSteps = worm.getMaxCoverableDistanceAdjacent(direction);
+				toBeExecutedDirection = direction;
+			}
+		}
+		if (toBeExecutedSteps > 0.0)
+			return new double[] { toBeExecutedSteps, toBeExecutedDirection };
+		for (double direction = worm.getDirection()-0.7875; direction <= worm.getDirection()+0.7875; direction = direction + 0.0175) {
+			double possibleMaxSuccesOfMoveValue = Math.abs(worm.getMaxCoverableDistancePassable(direction)/(Math.abs(direction-worm.getDirection())+0.5));
+			if (maxSuccesOfMoveValue < possibleMaxSuccesOfMoveValue) {
+				maxSuccesOfMoveValue = possibleMaxSuccesOfMoveValue;
+				toBeExecutedSteps = worm.getMaxCoverableDistancePassable(direction);
+				toBeExecutedDirection = direction;
+			}
+		}
+		return new double[] { toBeExecutedSteps, toBeExecutedDirection };
+	}
+
+	/**
+	 * The sweep with which worms decided whether they could move before the planner.
+	 */
+	private static boolean canMoveSwept(Worm worm) {
+		for (double steps = 1.0; steps >= 0.1/worm.getRadius(); steps = steps - 0.1)
+			for (double direction = worm.getDirection()-0.7875; direction <= worm.getDirection()+0.7875; direction = direction + 0.0175)
+				if (worm.canMove(steps, direction))
+					return true;
+		return false;
+	}
+
+	private static World createCaveWorld(Random random) {
+		// 120 by 90 pixels of 0.1 meter, with random rectangular rocks and a floor.
+		boolean[][] passableMap = new boolean[90][120];
+		for (int row = 0; row < 90; row++)
+			for (int column = 0; column < 120; column++)
+				passableMap[row][column] = row < 80;
+		for (int rock = 0; rock < 25; rock++) {
+			int top = random.nextInt(80), left = random.nextInt(120);
+			int height = 1 + random.nextInt(12), width = 1 + random.nextInt(12);
+			for (int row = top; row < Math.min(90, top + height); row++)
+				for (int column = left; column < Math.min(120, left + width); column++)
+					passableMap[row][column] = false;
+		}
+		return new World(12, 9, passableMap, new Random(random.nextLong()));
+	}
+
+	private static void checkSameMoveAsSweep(long seed) {
+		Random random = new Random(seed);
+		int planned = 0;
+		for (int trial = 0; trial < 300; trial++) {
+			World world = createCaveWorld(random);
+			double radius = 0.25 + random.nextDouble()*0.5;
+			double x = radius + random.nextDouble()*(12 - 2*radius);
+			double y = radius + random.nextDouble()*(9 - 2*radius);
+			if (! world.isPassableArea(x, y, radius))
+				continue;
+			Worm worm = new Worm(x, y, random.nextDouble()*2*Math.PI, radius, "Planned", true, world);
+			world.addAsGameObject(worm);
+			worm.setActionPoints(random.nextInt(worm.getMaximumActionPoints()/4 + 1));
+			double[] expected = getMoveSwept(worm);
+			MovePlanner planner = new MovePlanner(worm);
+			assertEquals(expected != null, worm.canMove());
+			if (expected == null) {
+				assertFalse(planner.hasMove());
+				continue;
+			}
+			planned++;
+			assertTrue(planner.hasMove());
+			assertEquals(expected[0], planner.getSteps(), 0);
+			assertEquals(expected[1], planner.getDirection(), 0);
+		}
+		assertTrue(planned > 100);
+	}
+
+	@Test
+	public void testSameMoveAsSweep() {
+		int threshold = MovePlanner.getParallelThreshold();
+		try {
+			MovePlanner.setParallelThreshold(Integer.MAX_VALUE);
+			checkSameMoveAsSweep(5);
+		} finally {
+			MovePlanner.setParallelThreshold(threshold);
+		}
+	}
+
+	@Test
+	public void testSameMoveAsSweepInParallel() {
+		int threshold = MovePlanner.getParallelThreshold();
+		try {
+			MovePlanner.setParallelThreshold(0);
+			checkSameMoveAsSweep(5);
+		} finally {
+			MovePlanner.setParallelThreshold(threshold);
+		}
+	}
+
+	@Test
+	public void testFewerTerrainQueriesOnFlatFloor() {
+		boolean[][] passableMap = new boolean[80][100];
+		for (int row = 0; row < 80; row++)
+			for (int column = 0; column < 100; column++)
+				passableMap[row][column] = row < 70;
+		World world = new World(10, 8, passableMap, new Random(3));
+		Worm worm = new Worm(5, 1.3, 0, 0.3, "Planned", true, world);
+		world.addAsGameObject(worm);
+		MovePlanner planner = new MovePlanner(worm);
+		assertTrue(planner.hasMove());
+		assertEquals(1.0, planner.getSteps(), 0);
+		assertTrue(planner.getNumberOfTerrainQueries() <= 10);
+	}
+
+	@Test
+	public void testClearancesOnlyWithDistanceField() {
+		boolean[][] passableMap = new boolean[80][100];
+		for (int row = 0; row < 80; row++)
+			for (int column = 0; column < 100; column++)
+				passableMap[row][column] = row < 70;
+		World world = new World(10, 8, passableMap, new Random(3));
+		// High in the air, where no candidate is adjacent.
+		Worm worm = new Worm(5, 5, 0, 0.3, "Planned", true, world);
+		world.addAsGameObject(worm);
+		MovePlanner planner = new MovePlanner(worm);
+		assertEquals(0, planner.getNumberOfClearanceQueries());
+		world.enableDistanceField();
+		MovePlanner pruned = new MovePlanner(worm);
+		assertTrue(pruned.getNumberOfClearanceQueries() > 0);
+		assertTrue(pruned.getNumberOfTerrainQueries() < planner.getNumberOfTerrainQueries());
+		assertEquals(planner.getSteps(), pruned.getSteps(), 0);
+		assertEquals(planner.getDirection(), pruned.getDirection(), 0);
+	}
+
+	@Test
+	public void testMoveExecutesPlan() {
+		boolean[][] passableMap = new boolean[80][100];
+		for (int row = 0; row < 80; row++)
+			for (int column = 0; column < 100; column++)
+				passableMap[row][column] = row < 70;
+		World world = new World(10, 8, passableMap, new Random(3));
+		Worm worm = new Worm(5, 1.3, 0, 0.3, "Planned", true, world);
+		world.addAsGameObject(worm);
+		MovePlanner planner = new MovePlanner(worm);
+		worm.move();
+		assertEquals(5 + 0.3*planner.getSteps()*Math.cos(planner.getDirection()), worm.getCoordinateX(), 1e-12);
+	}
+
+	@Test
+	public void testPlanIsKeptUntilStateOrTerrainChanges() {
+		boolean[][] passableMap = new boolean[80][100];
+		for (int row = 0; row < 80; row++)
+			for (int column = 0; column < 100; column++)
+				passableMap[row][column] = row < 70;
+		World world = new World(10, 8, passableMap, new Random(3));
+		Worm worm = new Worm(5, 1.3, 0, 0.3, "Planned", true, world);
+		world.addAsGameObject(worm);
+		MovePlanner planner = worm.getMovePlanner();
+		assertTrue(worm.canMove());
+		assertSame(planner, worm.getMovePlanner());
+		worm.setDirection(Math.PI);
+		assertNotSame(planner, worm.getMovePlanner());
+		planner = worm.getMovePlanner();
+		world.removeTerrain(2, 1, 0.5);
+		assertNotSame(planner, worm.getMovePlanner());
+		planner = worm.getMovePlanner();
+		worm.move();
+		assertNotSame(planner, worm.getMovePlanner());
+	}
+}
@@ -0,0 +1,88 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OccupancyPyramidTest {
+
+	private TerrainMap terrain;
+	private OccupancyPyramid pyramid;
+
+	@Before
+	public void setUp() {
+		// 100 rows of 120 pixels: open air above row 50, rock with a few caves below it.
+		terrain = new TerrainMap(120, 100);
+		Random random = new Random(23);
+		for (int row = 0; row < 100; row++)
+			for (int column = 0; column < 120; column++)
+				terrain.setPassable(row, column, (row < 50) || (random.nextInt(40) == 0));
+		pyramid = new OccupancyPyramid(terrain);
+	}
+
+	private boolean containsImpassable(DiskKernel kernel, boolean core, int centerRow, int centerColumn) {
+		int rows = core ? kernel.getCoreRows() : kernel.getReachRows();
+		for (int row = -rows; row <= rows; row++) {
+			int halfWidth = core ? kernel.getCoreHalfWidth(row) : kernel.getReachHalfWidth(row);
+			int holeWidth = core ? kernel.getHoleHalfWidth(row) : -1;
+			for (int column = -halfWidth; column <= halfWidth; column++)
+				if ((Math.abs(column) > holeWidth) && terrain.isValidPixel(centerRow + row, centerColumn + column)
+						&& ! terrain.isPassable(centerRow + row, centerColumn + column))
+					return true;
+		}
+		return false;
+	}
+
+	@Test
+	public void testBlocks() {
+		assertEquals(7, pyramid.getTopLevel());
+		assertTrue(pyramid.isPassableBlock(3, 0, 0));
+		assertFalse(pyramid.isImpassableBlock(3, 0, 0));
+		assertFalse(pyramid.isPassableBlock(7, 0, 0));
+		assertFalse(pyramid.isImpassableBlock(7, 0, 0));
+	}
+
+	@Test
+	public void testRectangleContainsImpassable() {
+		Random random = new Random(31);
+		for (int i = 0; i < 500; i++) {
+			int firstRow = random.nextInt(110) - 5, firstColumn = random.nextInt(130) - 5;
+			int lastRow = firstRow + random.nextInt(40), lastColumn = firstColumn + random.nextInt(40);
+			boolean expected = false;
+			for (int row = firstRow; row <= lastRow; row++)
+				for (int column = firstColumn; column <= lastColumn; column++)
+					if (terrain.isValidPixel(row, column) && ! terrain.isPassable(row, column))
+						expected = true;
+			assertEquals(expected, pyramid.containsImpassable(firstRow, firstColumn, lastRow, lastColumn));
+		}
+	}
+
+	@Test
+	public void testContainsImpassable() {
+		Random random = new Random(29);
+		for (int i = 0; i < 300; i++) {
+			DiskKernel kernel = new DiskKernel(0.1 + 2*random.nextDouble(), 0.1, 0.1, 0.05);
+			int centerRow = random.nextInt(100);
+			int centerColumn = random.nextInt(120);
+			assertEquals(containsImpassable(kernel, false, centerRow, centerColumn),
+					pyramid.containsImpassable(kernel, false, centerRow, centerColumn));
+			assertEquals(containsImpassable(kernel, true, centerRow, centerColumn),
+					pyramid.containsImpassable(kernel, true, centerRow, centerColumn));
+		}
+	}
+
+	@Test
+	public void testUpdate() {
+		for (int row = 0; row < 8; row++)
+			for (int column = 0; column < 8; column++)
+				terrain.setPassable(row, column, false);
+		pyramid.update(0, 0, 7, 7);
+		assertTrue(pyramid.isImpassableBlock(3, 0, 0));
+		assertFalse(pyramid.isPassableBlock(4, 0, 0));
+		DiskKernel kernel = new DiskKernel(0.5, 0.1, 0.1, 0.05);
+		assertTrue(pyramid.containsImpassable(kernel, false, 10, 10));
+	}
+}
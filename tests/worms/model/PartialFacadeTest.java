@@ -89,4 +89,18 @@ public class PartialFacadeTest {
 		assertEquals(1.5, facade.getX(worm), EPS);
 		assertEquals(1.5, facade.getY(worm), EPS);
 	}
+
+	@Test
+	public void testFillJumpStep() {
+		Worm worm = facade.createWorm(world, 1, 1.5, Math.PI / 4, 0.5, "Test");
+		double[] position = new double[2];
+		facade.fillJumpStep(worm, 0.1, position);
+		assertArrayEquals(facade.getJumpStep(worm, 0.1), position, 0);
+	}
+
+	@Test(expected = ModelException.class)
+	public void testFillJumpStepShortArray() {
+		Worm worm = facade.createWorm(world, 1, 1.5, Math.PI / 4, 0.5, "Test");
+		facade.fillJumpStep(worm, 0.1, new double[1]);
+	}
 }
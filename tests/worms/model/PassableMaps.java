@@ -0,0 +1,37 @@
+package worms.model;
+
+import java.util.Arrays;
+
+/**
+ * Passable maps for the worlds of the tests, made of rectangles of impassable pixels
+ * in otherwise passable terrain. Rows are counted from the top, as in the passable map.
+ */
+class PassableMaps {
+
+	/**
+	 * Returns a map of the given size in pixels in which every pixel is passable.
+	 */
+	static boolean[][] open(int columns, int rows) {
+		boolean[][] passableMap = new boolean[rows][columns];
+		for (boolean[] row : passableMap)
+			Arrays.fill(row, true);
+		return passableMap;
+	}
+
+	/**
+	 * Returns a map of the given size in pixels in which the given number of bottom rows is impassable.
+	 */
+	static boolean[][] withFloor(int columns, int rows, int floorRows) {
+		return block(open(columns, rows), rows - floorRows, rows, 0, columns);
+	}
+
+	/**
+	 * Makes the pixels of the given map from the first row and column up to, but not including,
+	 * the last row and column impassable, and returns the given map.
+	 */
+	static boolean[][] block(boolean[][] passableMap, int fromRow, int toRow, int fromColumn, int toColumn) {
+		for (int row = fromRow; row < toRow; row++)
+			Arrays.fill(passableMap[row], fromColumn, toColumn, false);
+		return passableMap;
+	}
+}
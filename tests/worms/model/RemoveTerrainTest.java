@@ -0,0 +1,66 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RemoveTerrainTest {
+
+	private World world;
+
+	@Before
+	public void setUp() {
+		// 80 by 80 pixels of 0.1 meter, impassable below row 40.
+		world = new World(8, 8, PassableMaps.withFloor(80, 80, 40), new Random(3));
+		world.enableDistanceField();
+		world.enableImpassableCounts();
+	}
+
+	@Test
+	public void testRemoveTerrainClearsDisk() {
+		world.removeTerrain(4, 4, 1);
+		assertTrue(world.isPassablePixel(40, 40));
+		assertTrue(world.isPassablePixel(49, 40));
+		assertFalse(world.isPassablePixel(51, 40));
+		assertTrue(world.isPassablePixel(40, 49));
+		assertFalse(world.isPassablePixel(40, 51));
+		assertFalse(world.isPassablePixel(48, 48));
+	}
+
+	@Test(expected = ModelException.class)
+	public void testRemoveTerrainIllegalRadius() {
+		world.removeTerrain(4, 4, -1);
+	}
+
+	@Test
+	public void testChangedTerrainRegions() {
+		assertEquals(0, world.takeChangedTerrainRegions().length);
+		world.removeTerrain(4, 6, 1);
+		assertEquals(0, world.takeChangedTerrainRegions().length);
+		world.removeTerrain(4, 4, 1);
+		int[][] regions = world.takeChangedTerrainRegions();
+		assertEquals(1, regions.length);
+		assertArrayEquals(new int[] {40, 30, 49, 49}, regions[0]);
+		assertEquals(0, world.takeChangedTerrainRegions().length);
+	}
+
+	@Test
+	public void testIndexesUpdated() {
+		world.removeTerrain(4, 4, 1);
+		world.removeTerrain(2.5, 3.5, 0.7);
+		World rebuilt = new World(8, 8, world.getTerrain().toPassableMap(), new Random(3));
+		rebuilt.enableImpassableCounts();
+		Random random = new Random(31);
+		for (int i = 0; i < 2000; i++) {
+			double x = 8*random.nextDouble();
+			double y = 8*random.nextDouble();
+			double radius = 0.05 + random.nextDouble();
+			assertEquals(rebuilt.isPassableArea(x, y, radius), world.isPassableArea(x, y, radius));
+		}
+		assertEquals(rebuilt.getImpassableCounts().countImpassable(0, 0, 79, 79),
+				world.getImpassableCounts().countImpassable(0, 0, 79, 79));
+	}
+}
@@ -0,0 +1,92 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShotSolutionTest {
+
+	private World world;
+	private Worm shooter;
+	private Worm target;
+
+	@Before
+	public void setUp() {
+		// Pixels of 0.5 meter, with a floor of 0.5 meter and a wall of 2 meter in the middle.
+		world = new World(20, 8, PassableMaps.block(PassableMaps.withFloor(40, 16, 1), 11, 15, 19, 21), new Random(3));
+		shooter = new Worm(3, 0.81, 0, 0.3, "Shooter", true, world);
+		world.addAsGameObject(shooter);
+		target = new Worm(16, 0.81, 0, 0.3, "Target", true, world);
+		world.addAsGameObject(target);
+	}
+
+	private Projectile selectBazooka() {
+		if (! (shooter.getProjectile() instanceof Bazooka))
+			shooter.selectWeapon();
+		return shooter.getProjectile();
+	}
+
+	@Test
+	public void testBazookaOverWall() {
+		selectBazooka();
+		ShotSolution solution = new ShotSolution(shooter, target);
+		assertTrue(solution.isFound());
+		assertTrue(Projectile.isValidYield(solution.getYield()));
+		assertTrue((solution.getDirection() >= 0) && (solution.getDirection() < 2*Math.PI));
+		assertSame(target, solution.getShot(solution.getDirection(), solution.getYield()).getJumpTarget());
+	}
+
+	@Test
+	public void testRifleWithoutWall() {
+		world.removeTerrain(10, 1.5, 1.2);
+		ShotSolution solution = new ShotSolution(shooter, target);
+		assertTrue(solution.isFound());
+		assertEquals(0, solution.getYield());
+		Projectile shot = solution.getShot(solution.getDirection(), solution.getYield());
+		assertTrue(shot instanceof Rifle);
+		assertSame(target, shot.getJumpTarget());
+	}
+
+	@Test
+	public void testParallelGivesSameSolution() {
+		selectBazooka();
+		int threshold = ShotSolution.getParallelThreshold();
+		try {
+			ShotSolution.setParallelThreshold(Integer.MAX_VALUE);
+			ShotSolution sequential = new ShotSolution(shooter, target);
+			ShotSolution.setParallelThreshold(0);
+			ShotSolution parallel = new ShotSolution(shooter, target);
+			assertEquals(sequential.getYield(), parallel.getYield());
+			assertEquals(sequential.getDirection(), parallel.getDirection(), 0);
+		} finally {
+			ShotSolution.setParallelThreshold(threshold);
+		}
+	}
+
+	@Test
+	public void testTargetBehindWallToTheSky() {
+		World walled = new World(20, 8, PassableMaps.block(PassableMaps.withFloor(40, 16, 1), 0, 15, 19, 21), new Random(3));
+		Worm left = new Worm(3, 0.81, 0, 0.3, "Shooter", true, walled);
+		walled.addAsGameObject(left);
+		Worm right = new Worm(16, 0.81, 0, 0.3, "Target", true, walled);
+		walled.addAsGameObject(right);
+		left.selectWeapon();
+		ShotSolution solution = new ShotSolution(left, right);
+		assertFalse(solution.isFound());
+		assertEquals(-1, solution.getYield());
+		assertTrue(Double.isNaN(solution.getDirection()));
+	}
+
+	@Test(expected = ModelException.class)
+	public void testShooterIsTarget() {
+		new ShotSolution(shooter, shooter);
+	}
+
+	@Test(expected = ModelException.class)
+	public void testOnlyActiveWormShoots() {
+		new ShotSolution(target, shooter);
+	}
+}
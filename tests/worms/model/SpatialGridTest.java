@@ -0,0 +1,113 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpatialGridTest {
+
+	private World world;
+	private Random random;
+
+	@Before
+	public void setUp() {
+		// Pixels of 5 meter, all passable.
+		world = new World(20, 15, PassableMaps.open(4, 3), new Random(3));
+		random = new Random(7);
+	}
+
+	@Test
+	public void testQueriesAgreeWithScans() {
+		SpatialGrid<Food> grid = new SpatialGrid<Food>(20, 15);
+		List<Food> food = new ArrayList<Food>();
+		for (int i = 0; i < 60; i++) {
+			Food snack = new Food(random.nextDouble()*20, random.nextDouble()*15, true, world);
+			food.add(snack);
+			grid.add(snack);
+		}
+		for (int i = 0; i < 2000; i++) {
+			Food snack = food.get(random.nextInt(food.size()));
+			if (random.nextBoolean())
+				snack.setCoordinates(random.nextDouble()*20, random.nextDouble()*15);
+			else
+				snack.setRadius(0.05 + random.nextDouble()*1.5);
+			grid.update(snack);
+			double x = random.nextDouble()*22 - 1, y = random.nextDouble()*17 - 1, radius = random.nextDouble();
+			Food excluded = food.get(random.nextInt(food.size()));
+			Food expected = null;
+			for (Food candidate : food)
+				if ((candidate != excluded) && GameObject.overlaps(candidate.getCoordinateX(), candidate.getCoordinateY(),
+						candidate.getRadius(), x, y, radius)) {
+					expected = candidate;
+					break;
+				}
+			assertSame(expected, grid.getFirstOverlapping(x, y, radius, excluded));
+			assertEquals(expected != null, grid.hasOverlapping(x, y, radius, excluded));
+		}
+	}
+
+	@Test
+	public void testRectangleQueriesAgreeWithScans() {
+		SpatialGrid<Food> grid = new SpatialGrid<Food>(20, 15);
+		List<Food> food = new ArrayList<Food>();
+		for (int i = 0; i < 80; i++) {
+			Food snack = new Food(random.nextDouble()*22 - 1, random.nextDouble()*17 - 1, true, world);
+			snack.setRadius(0.05 + random.nextDouble()*1.5);
+			food.add(snack);
+			grid.add(snack);
+		}
+		for (int i = 0; i < 500; i++) {
+			double minX = random.nextDouble()*24 - 2, minY = random.nextDouble()*19 - 2;
+			double maxX = minX + random.nextDouble()*6, maxY = minY + random.nextDouble()*6;
+			Food excluded = food.get(random.nextInt(food.size()));
+			Set<Food> expected = new HashSet<Food>();
+			for (Food candidate : food) {
+				double x = candidate.getCoordinateX(), y = candidate.getCoordinateY(), radius = candidate.getRadius();
+				if ((candidate != excluded) && (x + radius >= minX) && (x - radius <= maxX)
+						&& (y + radius >= minY) && (y - radius <= maxY))
+					expected.add(candidate);
+			}
+			Set<Food> actual = new HashSet<Food>();
+			grid.addTouching(minX, minY, maxX, maxY, excluded, actual);
+			assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void testRemovedObjectsAreNotFound() {
+		SpatialGrid<Food> grid = new SpatialGrid<Food>(20, 15);
+		Food first = new Food(5, 5, true, world);
+		Food second = new Food(5.1, 5, true, world);
+		grid.add(first);
+		grid.add(second);
+		assertSame(first, grid.getFirstOverlapping(5, 5, 0.1, null));
+		grid.remove(first);
+		assertFalse(grid.contains(first));
+		assertSame(second, grid.getFirstOverlapping(5, 5, 0.1, null));
+		assertNull(grid.getFirstOverlapping(5, 5, 0.1, second));
+	}
+
+	@Test
+	public void testWorldFollowsMovingObjects() {
+		Worm worm = new Worm(2, 2, 0, 0.5, "Grid", true, world);
+		world.addAsGameObject(worm);
+		Food snack = new Food(10, 10, true, world);
+		world.addAsGameObject(snack);
+		assertNull(world.getFoodThatOverlaps(worm));
+		snack.setCoordinates(2.5, 2.2);
+		assertSame(snack, world.getFoodThatOverlaps(worm));
+		snack.setCoordinates(10, 10);
+		worm.setRadius(0.6);
+		worm.setCoordinates(9.5, 10);
+		assertFalse(snack.getStatus());
+		assertTrue(world.getAllFood().isEmpty());
+		assertNull(world.getFoodThatOverlaps(worm));
+	}
+}
@@ -0,0 +1,83 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SummedAreaTableTest {
+
+	private TerrainMap terrain;
+	private SummedAreaTable table;
+
+	@Before
+	public void setUp() {
+		// 150 by 200 pixels, so that the tiles at the right and bottom edges are partial.
+		boolean[][] passableMap = new boolean[150][200];
+		Random random = new Random(17);
+		for (int row = 0; row < 150; row++)
+			for (int column = 0; column < 200; column++)
+				passableMap[row][column] = random.nextInt(3) != 0;
+		terrain = new TerrainMap(passableMap);
+		table = new SummedAreaTable(terrain);
+	}
+
+	private int countImpassable(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		int count = 0;
+		for (int row = firstRow; row <= lastRow; row++)
+			count += terrain.countImpassable(row, firstColumn, lastColumn);
+		return count;
+	}
+
+	@Test
+	public void testCountImpassable() {
+		Random random = new Random(19);
+		for (int i = 0; i < 500; i++) {
+			int firstRow = random.nextInt(150);
+			int firstColumn = random.nextInt(200);
+			int lastRow = firstRow + random.nextInt(150 - firstRow);
+			int lastColumn = firstColumn + random.nextInt(200 - firstColumn);
+			assertEquals(countImpassable(firstRow, firstColumn, lastRow, lastColumn),
+					table.countImpassable(firstRow, firstColumn, lastRow, lastColumn));
+		}
+	}
+
+	@Test
+	public void testWorldIsTheSameWithoutTable() {
+		// 40 by 30 meter, with a floor of 2 meter and the random pixels of the terrain as a cave in the middle.
+		boolean[][] passableMap = PassableMaps.withFloor(400, 300, 20);
+		for (int row = 100; row < 150; row++)
+			for (int column = 150; column < 250; column++)
+				passableMap[row][column] = terrain.isPassable(row, column);
+		World world = new World(40, 30, passableMap, new Random(3));
+		World worldWithTable = new World(40, 30, passableMap, new Random(3));
+		worldWithTable.enableImpassableCounts();
+		assertNull(world.getImpassableCounts());
+		assertNotNull(worldWithTable.getImpassableCounts());
+		Random random = new Random(23);
+		for (int i = 0; i < 2000; i++) {
+			double x = 40*random.nextDouble();
+			double y = 30*random.nextDouble();
+			double radius = 0.05 + random.nextDouble();
+			assertEquals(worldWithTable.isPassableArea(x, y, radius), world.isPassableArea(x, y, radius));
+			assertEquals(worldWithTable.getPassableClearance(x, y, radius), world.getPassableClearance(x, y, radius), 0);
+		}
+	}
+
+	@Test
+	public void testCountImpassableWholeMap() {
+		assertEquals(countImpassable(0, 0, 149, 199), table.countImpassable(0, 0, 149, 199));
+	}
+
+	@Test
+	public void testUpdate() {
+		for (int row = 60; row < 70; row++)
+			for (int column = 120; column < 140; column++)
+				terrain.setPassable(row, column, false);
+		table.update(60, 120, 69, 139);
+		assertEquals(200, table.countImpassable(60, 120, 69, 139));
+		assertEquals(countImpassable(0, 0, 149, 199), table.countImpassable(0, 0, 149, 199));
+	}
+}
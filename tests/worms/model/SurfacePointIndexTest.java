@@ -0,0 +1,73 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SurfacePointIndexTest {
+
+	private World world;
+
+	@Before
+	public void setUp() {
+		// 100 by 80 pixels of 0.1 meter, with a sloped hill and a floating block.
+		boolean[][] passableMap = new boolean[80][100];
+		for (int row = 0; row < 80; row++)
+			for (int column = 0; column < 100; column++)
+				passableMap[row][column] = (row < 60 - column/5) && ! ((row >= 20) && (row < 25) && (column >= 40) && (column < 60));
+		world = new World(10, 8, passableMap, new Random(3));
+	}
+
+	@Test
+	public void testLocationsAreAdjacent() {
+		SurfacePointIndex index = world.getSurfacePointIndex(0.3);
+		assertTrue(index.getNumberOfLocations() > 100);
+		for (int i = 0; i < index.getNumberOfLocations(); i++)
+			assertTrue(world.isAdjacent(index.getLocationX(i), index.getLocationY(i), 0.3));
+		assertSame(index, world.getSurfacePointIndex(0.3));
+	}
+
+	@Test
+	public void testIndexCoversSurfaces() {
+		SurfacePointIndex index = world.getSurfacePointIndex(0.2);
+		boolean onBlock = false;
+		boolean onHill = false;
+		for (int i = 0; i < index.getNumberOfLocations(); i++) {
+			if (index.getLocationY(i) > 5.4)
+				onBlock = true;
+			if (index.getLocationY(i) < 4)
+				onHill = true;
+		}
+		assertTrue(onBlock);
+		assertTrue(onHill);
+	}
+
+	@Test
+	public void testAddManyWorms() {
+		for (int i = 0; i < 200; i++)
+			world.addWorm();
+		assertEquals(200, world.getAllWorms().size());
+	}
+
+	@Test
+	public void testAddManyFood() {
+		for (int i = 0; i < 200; i++)
+			world.addFood();
+		assertEquals(200, world.getAllFood().size());
+	}
+
+	@Test
+	public void testIndexRebuiltAfterCrater() {
+		SurfacePointIndex index = world.getSurfacePointIndex(0.3);
+		world.removeTerrain(5, 3, 1);
+		assertNotSame(index, world.getSurfacePointIndex(0.3));
+	}
+
+	@Test(expected = ModelException.class)
+	public void testAddWormWithoutTerrain() {
+		new World(4, 4, PassableMaps.open(4, 4), new Random(5)).addWorm();
+	}
+}
@@ -0,0 +1,84 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SweptCollisionTest {
+
+	private World world;
+	private Worm shooter;
+
+	@Before
+	public void setUp() {
+		// Pixels of 0.5 meter, open air above a floor of 0.5 meter.
+		world = new World(20, 8, PassableMaps.withFloor(40, 16, 1), new Random(3));
+		shooter = new Worm(1, 0.8, 0, 0.3, "Shooter", true, world);
+		world.addAsGameObject(shooter);
+	}
+
+	@Test
+	public void testPositiveRootsOfCubic() {
+		// (t-1)(t-2)(t+3) = t^3 - 7t + 6
+		assertArrayEquals(new double[] {1, 2}, SweptCollision.getPositiveRoots(1, 0, -7, 6), 1e-12);
+		// 2(t-0.5)(t^2+1) = 2t^3 - t^2 + 2t - 1
+		assertArrayEquals(new double[] {0.5}, SweptCollision.getPositiveRoots(2, -1, 2, -1), 1e-12);
+		assertArrayEquals(new double[] {3}, SweptCollision.getPositiveRoots(0, 1, -2, -3), 1e-12);
+	}
+
+	@Test
+	public void testContactMatchesDenseSampling() {
+		Random random = new Random(7);
+		for (int trial = 0; trial < 200; trial++) {
+			Projectile projectile = new Rifle(1 + random.nextDouble(), 1 + 6*random.nextDouble(), true, world, random.nextDouble()*Math.PI);
+			double x = 2 + 17*random.nextDouble(), y = 1 + 6*random.nextDouble(), radius = 0.05 + random.nextDouble();
+			double contact = SweptCollision.getFirstContactTime(projectile, x, y, radius, 2);
+			double first = Double.POSITIVE_INFINITY;
+			for (double time = 0; time <= 2; time = time + 1e-5)
+				if (SweptCollision.overlapsAt(projectile, time, x, y, radius)) {
+					first = time;
+					break;
+				}
+			if (first == Double.POSITIVE_INFINITY)
+				assertTrue(contact > 2 - 1e-5);
+			else {
+				assertTrue(contact <= first);
+				assertTrue(first - contact <= 1.1e-5);
+				assertTrue(SweptCollision.overlapsAt(projectile, contact, x, y, radius));
+			}
+		}
+	}
+
+	@Test
+	public void testContactDoesNotDependOnLimit() {
+		Projectile projectile = new Rifle(1.3, 0.8, true, world, 0.1);
+		double contact = SweptCollision.getFirstContactTime(projectile, 10, 1.5, 0.25, 5);
+		assertTrue(contact < 5);
+		assertEquals(contact, SweptCollision.getFirstContactTime(projectile, 10, 1.5, 0.25, contact), 0);
+		assertEquals(Double.POSITIVE_INFINITY, SweptCollision.getFirstContactTime(projectile, 10, 1.5, 0.25, 0.5*contact), 0);
+	}
+
+	@Test
+	public void testFastBulletHitsThinWorm() {
+		// A bullet of a centimetre crosses this worm in well under a sampling step of 10^-4 s.
+		Worm target = new Worm(12, 1.3, 0, 0.25, "Target", true, world);
+		world.addAsGameObject(target);
+		Projectile projectile = new Rifle(1.31, 0.8, true, world, 0);
+		projectile.setDirection(Math.atan2(0.5, 11) + 0.01);
+		int hitPoints = target.getHitPoints();
+		assertSame(target, projectile.getFirstWormHit(projectile.getJumpRealTimeInAir(1e-4)));
+		assertSame(target, projectile.getJumpTarget());
+		projectile.jump(projectile.getJumpTimeStep());
+		assertTrue(target.getHitPoints() < hitPoints);
+		assertTrue(projectile.overlapsGameObject(target));
+	}
+
+	@Test
+	public void testShooterIsNotHit() {
+		Projectile projectile = new Rifle(1.3, 0.8, true, world, 0);
+		assertNull(projectile.getFirstWormHit(10));
+	}
+}
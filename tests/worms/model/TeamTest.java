@@ -71,4 +71,48 @@ public class TeamTest {
 		assertFalse(team.getLivingWorms().contains(Fitzgerald));
 	}
 	
+	@Test
+	public void testJoinTeamAddsWormOnce() {
+		Team team = new Team("Team");
+		John.joinTeam(team);
+		assertTrue(team.getWorms().contains(John));
+		team.addWorm(John);
+		assertEquals(1, team.getWorms().size());
+		assertEquals(1, team.getNumberOfLivingWorms());
+		Team other = new Team("Other");
+		John.joinTeam(other);
+		assertFalse(team.getWorms().contains(John));
+		assertEquals(0, team.getNumberOfLivingWorms());
+		assertEquals(1, other.getNumberOfLivingWorms());
+	}
+	
+	@Test
+	public void testGameEndsWhenOneSideSurvives() {
+		world.addAsGameObject(John);
+		world.addAsGameObject(Fitzgerald);
+		assertFalse(world.isGameFinished());
+		Team team = new Team("Team");
+		team.setWorld(world);
+		John.joinTeam(team);
+		assertFalse(world.isGameFinished());
+		Fitzgerald.joinTeam(team);
+		assertTrue(world.isGameFinished());
+		assertEquals("Team", world.getWinner());
+		Fitzgerald.setHitPoints(0);
+		assertEquals(1, team.getNumberOfLivingWorms());
+		John.setHitPoints(-1);
+		assertEquals(0, team.getNumberOfLivingWorms());
+		assertTrue(world.isGameFinished());
+		assertEquals("Nobody", world.getWinner());
+	}
+	
+	@Test
+	public void testGameEndsWithOneWormWithoutTeam() {
+		world.addAsGameObject(John);
+		world.addAsGameObject(Fitzgerald);
+		Fitzgerald.setHitPoints(-1);
+		assertTrue(world.isGameFinished());
+		assertEquals("John", world.getWinner());
+	}
+	
 }
@@ -0,0 +1,101 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TerrainMapTest {
+
+	private boolean[][] passableMap;
+	private TerrainMap terrain;
+
+	@Before
+	public void setUp() {
+		// 3 rows of 130 pixels, so that each row spans three words.
+		passableMap = new boolean[3][130];
+		for (int column = 0; column < 130; column++) {
+			passableMap[0][column] = true;
+			passableMap[1][column] = (column < 60) || (column > 70);
+			passableMap[2][column] = (column == 129);
+		}
+		terrain = new TerrainMap(passableMap);
+	}
+
+	@Test
+	public void testConstructorDimensions() {
+		assertEquals(130, terrain.getWidthInPixels());
+		assertEquals(3, terrain.getHeightInPixels());
+	}
+
+	@Test(expected = ModelException.class)
+	public void testConstructorIllegalDimension() {
+		new TerrainMap(-1, 5);
+	}
+
+	@Test
+	public void testIsPassableMatchesBooleanMap() {
+		for (int row = 0; row < 3; row++)
+			for (int column = 0; column < 130; column++)
+				assertEquals(passableMap[row][column], terrain.isPassable(row, column));
+	}
+
+	@Test
+	public void testToPassableMap() {
+		boolean[][] result = terrain.toPassableMap();
+		for (int row = 0; row < 3; row++)
+			for (int column = 0; column < 130; column++)
+				assertEquals(passableMap[row][column], result[row][column]);
+	}
+
+	@Test
+	public void testSetPassable() {
+		terrain.setPassable(2, 64, true);
+		assertTrue(terrain.isPassable(2, 64));
+		assertFalse(terrain.isPassable(2, 63));
+		terrain.setPassable(2, 64, false);
+		assertFalse(terrain.isPassable(2, 64));
+	}
+
+	@Test(expected = ModelException.class)
+	public void testSetPassableOutsideMap() {
+		terrain.setPassable(3, 0, true);
+	}
+
+	@Test
+	public void testIsPassableRun() {
+		assertTrue(terrain.isPassableRun(0, 0, 129));
+		assertTrue(terrain.isPassableRun(1, 0, 59));
+		assertTrue(terrain.isPassableRun(1, 71, 129));
+		assertFalse(terrain.isPassableRun(1, 50, 80));
+		assertFalse(terrain.isPassableRun(2, 0, 129));
+		assertTrue(terrain.isPassableRun(2, 129, 129));
+		assertTrue(terrain.isPassableRun(2, 10, 9));
+	}
+
+	@Test
+	public void testIsImpassableRun() {
+		assertTrue(terrain.isImpassableRun(1, 60, 70));
+		assertFalse(terrain.isImpassableRun(1, 59, 70));
+		assertTrue(terrain.isImpassableRun(2, 0, 128));
+		assertFalse(terrain.isImpassableRun(2, 0, 129));
+	}
+
+	@Test
+	public void testCountImpassable() {
+		assertEquals(0, terrain.countImpassable(0, 0, 129));
+		assertEquals(11, terrain.countImpassable(1, 0, 129));
+		assertEquals(129, terrain.countImpassable(2, 0, 129));
+		assertEquals(5, terrain.countImpassable(1, 66, 127));
+	}
+
+	@Test
+	public void testNextImpassableAndPassable() {
+		assertEquals(-1, terrain.nextImpassable(0, 0));
+		assertEquals(60, terrain.nextImpassable(1, 0));
+		assertEquals(65, terrain.nextImpassable(1, 65));
+		assertEquals(-1, terrain.nextImpassable(1, 71));
+		assertEquals(71, terrain.nextPassable(1, 60));
+		assertEquals(129, terrain.nextPassable(2, 0));
+	}
+}
@@ -0,0 +1,91 @@
+package worms.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TrajectoryTest {
+
+	private World world;
+	private Worm worm;
+
+	@Before
+	public void setUp() {
+		// Pixels of 0.5 meter, with a flat floor of 1 meter.
+		world = new World(10, 8, PassableMaps.withFloor(20, 16, 2), new Random(3));
+		worm = new Worm(2, 1.3, Math.PI/3, 0.3, "Sampled", true, world);
+		world.addAsGameObject(worm);
+	}
+
+	@Test
+	public void testEndsWhereTheJumpLands() {
+		Trajectory trajectory = worm.getJumpTrajectory();
+		assertEquals(worm.getJumpRealTimeInAir(worm.getJumpTimeStep()), trajectory.getDuration(), 0);
+		assertFalse(trajectory.leavesWorld());
+		assertTrue(trajectory.landsOnTerrain());
+		assertNull(trajectory.getTarget());
+		worm.jump(1e-4);
+		assertEquals(trajectory.getEndX(), worm.getCoordinateX(), 0);
+		assertEquals(trajectory.getEndY(), worm.getCoordinateY(), 0);
+	}
+
+	@Test
+	public void testPositionsFollowTheJump() {
+		Trajectory trajectory = worm.getJumpTrajectory();
+		assertTrue(trajectory.getNumberOfPositions() >= 2);
+		double[] position = new double[2];
+		for (int index = 0; index < trajectory.getNumberOfPositions(); index++) {
+			double time = trajectory.getTime(index);
+			assertEquals(worm.getJumpStepX(time), trajectory.getX(index), 0);
+			assertEquals(worm.getJumpStepY(time), trajectory.getY(index), 0);
+			trajectory.getPosition(time, position);
+			assertEquals(trajectory.getX(index), position[0], 1e-9);
+			assertEquals(trajectory.getY(index), position[1], 1e-9);
+		}
+		trajectory.getPosition(0.37*trajectory.getDuration(), position);
+		assertEquals(worm.getJumpStepX(0.37*trajectory.getDuration()), position[0], 1e-3);
+		assertEquals(worm.getJumpStepY(0.37*trajectory.getDuration()), position[1], 1e-3);
+		trajectory.getPosition(2*trajectory.getDuration(), position);
+		assertEquals(trajectory.getEndX(), position[0], 0);
+		assertEquals(trajectory.getEndY(), position[1], 0);
+	}
+
+	@Test
+	public void testCachedUntilStateChanges() {
+		Trajectory trajectory = worm.getJumpTrajectory();
+		assertSame(trajectory, worm.getJumpTrajectory());
+		double endX = trajectory.getEndX();
+		worm.setDirection(Math.PI/4);
+		assertNotSame(trajectory, worm.getJumpTrajectory());
+		assertEquals(endX, trajectory.getEndX(), 0);
+	}
+
+	@Test
+	public void testLeavesWorld() {
+		worm.setCoordinates(9.5, 1.3);
+		worm.setDirection(0.5);
+		Trajectory trajectory = worm.getJumpTrajectory();
+		assertTrue(trajectory.leavesWorld());
+		assertFalse(trajectory.landsOnTerrain());
+		worm.jump(1e-4);
+		assertFalse(worm.getStatus());
+	}
+
+	@Test
+	public void testRecordsTheHitWorm() {
+		Worm target = new Worm(3.5, 1.3, 0, 0.3, "Target", true, world);
+		world.addAsGameObject(target);
+		Projectile projectile = worm.getProjectile();
+		projectile.setDirection(0);
+		projectile.setCoordinates(2.3, 1.3);
+		Trajectory trajectory = projectile.getJumpTrajectory();
+		assertSame(target, trajectory.getTarget());
+		assertFalse(trajectory.landsOnTerrain() || trajectory.leavesWorld());
+		int hitPoints = target.getHitPoints();
+		projectile.jump(projectile.getJumpTimeStep());
+		assertTrue(target.getHitPoints() < hitPoints);
+	}
+}